@@ -0,0 +1,102 @@
+package benchmarks;
+
+import gui.ClipboardService;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.DataFormat;
+import org.fxmisc.richtext.CodeArea;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * copies and pastes a large selection through the old menu path (the selection put in a HashMap, read back with
+ * getString) and through {@link ClipboardService}, run with -prof gc to see the bytes every copy and paste allocates
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ClipboardBenchmark {
+
+    @Param({"10", "100"})
+    public int megabytes;
+
+    private CodeArea area;
+    private Clipboard clipboard;
+    private ClipboardService service;
+
+    @Setup(Level.Trial)
+    public void createSelection() throws InterruptedException {
+        FxThread.start();
+        String text = createText(megabytes);
+        area = FxThread.call(() -> {
+            CodeArea area = new CodeArea(text);
+            area.selectAll();
+            return area;
+        });
+        clipboard = FxThread.call(Clipboard::getSystemClipboard);
+        service = FxThread.call(ClipboardService::getInstance);
+    }
+
+    /**
+     * the pastes read what the last copy of the service left in the clipboard
+     */
+    @Setup(Level.Iteration)
+    public void copy() {
+        FxThread.call(() -> {
+            service.copy(area.getSelectedText());
+            return null;
+        });
+    }
+
+    @Benchmark
+    public boolean oldCopy() {
+        return FxThread.call(() -> {
+            Map<DataFormat, Object> hashMap = new HashMap<>();
+            hashMap.put(DataFormat.PLAIN_TEXT, area.getSelectedText());
+            return clipboard.setContent(hashMap);
+        });
+    }
+
+    @Benchmark
+    public String oldPaste() {
+        return FxThread.call(clipboard::getString);
+    }
+
+    @Benchmark
+    public ClipboardService serviceCopy() {
+        return FxThread.call(() -> {
+            service.copy(area.getSelectedText());
+            return service;
+        });
+    }
+
+    @Benchmark
+    public String servicePaste() {
+        return FxThread.call(service::paste);
+    }
+
+    private static String createText(int megabytes) {
+        StringBuilder text = new StringBuilder(megabytes << 20);
+        String line = "2024-01-02 10:00:00,123 INFO a line of a large log file that is selected and copied\n";
+        while (text.length() + line.length() <= megabytes << 20) {
+            text.append(line);
+        }
+        return text.toString();
+    }
+}
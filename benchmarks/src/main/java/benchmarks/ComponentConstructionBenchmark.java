@@ -0,0 +1,48 @@
+package benchmarks;
+
+import gui.components.FindReplaceToolBar;
+import gui.components.TextSpace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the cost of building the per tab components, a TextSpace and a FindReplaceToolBar, from fxml and in code
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComponentConstructionBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fromFxml;
+
+    @Setup(Level.Trial)
+    public void startToolkit() throws InterruptedException {
+        FxThread.start();
+    }
+
+    @Benchmark
+    public void tab(Blackhole blackhole) {
+        FxThread.call(() -> {
+            blackhole.consume(new TextSpace(fromFxml));
+            blackhole.consume(new FindReplaceToolBar(fromFxml));
+            return null;
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import smallUndoEngine.EditorTextHistory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the undo engine under typing traces: every keystroke hands the whole text to the history like TEXT_CHANGED does,
+ * then the whole trace is undone and redone
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EditBenchmark {
+
+    @Param({"500", "5000"})
+    public int keystrokes;
+
+    private List<String> trace;
+    private EditorTextHistory typed;
+
+    @Setup(Level.Trial)
+    public void createTrace() {
+        trace = TypingTrace.create(keystrokes, 42);
+    }
+
+    /**
+     * undo and redo change the history, every call gets a freshly typed one
+     */
+    @Setup(Level.Invocation)
+    public void type() {
+        typed = replay(trace);
+    }
+
+    @Benchmark
+    public EditorTextHistory typing() {
+        return replay(trace);
+    }
+
+    @Benchmark
+    public String undoAll() {
+        for (int i = 0; i < trace.size(); i++) {
+            typed.undo();
+        }
+        return typed.getText();
+    }
+
+    @Benchmark
+    public String undoThenRedoAll() {
+        for (int i = 0; i < trace.size(); i++) {
+            typed.undo();
+        }
+        for (int i = 0; i < trace.size(); i++) {
+            typed.redo();
+        }
+        return typed.getText();
+    }
+
+    private static EditorTextHistory replay(List<String> trace) {
+        EditorTextHistory history = new EditorTextHistory();
+        for (String text : trace) {
+            history.update(text);
+        }
+        return history;
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import lib.io.TextDocument;
+import lib.io.TextFileReader;
+import lib.io.TextFileWriter;
+import lib.io.TextFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * reading and writing files across sizes, through the reader and writer behind
+ * EditorUtils.readDocument and EditorUtils.writeToFile
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileIoBenchmark {
+
+    @Param({"1024", "1048576", "16777216"})
+    public int size;
+
+    private Path readFile;
+    private Path writeFile;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void createFiles() throws IOException {
+        List<String> trace = TypingTrace.create(4000, 42);
+        String paragraph = trace.get(trace.size() - 1) + "\n";
+        StringBuilder builder = new StringBuilder(size + paragraph.length());
+        while (builder.length() < size) {
+            builder.append(paragraph);
+        }
+        builder.setLength(size);
+        text = builder.toString();
+
+        readFile = Files.createTempFile("fedator-read", ".txt");
+        writeFile = Files.createTempFile("fedator-write", ".txt");
+        TextFileWriter.write(readFile, text, TextFormat.DEFAULT);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(readFile);
+        Files.deleteIfExists(writeFile);
+    }
+
+    @Benchmark
+    public TextDocument read() throws IOException {
+        return TextFileReader.read(readFile);
+    }
+
+    @Benchmark
+    public Path write() throws IOException {
+        TextFileWriter.write(writeFile, text, TextFormat.DEFAULT);
+        return writeFile;
+    }
+}
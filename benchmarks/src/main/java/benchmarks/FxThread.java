@@ -0,0 +1,52 @@
+package benchmarks;
+
+import com.sun.javafx.application.PlatformImpl;
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * runs the code of a benchmark on the javafx thread, for the components that can only be used there
+ * <p>
+ * the toolkit is started once per fork on Monocle's headless glass platform, no display is needed.
+ * a call waits for the javafx thread, that hop is in the measured time too, it's small next to what is measured
+ */
+final class FxThread {
+
+    private static boolean started;
+
+    private FxThread() {
+    }
+
+    static synchronized void start() throws InterruptedException {
+        if (started) {
+            return;
+        }
+        System.setProperty("glass.platform", "Monocle");
+        System.setProperty("monocle.platform", "Headless");
+        System.setProperty("prism.order", "sw");
+        CountDownLatch running = new CountDownLatch(1);
+        PlatformImpl.startup(running::countDown);
+        running.await();
+        started = true;
+    }
+
+    /**
+     * @return the result of task, run on the javafx thread
+     */
+    static <T> T call(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        Platform.runLater(future);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
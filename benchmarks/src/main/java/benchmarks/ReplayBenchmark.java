@@ -0,0 +1,81 @@
+package benchmarks;
+
+import gui.mediator.Events;
+import lib.trace.TraceReader;
+import lib.trace.TraceRecord;
+import lib.trace.TraceReplayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * replays an editing trace recorded with -Dfedator.trace through the history and the search code,
+ * pass one with -p trace=path/to/trace. without one, a typing trace with a search every 200 keystrokes is generated
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplayBenchmark {
+
+    @Param({""})
+    public String trace;
+
+    private List<TraceRecord> records;
+
+    @Setup(Level.Trial)
+    public void readTrace() throws IOException {
+        if (trace.isEmpty()) {
+            records = generate(5000);
+            return;
+        }
+        try (TraceReader reader = TraceReader.open(Paths.get(trace))) {
+            records = reader.readAll();
+        }
+    }
+
+    @Benchmark
+    public TraceReplayer replay() {
+        TraceReplayer replayer = new TraceReplayer();
+        replayer.replay(records);
+        return replayer;
+    }
+
+    private static List<TraceRecord> generate(int keystrokes) {
+        List<TraceRecord> records = new ArrayList<>();
+        String previous = "";
+        long micros = 0;
+        for (String text : TypingTrace.create(keystrokes, 42)) {
+            micros += 120000;
+            if (text.length() > previous.length()) {
+                records.add(TraceRecord.change(micros, 0, previous.length(), 0, text.substring(previous.length())));
+            } else {
+                records.add(TraceRecord.change(micros, 0, text.length(), previous.length() - text.length(), ""));
+            }
+            records.add(TraceRecord.event(micros, 0, Events.TEXT_CHANGED, null, null, false));
+            if (records.size() % 400 == 0) {
+                records.add(TraceRecord.event(micros, 0, Events.FIND_SELECT, "e", null, false));
+                records.add(TraceRecord.event(micros, 0, Events.FIND_NEXT, "e", null, false));
+            }
+            previous = text;
+        }
+        return records;
+    }
+}
@@ -0,0 +1,84 @@
+package benchmarks;
+
+import lib.EditorUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the find/replace code of EditorUtils across document sizes and match densities
+ * a sparse document has a match every ~10000 characters, a dense one every ~20
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final String QUERY = "needle";
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"sparse", "dense"})
+    public String density;
+
+    private String text;
+    private int matchCount;
+
+    @Setup(Level.Trial)
+    public void createText() {
+        int matchEvery = density.equals("dense") ? 20 : 10000;
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(size);
+        int nextMatch = random.nextInt(matchEvery);
+        while (builder.length() < size) {
+            if (builder.length() >= nextMatch) {
+                builder.append(random.nextBoolean() ? QUERY : "Needle");
+                nextMatch = builder.length() + random.nextInt(matchEvery);
+            } else {
+                builder.append(random.nextInt(8) == 0 ? ' ' : (char) ('a' + random.nextInt(26)));
+            }
+        }
+        text = builder.toString();
+        matchCount = EditorUtils.getSubstringMatchedCount(QUERY, text, false);
+    }
+
+    @Benchmark
+    public int countMatchCase() {
+        return EditorUtils.getSubstringMatchedCount(QUERY, text, true);
+    }
+
+    @Benchmark
+    public List<Integer> indexStartsMatchCase() {
+        return EditorUtils.getIndexStartsOfSubstring(text, QUERY, true);
+    }
+
+    @Benchmark
+    public List<Integer> indexStartsIgnoreCase() {
+        return EditorUtils.getIndexStartsOfSubstring(text, QUERY, false);
+    }
+
+    /**
+     * replaces the match in the middle of the document, the way Replace does after a few Next clicks
+     */
+    @Benchmark
+    public String replaceMiddleMatch() throws Exception {
+        return EditorUtils.replaceSpecificString(text, QUERY, "pin", matchCount / 2, false);
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * the texts of a document after every keystroke of someone typing it, the way TextSpace hands them to the history
+ * words of 2 to 9 letters separated by spaces, a line break every 8 to 15 words and a backspace every 20 keystrokes,
+ * the same seed always gives the same trace
+ */
+final class TypingTrace {
+
+    private TypingTrace() {
+    }
+
+    static List<String> create(int keystrokes, long seed) {
+        Random random = new Random(seed);
+        List<String> texts = new ArrayList<>(keystrokes);
+        StringBuilder text = new StringBuilder();
+        int wordLeft = 2 + random.nextInt(8);
+        int lineLeft = 8 + random.nextInt(8);
+        while (texts.size() < keystrokes) {
+            if (random.nextInt(20) == 0 && text.length() > 0) {
+                text.setLength(text.length() - 1);
+            } else if (wordLeft > 0) {
+                text.append((char) ('a' + random.nextInt(26)));
+                wordLeft--;
+            } else {
+                lineLeft--;
+                text.append(lineLeft == 0 ? '\n' : ' ');
+                if (lineLeft == 0) {
+                    lineLeft = 8 + random.nextInt(8);
+                }
+                wordLeft = 2 + random.nextInt(8);
+            }
+            texts.add(text.toString());
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,229 @@
+package benchmarks;
+
+import gui.components.MainController;
+import gui.mediator.Events;
+import gui.mediator.Mediator;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.event.Event;
+import javafx.event.EventType;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.Stage;
+import lib.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * replays typing, find and tab switching sessions against the real components of the app on Monocle's headless
+ * glass platform, no display is needed
+ * <p>
+ * every step runs at the start of a pulse. its event latency is the time the step takes on the javafx thread
+ * (key event through TextSpace, Mediator, TabSpace and EditorTextHistory), its frame latency is the time until
+ * the end of that pulse, after the change is laid out and rendered. an animation timer runs before css, layout and
+ * rendering, so the end of the pulse is taken by a Platform.runLater posted from the timer
+ * <p>
+ * prints one json object per scenario and latency kind, to compare builds:
+ * {"scenario":"typing","latency":"event","count":2000,"p50_us":41.0,"p99_us":210.3,"p999_us":802.1,"max_us":950.0}
+ * <p>
+ * it's not a JMH benchmark, run it with: java -cp target/benchmarks.jar benchmarks.UiLatencyBenchmark [keystrokes] [output file]
+ */
+public class UiLatencyBenchmark {
+
+    private UiLatencyBenchmark() {
+    }
+
+    /**
+     * the glass platform is picked when the toolkit starts, before the main method of an Application subclass
+     * would run, so the properties are set here and the app is launched from a separate class
+     */
+    public static void main(String[] args) {
+        System.setProperty("glass.platform", "Monocle");
+        System.setProperty("monocle.platform", "Headless");
+        System.setProperty("prism.order", "sw");
+        Application.launch(Session.class, args);
+    }
+
+    public static class Session extends Application {
+
+        private static final int TABS = 4;
+        private static final String QUERY = "needle";
+
+        private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        private final List<Step> steps = new ArrayList<>();
+
+        @Override
+        public void start(Stage stage) throws IOException {
+            int keystrokes = getParameters().getRaw().isEmpty() ? 2000 : Integer.parseInt(getParameters().getRaw().get(0));
+
+            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/main.fxml"));
+            Parent root = fxmlLoader.load();
+            Scene scene = new Scene(root, 1000, 700);
+            scene.getStylesheets().add(getClass().getResource("/style.css").toExternalForm());
+            stage.setScene(scene);
+            stage.show();
+            MainController mainController = fxmlLoader.getController();
+            TabPane tabPane = mainController.getTabPane();
+
+            addTypingSteps(tabPane, keystrokes);
+            addFindSteps(scene);
+            addTabSteps(tabPane, keystrokes / 10);
+            run();
+        }
+
+        /**
+         * types a seeded trace as key events on the text area of the selected tab
+         */
+        private void addTypingSteps(TabPane tabPane, int keystrokes) {
+            List<String> trace = TypingTrace.create(keystrokes, 42);
+            String previous = "";
+            for (String text : trace) {
+                String typed = text.length() > previous.length() ? text.substring(previous.length()) : null;
+                steps.add(new Step("typing", () -> {
+                    Node area = textArea(tabPane);
+                    if (typed == null) {
+                        Event.fireEvent(area, key(KeyEvent.KEY_PRESSED, KeyEvent.CHAR_UNDEFINED, KeyCode.BACK_SPACE));
+                    } else {
+                        Event.fireEvent(area, key(KeyEvent.KEY_TYPED, typed, KeyCode.UNDEFINED));
+                    }
+                }));
+                previous = text;
+            }
+            // the query of the find session, in the middle of the typed text
+            steps.add(new Step("typing", () -> Event.fireEvent(textArea(tabPane), key(KeyEvent.KEY_TYPED, " " + QUERY + " ", KeyCode.UNDEFINED))));
+        }
+
+        /**
+         * types the query in the find box letter by letter, then goes through the matches with the next button
+         */
+        private void addFindSteps(Scene scene) {
+            steps.add(new Step("find", () -> Mediator.getInstance().getEventBuilder().withEvent(Events.SHOW_FIND).build()));
+            for (int i = 1; i <= QUERY.length(); i++) {
+                String query = QUERY.substring(0, i);
+                steps.add(new Step("find", () -> findField(scene).setText(query)));
+            }
+            for (int i = 0; i < 50; i++) {
+                steps.add(new Step("find", () -> nextButton(scene).fire()));
+            }
+        }
+
+        /**
+         * opens tabs with some text, then switches between them
+         */
+        private void addTabSteps(TabPane tabPane, int switches) {
+            for (int i = 1; i < TABS; i++) {
+                steps.add(new Step("setup", () -> Mediator.getInstance().getEventBuilder().withEvent(Events.NEW_TAB).build()));
+                steps.add(new Step("setup", () -> Event.fireEvent(textArea(tabPane),
+                        key(KeyEvent.KEY_TYPED, TypingTrace.create(2000, tabPane.getTabs().size()).get(1999), KeyCode.UNDEFINED))));
+            }
+            for (int i = 0; i < switches; i++) {
+                int tab = i % TABS;
+                steps.add(new Step("tab-switch", () -> tabPane.getSelectionModel().select(tab)));
+            }
+        }
+
+        /**
+         * runs a step per pulse, then prints the histograms and exits
+         */
+        private void run() {
+            new AnimationTimer() {
+                private int next;
+
+                @Override
+                public void handle(long now) {
+                    if (next == steps.size()) {
+                        stop();
+                        report();
+                        Platform.exit();
+                        return;
+                    }
+                    Step running = steps.get(next++);
+                    long started = System.nanoTime();
+                    running.action.run();
+                    histogram(running.scenario, "event").record(System.nanoTime() - started);
+                    // runs once this pulse, which lays out and renders the change, is over
+                    Platform.runLater(() -> histogram(running.scenario, "frame").record(System.nanoTime() - started));
+                }
+            }.start();
+        }
+
+        private LatencyHistogram histogram(String scenario, String latency) {
+            return histograms.computeIfAbsent(scenario + " " + latency, key -> new LatencyHistogram());
+        }
+
+        private void report() {
+            StringBuilder report = new StringBuilder();
+            for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+                String[] key = entry.getKey().split(" ");
+                if (key[0].equals("setup")) {
+                    continue;
+                }
+                LatencyHistogram histogram = entry.getValue();
+                report.append(String.format(Locale.ROOT,
+                        "{\"scenario\":\"%s\",\"latency\":\"%s\",\"count\":%d,\"p50_us\":%.1f,\"p99_us\":%.1f,\"p999_us\":%.1f,\"max_us\":%.1f}%n",
+                        key[0], key[1], histogram.getCount(), micros(histogram.getValueAtPercentile(50)),
+                        micros(histogram.getValueAtPercentile(99)), micros(histogram.getValueAtPercentile(99.9)), micros(histogram.getMax())));
+            }
+            System.out.print(report);
+            if (getParameters().getRaw().size() > 1) {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(Paths.get(getParameters().getRaw().get(1))), true, "UTF-8")) {
+                    out.print(report);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private static double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+
+        private static Node textArea(TabPane tabPane) {
+            return tabPane.getSelectionModel().getSelectedItem().getContent().lookup(".styled-text-area");
+        }
+
+        private static TextField findField(Scene scene) {
+            // the find field is the first text field of the toolbar, the replace field is the second
+            return (TextField) scene.lookup("#FindReplaceToolBar").lookupAll(".text-field").iterator().next();
+        }
+
+        private static Button nextButton(Scene scene) {
+            for (Node node : scene.lookup("#FindReplaceToolBar").lookupAll(".button")) {
+                if (node instanceof Button && "n".equals(((Button) node).getText())) {
+                    return (Button) node;
+                }
+            }
+            throw new IllegalStateException("the find toolbar has no next button");
+        }
+
+        private static KeyEvent key(EventType<KeyEvent> type, String character, KeyCode code) {
+            return new KeyEvent(type, character, "", code, false, false, false, false);
+        }
+
+        private static final class Step {
+            private final String scenario;
+            private final Runnable action;
+
+            private Step(String scenario, Runnable action) {
+                this.scenario = scenario;
+                this.action = action;
+            }
+        }
+    }
+}
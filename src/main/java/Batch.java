@@ -0,0 +1,109 @@
+import lib.batch.BatchReplace;
+import lib.batch.FileResult;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * the find/replace of the editor from the command line, no window is opened
+ * <p>
+ * usage: java -cp fedator.jar Batch [options] query path...
+ * --replace text     replace the matches with text, without it the matches are only counted
+ * --match-case       find query with the same case only
+ * --occurrence n     replace only the nth match of each file
+ * --glob pattern     only the files matching the glob, relative to their path argument (e.g. **.java)
+ * --threads n        the number of files processed at the same time, one per core by default
+ * <p>
+ * prints a line per file: path, matches, replaced, bytes, milliseconds, MB/s separated by tabs, then the totals.
+ * exits with 0 if something matched, 1 if nothing did and 2 on errors, like grep
+ *
+ * @see BatchReplace
+ */
+public class Batch {
+
+    public static void main(String[] args) {
+        String replacement = null;
+        boolean matchCase = false;
+        int occurrence = 0;
+        PathMatcher filter = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> operands = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--replace":
+                        replacement = args[++i];
+                        break;
+                    case "--match-case":
+                        matchCase = true;
+                        break;
+                    case "--occurrence":
+                        occurrence = Integer.parseInt(args[++i]);
+                        break;
+                    case "--glob":
+                        filter = FileSystems.getDefault().getPathMatcher("glob:" + args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        operands.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            usage();
+            return;
+        }
+        if (operands.size() < 2) {
+            usage();
+            return;
+        }
+
+        List<Path> roots = new ArrayList<>();
+        for (String root : operands.subList(1, operands.size())) {
+            roots.add(Paths.get(root));
+        }
+
+        long start = System.nanoTime();
+        List<FileResult> results;
+        try {
+            BatchReplace batch = new BatchReplace(operands.get(0), replacement, matchCase, occurrence, threads);
+            results = batch.run(roots, filter, result -> {
+                synchronized (System.out) {
+                    System.out.println(result);
+                }
+            });
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        long matches = 0;
+        long replaced = 0;
+        long bytes = 0;
+        int skipped = 0;
+        for (FileResult result : results) {
+            matches += result.getMatches();
+            replaced += result.getReplaced();
+            bytes += result.getBytes();
+            skipped += result.getSkipped() == null ? 0 : 1;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%d files (%d skipped), %d matches, %d replaced, %d bytes in %.3fs, %.1f MB/s",
+                results.size(), skipped, matches, replaced, bytes, seconds, seconds == 0 ? 0 : bytes / seconds / 1e6));
+        System.exit(matches > 0 ? 0 : 1);
+    }
+
+    private static void usage() {
+        System.err.println("usage: Batch [--replace text] [--match-case] [--occurrence n] [--glob pattern] [--threads n] query path...");
+        System.exit(2);
+    }
+}
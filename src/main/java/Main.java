@@ -1,5 +1,9 @@
+import gui.components.MainController;
+import gui.components.MetricsOverlay;
 import javafx.scene.text.Font;
 import lib.EditorUtils;
+import lib.metrics.Metrics;
+import lib.session.SessionStore;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -31,6 +35,12 @@ public class Main extends Application {
             event.consume();
         });
         primaryStage.show();
+        Metrics.registerMBeans();
+        MetricsOverlay.install(primaryStage);
+
+        MainController mainController = fxmlLoader.getController();
+        mainController.restoreSession(SessionStore.read(SessionStore.DEFAULT_PATH));
+        SessionStore.startAutosave(mainController::snapshotSession, SessionStore.DEFAULT_PATH);
     }
 
 
@@ -0,0 +1,71 @@
+package gui;
+
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.DataFormat;
+
+import java.util.UUID;
+
+/**
+ * copies text to the system clipboard and reads it back
+ * <p>
+ * the copied text goes straight from the text area to the clipboard, it's not handed through the mediator.
+ * the service keeps the last copied string and puts a small id next to it in the clipboard
+ * (random per process, another running editor never puts the same id there),
+ * when the clipboard still has that id a paste takes the kept string instead of reading the whole text
+ * back from the system clipboard, so copying and pasting inside the editor never copies the text again
+ * <p>
+ * only used on the javafx thread
+ */
+public class ClipboardService {
+
+    private static final DataFormat COPY_ID = new DataFormat("application/x-fedator-copy-id");
+    private static final String PROCESS_ID = UUID.randomUUID().toString();
+
+    private final Clipboard clipboard;
+    private long copies;
+    // the id of the last copy, null before the first one
+    private String copyId;
+    private String copied;
+
+    ClipboardService(Clipboard clipboard) {
+        this.clipboard = clipboard;
+    }
+
+    public static ClipboardService getInstance() {
+        return ClipboardServiceInstance.INSTANCE;
+    }
+
+    /**
+     * puts text in the clipboard, does nothing if text is null or empty (nothing is selected)
+     */
+    public void copy(String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        ClipboardContent content = new ClipboardContent();
+        content.putString(text);
+        copyId = PROCESS_ID + ":" + ++copies;
+        content.put(COPY_ID, copyId);
+        clipboard.setContent(content);
+        copied = text;
+    }
+
+    /**
+     * @return the text in the clipboard, the kept string if it was copied by this service and not replaced since,
+     * null if the clipboard has no text
+     */
+    public String paste() {
+        Object id = clipboard.getContent(COPY_ID);
+        if (copied != null && copyId != null && copyId.equals(id)) {
+            return copied;
+        }
+        // another program owns the clipboard now, don't keep the old text alive
+        copied = null;
+        return clipboard.getString();
+    }
+
+    private static final class ClipboardServiceInstance {
+        private static final ClipboardService INSTANCE = new ClipboardService(Clipboard.getSystemClipboard());
+    }
+}
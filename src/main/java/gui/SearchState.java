@@ -0,0 +1,93 @@
+package gui;
+
+/**
+ * the find/replace state of one tab
+ * the FindReplaceToolBar is shared between all tabs, it binds to the SearchState of the selected tab
+ * so every tab keeps its own query, match case flag and position in the matches
+ *
+ * @see gui.components.FindReplaceToolBar#bind(SearchState)
+ */
+public class SearchState {
+
+    private String query = "";
+    private String replacement = "";
+    private boolean matchCase;
+    private boolean replaceAll;
+    private int currentSelectedMatch;
+    private int matchedCount;
+    private boolean visible;
+    private boolean replaceVisible;
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getReplacement() {
+        return replacement;
+    }
+
+    public void setReplacement(String replacement) {
+        this.replacement = replacement;
+    }
+
+    public boolean isMatchCase() {
+        return matchCase;
+    }
+
+    public void setMatchCase(boolean matchCase) {
+        this.matchCase = matchCase;
+    }
+
+    public boolean isReplaceAll() {
+        return replaceAll;
+    }
+
+    public void setReplaceAll(boolean replaceAll) {
+        this.replaceAll = replaceAll;
+    }
+
+    /**
+     * @return the position (starting from 1) of the highlighted match, 0 if nothing is highlighted
+     */
+    public int getCurrentSelectedMatch() {
+        return currentSelectedMatch;
+    }
+
+    public void setCurrentSelectedMatch(int currentSelectedMatch) {
+        this.currentSelectedMatch = currentSelectedMatch;
+    }
+
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    public void setMatchedCount(int matchedCount) {
+        this.matchedCount = matchedCount;
+    }
+
+    /**
+     * @return true if the toolbar is shown while this tab is selected
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /**
+     * @return true if the replace row of the toolbar is shown while this tab is selected
+     */
+    public boolean isReplaceVisible() {
+        return replaceVisible;
+    }
+
+    public void setReplaceVisible(boolean replaceVisible) {
+        this.replaceVisible = replaceVisible;
+    }
+}
@@ -1,32 +1,59 @@
 package gui;
 
-import gui.components.FindReplaceToolBar;
+import gui.components.LargeFileViewer;
 import gui.components.TextSpace;
 import gui.mediator.Events;
 import gui.mediator.Mediator;
-import javafx.scene.input.Clipboard;
+import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import lib.EditorUtils;
+import lib.io.FileTail;
+import lib.io.FileWatcher;
+import lib.io.MappedTextFile;
+import lib.io.ParallelFileLoader;
+import lib.io.TextDocument;
+import lib.io.TextFormat;
+import lib.metrics.Metrics;
+import lib.metrics.Operation;
+import lib.session.TabSnapshot;
+import lib.trace.TraceRecorder;
 import smallUndoEngine.EditorTextHistory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.List;
 
 /**
- * a class that wraps TextSpace, EditorTextHistory and FindReplaceToolBar objects together
+ * a class that wraps TextSpace, EditorTextHistory and the SearchState of a tab together
+ * a file above {@link MappedTextFile#VIEWER_THRESHOLD} is shown read only in a LargeFileViewer instead of the TextSpace
  */
 public class TabSpace {
 
+    // the history keeps a full copy of the text per entry, only the most recent ones go to the session file
+    private static final int SESSION_HISTORY_SIZE = 20;
+
     private Mediator mediator = Mediator.getInstance();
     private TextSpace textSpace;
     private EditorTextHistory editorTextHistory;
-    private FindReplaceToolBar findReplaceToolBar;
-    private String toolBarString;
+    private SearchState searchState = new SearchState();
+    private TextFormat format = TextFormat.DEFAULT;
+    private FileTail fileTail;
+    private FileWatcher.Registration watchRegistration;
+    private LargeFileViewer viewer;
+    // 1 when no paste is running
+    private final DoubleProperty pasteProgress = new SimpleDoubleProperty(1);
 
     private boolean fileSaved;
     private boolean textChanged;
+    private boolean followTail;
 
-    public TabSpace(TextSpace textSpace, EditorTextHistory editorTextHistory, FindReplaceToolBar findReplaceToolBar) {
+    public TabSpace(TextSpace textSpace, EditorTextHistory editorTextHistory) {
         this.textSpace = textSpace;
         this.editorTextHistory = editorTextHistory;
-        this.findReplaceToolBar = findReplaceToolBar;
     }
 
     /**
@@ -39,13 +66,46 @@ public class TabSpace {
     }
 
     /**
-     * replaces textArea's text with itself appended with string content in the clipboards to textArea by
+     * replaces the selection of textArea with the string content of the clipboard, or inserts it at the caret
+     * a large text is inserted in chunks, the history gets one entry when the last chunk is in
+     *
+     * @see TextSpace#insertText(String, java.util.function.DoubleConsumer, Runnable)
      */
     private void pasteToTextArea() {
-        StringBuilder sb = new StringBuilder();
-        String clipboardString = Clipboard.getSystemClipboard().getString();
-        String finalText = sb.append(getText()).append(" ").append(clipboardString).toString();
-        textSpace.setText(finalText);
+        String clipboardString = ClipboardService.getInstance().paste();
+        if (clipboardString == null || isPasting()) {
+            return;
+        }
+        pasteProgress.set(0);
+        textSpace.insertText(clipboardString, pasteProgress::set, () -> {
+            editorTextHistory.update(getText());
+            traceHistoryUpdate();
+            textChanged = true;
+        });
+    }
+
+    /**
+     * muted loads and pastes update the history without a TEXT_CHANGED event, the trace records one
+     * so a replay updates the history at the same point
+     */
+    private void traceHistoryUpdate() {
+        if (TraceRecorder.ENABLED) {
+            TraceRecorder.event(getNumber(), Events.TEXT_CHANGED, null, null, false);
+        }
+    }
+
+    /**
+     * @return true while a paste is inserting its chunks
+     */
+    public boolean isPasting() {
+        return pasteProgress.get() < 1;
+    }
+
+    /**
+     * @return the inserted fraction of the running paste, 1 when no paste is running
+     */
+    public ReadOnlyDoubleProperty pasteProgressProperty() {
+        return pasteProgress;
     }
 
     /**
@@ -56,27 +116,35 @@ public class TabSpace {
     }
 
     public void sendEvent(Events event) {
+        if (viewer != null) {
+            sendViewerEvent(event);
+            return;
+        }
+        if (isPasting() && changesText(event)) {
+            return;
+        }
         switch (event) {
-            case UNDO_TEXT:
+            case UNDO_TEXT: {
+                Metrics.Sample sample = Metrics.start(Operation.UNDO);
                 textSpace.undo(editorTextHistory);
                 textChanged = true;
+                Metrics.stop(sample);
                 break;
+            }
 
-            case REDO_TEXT:
+            case REDO_TEXT: {
+                Metrics.Sample sample = Metrics.start(Operation.REDO);
                 textSpace.redo(editorTextHistory);
                 textChanged = true;
+                Metrics.stop(sample);
                 break;
-
-            case OPEN_MENU:
-                textSpace.setCurrentPath(mediator.getMediatorFilePath());
-                textSpace.setText(mediator.getMediatorText());
-                fileSaved = true;
-                break;
+            }
 
             case SAVE_MENU:
                 textSpace.setCurrentPath(mediator.getMediatorFilePath());
                 fileSaved = true;
                 textChanged = false;
+                watch(getCurrentPath(), -1);
                 break;
 
             case TEXT_CHANGED:
@@ -85,11 +153,11 @@ public class TabSpace {
                 break;
 
             case COPY_MENU:
-                mediator.setText(textSpace.getSelectedText());
+                ClipboardService.getInstance().copy(textSpace.getSelectedText());
                 break;
 
             case CUT_MENU:
-                mediator.setText(textSpace.getSelectedText());
+                ClipboardService.getInstance().copy(textSpace.getSelectedText());
                 cutFromTextArea();
                 break;
 
@@ -97,56 +165,357 @@ public class TabSpace {
                 pasteToTextArea();
                 break;
 
-            case SHOW_FIND_REPLACE:
-                findReplaceToolBar.showFindReplace();
-                break;
-
-            case SHOW_FIND:
-                findReplaceToolBar.showFindToolbar();
-                break;
-
             case HIDE_REPLACE:
-                findReplaceToolBar.hideFindReplace();
                 // remove highlighting
                 textSpace.resetIndicesTracker();
                 textSpace.selectText("");
                 break;
 
             case FIND_SELECT:
-                toolBarString = mediator.getMediatorText();
                 textSpace.resetIndicesTracker();
-                textSpace.selectText(toolBarString);
+                selectMatch();
                 break;
 
             case FIND_NEXT:
                 textSpace.increaseIndicesTracker();
-                textSpace.selectText(toolBarString);
+                selectMatch();
                 break;
 
             case FIND_PREVIOUS:
                 textSpace.decreaseIndicesTracker();
-                textSpace.selectText(toolBarString);
+                selectMatch();
                 break;
 
             case REPLACE_CURRENT:
-                textSpace.replaceCurrent(toolBarString, mediator.getMediatorText());
+                textSpace.replaceCurrent(searchState.getQuery(), mediator.getMediatorText());
                 break;
 
             case REPLACE_ALL:
-                textSpace.replaceAll(toolBarString, mediator.getMediatorText());
+                textSpace.replaceAll(searchState.getQuery(), mediator.getMediatorText());
                 break;
+
+            case FOLLOW_TAIL:
+                followTail = !followTail;
+                if (followTail) {
+                    textSpace.scrollToEnd();
+                }
+                break;
+
+            case GO_TO_LINE:
+                textSpace.goToLine((int) Math.min(Integer.MAX_VALUE, mediator.getMediatorLine()), mediator.getMediatorColumn());
+                break;
+        }
+
+    }
+
+    /**
+     * a running paste inserts its next chunk at an offset taken when it started, the text can't change under it
+     */
+    private static boolean changesText(Events event) {
+        switch (event) {
+            case UNDO_TEXT:
+            case REDO_TEXT:
+            case CUT_MENU:
+            case REPLACE_CURRENT:
+            case REPLACE_ALL:
+                return true;
+            default:
+                return false;
         }
+    }
+
+    /**
+     * the viewer is read only, the events that change the text are ignored
+     */
+    private void sendViewerEvent(Events event) {
+        switch (event) {
+            case COPY_MENU:
+                ClipboardService.getInstance().copy(viewer.getSelectedText());
+                break;
+
+            case HIDE_REPLACE:
+                viewer.clearMatch();
+                break;
+
+            case FIND_SELECT:
+                viewer.find(searchState.getQuery(), searchState.isMatchCase());
+                break;
 
+            case FIND_NEXT:
+                viewer.findNext(searchState.getQuery(), searchState.isMatchCase());
+                break;
+
+            case FIND_PREVIOUS:
+                viewer.findPrevious(searchState.getQuery(), searchState.isMatchCase());
+                break;
+
+            case GO_TO_LINE:
+                viewer.goToLine(mediator.getMediatorLine(), mediator.getMediatorColumn());
+                break;
+        }
     }
 
     public String getText() {
         return textSpace.getText();
     }
 
+    /**
+     * shows the content of a file in this tab, the text is loaded without going through the mediator
+     * and becomes the first entry of the undo history
+     *
+     * @param path     the path of the file
+     * @param document the content of the file and the format it's saved back with
+     */
+    public void load(Path path, TextDocument document) {
+        textSpace.setCurrentPath(path);
+        textSpace.loadText(document.getText());
+        editorTextHistory.update(document.getText());
+        traceHistoryUpdate();
+        format = document.getFormat();
+        textSpace.setFormat(format);
+        fileSaved = true;
+        textChanged = false;
+        watch(path, document.getByteLength());
+    }
+
+    /**
+     * shows a large file read only, the text is never loaded, see {@link LargeFileViewer}
+     *
+     * @param path the path of the file
+     * @return the viewer showing the file, null if it can't be mapped
+     */
+    public LargeFileViewer view(Path path) {
+        MappedTextFile file;
+        try {
+            file = MappedTextFile.open(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        close();
+        viewer = new LargeFileViewer(file);
+        textSpace.setCurrentPath(path);
+        format = file.getFormat();
+        fileSaved = true;
+        textChanged = false;
+        return viewer;
+    }
+
+    /**
+     * writes the text to the file of this tab in the charset it was read with
+     * a viewer has nothing to write, the file is left as it is
+     *
+     * @return true if the file is written, false otherwise
+     */
+    public boolean save() {
+        if (viewer != null) {
+            return true;
+        }
+        Metrics.Sample sample = Metrics.start(Operation.SAVE);
+        boolean written = EditorUtils.writeToFile(getText(), getCurrentPath(), format);
+        Metrics.stop(sample);
+        if (!written) {
+            return false;
+        }
+        textChanged = false;
+        if (fileTail != null) {
+            try {
+                // the watcher sees our own write, it must not be taken for a change made by another program
+                fileTail.resync();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * highlights the current match of the query of this tab
+     */
+    private void selectMatch() {
+        Metrics.Sample sample = Metrics.start(Operation.FIND);
+        textSpace.selectText(searchState.getQuery());
+        Metrics.stop(sample);
+    }
+
+    /**
+     * stops following the file of this tab, called when the tab is closed
+     */
+    public void close() {
+        if (viewer != null) {
+            viewer.close();
+        }
+        if (watchRegistration != null) {
+            watchRegistration.cancel();
+            watchRegistration = null;
+        }
+        fileTail = null;
+    }
+
+    /**
+     * @return true if the tab scrolls to the end when text is appended to its file by another program
+     */
+    public boolean isFollowTail() {
+        return followTail;
+    }
+
+    /**
+     * starts watching path for changes made by other programs
+     *
+     * @param path   the file of this tab, does nothing if it's null
+     * @param offset the number of bytes of the file shown in the tab, -1 to take the current size of the file
+     */
+    private void watch(Path path, long offset) {
+        close();
+        if (path == null) {
+            return;
+        }
+        try {
+            FileTail tail = new FileTail(path, format, offset < 0 ? Files.size(path) : offset);
+            fileTail = tail;
+            watchRegistration = FileWatcher.getInstance().watch(path, file -> fileChanged(tail));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * runs on the watcher thread, reads what was appended to the file and hands it to the javafx thread
+     */
+    private void fileChanged(FileTail tail) {
+        boolean appended;
+        try {
+            appended = tail.readAppended();
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (!appended || tail.hasAppended()) {
+            Platform.runLater(() -> applyFileChange(tail, appended));
+        }
+    }
+
+    /**
+     * appends the new text of the file, or reads the whole file again if it was truncated or rewritten
+     * changes are ignored while the tab has unsaved text, the user's text wins, and while a paste is running,
+     * the appended text stays in the tail until the tab can take it
+     * an append is an entry of the history, an undo doesn't remove lines the user never typed
+     */
+    private void applyFileChange(FileTail tail, boolean appended) {
+        if (tail != fileTail || textChanged || isPasting()) {
+            return;
+        }
+        if (appended) {
+            String text = tail.takeAppended();
+            if (text.isEmpty()) {
+                return;
+            }
+            textSpace.appendLoadedText(text);
+            editorTextHistory.update(getText());
+            traceHistoryUpdate();
+            if (followTail) {
+                textSpace.scrollToEnd();
+            }
+            return;
+        }
+        Path path = getCurrentPath();
+        ParallelFileLoader.getInstance().read(path, EditorUtils::readDocument).thenAccept(document -> Platform.runLater(() -> {
+            if (document == null || tail != fileTail || textChanged || isPasting()) {
+                return;
+            }
+            int caretPosition = textSpace.getCaretPosition();
+            load(path, document);
+            if (followTail) {
+                textSpace.scrollToEnd();
+            } else {
+                textSpace.moveCaret(caretPosition);
+            }
+        }));
+    }
+
+    /**
+     * @return true if the tab has no file and no text, like the tab created when the app starts
+     */
+    public boolean isBlank() {
+        return getCurrentPath() == null && textSpace.getText().isEmpty();
+    }
+
+    /**
+     * @return the state of this tab for the session file,
+     * the text is only included if it can't be read back from the file
+     */
+    public TabSnapshot snapshot() {
+        Path path = getCurrentPath();
+        String text = textChanged || path == null ? getText() : null;
+        return new TabSnapshot(path, format, textSpace.getCaretPosition(), textChanged, text,
+                latest(editorTextHistory.getUndoHistory()), latest(editorTextHistory.getRedoHistory()));
+    }
+
+    private static List<String> latest(List<String> history) {
+        return history.subList(Math.max(0, history.size() - SESSION_HISTORY_SIZE), history.size());
+    }
+
+    /**
+     * restores the state written by {@link TabSpace#snapshot()}
+     * the text is loaded without going through the mediator so it works for tabs that are not selected
+     *
+     * @param snapshot the state of the tab
+     * @param document the unsaved text from the snapshot, or the content of the file
+     */
+    public void restore(TabSnapshot snapshot, TextDocument document) {
+        String text = document.getText();
+        textSpace.setCurrentPath(snapshot.getPath());
+        textSpace.loadText(text);
+        format = document.getFormat();
+        textSpace.setFormat(format);
+        watch(snapshot.getPath(), snapshot.getText() == null ? document.getByteLength() : -1);
+        textSpace.moveCaret(snapshot.getCaretPosition());
+        editorTextHistory = new EditorTextHistory(snapshot.getUndoHistory(), snapshot.getRedoHistory(), text);
+        fileSaved = snapshot.getPath() != null;
+        textChanged = snapshot.isTextChanged();
+    }
+
     public Path getCurrentPath() {
         return textSpace.getCurrentPath();
     }
 
+    /**
+     * @return the charset, byte order mark and line separator the text of this tab is written with
+     */
+    public TextFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the TextSpace of this tab, used by the status bar
+     */
+    public TextSpace getTextSpace() {
+        return textSpace;
+    }
+
+    /**
+     * @return true if the tab shows a large file read only
+     */
+    public boolean isViewer() {
+        return viewer != null;
+    }
+
+    /**
+     * @return the number of the TextSpace of this tab
+     */
+    public int getNumber() {
+        return textSpace.getNumber();
+    }
+
+    /**
+     * @return the find/replace state of this tab
+     */
+    public SearchState getSearchState() {
+        return searchState;
+    }
+
     public boolean isFileSaved() {
         return fileSaved;
     }
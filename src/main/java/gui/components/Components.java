@@ -0,0 +1,15 @@
+package gui.components;
+
+/**
+ * decides how TextSpace and FindReplaceToolBar build their nodes
+ * by default they are built in code, which skips the reflective xml parsing of FXMLLoader on every new tab,
+ * the fxml files are kept so the layouts can still be edited in scene builder,
+ * run the app with -Dfedator.fxml=true to load them instead
+ */
+final class Components {
+
+    static final boolean FROM_FXML = Boolean.getBoolean("fedator.fxml");
+
+    private Components() {
+    }
+}
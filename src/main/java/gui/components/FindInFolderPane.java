@@ -0,0 +1,296 @@
+package gui.components;
+
+import gui.mediator.Events;
+import gui.mediator.Mediator;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.ToolBar;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.stage.DirectoryChooser;
+import lib.EditorUtils;
+import lib.io.MappedTextFile;
+import lib.io.ParallelFileLoader;
+import lib.io.TextDocument;
+import lib.search.FolderSearch;
+import lib.search.SearchHit;
+import lib.search.TrigramIndex;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * the "find in folder" panel under the tabs: a query, a folder and the list of hits
+ * <p>
+ * the hits arrive from the search threads into a queue, the javafx thread takes everything queued once per pulse
+ * so the list grows in batches however fast the files are scanned.
+ * opening a hit reads the file like the open menu does and moves the caret to the hit.
+ * the searched folder is indexed in the background, the searches after that only scan the files the index returns
+ *
+ * @see FolderSearch
+ */
+public class FindInFolderPane extends VBox {
+
+    // more hits than this are not useful in a list, the search stops there
+    private static final int MAX_HITS = 10000;
+
+    private final Mediator mediator = Mediator.getInstance();
+    private final TextField queryField = new TextField();
+    private final CheckBox matchCaseCheckBox = new CheckBox("match case");
+    private final TextField folderField = new TextField();
+    private final Button searchButton = new Button("Search");
+    private final Text status = new Text();
+    private final ListView<SearchHit> results = new ListView<>();
+
+    private FolderSearch search;
+    private Path searchedFolder;
+    private TrigramIndex index;
+
+    public FindInFolderPane() {
+        setId("FindInFolderPane");
+        setVisible(false);
+        setManaged(false);
+
+        queryField.setPromptText("find in folder");
+        queryField.setPrefWidth(200);
+        HBox.setHgrow(queryField, Priority.ALWAYS);
+        queryField.setOnAction(event -> startSearch());
+
+        matchCaseCheckBox.setMnemonicParsing(false);
+        matchCaseCheckBox.setFont(new Font(14));
+
+        folderField.setPrefWidth(250);
+        folderField.setOnAction(event -> startSearch());
+        Button browseButton = new Button("...");
+        browseButton.setOnAction(event -> chooseFolder());
+
+        searchButton.setMnemonicParsing(false);
+        searchButton.setOnAction(event -> {
+            if (search != null) {
+                search.cancel();
+            } else {
+                startSearch();
+            }
+        });
+
+        status.setFont(new Font(12));
+        Button hideButton = new Button("X");
+        hideButton.setMinSize(20, 20);
+        hideButton.setOnAction(event -> hide());
+
+        HBox controls = new HBox(10, queryField, matchCaseCheckBox, folderField, browseButton, searchButton, status, hideButton);
+        controls.setAlignment(Pos.CENTER_LEFT);
+
+        results.setPrefHeight(200);
+        results.setCellFactory(list -> new HitCell());
+        results.setOnMouseClicked(event -> {
+            if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
+                open(results.getSelectionModel().getSelectedItem());
+            }
+        });
+        results.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ENTER) {
+                open(results.getSelectionModel().getSelectedItem());
+            }
+        });
+
+        getChildren().addAll(new ToolBar(controls), results);
+        mediator.setFindInFolderPane(this);
+    }
+
+    /**
+     * shows the panel, the folder is the folder of file the first time
+     *
+     * @param file the file of the selected tab, null if it has none
+     */
+    public void show(Path file) {
+        if (folderField.getText().isEmpty()) {
+            Path folder = file != null && file.toAbsolutePath().getParent() != null
+                    ? file.toAbsolutePath().getParent() : Paths.get(System.getProperty("user.home"));
+            folderField.setText(folder.toString());
+        }
+        setVisible(true);
+        setManaged(true);
+        queryField.requestFocus();
+    }
+
+    /**
+     * hides the panel and cancels the running search
+     */
+    public void hide() {
+        if (search != null) {
+            search.cancel();
+        }
+        setVisible(false);
+        setManaged(false);
+    }
+
+    private void chooseFolder() {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Find in Folder");
+        File current = new File(folderField.getText());
+        if (current.isDirectory()) {
+            chooser.setInitialDirectory(current);
+        }
+        File folder = chooser.showDialog(getScene().getWindow());
+        if (folder != null) {
+            folderField.setText(folder.getPath());
+        }
+    }
+
+    /**
+     * cancels the running search and starts a new one with the query and the folder of the fields
+     */
+    private void startSearch() {
+        if (search != null) {
+            search.cancel();
+        }
+        String query = queryField.getText();
+        Path folder = Paths.get(folderField.getText());
+        results.getItems().clear();
+        if (query.isEmpty() || !Files.isDirectory(folder)) {
+            status.setText(query.isEmpty() ? "" : "not a folder");
+            search = null;
+            return;
+        }
+
+        Queue<SearchHit> pending = new ConcurrentLinkedQueue<>();
+        AtomicBoolean drainScheduled = new AtomicBoolean();
+        long start = System.nanoTime();
+        FolderSearch started = new FolderSearch(folder, query, matchCaseCheckBox.isSelected(), MAX_HITS, hit -> {
+            pending.add(hit);
+            if (drainScheduled.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    drainScheduled.set(false);
+                    drain(pending);
+                });
+            }
+        });
+        if (TrigramIndex.ENABLED) {
+            started.setIndex(indexOf(folder));
+        }
+        search = started;
+        searchedFolder = folder;
+        searchButton.setText("Cancel");
+        status.setText("searching...");
+        started.start(() -> Platform.runLater(() -> finished(started, pending, start)));
+    }
+
+    /**
+     * @return the index of folder or of a folder above it, a new one replaces the previous index otherwise
+     */
+    private TrigramIndex indexOf(Path folder) {
+        if (index == null || !folder.toAbsolutePath().normalize().startsWith(index.getRoot())) {
+            if (index != null) {
+                index.close();
+            }
+            index = TrigramIndex.open(folder);
+            index.start();
+        }
+        return index;
+    }
+
+    private void drain(Queue<SearchHit> pending) {
+        List<SearchHit> batch = new ArrayList<>();
+        for (SearchHit hit = pending.poll(); hit != null; hit = pending.poll()) {
+            batch.add(hit);
+        }
+        if (!batch.isEmpty()) {
+            results.getItems().addAll(batch);
+            status.setText("searching... " + results.getItems().size() + " hits");
+        }
+    }
+
+    private void finished(FolderSearch finished, Queue<SearchHit> pending, long start) {
+        if (finished != search) {
+            // a newer search replaced it, its hits are not shown
+            return;
+        }
+        drain(pending);
+        search = null;
+        searchButton.setText("Search");
+        double seconds = (System.nanoTime() - start) / 1e9;
+        String summary = String.format(Locale.ROOT, "%d hits in %d files (%.1f MB) in %.2fs", finished.getHitCount(),
+                finished.getFileCount(), finished.getByteCount() / 1e6, seconds);
+        if (finished.isIndexed()) {
+            summary += ", indexed";
+        }
+        if (finished.isCancelled()) {
+            summary = "cancelled, " + summary;
+        } else if (finished.isLimitReached()) {
+            summary = "stopped at " + summary;
+        }
+        status.setText(summary);
+    }
+
+    /**
+     * opens the file of hit in a tab and moves the caret to the hit, a large file opens in a viewer
+     */
+    private void open(SearchHit hit) {
+        if (hit == null) {
+            return;
+        }
+        if (MappedTextFile.isLarge(hit.getPath())) {
+            opened(hit, null);
+            return;
+        }
+        ParallelFileLoader.getInstance().read(hit.getPath(), EditorUtils::readDocument).thenAccept(document -> Platform.runLater(() -> {
+            if (document != null) {
+                opened(hit, document);
+            }
+        }));
+    }
+
+    /**
+     * sends OPEN_MENU with the file of hit, then GO_TO_LINE with the hit, lines and columns of hits start from 1
+     */
+    private void opened(SearchHit hit, TextDocument document) {
+        mediator.getEventBuilder()
+                .withEvent(Events.OPEN_MENU)
+                .withFilePath(hit.getPath())
+                .withText(document == null ? "" : document.getText())
+                .withDocument(document)
+                .textChanged(false)
+                .fileSaved(true)
+                .build();
+        mediator.getEventBuilder()
+                .withEvent(Events.GO_TO_LINE)
+                .withLine(hit.getLine() - 1, hit.getColumn() - 1)
+                .build();
+    }
+
+    /**
+     * shows a hit as path:line:column relative to the searched folder, then the preview
+     */
+    private final class HitCell extends ListCell<SearchHit> {
+        @Override
+        protected void updateItem(SearchHit hit, boolean empty) {
+            super.updateItem(hit, empty);
+            if (empty || hit == null) {
+                setText(null);
+                return;
+            }
+            Path path = searchedFolder != null && hit.getPath().startsWith(searchedFolder)
+                    ? searchedFolder.relativize(hit.getPath()) : hit.getPath();
+            setText(path + ":" + hit.getLine() + ":" + hit.getColumn() + "  " + hit.getPreview());
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package gui.components;
 
+import gui.SearchState;
 import gui.mediator.Events;
 import gui.mediator.Mediator;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.TextField;
 import javafx.scene.control.ToolBar;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
+import javafx.scene.shape.StrokeType;
+import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import lib.EditorUtils;
+import lib.log.Logger;
 
 
+/**
+ * the find/replace toolbar, one instance is shared by all tabs
+ * it binds to the SearchState of the selected tab
+ *
+ * @see FindReplaceToolBar#bind(SearchState)
+ */
 public class FindReplaceToolBar extends VBox {
+    private static final Logger LOG = Logger.get(FindReplaceToolBar.class);
 
     @FXML
     private TextField findTextField;
@@ -63,11 +78,35 @@ public class FindReplaceToolBar extends VBox {
 
     private Mediator mediator = Mediator.getInstance();
 
-    private int currentSelectedMatch = 0;
-    private int matchedCount;
+    private SearchState state = new SearchState();
+    private boolean binding;
 
 
+    /**
+     * builds the toolbar in code, or loads findAndReplace.fxml if the app runs with -Dfedator.fxml=true
+     *
+     * @see Components#FROM_FXML
+     */
     public FindReplaceToolBar() {
+        this(Components.FROM_FXML);
+    }
+
+    /**
+     * @param fromFxml true to load findAndReplace.fxml, false to build the same node tree in code
+     */
+    public FindReplaceToolBar(boolean fromFxml) {
+        if (fromFxml) {
+            loadFxml();
+        } else {
+            buildComponents();
+            initialize();
+        }
+    }
+
+    /**
+     * loads findAndReplace.fxml, FXMLLoader calls {@link FindReplaceToolBar#initialize()} when it's done
+     */
+    private void loadFxml() {
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource(
                 "/findAndReplace.fxml"));
         fxmlLoader.setRoot(this);
@@ -79,16 +118,129 @@ public class FindReplaceToolBar extends VBox {
         }
     }
 
+    /**
+     * creates the same nodes as findAndReplace.fxml
+     */
+    private void buildComponents() {
+        setId("FindReplaceToolBar");
+        setPrefHeight(52);
+        setVisible(false);
+
+        findTextField = new TextField();
+        findTextField.setPrefWidth(200);
+        HBox.setHgrow(findTextField, Priority.ALWAYS);
+
+        previousFindButton = createButton("p", 14);
+        previousFindButton.setOnAction(event -> previousFindButtonPressed());
+
+        nextFindButton = createButton("n", 14);
+        nextFindButton.setOnAction(event -> nextFindButtonPressed());
+
+        caseSensetiveCheckBox = createCheckBox("case sensetive");
+
+        findReplaceHighlightedCount = createText(20);
+        findReplaceWordCount = createText(40);
+
+        hideFindReplaceToolBarButton = new Button("X");
+        hideFindReplaceToolBarButton.setMinSize(20, 20);
+        hideFindReplaceToolBarButton.setOnAction(this::hideFindReplaceToolBarButtonPressed);
+
+        findHbox = createHBox(findTextField, previousFindButton, nextFindButton, caseSensetiveCheckBox,
+                findReplaceHighlightedCount, findReplaceWordCount, hideFindReplaceToolBarButton);
+        findToolBar = new ToolBar(findHbox);
+
+        replaceTextField = new TextField();
+        replaceTextField.setPrefWidth(200);
+        HBox.setHgrow(replaceTextField, Priority.ALWAYS);
+
+        replaceAllCheckbox = createCheckBox("replace all");
+
+        findReplaceButton = createButton("Replace", 14);
+        findReplaceButton.setOnAction(this::replaceButtonPressed);
+
+        replaceHbox = createHBox(replaceTextField, replaceAllCheckbox, findReplaceButton);
+        replaceToolBar = new ToolBar(replaceHbox);
+        replaceToolBar.setVisible(false);
+        replaceToolBar.setManaged(false);
+
+        getChildren().addAll(findToolBar, replaceToolBar);
+    }
+
+    private static Button createButton(String text, double fontSize) {
+        Button button = new Button(text);
+        button.setMnemonicParsing(false);
+        button.setFont(new Font(fontSize));
+        return button;
+    }
+
+    private static CheckBox createCheckBox(String text) {
+        CheckBox checkBox = new CheckBox(text);
+        checkBox.setMnemonicParsing(false);
+        checkBox.setFont(new Font(14));
+        return checkBox;
+    }
+
+    private static Text createText(double wrappingWidth) {
+        Text text = new Text();
+        text.setStrokeType(StrokeType.OUTSIDE);
+        text.setStrokeWidth(0);
+        text.setWrappingWidth(wrappingWidth);
+        text.setFont(new Font(12));
+        return text;
+    }
+
+    private static HBox createHBox(Node... children) {
+        HBox hBox = new HBox(20, children);
+        hBox.setAlignment(Pos.CENTER_LEFT);
+        hBox.setMinSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+        hBox.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+        return hBox;
+    }
+
     @FXML
     public void initialize() {
 
         mediator.setFindReplaceToolBar(this);
 
-        findTextField.textProperty().addListener((observable, oldValue, newValue) -> findReplaceTextFieldChangeListener()
-        );
+        findTextField.textProperty().addListener((observable, oldValue, newValue) -> {
+            if (!binding) {
+                state.setQuery(newValue);
+                findReplaceTextFieldChangeListener();
+            }
+        });
+
+        caseSensetiveCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            if (!binding) {
+                state.setMatchCase(newValue);
+                findReplaceTextFieldChangeListener();
+            }
+        });
+
+        replaceTextField.textProperty().addListener((observable, oldValue, newValue) -> state.setReplacement(newValue));
+        replaceAllCheckbox.selectedProperty().addListener((observable, oldValue, newValue) -> state.setReplaceAll(newValue));
+    }
+
+    /**
+     * shows the search state of the selected tab, called by the mediator when the selected tab changes
+     * the fields are filled in without searching again, the tab keeps its own highlighting
+     *
+     * @param state the SearchState of the selected tab
+     */
+    public void bind(SearchState state) {
+        this.state = state;
+
+        binding = true;
+        findTextField.setText(state.getQuery());
+        replaceTextField.setText(state.getReplacement());
+        caseSensetiveCheckBox.setSelected(state.isMatchCase());
+        replaceAllCheckbox.setSelected(state.isReplaceAll());
+        binding = false;
+
+        findReplaceWordCount.setText(state.getQuery().isEmpty() ? "" : state.getMatchedCount() + "\nmatches");
+        findReplaceHighlightedCount.setText(state.getMatchedCount() > 0 ? state.getCurrentSelectedMatch() + " of " : "");
 
-        caseSensetiveCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> findReplaceTextFieldChangeListener()
-        );
+        setReplaceToolbarVisibility(state.isReplaceVisible());
+        setToolbarVisibility(state.isVisible());
     }
 
     @FXML
@@ -109,12 +261,12 @@ public class FindReplaceToolBar extends VBox {
     @FXML
     public void nextFindButtonPressed() {
 
-        if (currentSelectedMatch + 1 <= matchedCount) {
-            currentSelectedMatch++;
+        if (state.getCurrentSelectedMatch() + 1 <= state.getMatchedCount()) {
+            state.setCurrentSelectedMatch(state.getCurrentSelectedMatch() + 1);
         }
 
-        if (matchedCount > 0) {
-            findReplaceHighlightedCount.setText(currentSelectedMatch + " of ");
+        if (state.getMatchedCount() > 0) {
+            findReplaceHighlightedCount.setText(state.getCurrentSelectedMatch() + " of ");
         }
 
         mediator.getEventBuilder().withEvent(Events.FIND_NEXT).build();
@@ -124,12 +276,12 @@ public class FindReplaceToolBar extends VBox {
     @FXML
     public void previousFindButtonPressed() {
 
-        if (currentSelectedMatch - 1 > 0) {
-            currentSelectedMatch--;
+        if (state.getCurrentSelectedMatch() - 1 > 0) {
+            state.setCurrentSelectedMatch(state.getCurrentSelectedMatch() - 1);
         }
 
-        if (matchedCount > 0) {
-            findReplaceHighlightedCount.setText(currentSelectedMatch + " of ");
+        if (state.getMatchedCount() > 0) {
+            findReplaceHighlightedCount.setText(state.getCurrentSelectedMatch() + " of ");
         }
         mediator.getEventBuilder().withEvent(Events.FIND_PREVIOUS).build();
 
@@ -137,46 +289,57 @@ public class FindReplaceToolBar extends VBox {
 
     private void findReplaceTextFieldChangeListener() {
 
-        currentSelectedMatch = 0;
+        state.setCurrentSelectedMatch(0);
         findReplaceHighlightedCount.setText("");
-        String text = mediator.getText();
         String substring = findTextField.getText();
+        if (mediator.isViewer()) {
+            // the text of a large file isn't loaded, the viewer finds one match at a time and shows no count
+            state.setMatchedCount(0);
+            findReplaceWordCount.setText("");
+            mediator.getEventBuilder().withEvent(Events.FIND_SELECT).withText(substring).build();
+            return;
+        }
+        String text = mediator.getText();
 
-        System.out.println("selected: " + caseSensetiveCheckBox.isSelected());
-        System.out.println("text: " + text);
-        System.out.println("subs: " + substring);
-        matchedCount = EditorUtils.getSubstringMatchedCount(substring, text, caseSensetiveCheckBox.isSelected());
-        findReplaceWordCount.setText(matchedCount + "\nmatches");
+        // the text can be megabytes, only its length is logged
+        LOG.debug(() -> "match case: " + caseSensetiveCheckBox.isSelected() + " query: " + substring + " text length: " + text.length());
+        state.setMatchedCount(EditorUtils.getSubstringMatchedCount(substring, text, caseSensetiveCheckBox.isSelected()));
+        findReplaceWordCount.setText(state.getMatchedCount() + "\nmatches");
 
-        if (matchedCount > 0) {
-            currentSelectedMatch++;
-            findReplaceHighlightedCount.setText(currentSelectedMatch + " of ");
+        if (state.getMatchedCount() > 0) {
+            state.setCurrentSelectedMatch(1);
+            findReplaceHighlightedCount.setText(state.getCurrentSelectedMatch() + " of ");
         }
 
         mediator.getEventBuilder().withEvent(Events.FIND_SELECT).withText(substring).build();
     }
 
     private void setReplaceToolbarVisibility(boolean visibility) {
+        state.setReplaceVisible(visibility);
         replaceToolBar.setVisible(visibility);
         replaceToolBar.setManaged(visibility);
     }
 
+    private void setToolbarVisibility(boolean visibility) {
+        state.setVisible(visibility);
+        this.setVisible(visibility);
+        this.setManaged(visibility);
+    }
+
 
     /**
      * Shows replaceToolBar
      */
     public void showFindReplace() {
         setReplaceToolbarVisibility(true);
-        this.setVisible(true);
-        this.setManaged(true);
+        setToolbarVisibility(true);
     }
 
     /**
      * Hides FindAndReplaceToolbar by hiding Vbox
      */
     public void hideFindReplace() {
-        this.setVisible(false);
-        this.setManaged(false);
+        setToolbarVisibility(false);
     }
 
     /**
@@ -184,13 +347,15 @@ public class FindReplaceToolBar extends VBox {
      */
     public void showFindToolbar() {
         setReplaceToolbarVisibility(false);
-        this.setVisible(true);
-        this.setManaged(true);
+        setToolbarVisibility(true);
     }
 
 
+    /**
+     * @return the match case flag of the selected tab
+     */
     public boolean isMatchCase() {
-        return caseSensetiveCheckBox.isSelected();
+        return state.isMatchCase();
     }
 
 }
@@ -0,0 +1,411 @@
+package gui.components;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+import lib.io.MappedTextFile;
+import lib.io.MappedTextFile.Chunk;
+import lib.log.Logger;
+import org.fxmisc.flowless.VirtualizedScrollPane;
+import org.fxmisc.richtext.CodeArea;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * a read only view of a file too large to be loaded in a TextSpace, see {@link MappedTextFile}
+ * <p>
+ * the code area only holds a window of at most {@link #MAX_CHUNKS} chunks of {@link #CHUNK_LINES} lines.
+ * when the viewport gets close to an end of the window the next chunk is read and the one at the other end is dropped,
+ * so the memory and the layout cost stay the same whatever the size of the file.
+ * the scroll bar on the right moves through the whole file by byte offset, the line numbers come from the sparse
+ * line index and stay blank until the index reaches the window. find runs over the mapped bytes, not over the window
+ */
+public class LargeFileViewer extends VBox {
+    private static final Logger LOG = Logger.get(LargeFileViewer.class);
+
+    private static final int CHUNK_LINES = 1000;
+    private static final int MAX_CHUNKS = 3;
+    // the window moves when the viewport is this many paragraphs from one of its ends
+    private static final int MARGIN = 200;
+    private static final Font FONT = new Font(12);
+
+    private final MappedTextFile file;
+    private final CodeArea area = new CodeArea();
+    private final LineNumberGutter gutter;
+    private final ScrollBar scrollBar = new ScrollBar();
+    private final Label info = new Label();
+    private final Timeline indexProgress;
+    private final Deque<Chunk> chunks = new ArrayDeque<>();
+    // every search gets a number, a search stops as soon as a newer one starts
+    private final AtomicInteger searches = new AtomicInteger();
+
+    // the line of the first paragraph of the window, -1 while the index hasn't reached it
+    private long firstLine = -1;
+    // the line goToLine waits for, -1 if there is none
+    private long pendingLine = -1;
+    private int pendingColumn;
+    // the offset of the selected match, -1 if there is none
+    private long matchStart = -1;
+    private String status = "";
+    private boolean checkScheduled;
+    // the offset the scroll bar was dragged to, -1 if no jump is pending
+    private long jumpOffset = -1;
+    private boolean movingScrollBar;
+    private volatile boolean closed;
+
+    /**
+     * shows the start of file and starts indexing its lines in the background
+     */
+    public LargeFileViewer(MappedTextFile file) {
+        this.file = file;
+        setId("LargeFileViewer");
+        setPrefSize(10000, 10000);
+
+        area.setEditable(false);
+        area.setPrefSize(10000, 10000);
+        gutter = new LineNumberGutter(area);
+        area.setParagraphGraphicFactory(gutter);
+        area.viewportDirtyEvents().subscribe(dirty -> scheduleCheck());
+        area.currentParagraphProperty().addListener((observable, oldValue, newValue) -> updateInfo());
+
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        scrollBar.setMax(Math.max(1, file.getSize()));
+        scrollBar.setUnitIncrement(Math.max(1, file.getSize() / 1000));
+        scrollBar.setBlockIncrement(Math.max(1, file.getSize() / 50));
+        scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (!movingScrollBar) {
+                scheduleJump(newValue.longValue());
+            }
+        });
+
+        VirtualizedScrollPane<CodeArea> scrollPane = new VirtualizedScrollPane<>(area);
+        HBox.setHgrow(scrollPane, Priority.ALWAYS);
+        HBox content = new HBox(scrollPane, scrollBar);
+        VBox.setVgrow(content, Priority.ALWAYS);
+        info.setFont(FONT);
+        info.setPadding(new Insets(2, 10, 2, 10));
+        getChildren().addAll(content, info);
+
+        indexProgress = new Timeline(new KeyFrame(Duration.millis(500), event -> updateInfo()));
+        indexProgress.setCycleCount(Animation.INDEFINITE);
+        indexProgress.play();
+        startIndex();
+        goToOffset(file.getDataStart());
+    }
+
+    private void startIndex() {
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            if (file.indexLines(() -> closed)) {
+                LOG.debug(() -> "indexed " + file.getLineCount() + " lines of " + file.getPath()
+                        + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+                Platform.runLater(this::indexed);
+            }
+        }, "large-file-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void indexed() {
+        indexProgress.stop();
+        if (pendingLine >= 0) {
+            goToLine(pendingLine, pendingColumn);
+        }
+        refreshGutter();
+        updateInfo();
+    }
+
+    /**
+     * shows the line that has offset at the top
+     *
+     * @param offset a byte offset in the file
+     */
+    public void goToOffset(long offset) {
+        long start = file.lineStartBefore(Math.max(file.getDataStart(), Math.min(offset, file.getSize())));
+        loadWindow(file.read(start, CHUNK_LINES), file.lineOf(start));
+    }
+
+    /**
+     * shows line at the top with the caret at column, waits for the index if it hasn't reached line yet
+     *
+     * @param line   the line, starting from 0, the last line if the file has less lines
+     * @param column the column, starting from 0
+     * @return false if the line is shown when the index reaches it
+     */
+    public boolean goToLine(long line, int column) {
+        if (file.getLineCount() >= 0) {
+            line = Math.max(0, Math.min(line, file.getLineCount() - 1));
+        }
+        long start = file.lineStart(line);
+        if (start < 0) {
+            pendingLine = line;
+            pendingColumn = column;
+            status = String.format(Locale.ROOT, "going to line %,d when it's indexed", line + 1);
+            updateInfo();
+            return false;
+        }
+        pendingLine = -1;
+        status = "";
+        loadWindow(file.read(start, CHUNK_LINES), line);
+        area.moveTo(0, Math.max(0, Math.min(column, area.getParagraphLength(0))));
+        return true;
+    }
+
+    private void loadWindow(Chunk chunk, long line) {
+        chunks.clear();
+        chunks.add(chunk);
+        firstLine = line;
+        area.replaceText(chunk.getText());
+        refreshGutter();
+        area.moveTo(0);
+        area.showParagraphAtTop(0);
+        updateScrollBar();
+        updateInfo();
+    }
+
+    /**
+     * a drag of the scroll bar changes its value many times per pulse, the window is only read again for the last one
+     */
+    private void scheduleJump(long offset) {
+        boolean scheduled = jumpOffset >= 0;
+        jumpOffset = offset;
+        if (!scheduled) {
+            Platform.runLater(() -> {
+                long target = jumpOffset;
+                jumpOffset = -1;
+                goToOffset(target);
+            });
+        }
+    }
+
+    private void scheduleCheck() {
+        if (!checkScheduled) {
+            checkScheduled = true;
+            Platform.runLater(this::checkWindow);
+        }
+    }
+
+    /**
+     * reads the next chunk when the viewport is close to an end of the window
+     */
+    private void checkWindow() {
+        checkScheduled = false;
+        if (chunks.isEmpty() || area.getVisibleParagraphs().isEmpty()) {
+            return;
+        }
+        int paragraphs = area.getParagraphs().size();
+        int firstVisible = area.firstVisibleParToAllParIndex();
+        int lastVisible = area.lastVisibleParToAllParIndex();
+        if (lastVisible >= paragraphs - MARGIN && chunks.getLast().getEnd() < file.getSize()) {
+            append(file.read(chunks.getLast().getEnd(), CHUNK_LINES), firstVisible);
+        } else if (firstVisible < MARGIN && chunks.getFirst().getStart() > file.getDataStart()) {
+            prepend(file.readBefore(chunks.getFirst().getStart(), CHUNK_LINES), firstVisible);
+        }
+        updateScrollBar();
+        updateInfo();
+    }
+
+    private void append(Chunk chunk, int firstVisible) {
+        chunks.addLast(chunk);
+        area.appendText(chunk.getText());
+        if (chunks.size() <= MAX_CHUNKS) {
+            return;
+        }
+        Chunk dropped = chunks.removeFirst();
+        area.deleteText(0, dropped.getText().length());
+        if (firstLine >= 0) {
+            firstLine += dropped.getLineCount();
+        }
+        refreshGutter();
+        area.showParagraphAtTop(Math.max(0, firstVisible - dropped.getLineCount()));
+    }
+
+    private void prepend(Chunk chunk, int firstVisible) {
+        chunks.addFirst(chunk);
+        area.insertText(0, chunk.getText());
+        if (firstLine >= 0) {
+            firstLine -= chunk.getLineCount();
+        }
+        if (chunks.size() > MAX_CHUNKS) {
+            Chunk dropped = chunks.removeLast();
+            int length = area.getLength();
+            area.deleteText(length - dropped.getText().length(), length);
+        }
+        refreshGutter();
+        area.showParagraphAtTop(firstVisible + chunk.getLineCount());
+    }
+
+    /**
+     * numbers the paragraphs from the first line of the window, the labels are only made again when the factory is set
+     */
+    private void refreshGutter() {
+        if (firstLine < 0) {
+            firstLine = file.lineOf(chunks.getFirst().getStart());
+        }
+        gutter.setFirstLine(firstLine);
+        area.setParagraphGraphicFactory(null);
+        area.setParagraphGraphicFactory(gutter);
+    }
+
+    private void updateScrollBar() {
+        if (jumpOffset >= 0 || area.getVisibleParagraphs().isEmpty()) {
+            return;
+        }
+        long start = chunks.getFirst().getStart();
+        long end = chunks.getLast().getEnd();
+        double fraction = (double) area.firstVisibleParToAllParIndex() / Math.max(1, area.getParagraphs().size());
+        movingScrollBar = true;
+        scrollBar.setValue(start + (end - start) * fraction);
+        movingScrollBar = false;
+    }
+
+    private void updateInfo() {
+        long lines = file.getLineCount();
+        String count = lines < 0
+                ? String.format(Locale.ROOT, "indexing %d%%", (int) (file.getIndexProgress() * 100))
+                : String.format(Locale.ROOT, "%,d lines", lines);
+        String line = firstLine < 0 ? "?" : String.format(Locale.ROOT, "%,d", firstLine + area.getCurrentParagraph() + 1);
+        info.setText(String.format(Locale.ROOT, "read only    %,d bytes    %s    Ln %s    %s",
+                file.getSize(), file.getFormat().getCharset().name(), line, count)
+                + (status.isEmpty() ? "" : "    " + status));
+    }
+
+    /**
+     * selects the first match of query from the selected match, or from the caret if there is none
+     */
+    public void find(String query, boolean matchCase) {
+        search(query, matchCase, matchStart >= 0 ? matchStart : caretOffset(), true);
+    }
+
+    /**
+     * selects the match after the selected one, it wraps around at the end of the file
+     */
+    public void findNext(String query, boolean matchCase) {
+        search(query, matchCase, matchStart >= 0 ? matchStart + 1 : caretOffset(), true);
+    }
+
+    /**
+     * selects the match before the selected one, it wraps around at the start of the file
+     */
+    public void findPrevious(String query, boolean matchCase) {
+        search(query, matchCase, matchStart >= 0 ? matchStart : caretOffset(), false);
+    }
+
+    /**
+     * removes the selection of the match
+     */
+    public void clearMatch() {
+        searches.incrementAndGet();
+        matchStart = -1;
+        status = "";
+        area.deselect();
+        updateInfo();
+    }
+
+    /**
+     * searches the mapped file on a background thread, the match is selected on the javafx thread
+     */
+    private void search(String query, boolean matchCase, long from, boolean forward) {
+        int search = searches.incrementAndGet();
+        if (query == null || query.isEmpty()) {
+            clearMatch();
+            return;
+        }
+        status = "searching...";
+        updateInfo();
+        Thread thread = new Thread(() -> {
+            BooleanSupplier cancelled = () -> closed || searches.get() != search;
+            long found = file.find(query, matchCase, from, forward, cancelled);
+            if (found < 0 && !cancelled.getAsBoolean()) {
+                found = file.find(query, matchCase, forward ? file.getDataStart() : file.getSize(), forward, cancelled);
+            }
+            long match = found;
+            Platform.runLater(() -> {
+                if (searches.get() == search) {
+                    showMatch(match, query.length());
+                }
+            });
+        }, "large-file-find");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void showMatch(long match, int length) {
+        matchStart = match;
+        if (match < 0) {
+            status = "no match";
+            area.deselect();
+            updateInfo();
+            return;
+        }
+        status = "";
+        if (match < chunks.getFirst().getStart() || match >= chunks.getLast().getEnd()) {
+            goToOffset(match);
+        }
+        int position = charPosition(match);
+        area.selectRange(position, Math.min(area.getLength(), position + length));
+        area.requestFollowCaret();
+        updateInfo();
+    }
+
+    /**
+     * @return the position in the window of the char at offset, offset must be in the window
+     */
+    private int charPosition(long offset) {
+        int position = 0;
+        for (Chunk chunk : chunks) {
+            if (offset < chunk.getEnd() || chunk == chunks.getLast()) {
+                return position + file.decode(chunk.getStart(), Math.min(offset, chunk.getEnd())).length();
+            }
+            position += chunk.getText().length();
+        }
+        return position;
+    }
+
+    /**
+     * @return the byte offset of the caret
+     */
+    private long caretOffset() {
+        int caret = area.getCaretPosition();
+        int position = 0;
+        for (Chunk chunk : chunks) {
+            int length = chunk.getText().length();
+            if (caret <= position + length) {
+                return chunk.getStart() + file.encodedLength(chunk.getText().substring(0, caret - position));
+            }
+            position += length;
+        }
+        return file.getDataStart();
+    }
+
+    public String getSelectedText() {
+        return area.getSelectedText();
+    }
+
+    public MappedTextFile getFile() {
+        return file;
+    }
+
+    /**
+     * stops the index and the running search, called when the tab is closed
+     */
+    public void close() {
+        closed = true;
+        searches.incrementAndGet();
+        indexProgress.stop();
+    }
+}
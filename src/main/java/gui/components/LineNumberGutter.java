@@ -0,0 +1,232 @@
+package gui.components;
+
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.Text;
+import org.fxmisc.richtext.GenericStyledArea;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * the line numbers shown next to the paragraphs of a text area, looks like {@link org.fxmisc.richtext.LineNumberFactory}
+ * <p>
+ * LineNumberFactory creates a new label for every paragraph that scrolls in, and every label formats its text again
+ * whenever the number of paragraphs changes, which makes scrolling stutter on files with millions of lines.
+ * here the labels are recycled: a label goes back to the pool when the paragraph box drops it,
+ * and the width of the labels is computed from the widest digit of the font (style.css may change it)
+ * and only changes when the number of digits of the last line number changes.
+ * the numbers start from {@link #setFirstLine(long)} when the area only shows a part of a file.
+ * with {@link #setFolds(Folds)} a line that starts a fold region gets a - after its number, or a + when it's folded,
+ * clicking the label folds or unfolds it, and the label of a folded line takes no room
+ */
+public class LineNumberGutter implements IntFunction<Node> {
+
+    /**
+     * the fold regions of the area
+     */
+    public interface Folds {
+
+        /**
+         * @return true if a region that can be folded starts on paragraph
+         */
+        boolean isFoldable(int paragraph);
+
+        /**
+         * @return true if the region that starts on paragraph is folded
+         */
+        boolean isFolded(int paragraph);
+
+        /**
+         * @return true if paragraph is hidden in a folded region
+         */
+        boolean isHidden(int paragraph);
+
+        /**
+         * folds the region that starts on paragraph, or unfolds it
+         */
+        void toggle(int paragraph);
+    }
+
+    private static final Insets INSETS = new Insets(0.0, 5.0, 0.0, 5.0);
+    private static final Paint TEXT_FILL = Color.web("#666");
+    private static final Font FONT = Font.font("monospace", FontPosture.ITALIC, 13);
+    private static final Background BACKGROUND = new Background(new BackgroundFill(Color.web("#ddd"), null, null));
+
+    private final List<Label> labels = new ArrayList<>();
+    private final Deque<Label> pool = new ArrayDeque<>();
+    private int digits;
+    private int paragraphCount;
+    // the line of the first paragraph, -1 to leave the labels blank
+    private long firstLine;
+    private Folds folds;
+    private Font font = FONT;
+    // the width of a label for every digit count, a long has at most 19 digits and the fold marker takes two more
+    private double[] widths = computeWidths(FONT);
+
+    /**
+     * @param area the text area the line numbers are shown for
+     */
+    public LineNumberGutter(GenericStyledArea<?, ?, ?> area) {
+        paragraphCount = area.getParagraphs().size();
+        digits = digitCount(paragraphCount);
+        area.getParagraphs().addListener((ListChangeListener<Object>) change -> updateDigits(area.getParagraphs().size()));
+    }
+
+    /**
+     * numbers the paragraphs from firstLine, the labels already shown keep their number until the paragraph box asks for new ones
+     *
+     * @param firstLine the line of the first paragraph, starting from 0, -1 if it isn't known
+     */
+    public void setFirstLine(long firstLine) {
+        this.firstLine = firstLine;
+        updateDigits(paragraphCount);
+    }
+
+    /**
+     * shows the fold markers of folds, null to show none
+     */
+    public void setFolds(Folds folds) {
+        this.folds = folds;
+        resizeLabels();
+        refresh();
+    }
+
+    /**
+     * updates the labels that are shown, when the fold regions changed
+     */
+    public void refresh() {
+        for (Label label : labels) {
+            if (label.getParent() != null) {
+                update(label, (Integer) label.getUserData());
+            }
+        }
+    }
+
+    /**
+     * @param paragraph the index of the paragraph, starting from 0
+     * @return a label showing the line of paragraph + 1, taken from the pool when one is free
+     */
+    @Override
+    public Node apply(int paragraph) {
+        Label label = pool.poll();
+        if (label == null) {
+            label = createLabel();
+        }
+        label.setUserData(paragraph);
+        update(label, paragraph);
+        return label;
+    }
+
+    private void update(Label label, int paragraph) {
+        boolean hidden = folds != null && folds.isHidden(paragraph);
+        label.setVisible(!hidden);
+        label.setMinHeight(hidden ? 0 : Region.USE_COMPUTED_SIZE);
+        label.setPrefHeight(hidden ? 0 : Region.USE_COMPUTED_SIZE);
+        String number = firstLine < 0 || hidden ? "" : Long.toString(firstLine + paragraph + 1);
+        if (folds == null || hidden) {
+            label.setText(number);
+        } else if (folds.isFolded(paragraph)) {
+            label.setText(number + " +");
+        } else {
+            label.setText(number + (folds.isFoldable(paragraph) ? " -" : "  "));
+        }
+    }
+
+    private Label createLabel() {
+        Label label = new Label();
+        label.setFont(FONT);
+        label.setTextFill(TEXT_FILL);
+        label.setBackground(BACKGROUND);
+        label.setPadding(INSETS);
+        label.setAlignment(Pos.CENTER_RIGHT);
+        label.setMinWidth(width());
+        label.getStyleClass().add("lineno");
+        label.setOnMouseClicked(event -> {
+            if (folds != null) {
+                folds.toggle((Integer) label.getUserData());
+            }
+        });
+        label.fontProperty().addListener((observable, oldFont, newFont) -> updateFont(newFont));
+        // the paragraph box removes its graphic when the paragraph it shows changes or scrolls out
+        label.parentProperty().addListener((observable, oldParent, newParent) -> {
+            if (newParent == null) {
+                pool.push(label);
+            }
+        });
+        labels.add(label);
+        return label;
+    }
+
+    /**
+     * resizes all the labels if the last line number has more or less digits than before
+     */
+    private void updateDigits(int paragraphCount) {
+        this.paragraphCount = paragraphCount;
+        int newDigits = digitCount(Math.max(0, firstLine) + paragraphCount);
+        if (newDigits == digits) {
+            return;
+        }
+        digits = newDigits;
+        resizeLabels();
+    }
+
+    /**
+     * measures the digits again when the stylesheet gives the labels another font
+     */
+    private void updateFont(Font newFont) {
+        if (newFont == null || newFont.equals(font)) {
+            return;
+        }
+        font = newFont;
+        widths = computeWidths(newFont);
+        resizeLabels();
+    }
+
+    private void resizeLabels() {
+        for (Label label : labels) {
+            label.setMinWidth(width());
+        }
+    }
+
+    private double width() {
+        return widths[folds == null ? digits : digits + 2];
+    }
+
+    private static double[] computeWidths(Font font) {
+        double digitWidth = 0;
+        Text text = new Text();
+        text.setFont(font);
+        for (char digit = '0'; digit <= '9'; digit++) {
+            text.setText(String.valueOf(digit));
+            digitWidth = Math.max(digitWidth, text.getLayoutBounds().getWidth());
+        }
+        double[] widths = new double[22];
+        for (int digits = 1; digits < widths.length; digits++) {
+            widths[digits] = Math.ceil(digits * digitWidth) + INSETS.getLeft() + INSETS.getRight();
+        }
+        return widths;
+    }
+
+    private static int digitCount(long number) {
+        int count = 1;
+        while (number >= 10) {
+            number /= 10;
+            count++;
+        }
+        return count;
+    }
+}
@@ -4,19 +4,30 @@ import gui.TabSpace;
 import gui.mediator.Events;
 import gui.mediator.IMediator;
 import gui.mediator.Mediator;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
-import javafx.scene.layout.VBox;
 import lib.EditorUtils;
+import lib.io.MappedTextFile;
+import lib.io.ParallelFileLoader;
+import lib.io.TextDocument;
+import lib.log.Logger;
+import lib.session.Session;
+import lib.session.TabSnapshot;
 import smallUndoEngine.EditorTextHistory;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public class MainController {
+    private static final Logger LOG = Logger.get(MainController.class);
 
     @FXML
     private TabPane tabPane;
@@ -30,6 +41,9 @@ public class MainController {
     @FXML
     private FindReplaceToolBar findReplaceToolBar;
 
+    @FXML
+    private StatusBar statusBar;
+
     private EditorTextHistory editorTextHistory = new EditorTextHistory();
 
     private IMediator mediator = Mediator.getInstance();
@@ -42,7 +56,10 @@ public class MainController {
         createNewTab(false);
         mediator.setMainController(this);
         mediator.setTabSpaces(tabSpaces);
+        findReplaceToolBar.bind(tabSpaces.get(0).getSearchState());
+        statusBar.bind(tabSpaces.get(0).getTextSpace());
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.ALL_TABS);
+        tabPaneListener();
     }
 
     private void tabPaneListener() {
@@ -50,7 +67,7 @@ public class MainController {
             if (tabPane.getTabs().size() == 0) {
                 return;
             }
-            System.out.println("sending TAB_CHANGED, #of tabs" + tabPane.getTabs().size());
+            LOG.debug(() -> "sending TAB_CHANGED, #of tabs " + tabPane.getTabs().size());
             mediator.getEventBuilder().withEvent(Events.TAB_CHANGED).build();
         });
     }
@@ -60,24 +77,22 @@ public class MainController {
      * @param isSaved: true if a new tab is created as a result of OPEN_MENU event, false otherwise
      * @see Mediator
      * creates new tab and a new editorTextHistory if the array of tabs is not full
+     * @return the TabSpace of the new tab
      */
-    public void createNewTab(boolean isSaved) {
+    public TabSpace createNewTab(boolean isSaved) {
         Tab tab = new Tab("untitled tab " + textSpacesCount);
         TextSpace textSpace = new TextSpace();
 
-        FindReplaceToolBar findReplaceToolBar = new FindReplaceToolBar();
-        findReplaceToolBar.setManaged(false);
-
         EditorTextHistory editorTextHistory = new EditorTextHistory();
         textSpace.setNumber(textSpacesCount);
-        System.out.println("textspace " + textSpacesCount + " is created");
+        int number = textSpacesCount;
+        LOG.debug(() -> "textspace " + number + " is created");
 
-        //VBox used for tab content that hold textspace and toolbar because we can't add many nodes to Tab
-        VBox vBox = new VBox();
-        vBox.getChildren().addAll(textSpace, findReplaceToolBar);
-        tab.setContent(vBox);
+        // the find/replace toolbar is shared by all tabs, it lives under the tabPane in main.fxml
+        tab.setContent(textSpace);
 
-        TabSpace tabSpace = addTabSpace(textSpace, editorTextHistory, findReplaceToolBar, isSaved);
+        TabSpace tabSpace = addTabSpace(textSpace, editorTextHistory, isSaved);
+        showPasteProgress(tab, tabSpace);
         tab.setOnCloseRequest(event -> {
             Alert alert = EditorUtils.createConfirmationAlert("Are you sure you want to close this tab?", "yes", "");
             boolean close = true;
@@ -89,15 +104,158 @@ public class MainController {
                 }
             }
             if (close) {
-                System.out.println(getCurrentTabIndex());
-                tabSpaces.remove(getCurrentTabIndex());
+                tabSpaces.remove(tabSpace);
+                tabSpace.close();
             }
         });
 
         tabPane.getTabs().add(tab);
         textSpacesCount++;
+        return tabSpace;
+    }
 
-        tabPaneListener();
+    /**
+     * @return the open tabs in the form they are written to the session file
+     * @see lib.session.SessionStore
+     */
+    public Session snapshotSession() {
+        List<TabSnapshot> tabs = new ArrayList<>();
+        for (TabSpace tabSpace : tabSpaces) {
+            tabs.add(tabSpace.snapshot());
+        }
+        return new Session(tabs, getCurrentTabIndex());
+    }
+
+    /**
+     * opens the tabs of a previous session, the empty tab created on start is replaced
+     * the selected tab is restored first, the files of the other tabs are read in parallel in the background
+     * and each tab is filled in on the javafx thread when its file is ready
+     * tabs whose file doesn't exist anymore and that have no unsaved text are skipped
+     *
+     * @param session the session to restore, does nothing if it's null or empty
+     */
+    public void restoreSession(Session session) {
+        if (session == null) {
+            return;
+        }
+
+        List<TabSnapshot> snapshots = new ArrayList<>();
+        int selected = 0;
+        for (int i = 0; i < session.getTabs().size(); i++) {
+            TabSnapshot snapshot = session.getTabs().get(i);
+            if (snapshot.getText() != null || Files.isReadable(snapshot.getPath())) {
+                if (i == session.getSelectedIndex()) {
+                    selected = snapshots.size();
+                }
+                snapshots.add(snapshot);
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        if (tabSpaces.size() == 1 && tabSpaces.get(0).isBlank()) {
+            tabSpaces.clear();
+            tabPane.getTabs().clear();
+        }
+
+        int offset = tabSpaces.size();
+        List<TabSpace> restored = new ArrayList<>();
+        for (TabSnapshot snapshot : snapshots) {
+            restored.add(createNewTab(snapshot.getPath() != null));
+        }
+
+        TabSnapshot selectedSnapshot = snapshots.get(selected);
+        tabPane.getSelectionModel().select(offset + selected);
+        if (isLarge(selectedSnapshot)) {
+            view(restored.get(selected), selectedSnapshot.getPath());
+        } else {
+            restoreTab(restored.get(selected), selectedSnapshot, readSnapshotDocument(selectedSnapshot));
+        }
+        if (selectedSnapshot.getPath() != null) {
+            EditorUtils.setStageTitle(tabPane, selectedSnapshot.getPath());
+        }
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            if (i == selected) {
+                continue;
+            }
+            TabSpace tabSpace = restored.get(i);
+            TabSnapshot snapshot = snapshots.get(i);
+            if (isLarge(snapshot)) {
+                view(tabSpace, snapshot.getPath());
+            } else if (snapshot.getText() != null) {
+                restoreTab(tabSpace, snapshot, readSnapshotDocument(snapshot));
+            } else {
+                ParallelFileLoader.getInstance().read(snapshot.getPath(), EditorUtils::readDocument)
+                        .thenAccept(document -> Platform.runLater(() -> restoreTab(tabSpace, snapshot, document)));
+            }
+        }
+    }
+
+    private void restoreTab(TabSpace tabSpace, TabSnapshot snapshot, TextDocument document) {
+        // the tab might have been closed while its file was read, or the file can't be read anymore
+        if (!tabSpaces.contains(tabSpace) || document == null) {
+            return;
+        }
+        tabSpace.restore(snapshot, document);
+        Tab tab = tabPane.getTabs().get(tabSpaces.indexOf(tabSpace));
+        if (snapshot.getPath() != null) {
+            tab.setText(snapshot.getPath().getFileName().toString());
+        }
+        if (snapshot.isTextChanged()) {
+            tab.setText(tab.getText() + " *");
+        }
+    }
+
+    /**
+     * @return true if the tab of snapshot showed a large file in a viewer, it has no unsaved text
+     */
+    private static boolean isLarge(TabSnapshot snapshot) {
+        return snapshot.getText() == null && MappedTextFile.isLarge(snapshot.getPath());
+    }
+
+    private static TextDocument readSnapshotDocument(TabSnapshot snapshot) {
+        if (snapshot.getText() != null) {
+            return new TextDocument(snapshot.getText(), snapshot.getFormat());
+        }
+        return EditorUtils.readDocument(snapshot.getPath());
+    }
+
+    /**
+     * shows the content of a file in the selected tab if it's blank, otherwise in a new tab that gets selected
+     *
+     * @param path     the path of the file
+     * @param document the content of the file, null to show a large file read only
+     * @return the TabSpace the file is opened in
+     */
+    public TabSpace openInTab(Path path, TextDocument document) {
+        int index = getCurrentTabIndex();
+        if (index < 0 || !tabSpaces.get(index).isBlank()) {
+            createNewTab(true);
+            index = tabSpaces.size() - 1;
+            tabPane.getSelectionModel().select(index);
+        }
+        TabSpace tabSpace = tabSpaces.get(index);
+        if (document == null) {
+            view(tabSpace, path);
+        } else {
+            tabSpace.load(path, document);
+        }
+        return tabSpace;
+    }
+
+    /**
+     * replaces the TextSpace of the tab of tabSpace with a read only viewer of path
+     */
+    private void view(TabSpace tabSpace, Path path) {
+        LargeFileViewer viewer = tabSpace.view(path);
+        if (viewer == null) {
+            return;
+        }
+        Tab tab = tabPane.getTabs().get(tabSpaces.indexOf(tabSpace));
+        tab.setContent(viewer);
+        tab.setText(path.getFileName().toString());
     }
 
     /**
@@ -108,13 +266,30 @@ public class MainController {
      * @param isSaved           specifies if the file is saved in the system
      * @return the created tabSpace
      */
-    private TabSpace addTabSpace(TextSpace textSpace, EditorTextHistory editorTextHistory, FindReplaceToolBar findReplaceToolBar, boolean isSaved) {
-        TabSpace current = new TabSpace(textSpace, editorTextHistory, findReplaceToolBar);
+    private TabSpace addTabSpace(TextSpace textSpace, EditorTextHistory editorTextHistory, boolean isSaved) {
+        TabSpace current = new TabSpace(textSpace, editorTextHistory);
         current.setIsSaved(isSaved);
         tabSpaces.add(current);
         return current;
     }
 
+    /**
+     * shows a progress indicator next to the title of tab while a large paste is inserted in its TabSpace
+     * and marks the title as changed when the paste is done
+     */
+    private void showPasteProgress(Tab tab, TabSpace tabSpace) {
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.setPrefSize(16, 16);
+        indicator.progressProperty().bind(tabSpace.pasteProgressProperty());
+        tabSpace.pasteProgressProperty().addListener((observable, oldValue, newValue) -> {
+            boolean pasting = newValue.doubleValue() < 1;
+            tab.setGraphic(pasting ? indicator : null);
+            if (!pasting && !tab.getText().endsWith("*")) {
+                tab.setText(tab.getText() + " *");
+            }
+        });
+    }
+
     /**
      * @return the current selected tab
      */
@@ -1,14 +1,15 @@
 package gui.components;
 
 import gui.mediator.IMediator;
-import javafx.scene.input.Clipboard;
-import javafx.scene.input.DataFormat;
+import javafx.application.Platform;
 import lib.EditorUtils;
+import lib.io.MappedTextFile;
 import gui.mediator.Events;
 import gui.mediator.Mediator;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
 import javafx.stage.FileChooser;
@@ -17,10 +18,8 @@ import smallUndoEngine.EditorTextHistory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 public class MainMenuBar extends MenuBar {
 
@@ -60,6 +59,15 @@ public class MainMenuBar extends MenuBar {
     @FXML
     private MenuItem find;
 
+    @FXML
+    private MenuItem findInFolder;
+
+    @FXML
+    private MenuItem goToLine;
+
+    @FXML
+    private CheckMenuItem followTail;
+
     private IMediator mediator = Mediator.getInstance();
     private FileChooser fileChooser = new FileChooser();
     private String text;
@@ -91,19 +99,20 @@ public class MainMenuBar extends MenuBar {
 
     /**
      * @param event javafx event..
-     *              opens a new window and prompt the user to choose a text file
-     *              file must not be null
-     *              updates filepath to the current path of the file
+     *              opens a new window and prompt the user to choose one or more text files
+     *              does nothing if no file is chosen
+     *              each file is opened in its own tab
      */
     @FXML
     void openMenuItemClick(ActionEvent event) {
         fileChooser.setTitle("title");
-        fileChooser.getExtensionFilters().add
-                (new FileChooser.ExtensionFilter("TXT files (*.txt)", "*.txt"));
-        File file = fileChooser.showOpenDialog(open.getParentPopup().getScene().getWindow());
-        if (file != null) {
-            readFile(file);
-            filePath = file.toPath();
+        if (fileChooser.getExtensionFilters().isEmpty()) {
+            fileChooser.getExtensionFilters().add
+                    (new FileChooser.ExtensionFilter("TXT files (*.txt)", "*.txt"));
+        }
+        List<File> files = fileChooser.showOpenMultipleDialog(open.getParentPopup().getScene().getWindow());
+        if (files != null) {
+            readFiles(files);
         }
     }
 
@@ -177,9 +186,6 @@ public class MainMenuBar extends MenuBar {
     @FXML
     void copyMenuItemClick(ActionEvent event) {
         mediator.getEventBuilder().withEvent(Events.COPY_MENU).build();
-        Map<DataFormat, Object> hashMap = new HashMap<>();
-        hashMap.put(DataFormat.PLAIN_TEXT, mediator.getMediatorText());
-        Clipboard.getSystemClipboard().setContent(hashMap);
     }
 
     /**
@@ -191,9 +197,6 @@ public class MainMenuBar extends MenuBar {
     @FXML
     void cutMenuItemClick(ActionEvent event) {
         mediator.getEventBuilder().withEvent(Events.CUT_MENU).build();
-        Map<DataFormat, Object> hashMap = new HashMap<>();
-        hashMap.put(DataFormat.PLAIN_TEXT, mediator.getMediatorText());
-        Clipboard.getSystemClipboard().setContent(hashMap);
     }
 
     /**
@@ -218,6 +221,49 @@ public class MainMenuBar extends MenuBar {
         mediator.getEventBuilder().withEvent(Events.SHOW_FIND).build();
     }
 
+    /**
+     * @param event javafx event..
+     *              asks for a line and sends a GO_TO_LINE event to mediator, the caret of the selected tab moves there
+     *              does nothing if the dialog is cancelled
+     * @see EditorUtils#showGoToLineWindow(javafx.stage.Window)
+     */
+    @FXML
+    void goToLineMenuItemClick(ActionEvent event) {
+        long[] position = EditorUtils.showGoToLineWindow(getScene().getWindow());
+        if (position == null) {
+            return;
+        }
+        mediator.getEventBuilder().withEvent(Events.GO_TO_LINE).withLine(position[0], (int) position[1]).build();
+    }
+
+    /**
+     * @param event javafx event..
+     *              sends a SHOW_FIND_IN_FOLDER event to mediator, the find in folder panel shows up
+     * @see FindInFolderPane
+     */
+    @FXML
+    void findInFolderMenuItemClick(ActionEvent event) {
+        mediator.getEventBuilder().withEvent(Events.SHOW_FIND_IN_FOLDER).build();
+    }
+
+
+    /**
+     * @param event javafx event..
+     *              sends a FOLLOW_TAIL event to mediator, the selected tab starts or stops scrolling to the end
+     *              when another program appends to its file
+     * @see Mediator
+     */
+    @FXML
+    void followTailMenuItemClick(ActionEvent event) {
+        mediator.getEventBuilder().withEvent(Events.FOLLOW_TAIL).build();
+    }
+
+    /**
+     * checks or unchecks the Follow Tail menu item, used when the selected tab changes
+     */
+    public void setFollowTail(boolean followTail) {
+        this.followTail.setSelected(followTail);
+    }
 
     /**
      * shows the version information of the app
@@ -249,24 +295,32 @@ public class MainMenuBar extends MenuBar {
 
 
     /**
-     * @param file the text file to read from
-     *             a task to read the text file in another thread
-     *             waits for the thread to finish, then sends OPEN_MENU event to the mediator to update the textArea text
-     *             if the file reading fails, it sets the current text to "FAILED"
+     * @param files the text files to read from
+     *              reads and decodes the files in parallel on the worker threads of ParallelFileLoader
+     *              files that can't be read are skipped instead of opening an empty tab
+     *              the javafx thread only sends an OPEN_MENU event to the mediator for each file that is ready,
+     *              in the order the files were chosen
+     *              files above {@link MappedTextFile#VIEWER_THRESHOLD} are not read, they open in a read only viewer in their turn
      * @see Mediator
-     * @see EditorUtils
+     * @see EditorUtils#openFiles
      */
-    private void readFile(File file) {
-        List<String> list = EditorUtils.readFromFile(file);
-        String str = list.stream().collect(Collectors.joining("\n"));
-        setCurrentText(str);
-        mediator.getEventBuilder()
-                .withEvent(Events.OPEN_MENU)
-                .withFilePath(file.toPath())
-                .withText(text)
-                .textChanged(false)
-                .fileSaved(true)
-                .build();
+    private void readFiles(List<File> files) {
+        List<Path> paths = new ArrayList<>(files.size());
+        for (File file : files) {
+            paths.add(file.toPath());
+        }
+        EditorUtils.openFiles(paths, MappedTextFile::isLarge, EditorUtils::readDocument, (path, document) -> {
+            setCurrentText(document == null ? "" : document.getText());
+            filePath = path;
+            mediator.getEventBuilder()
+                    .withEvent(Events.OPEN_MENU)
+                    .withFilePath(path)
+                    .withText(text)
+                    .withDocument(document)
+                    .textChanged(false)
+                    .fileSaved(true)
+                    .build();
+        }, Platform::runLater);
     }
 
     /**
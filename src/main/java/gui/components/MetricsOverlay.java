@@ -0,0 +1,62 @@
+package gui.components;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.text.Font;
+import javafx.stage.Popup;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import lib.metrics.Metrics;
+
+/**
+ * a popup in the top right corner of the window showing {@link Metrics#summary()}, toggled with ctrl+shift+m
+ * only installed when metrics are enabled
+ */
+public class MetricsOverlay {
+
+    private static final KeyCombination TOGGLE = new KeyCodeCombination(KeyCode.M, KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN);
+    private static final Duration REFRESH_INTERVAL = Duration.millis(500);
+
+    private final Stage stage;
+    private final Popup popup = new Popup();
+    private final Label label = new Label();
+    private final Timeline refresh;
+
+    private MetricsOverlay(Stage stage) {
+        this.stage = stage;
+        label.setFont(Font.font("monospace", 12));
+        label.setStyle("-fx-background-color: rgba(0, 0, 0, 0.75); -fx-text-fill: white; -fx-padding: 8;");
+        label.setMouseTransparent(true);
+        popup.getContent().add(label);
+        refresh = new Timeline(new KeyFrame(REFRESH_INTERVAL, event -> label.setText(Metrics.summary())));
+        refresh.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    /**
+     * adds the ctrl+shift+m accelerator to the scene of stage, does nothing if metrics are disabled
+     */
+    public static void install(Stage stage) {
+        if (!Metrics.ENABLED) {
+            return;
+        }
+        MetricsOverlay overlay = new MetricsOverlay(stage);
+        stage.getScene().getAccelerators().put(TOGGLE, overlay::toggle);
+    }
+
+    private void toggle() {
+        if (popup.isShowing()) {
+            refresh.stop();
+            popup.hide();
+            return;
+        }
+        label.setText(Metrics.summary());
+        popup.show(stage);
+        popup.setX(stage.getX() + stage.getWidth() - label.getWidth() - 20);
+        popup.setY(stage.getY() + 60);
+        refresh.play();
+    }
+}
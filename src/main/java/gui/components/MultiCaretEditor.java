@@ -0,0 +1,346 @@
+package gui.components;
+
+import javafx.application.Platform;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import lib.text.MultiCaret;
+import org.fxmisc.richtext.Caret;
+import org.fxmisc.richtext.CaretNode;
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.Selection;
+import org.fxmisc.richtext.SelectionImpl;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * the extra carets and the column selections of a {@link TextSpace}
+ * <p>
+ * alt+click adds a caret, alt+drag selects a rectangle, shortcut+alt+up/down adds a caret on the line above or below,
+ * escape or a click without alt goes back to one caret. while there is more than one caret, typing, backspace, delete,
+ * enter, tab, the arrows, home and end act on all of them, and every key is one {@link MultiCaret.Batch}.
+ * the textspace applies its replacements from the last to the first while muted, then sends one TEXT_CHANGED,
+ * so a key is one entry of the undo stack.
+ * <p>
+ * the carets are kept in a {@link MultiCaret}, not in the area: a CaretNode follows every change of the text by itself,
+ * ten thousand of them would cost ten thousand updates per change. only the carets in the viewport get a node,
+ * from a pool that is reused when the viewport moves. the primary caret is the area's own caret
+ */
+class MultiCaretEditor {
+
+    // the most carets drawn at once, a viewport shows a lot less lines
+    private static final int MAX_DRAWN = 500;
+
+    private final CodeArea area;
+    private final Consumer<MultiCaret.Batch> apply;
+    private final MultiCaret.Lines lines;
+    private final List<CaretNode> caretNodes = new ArrayList<>();
+    private final List<Selection<Collection<String>, String, Collection<String>>> selections = new ArrayList<>();
+    // null while the area has a single caret
+    private MultiCaret carets;
+    // the offset alt+drag started from, -1 when no drag is running
+    private int dragStart = -1;
+    private boolean applying;
+    private boolean scheduled;
+
+    /**
+     * @param apply applies the replacements of a key from the last to the first, then sends one TEXT_CHANGED
+     */
+    MultiCaretEditor(CodeArea area, Consumer<MultiCaret.Batch> apply) {
+        this.area = area;
+        this.apply = apply;
+        lines = new MultiCaret.Lines() {
+            @Override
+            public int lineOf(int offset) {
+                return area.offsetToPosition(offset, Bias.Forward).getMajor();
+            }
+
+            @Override
+            public int lineStart(int line) {
+                return area.getAbsolutePosition(line, 0);
+            }
+
+            @Override
+            public int lineLength(int line) {
+                return area.getParagraphLength(line);
+            }
+
+            @Override
+            public int getLineCount() {
+                return area.getParagraphs().size();
+            }
+        };
+        area.addEventFilter(MouseEvent.MOUSE_PRESSED, this::mousePressed);
+        area.addEventFilter(MouseEvent.MOUSE_DRAGGED, this::mouseDragged);
+        area.addEventFilter(MouseEvent.MOUSE_RELEASED, event -> {
+            if (dragStart >= 0) {
+                dragStart = -1;
+                event.consume();
+            }
+        });
+        area.addEventFilter(KeyEvent.KEY_PRESSED, this::keyPressed);
+        area.addEventFilter(KeyEvent.KEY_TYPED, this::keyTyped);
+        // an undo, a replace or a reload moves the text under the carets
+        area.plainTextChanges().subscribe(change -> {
+            if (!applying) {
+                clear();
+            }
+        });
+        area.viewportDirtyEvents().subscribe(event -> schedulePaint());
+    }
+
+    /**
+     * @return true if there is more than one caret
+     */
+    boolean isActive() {
+        return carets != null;
+    }
+
+    /**
+     * goes back to the primary caret
+     */
+    void clear() {
+        if (carets == null) {
+            return;
+        }
+        carets = null;
+        schedulePaint();
+    }
+
+    /**
+     * @return the selected text of every caret, a line each
+     */
+    String getSelectedText() {
+        return carets.getSelectedText(area::getText);
+    }
+
+    /**
+     * replaces the selection of every caret with text, a line of text per caret if text has a line for each of them
+     */
+    void paste(String text) {
+        String[] pieces = text.split("\n", -1);
+        edit(() -> pieces.length == carets.size() ? carets.replace(pieces) : carets.replace(text));
+    }
+
+    /**
+     * removes the selected text of every caret
+     */
+    void removeSelectedText() {
+        edit(() -> carets.replace(""));
+    }
+
+    private void mousePressed(MouseEvent event) {
+        if (event.getButton() != MouseButton.PRIMARY) {
+            return;
+        }
+        if (!event.isAltDown() || event.isShortcutDown()) {
+            clear();
+            return;
+        }
+        int offset = area.hit(event.getX(), event.getY()).getInsertionIndex();
+        start();
+        carets.add(offset, offset);
+        dragStart = offset;
+        area.requestFocus();
+        event.consume();
+        update();
+    }
+
+    /**
+     * the column of the rectangle is clamped to the line the mouse is on, there's no virtual space after the end of a line
+     */
+    private void mouseDragged(MouseEvent event) {
+        if (dragStart < 0) {
+            return;
+        }
+        int offset = area.hit(event.getX(), event.getY()).getInsertionIndex();
+        int anchorLine = lines.lineOf(dragStart);
+        int caretLine = lines.lineOf(offset);
+        carets = MultiCaret.rectangle(lines, anchorLine, dragStart - lines.lineStart(anchorLine),
+                caretLine, offset - lines.lineStart(caretLine));
+        event.consume();
+        update();
+    }
+
+    private void keyPressed(KeyEvent event) {
+        KeyCode code = event.getCode();
+        if (event.isShortcutDown() && event.isAltDown() && (code == KeyCode.UP || code == KeyCode.DOWN)) {
+            start();
+            carets.addLine(lines, code == KeyCode.DOWN);
+            event.consume();
+            update();
+            return;
+        }
+        // the shortcuts (copy, paste, undo...) go to the menu
+        if (carets == null || event.isShortcutDown()) {
+            return;
+        }
+        boolean extend = event.isShiftDown();
+        switch (code) {
+            case ESCAPE:
+                clear();
+                break;
+            case BACK_SPACE:
+                edit(carets::backspace);
+                break;
+            case DELETE:
+                edit(() -> carets.delete(lines));
+                break;
+            case ENTER:
+                edit(() -> carets.replace("\n"));
+                break;
+            case TAB:
+                edit(() -> carets.replace("\t"));
+                break;
+            case LEFT:
+                move(MultiCaret.Move.LEFT, extend);
+                break;
+            case RIGHT:
+                move(MultiCaret.Move.RIGHT, extend);
+                break;
+            case UP:
+                move(MultiCaret.Move.UP, extend);
+                break;
+            case DOWN:
+                move(MultiCaret.Move.DOWN, extend);
+                break;
+            case HOME:
+                move(MultiCaret.Move.LINE_START, extend);
+                break;
+            case END:
+                move(MultiCaret.Move.LINE_END, extend);
+                break;
+            default:
+                return;
+        }
+        event.consume();
+    }
+
+    /**
+     * types the char at every caret, the control chars of enter and tab were handled when their key was pressed
+     */
+    private void keyTyped(KeyEvent event) {
+        if (carets == null || event.isControlDown() && !event.isAltDown() || event.isMetaDown()) {
+            return;
+        }
+        String character = event.getCharacter();
+        event.consume();
+        if (!character.isEmpty() && !Character.isISOControl(character.charAt(0))) {
+            edit(() -> carets.replace(character));
+        }
+    }
+
+    private void start() {
+        if (carets == null) {
+            carets = new MultiCaret(area.getAnchor(), area.getCaretPosition());
+        }
+    }
+
+    private void move(MultiCaret.Move move, boolean extend) {
+        carets.move(lines, move, extend);
+        update();
+    }
+
+    /**
+     * makes the edit and applies it, nothing happens while the area is read only, like during a paste
+     */
+    private void edit(Supplier<MultiCaret.Batch> edit) {
+        if (!area.isEditable()) {
+            return;
+        }
+        applying = true;
+        try {
+            apply.accept(edit.get());
+        } finally {
+            applying = false;
+        }
+        update();
+    }
+
+    /**
+     * gives the primary caret to the area and draws the others
+     */
+    private void update() {
+        int primary = carets.getPrimary();
+        area.selectRange(carets.getAnchor(primary), carets.getCaret(primary));
+        area.requestFollowCaret();
+        if (carets.size() == 1) {
+            carets = null;
+        }
+        schedulePaint();
+    }
+
+    /**
+     * draws on the next pulse, after the area laid out the paragraphs of the viewport
+     */
+    private void schedulePaint() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        Platform.runLater(this::paint);
+    }
+
+    /**
+     * moves the nodes of the pool to the carets in the viewport and hides the nodes left
+     */
+    private void paint() {
+        scheduled = false;
+        int caretsDrawn = 0;
+        int selectionsDrawn = 0;
+        if (carets != null && !area.getVisibleParagraphs().isEmpty()) {
+            int first = area.firstVisibleParToAllParIndex();
+            int last = area.lastVisibleParToAllParIndex();
+            int from = area.getAbsolutePosition(first, 0);
+            int to = area.getAbsolutePosition(last, area.getParagraphLength(last));
+            for (int i = carets.indexAt(from); i < carets.size() && carets.getStart(i) <= to && caretsDrawn < MAX_DRAWN; i++) {
+                if (i == carets.getPrimary()) {
+                    continue;
+                }
+                CaretNode caret = caretNode(caretsDrawn++);
+                if (caret.getPosition() != carets.getCaret(i)) {
+                    caret.moveTo(carets.getCaret(i));
+                }
+                caret.setShowCaret(Caret.CaretVisibility.AUTO);
+                if (carets.getStart(i) < carets.getEnd(i)) {
+                    selection(selectionsDrawn++).selectRange(carets.getAnchor(i), carets.getCaret(i));
+                }
+            }
+        }
+        for (int i = caretsDrawn; i < caretNodes.size(); i++) {
+            caretNodes.get(i).setShowCaret(Caret.CaretVisibility.OFF);
+        }
+        for (int i = selectionsDrawn; i < selections.size(); i++) {
+            selections.get(i).selectRange(0, 0);
+        }
+    }
+
+    private CaretNode caretNode(int index) {
+        if (index == caretNodes.size()) {
+            CaretNode caret = new CaretNode("caret " + index, area, 0);
+            if (!area.addCaret(caret)) {
+                throw new IllegalStateException("caret was not added to area");
+            }
+            caretNodes.add(caret);
+        }
+        return caretNodes.get(index);
+    }
+
+    private Selection<Collection<String>, String, Collection<String>> selection(int index) {
+        if (index == selections.size()) {
+            Selection<Collection<String>, String, Collection<String>> selection = new SelectionImpl<>(
+                    "selection " + index, area, path -> path.getStyleClass().add("selection"));
+            if (!area.addSelection(selection)) {
+                throw new IllegalStateException("selection was not added to area");
+            }
+            selections.add(selection);
+        }
+        return selections.get(index);
+    }
+}
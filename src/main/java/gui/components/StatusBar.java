@@ -0,0 +1,98 @@
+package gui.components;
+
+import gui.mediator.Mediator;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.text.Font;
+import lib.stats.TextStats;
+import org.reactfx.Subscription;
+
+import java.util.Locale;
+
+/**
+ * the bar at the bottom of the window: the caret, the selection and the statistics of the text of the selected tab
+ * <p>
+ * the statistics are kept by the TextSpace from the changes of its text, see {@link TextStats},
+ * the labels are refreshed at most once per pulse however many changes come in between
+ */
+public class StatusBar extends HBox {
+
+    private static final Font FONT = new Font(12);
+
+    private final Label caret = createLabel();
+    private final Label selection = createLabel();
+    private final Label counts = createLabel();
+
+    private TextSpace textSpace;
+    private Subscription subscription;
+    private boolean refreshScheduled;
+
+    public StatusBar() {
+        setId("StatusBar");
+        setSpacing(20);
+        setPadding(new Insets(2, 10, 2, 10));
+        setAlignment(Pos.CENTER_LEFT);
+        Pane spacer = new Pane();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        getChildren().addAll(caret, selection, spacer, counts);
+        Mediator.getInstance().setStatusBar(this);
+    }
+
+    private static Label createLabel() {
+        Label label = new Label();
+        label.setFont(FONT);
+        return label;
+    }
+
+    /**
+     * shows the statistics of textSpace from now on, called when the selected tab changes
+     */
+    public void bind(TextSpace textSpace) {
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+        this.textSpace = textSpace;
+        subscription = textSpace.statusChanges().subscribe(change -> scheduleRefresh());
+        refresh();
+    }
+
+    /**
+     * shows nothing until the next bind, called when the selected tab is a viewer that has its own statistics
+     */
+    public void clear() {
+        if (subscription != null) {
+            subscription.unsubscribe();
+            subscription = null;
+        }
+        textSpace = null;
+        caret.setText("");
+        selection.setText("");
+        counts.setText("");
+    }
+
+    private void scheduleRefresh() {
+        if (!refreshScheduled) {
+            refreshScheduled = true;
+            Platform.runLater(this::refresh);
+        }
+    }
+
+    private void refresh() {
+        refreshScheduled = false;
+        if (textSpace == null) {
+            return;
+        }
+        TextStats stats = textSpace.getStats();
+        caret.setText("Ln " + (textSpace.getCaretLine() + 1) + ", Col " + (textSpace.getCaretColumn() + 1));
+        int selected = textSpace.getSelectionLength();
+        selection.setText(selected == 0 ? "" : String.format(Locale.ROOT, "%,d selected (%,d lines)",
+                selected, textSpace.getSelectionLines()));
+        counts.setText(String.format(Locale.ROOT, "%,d lines    %,d words    %,d chars    %,d bytes",
+                stats.getLines(), stats.getWords(), stats.getChars(), stats.getBytes()));
+    }
+}
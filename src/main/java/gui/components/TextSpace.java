@@ -1,8 +1,13 @@
 package gui.components;
 
+import gui.highlight.BracketHighlighter;
+import gui.highlight.Lexer;
+import gui.highlight.Lexers;
+import gui.highlight.SyntaxHighlighter;
 import gui.mediator.Events;
 import gui.mediator.IMediator;
 import gui.mediator.Mediator;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 
@@ -10,30 +15,84 @@ import javafx.scene.layout.HBox;
 
 import javafx.scene.paint.Color;
 import lib.EditorUtils;
+import lib.io.TextFormat;
+import lib.log.Logger;
+import lib.metrics.Metrics;
+import lib.metrics.Operation;
+import lib.stats.TextStats;
+import lib.text.LineIndex;
+import lib.text.MultiCaret;
+import lib.trace.TraceRecorder;
+import org.fxmisc.flowless.VirtualizedScrollPane;
 import org.fxmisc.richtext.*;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+import org.reactfx.EventSource;
+import org.reactfx.EventStream;
+import org.reactfx.EventStreams;
 import smallUndoEngine.EditorTextHistory;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.DoubleConsumer;
 
 public class TextSpace extends HBox {
+    // the largest piece of text inserted in one pulse, so the window keeps repainting while a big text is pasted
+    private static final int INSERT_CHUNK_SIZE = 1 << 20;
+    // the replacements of a multi caret edit closer than this are joined with the text between them
+    private static final int BATCH_JOIN_GAP = 256;
+    private static final Logger LOG = Logger.get(TextSpace.class);
+
     private int textSpaceNumber = 0;
     private IMediator mediator = Mediator.getInstance();
     private Path currentPath;
     private Selection<Collection<String>, String, Collection<String>> extraSelection;
     private List<Integer> startIndices;
     private int startIndicesTracker = 0;
+    private boolean muted;
+    private Lexer lexer;
+    private SyntaxHighlighter highlighter;
+    private BracketHighlighter brackets;
+    private LineNumberGutter gutter;
+    private MultiCaretEditor multiCaret;
+    private final TextStats stats = new TextStats();
+    private final EventSource<Void> statsChanges = new EventSource<>();
 
     @FXML
     private CodeArea textArea;
+    // reads textArea when it's used, textArea is only set by buildComponents or the fxml loader
+    private final LineIndex lineIndex = new LineIndex((start, end) -> this.textArea.getText(start, end));
 
 
     /**
-     * loads textspace.fxml and specifies the controller and the root
+     * builds the textspace in code, or loads textspace.fxml if the app runs with -Dfedator.fxml=true
+     *
+     * @see Components#FROM_FXML
      */
     public TextSpace() {
+        this(Components.FROM_FXML);
+    }
+
+    /**
+     * @param fromFxml true to load textspace.fxml and specify the controller and the root,
+     *                 false to build the same node tree in code without parsing any xml
+     */
+    public TextSpace(boolean fromFxml) {
+        if (fromFxml) {
+            loadFxml();
+        } else {
+            buildComponents();
+            initialize();
+        }
+    }
+
+    /**
+     * loads textspace.fxml and specifies the controller and the root
+     * FXMLLoader calls {@link TextSpace#initialize()} when it's done
+     */
+    private void loadFxml() {
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource(
                 "/textspace.fxml"));
         fxmlLoader.setRoot(this);
@@ -46,15 +105,29 @@ public class TextSpace extends HBox {
         }
     }
 
+    /**
+     * creates the same nodes as textspace.fxml
+     */
+    private void buildComponents() {
+        setPrefSize(10000, 10000);
+        textArea = new CodeArea();
+        textArea.setPrefSize(10000, 10000);
+        getChildren().add(new VirtualizedScrollPane<>(textArea));
+    }
+
     /**
      * starts {@link TextSpace#textAreaChangeListener}
      * sets the current TextSpace in the mediator to the current instance
      * adds line number to textArea
+     *
+     * @see LineNumberGutter
      */
     @FXML
     public void initialize() {
         textAreaChangeListener();
-        textArea.setParagraphGraphicFactory(LineNumberFactory.get(textArea));
+        gutter = new LineNumberGutter(textArea);
+        textArea.setParagraphGraphicFactory(gutter);
+        multiCaret = new MultiCaretEditor(textArea, this::applyBatch);
 
         // add highlighter
         extraSelection = new SelectionImpl<>("another selection", textArea,
@@ -72,12 +145,39 @@ public class TextSpace extends HBox {
     /**
      * sends TEXT_CHANGED event to the mediator
      * updates the redo/undo stack
+     * measures the time until the change is rendered when metrics are enabled
+     * updates the statistics and the line index of the text with every change, muted or not
+     * records every change, muted or not, when tracing is enabled
      *
      * @see Mediator
      * @see EditorTextHistory
+     * @see TextStats
+     * @see TraceRecorder
      */
     private void textAreaChangeListener() {
-        textArea.textProperty().addListener((observable, oldValue, newValue) -> mediator.getEventBuilder().withEvent(Events.TEXT_CHANGED).build());
+        textArea.plainTextChanges().subscribe(change -> {
+            lineIndex.apply(change.getPosition(), change.getRemoved(), change.getInserted());
+            updateStats(change);
+            if (TraceRecorder.ENABLED) {
+                TraceRecorder.change(textSpaceNumber, change.getPosition(), change.getRemoved().length(), change.getInserted());
+            }
+            if (!muted) {
+                Metrics.stopOnNextPulse(Metrics.start(Operation.KEYSTROKE));
+                mediator.getEventBuilder().withEvent(Events.TEXT_CHANGED).build();
+            }
+        });
+    }
+
+    /**
+     * textArea already has the inserted text, the chars around the change are the same before and after it
+     */
+    private void updateStats(PlainTextChange change) {
+        int start = change.getPosition();
+        int end = start + change.getInserted().length();
+        int before = start > 0 ? textArea.getText(start - 1, start).charAt(0) : TextStats.NONE;
+        int after = end < textArea.getLength() ? textArea.getText(end, end + 1).charAt(0) : TextStats.NONE;
+        stats.apply(before, change.getRemoved(), change.getInserted(), after);
+        statsChanges.push(null);
     }
 
     /**
@@ -87,6 +187,13 @@ public class TextSpace extends HBox {
         textSpaceNumber = n;
     }
 
+    /**
+     * @return the number of the textspace, unique among the tabs of a session
+     */
+    public int getNumber() {
+        return textSpaceNumber;
+    }
+
     /**
      * removes the last word from the text
      * sends TEXT_CHANGED event to the mediator
@@ -96,7 +203,7 @@ public class TextSpace extends HBox {
      */
     public void undo(EditorTextHistory editorTextHistory) {
         editorTextHistory.undo();
-        textArea.replaceText(editorTextHistory.getText());
+        setText(editorTextHistory.getText());
         mediator.getEventBuilder().withEvent(Events.TEXT_CHANGED).build();
     }
 
@@ -109,7 +216,7 @@ public class TextSpace extends HBox {
      */
     public void redo(EditorTextHistory editorTextHistory) {
         editorTextHistory.redo();
-        textArea.replaceText(editorTextHistory.getText());
+        setText(editorTextHistory.getText());
         mediator.getEventBuilder().withEvent(Events.TEXT_CHANGED).build();
     }
 
@@ -122,10 +229,216 @@ public class TextSpace extends HBox {
 
     /**
      * @param text the text to be set
-     *             sets the textArea text
+     *             sets the textArea text, only the part between the common start and the common end
+     *             of the current text and text is replaced, so an undo or a replace changes what it changes
+     *             instead of the whole text
      */
     public void setText(String text) {
-        textArea.replaceText(text);
+        String current = getText();
+        int max = Math.min(current.length(), text.length());
+        int prefix = 0;
+        while (prefix < max && current.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && current.charAt(current.length() - 1 - suffix) == text.charAt(text.length() - 1 - suffix)) {
+            suffix++;
+        }
+        textArea.replaceText(prefix, current.length() - suffix, text.substring(prefix, text.length() - suffix));
+    }
+
+    /**
+     * sets the textArea text without sending TEXT_CHANGED to the mediator
+     * used when the text comes from a file or a session, the mediator sends TEXT_CHANGED to the selected tab
+     * which is not always the tab being loaded
+     *
+     * @param text the text to be set
+     */
+    public void loadText(String text) {
+        muted = true;
+        try {
+            textArea.replaceText(text);
+        } finally {
+            muted = false;
+        }
+    }
+
+    /**
+     * appends text at the end of textArea without sending TEXT_CHANGED to the mediator
+     * used when another program appends to the file of the tab
+     */
+    public void appendLoadedText(String text) {
+        muted = true;
+        try {
+            textArea.appendText(text);
+        } finally {
+            muted = false;
+        }
+    }
+
+    /**
+     * replaces the selection (or inserts at the caret) with text, without sending TEXT_CHANGED to the mediator
+     * with many carets the text is pasted at every caret at once, see {@link MultiCaretEditor#paste(String)},
+     * that edit sends TEXT_CHANGED itself and done is not called
+     * a text longer than INSERT_CHUNK_SIZE is inserted a chunk per pulse, textArea is read only until it's done
+     *
+     * @param text     the inserted text
+     * @param progress receives the inserted fraction of text after every chunk, 1 after the last one
+     * @param done     called after the last chunk, the caret is at the end of the inserted text
+     */
+    public void insertText(String text, DoubleConsumer progress, Runnable done) {
+        if (multiCaret.isActive()) {
+            multiCaret.paste(text);
+            progress.accept(1);
+            return;
+        }
+        int start = textArea.getSelection().getStart();
+        int end = textArea.getSelection().getEnd();
+        textArea.setEditable(false);
+        insertChunk(text, start, end, 0, progress, done);
+    }
+
+    /**
+     * textArea is editable again and progress gets 1 after the last chunk, or after a chunk that failed
+     */
+    private void insertChunk(String text, int start, int end, int offset, DoubleConsumer progress, Runnable done) {
+        int chunkEnd = chunkEnd(text, offset);
+        boolean finished = true;
+        try {
+            muted = true;
+            try {
+                // the first chunk replaces the selection, the next ones go after the previous chunk
+                textArea.replaceText(start + offset, offset == 0 ? end : start + offset, text.substring(offset, chunkEnd));
+            } finally {
+                muted = false;
+            }
+            if (chunkEnd < text.length()) {
+                progress.accept((double) chunkEnd / text.length());
+                Platform.runLater(() -> insertChunk(text, start, end, chunkEnd, progress, done));
+                finished = false;
+                return;
+            }
+            textArea.moveTo(start + text.length());
+            textArea.requestFollowCaret();
+        } finally {
+            if (finished) {
+                textArea.setEditable(true);
+                progress.accept(1);
+            }
+        }
+        done.run();
+    }
+
+    /**
+     * @return the end of the chunk that starts at offset, a surrogate pair or a \r\n is never split
+     */
+    private static int chunkEnd(String text, int offset) {
+        int end = Math.min(text.length(), offset + INSERT_CHUNK_SIZE);
+        if (end < text.length() && end > offset + 1
+                && (Character.isHighSurrogate(text.charAt(end - 1)) || text.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * scrolls textArea so the last line is shown at the bottom, the caret doesn't move
+     */
+    public void scrollToEnd() {
+        textArea.showParagraphAtBottom(textArea.getParagraphs().size() - 1);
+    }
+
+    /**
+     * @return the running totals of the text
+     */
+    public TextStats getStats() {
+        return stats;
+    }
+
+    /**
+     * counts the bytes of the text again with format, called when a file is loaded
+     */
+    public void setFormat(TextFormat format) {
+        stats.setFormat(format, textArea.getText());
+        statsChanges.push(null);
+    }
+
+    /**
+     * @return a stream that emits when the statistics, the caret or the selection change
+     */
+    public EventStream<?> statusChanges() {
+        return EventStreams.merge(statsChanges, EventStreams.invalidationsOf(textArea.caretPositionProperty()),
+                EventStreams.invalidationsOf(textArea.selectionProperty()));
+    }
+
+    /**
+     * @return the line of the caret, starting from 0
+     */
+    public int getCaretLine() {
+        return textArea.getCurrentParagraph();
+    }
+
+    /**
+     * @return the column of the caret in its line, starting from 0
+     */
+    public int getCaretColumn() {
+        return textArea.getCaretColumn();
+    }
+
+    /**
+     * @return the number of selected chars
+     */
+    public int getSelectionLength() {
+        return textArea.getSelection().getLength();
+    }
+
+    /**
+     * @return the number of lines the selection touches, 0 if nothing is selected
+     */
+    public int getSelectionLines() {
+        if (textArea.getSelection().getLength() == 0) {
+            return 0;
+        }
+        int first = textArea.offsetToPosition(textArea.getSelection().getStart(), Bias.Forward).getMajor();
+        int last = textArea.offsetToPosition(textArea.getSelection().getEnd(), Bias.Backward).getMajor();
+        return last - first + 1;
+    }
+
+    /**
+     * @return the position of the caret in the text
+     */
+    public int getCaretPosition() {
+        return textArea.getCaretPosition();
+    }
+
+    /**
+     * moves the caret to column of line, the line and the column are clamped to the text
+     *
+     * @param line   the line, starting from 0
+     * @param column the column, starting from 0
+     * @see LineIndex
+     */
+    public void goToLine(int line, int column) {
+        int clamped = Math.max(0, Math.min(line, lineIndex.getLineCount() - 1));
+        int start = lineIndex.lineStart(clamped);
+        moveCaret(Math.min(start + Math.max(0, column), lineIndex.lineEnd(clamped)));
+    }
+
+    /**
+     * @return the line starts of the text, kept up to date from its changes
+     */
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    /**
+     * moves the caret to position, or to the end of the text if position is after it
+     */
+    public void moveCaret(int position) {
+        multiCaret.clear();
+        textArea.moveTo(Math.max(0, Math.min(position, textArea.getLength())));
+        textArea.requestFollowCaret();
     }
 
 
@@ -139,25 +452,82 @@ public class TextSpace extends HBox {
     /**
      * @param path the path of the current file
      *             sets currentPath to path
+     *             highlights the text with the lexer of the file extension
+     * @see Lexers#forPath(Path)
      */
     public void setCurrentPath(Path path) {
         currentPath = path;
+        setLexer(Lexers.forPath(path));
     }
 
     /**
-     * @return the selected text in codeArea
+     * highlights the text with lexer, removes the highlighting if lexer is null
+     * pairs the brackets or tags and shows their fold regions if the lexer has some
+     */
+    private void setLexer(Lexer lexer) {
+        if (lexer == this.lexer) {
+            return;
+        }
+        this.lexer = lexer;
+        if (highlighter != null) {
+            highlighter.dispose();
+            highlighter = null;
+            textArea.clearStyle(0, textArea.getLength());
+        }
+        if (brackets != null) {
+            brackets.dispose();
+            brackets = null;
+        }
+        if (lexer != null) {
+            highlighter = new SyntaxHighlighter(textArea, lexer);
+        }
+        if (Lexers.bracketSyntax(lexer) != null) {
+            brackets = new BracketHighlighter(textArea, Lexers.bracketSyntax(lexer), gutter);
+        }
+    }
+
+    /**
+     * @return the selected text in codeArea, the selection of every caret on a line of its own if there are many
      */
     public String getSelectedText() {
-        return textArea.getSelectedText();
+        return multiCaret.isActive() ? multiCaret.getSelectedText() : textArea.getSelectedText();
     }
 
     /**
      * replaces the selected text with empty string
      */
     public void removeSelectedText() {
+        if (multiCaret.isActive()) {
+            multiCaret.removeSelectedText();
+            return;
+        }
         textArea.replaceSelection("");
     }
 
+    /**
+     * applies the replacements of every caret, from the last one so the offsets of the ones before it stay right
+     * each replacement is a change of its own, the listeners read the text around it before the next one is made,
+     * TEXT_CHANGED is sent once after the last one, so the whole edit is one entry of the undo stack
+     *
+     * @see MultiCaret.Batch#join(int, LineIndex.Source)
+     */
+    private void applyBatch(MultiCaret.Batch batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        MultiCaret.Batch joined = batch.join(BATCH_JOIN_GAP, textArea::getText);
+        Metrics.stopOnNextPulse(Metrics.start(Operation.KEYSTROKE));
+        muted = true;
+        try {
+            for (int i = joined.size() - 1; i >= 0; i--) {
+                textArea.replaceText(joined.getStart(i), joined.getEnd(i), joined.getText(i));
+            }
+        } finally {
+            muted = false;
+        }
+        mediator.getEventBuilder().withEvent(Events.TEXT_CHANGED).build();
+    }
+
 
     private void clearHighlighting() {
         extraSelection.selectRange(0, 0);
@@ -168,7 +538,7 @@ public class TextSpace extends HBox {
      */
     public void selectText(String str) {
 
-        System.out.println("called with; " + str + " tracker: " + startIndicesTracker);
+        LOG.debug(() -> "selectText called with: " + str + " tracker: " + startIndicesTracker);
         String text = getText();
 
         startIndices = EditorUtils.getIndexStartsOfSubstring(text, str, mediator.isMatchCase());
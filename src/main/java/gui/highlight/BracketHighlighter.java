@@ -0,0 +1,199 @@
+package gui.highlight;
+
+import gui.components.LineNumberGutter;
+import javafx.application.Platform;
+import javafx.scene.paint.Color;
+import lib.text.BracketIndex;
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.Selection;
+import org.fxmisc.richtext.SelectionImpl;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+import org.reactfx.EventStreams;
+import org.reactfx.Subscription;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * highlights the bracket or the tag at the caret and the one it pairs with, and folds the lines between two of them
+ * <p>
+ * the brackets are kept in a {@link BracketIndex} updated from every change of the area, so moving the caret
+ * finds the pair in O(log n) without reading the text, however far the pair is.
+ * richtextfx 0.10.1 can't hide paragraphs, so a folded paragraph gets the folded paragraph style, which style.css
+ * shrinks to nothing, and the gutter shows the regions that can be folded. the caret going into a folded paragraph
+ * unfolds it
+ */
+public class BracketHighlighter implements LineNumberGutter.Folds {
+
+    private static final Collection<String> FOLDED = Collections.singletonList("folded");
+
+    private final CodeArea area;
+    private final LineNumberGutter gutter;
+    private final BracketIndex index;
+    private final Subscription subscription;
+    private final Selection<Collection<String>, String, Collection<String>> bracket;
+    private final Selection<Collection<String>, String, Collection<String>> match;
+    private final Selection<Collection<String>, String, Collection<String>> mismatch;
+
+    private boolean scheduled;
+    private boolean disposed;
+    // the fold markers only change with the text
+    private boolean edited;
+
+    /**
+     * starts pairing the brackets of area, call {@link BracketHighlighter#dispose()} to stop
+     *
+     * @param gutter shows the fold regions
+     */
+    public BracketHighlighter(CodeArea area, BracketIndex.Syntax syntax, LineNumberGutter gutter) {
+        this.area = area;
+        this.gutter = gutter;
+        index = new BracketIndex(area::getText, syntax);
+        index.reset(area.getText());
+        bracket = addSelection("bracket", Color.rgb(180, 230, 180));
+        match = addSelection("matching bracket", Color.rgb(180, 230, 180));
+        mismatch = addSelection("mismatched bracket", Color.rgb(240, 160, 160));
+        subscription = area.plainTextChanges().subscribe(this::textChanged)
+                .and(EventStreams.invalidationsOf(area.caretPositionProperty()).subscribe(invalidation -> schedule()));
+        gutter.setFolds(this);
+        schedule();
+    }
+
+    /**
+     * stops highlighting, unfolds every paragraph and removes the markers from the gutter
+     */
+    public void dispose() {
+        disposed = true;
+        subscription.unsubscribe();
+        area.removeSelection(bracket);
+        area.removeSelection(match);
+        area.removeSelection(mismatch);
+        for (int paragraph = 0; paragraph < area.getParagraphs().size(); paragraph++) {
+            if (isHidden(paragraph)) {
+                area.setParagraphStyle(paragraph, Collections.emptyList());
+            }
+        }
+        gutter.setFolds(null);
+    }
+
+    @Override
+    public boolean isFoldable(int paragraph) {
+        if (paragraph + 2 >= area.getParagraphs().size()) {
+            return false;
+        }
+        int start = area.getAbsolutePosition(paragraph, 0);
+        BracketIndex.Match region = index.foldAt(start, start + area.getParagraphLength(paragraph));
+        return region != null && lineOf(region.getMatchStart()) > paragraph + 1;
+    }
+
+    @Override
+    public boolean isFolded(int paragraph) {
+        return paragraph + 1 < area.getParagraphs().size() && isHidden(paragraph + 1) && !isHidden(paragraph);
+    }
+
+    @Override
+    public boolean isHidden(int paragraph) {
+        return area.getParagraphs().get(paragraph).getParagraphStyle().contains("folded");
+    }
+
+    /**
+     * hides the paragraphs between the line that opens the region and the line that closes it
+     */
+    @Override
+    public void toggle(int paragraph) {
+        if (isFolded(paragraph)) {
+            unfold(paragraph + 1);
+        } else if (isFoldable(paragraph)) {
+            int start = area.getAbsolutePosition(paragraph, 0);
+            BracketIndex.Match region = index.foldAt(start, start + area.getParagraphLength(paragraph));
+            int last = lineOf(region.getMatchStart()) - 1;
+            int caretParagraph = area.getCurrentParagraph();
+            for (int hidden = paragraph + 1; hidden <= last; hidden++) {
+                area.setParagraphStyle(hidden, FOLDED);
+            }
+            if (caretParagraph > paragraph && caretParagraph <= last) {
+                area.moveTo(paragraph, area.getParagraphLength(paragraph));
+            }
+        }
+        gutter.refresh();
+    }
+
+    private void textChanged(PlainTextChange change) {
+        index.apply(change.getPosition(), change.getRemoved(), change.getInserted());
+        edited = true;
+        schedule();
+    }
+
+    /**
+     * highlights on the next pulse, so a burst of edits and caret moves looks for the pair once
+     */
+    private void schedule() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        Platform.runLater(this::update);
+    }
+
+    private void update() {
+        scheduled = false;
+        if (disposed) {
+            return;
+        }
+        int caret = area.getCaretPosition();
+        int caretParagraph = area.getCurrentParagraph();
+        if (isHidden(caretParagraph)) {
+            int first = caretParagraph;
+            while (first > 0 && isHidden(first - 1)) {
+                first--;
+            }
+            unfold(first);
+            edited = true;
+        }
+
+        BracketIndex.Match pair = index.match(caret);
+        if (pair == null) {
+            bracket.selectRange(0, 0);
+            match.selectRange(0, 0);
+            mismatch.selectRange(0, 0);
+        } else {
+            boolean matched = !pair.isMismatched();
+            (matched ? bracket : mismatch).selectRange(pair.getStart(), pair.getEnd());
+            (matched ? mismatch : bracket).selectRange(0, 0);
+            if (pair.getMatchStart() < 0) {
+                match.selectRange(0, 0);
+            } else {
+                match.selectRange(pair.getMatchStart(), pair.getMatchEnd());
+            }
+        }
+        if (edited) {
+            edited = false;
+            gutter.refresh();
+        }
+    }
+
+    private void unfold(int paragraph) {
+        while (paragraph < area.getParagraphs().size() && isHidden(paragraph)) {
+            area.setParagraphStyle(paragraph, Collections.emptyList());
+            paragraph++;
+        }
+    }
+
+    private int lineOf(int offset) {
+        return area.offsetToPosition(offset, Bias.Forward).getMajor();
+    }
+
+    private Selection<Collection<String>, String, Collection<String>> addSelection(String name, Color color) {
+        Selection<Collection<String>, String, Collection<String>> selection = new SelectionImpl<>(name, area,
+                path -> {
+                    path.setStrokeWidth(0);
+                    path.setFill(color);
+                }
+        );
+        if (!area.addSelection(selection)) {
+            throw new IllegalStateException("selection was not added to area");
+        }
+        return selection;
+    }
+}
@@ -0,0 +1,89 @@
+package gui.highlight;
+
+import java.util.Collection;
+
+/**
+ * highlights keys, strings, numbers, true/false/null and braces of json
+ * json strings can't span lines, so the state is always {@link Lexer#INITIAL_STATE}
+ */
+class JsonLexer implements Lexer {
+
+    private static final Collection<String> KEY = Lexers.style("json-key");
+    private static final Collection<String> STRING = Lexers.style("json-string");
+    private static final Collection<String> NUMBER = Lexers.style("json-number");
+    private static final Collection<String> LITERAL = Lexers.style("json-literal");
+    private static final Collection<String> BRACE = Lexers.style("json-brace");
+
+    @Override
+    public int lexLine(String text, int start, int end, int state, TokenSink tokens) {
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                int close = closingQuote(text, i + 1, end);
+                tokens.add(i, close, isKey(text, close, end) ? KEY : STRING);
+                i = close;
+            } else if (c == '-' || Character.isDigit(c)) {
+                int numberEnd = i + 1;
+                while (numberEnd < end && isNumberPart(text.charAt(numberEnd))) {
+                    numberEnd++;
+                }
+                tokens.add(i, numberEnd, NUMBER);
+                i = numberEnd;
+            } else if (Character.isLetter(c)) {
+                int wordEnd = i + 1;
+                while (wordEnd < end && Character.isLetter(text.charAt(wordEnd))) {
+                    wordEnd++;
+                }
+                if (isLiteral(text, i, wordEnd)) {
+                    tokens.add(i, wordEnd, LITERAL);
+                }
+                i = wordEnd;
+            } else {
+                if (c == '{' || c == '}' || c == '[' || c == ']') {
+                    tokens.add(i, i + 1, BRACE);
+                }
+                i++;
+            }
+        }
+        return INITIAL_STATE;
+    }
+
+    /**
+     * @return the index after the quote closing the string, or end if the string isn't closed on this line
+     */
+    private static int closingQuote(String text, int from, int end) {
+        for (int i = from; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * a string is a key if the next character that isn't a space is a colon
+     */
+    private static boolean isKey(String text, int from, int end) {
+        for (int i = from; i < end; i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == ':';
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNumberPart(char c) {
+        return Character.isDigit(c) || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
+    }
+
+    private static boolean isLiteral(String text, int start, int end) {
+        return text.startsWith("true", start) && end - start == 4
+                || text.startsWith("null", start) && end - start == 4
+                || text.startsWith("false", start) && end - start == 5;
+    }
+}
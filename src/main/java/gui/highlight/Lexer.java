@@ -0,0 +1,25 @@
+package gui.highlight;
+
+/**
+ * splits a line of text into tokens for the {@link SyntaxHighlighter}
+ * a lexer is called line by line, the state it returns for a line is passed to it for the next line
+ * so constructs that span lines (comments, quoted values) can be continued
+ * lexers run on the highlighter thread and must not keep anything between calls except the returned state
+ */
+public interface Lexer {
+
+    /**
+     * the state at the start of the text
+     */
+    int INITIAL_STATE = 0;
+
+    /**
+     * @param text   the text being highlighted
+     * @param start  the index of the first character of the line
+     * @param end    the index after the last character of the line, the line terminator is not included
+     * @param state  the state returned for the previous line, {@link Lexer#INITIAL_STATE} for the first line
+     * @param tokens receives the tokens of the line in order, characters between tokens get no style
+     * @return the state at the start of the next line
+     */
+    int lexLine(String text, int start, int end, int state, TokenSink tokens);
+}
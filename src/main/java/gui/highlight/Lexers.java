@@ -0,0 +1,81 @@
+package gui.highlight;
+
+import lib.text.BracketIndex;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * picks the lexer of a file and holds the helpers shared by the lexers
+ */
+public class Lexers {
+
+    public static final Lexer JSON = new JsonLexer();
+    public static final Lexer XML = new XmlLexer();
+    public static final Lexer LOG = new LogLexer();
+
+    /**
+     * @return the lexer for the extension of path, null if the file is not highlighted
+     */
+    public static Lexer forPath(Path path) {
+        if (path == null || path.getFileName() == null) {
+            return null;
+        }
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".json")) {
+            return JSON;
+        }
+        if (name.endsWith(".xml") || name.endsWith(".fxml") || name.endsWith(".xsd") || name.endsWith(".xsl")
+                || name.endsWith(".svg") || name.endsWith(".html") || name.endsWith(".htm") || name.endsWith(".pom")) {
+            return XML;
+        }
+        // rotated logs are often named app.log.1
+        if (name.endsWith(".log") || name.contains(".log.")) {
+            return LOG;
+        }
+        return null;
+    }
+
+    /**
+     * @return the syntax of the brackets paired in the text lexer highlights, null if it has none
+     */
+    public static BracketIndex.Syntax bracketSyntax(Lexer lexer) {
+        if (lexer == JSON) {
+            return BracketIndex.Syntax.JSON;
+        }
+        return lexer == XML ? BracketIndex.Syntax.XML : null;
+    }
+
+    static Collection<String> style(String styleClass) {
+        return Collections.singletonList(styleClass);
+    }
+
+    /**
+     * @return the index of str in text between from and to, -1 if it's not there
+     * the search stops at to, a line of an unclosed comment doesn't read the rest of the text
+     */
+    static int indexOf(String text, String str, int from, int to) {
+        char first = str.charAt(0);
+        for (int i = indexOf(text, first, from, to - str.length() + 1); i >= 0;
+             i = indexOf(text, first, i + 1, to - str.length() + 1)) {
+            if (text.regionMatches(i, str, 0, str.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of c in text between from and to, -1 if it's not there
+     */
+    static int indexOf(String text, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,143 @@
+package gui.highlight;
+
+import java.util.Arrays;
+
+/**
+ * the lexer state at the start of every line of the highlighted text, the checkpoints the {@link SyntaxHighlighter}
+ * resumes lexing from after an edit
+ * <p>
+ * a line is either clean (its state is known and its styles are set), stale (its state is known but its text was edited)
+ * or unknown. the states are kept in an int gap buffer so inserting or removing lines only moves the entries
+ * between the previous edit and this one, typing in one place never copies the whole array.
+ * all the lines from {@link LineStates#dirtyFrom} to the end are unknown, that's how a change of state that would
+ * run to the end of the file is recorded without touching every line
+ * <p>
+ * only used on the javafx thread
+ */
+class LineStates {
+
+    static final int UNKNOWN = -1;
+    private static final int STALE = 1 << 30;
+    private static final int MIN_GAP = 64;
+
+    private int[] values;
+    private int gapStart;
+    private int gapEnd;
+    private int dirtyFrom;
+
+    /**
+     * @param lineCount the number of lines of the text, all of them are unknown
+     */
+    LineStates(int lineCount) {
+        values = new int[lineCount + MIN_GAP];
+        gapStart = lineCount;
+        gapEnd = values.length;
+        dirtyFrom = 0;
+    }
+
+    int size() {
+        return values.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * @return the value of line, {@link LineStates#UNKNOWN} or a state that can be read with {@link LineStates#state(int)}
+     */
+    int get(int line) {
+        return line >= dirtyFrom ? UNKNOWN : values[index(line)];
+    }
+
+    static boolean isKnown(int value) {
+        return value != UNKNOWN;
+    }
+
+    static boolean isClean(int value) {
+        return value != UNKNOWN && (value & STALE) == 0;
+    }
+
+    static int state(int value) {
+        return value & ~STALE;
+    }
+
+    /**
+     * records an edit: the text of line changed, and the lines after it were replaced
+     *
+     * @param line         the line the edit starts on, its state stays but its styles are stale
+     * @param removedLines the number of line terminators removed by the edit
+     * @param addedLines   the number of line terminators inserted by the edit, the inserted lines are unknown
+     */
+    void edit(int line, int removedLines, int addedLines) {
+        int value = get(line);
+        if (isKnown(value)) {
+            values[index(line)] = value | STALE;
+        }
+        if (removedLines == 0 && addedLines == 0) {
+            return;
+        }
+
+        moveGap(line + 1);
+        gapEnd += removedLines;
+        if (gapEnd - gapStart < addedLines) {
+            grow(addedLines);
+        }
+        Arrays.fill(values, gapStart, gapStart + addedLines, UNKNOWN);
+        gapStart += addedLines;
+
+        if (dirtyFrom > line + removedLines) {
+            dirtyFrom += addedLines - removedLines;
+        } else if (dirtyFrom > line) {
+            dirtyFrom = line + 1;
+        }
+    }
+
+    /**
+     * marks line as clean with the given state
+     */
+    void set(int line, int state) {
+        if (dirtyFrom <= line) {
+            // the lines between dirtyFrom and line are lexed by the same pass before this one
+            dirtyFrom = line + 1;
+        }
+        values[index(line)] = state;
+    }
+
+    /**
+     * the lexer reached line with a state different from the one it had, line has to be styled again
+     * and nothing is known about the lines after it
+     */
+    void diverged(int line, int state) {
+        if (line >= size()) {
+            dirtyFrom = Math.min(dirtyFrom, size());
+            return;
+        }
+        values[index(line)] = state | STALE;
+        dirtyFrom = line + 1;
+    }
+
+    private int index(int line) {
+        return line < gapStart ? line : line + gapEnd - gapStart;
+    }
+
+    private void moveGap(int at) {
+        if (at < gapStart) {
+            int count = gapStart - at;
+            System.arraycopy(values, at, values, gapEnd - count, count);
+            gapStart = at;
+            gapEnd -= count;
+        } else if (at > gapStart) {
+            int count = at - gapStart;
+            System.arraycopy(values, gapEnd, values, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    private void grow(int needed) {
+        int size = size();
+        int[] grown = new int[Math.max(values.length * 2, size + needed + MIN_GAP)];
+        int tail = values.length - gapEnd;
+        System.arraycopy(values, 0, grown, 0, gapStart);
+        System.arraycopy(values, gapEnd, grown, grown.length - tail, tail);
+        gapEnd = grown.length - tail;
+        values = grown;
+    }
+}
@@ -0,0 +1,107 @@
+package gui.highlight;
+
+import java.util.Collection;
+
+/**
+ * highlights the timestamp at the start of a log line, the first level word (ERROR, WARN, INFO, DEBUG...)
+ * and the lines of a stack trace
+ * a log line doesn't depend on the previous one, so the state is always {@link Lexer#INITIAL_STATE}
+ */
+class LogLexer implements Lexer {
+
+    private static final Collection<String> TIME = Lexers.style("log-time");
+    private static final Collection<String> ERROR = Lexers.style("log-error");
+    private static final Collection<String> WARN = Lexers.style("log-warn");
+    private static final Collection<String> INFO = Lexers.style("log-info");
+    private static final Collection<String> DEBUG = Lexers.style("log-debug");
+    private static final Collection<String> TRACE = Lexers.style("log-trace");
+
+    // a timestamp is shorter than this, the level word is searched only near the start of the line
+    private static final int MAX_TIME_LENGTH = 40;
+    private static final int MAX_LEVEL_OFFSET = 120;
+
+    @Override
+    public int lexLine(String text, int start, int end, int state, TokenSink tokens) {
+        int i = start;
+        while (i < end && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        if (i > start && text.startsWith("at ", i) || text.startsWith("Caused by:", i) || text.startsWith("...", i)) {
+            tokens.add(i, end, TRACE);
+            return INITIAL_STATE;
+        }
+
+        int timeEnd = timeEnd(text, i, Math.min(end, i + MAX_TIME_LENGTH));
+        if (timeEnd > i) {
+            tokens.add(i, timeEnd, TIME);
+            i = timeEnd;
+        }
+
+        int levelLimit = Math.min(end, i + MAX_LEVEL_OFFSET);
+        while (i < levelLimit) {
+            if (!Character.isLetter(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int wordEnd = i + 1;
+            while (wordEnd < end && Character.isLetter(text.charAt(wordEnd))) {
+                wordEnd++;
+            }
+            Collection<String> level = level(text, i, wordEnd);
+            if (level != null) {
+                tokens.add(i, wordEnd, level);
+                break;
+            }
+            i = wordEnd;
+        }
+        return INITIAL_STATE;
+    }
+
+    /**
+     * @return the end of the date/time at from (digits joined by - : / . , T or a space), from if there's none
+     */
+    private static int timeEnd(String text, int from, int limit) {
+        if (from >= limit || !Character.isDigit(text.charAt(from))) {
+            return from;
+        }
+        int i = from;
+        int lastDigit = from;
+        boolean separator = false;
+        while (i < limit) {
+            char c = text.charAt(i);
+            if (Character.isDigit(c)) {
+                lastDigit = i;
+            } else if (c == '-' || c == ':' || c == '/') {
+                separator = true;
+            } else if (c != '.' && c != ',' && c != 'T' && c != ' ') {
+                break;
+            }
+            i++;
+        }
+        // a plain number is not a timestamp
+        return separator && lastDigit - from >= 7 ? lastDigit + 1 : from;
+    }
+
+    private static Collection<String> level(String text, int start, int end) {
+        if (end - start < 4 || end - start > 7 || !Character.isUpperCase(text.charAt(start))) {
+            return null;
+        }
+        switch (text.substring(start, end)) {
+            case "ERROR":
+            case "FATAL":
+            case "SEVERE":
+                return ERROR;
+            case "WARN":
+            case "WARNING":
+                return WARN;
+            case "INFO":
+                return INFO;
+            case "DEBUG":
+            case "TRACE":
+            case "FINE":
+                return DEBUG;
+            default:
+                return null;
+        }
+    }
+}
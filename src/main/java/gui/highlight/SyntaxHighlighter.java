@@ -0,0 +1,236 @@
+package gui.highlight;
+
+import javafx.application.Platform;
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+import org.reactfx.Subscription;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * highlights the text of a CodeArea with a {@link Lexer} without blocking the javafx thread
+ * <p>
+ * only the paragraphs around the viewport are lexed, an edit outside of them costs nothing until it's scrolled in.
+ * the javafx thread copies the text of those paragraphs, the lexer runs on a background thread,
+ * and the spans are set on the area in one call back on the javafx thread.
+ * every edit cancels the computation that is running, its spans would be set on the wrong characters
+ * <p>
+ * the state of the lexer at the start of every line is kept in {@link LineStates}. after an edit, lexing resumes from
+ * the edited line (or the nearest line above it with a known state) and stops as soon as it reaches a line that
+ * was not edited with the same state as before, so the cost depends on the size of the edit, not of the file.
+ * a computation copies and lexes a slice of at most SLICE_LINES lines and SLICE_CHARS chars, a viewport far below the
+ * last known state (a jump to the end of a large file) is reached a slice per pulse, each slice leaving its states
+ * as checkpoints for the next one
+ */
+public class SyntaxHighlighter {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "syntax-highlighter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // paragraphs lexed above and below the viewport, so scrolling a few lines doesn't lex again
+    private static final int MARGIN = 50;
+    private static final int SLICE_LINES = 10_000;
+    private static final int SLICE_CHARS = 1 << 20;
+
+    private final CodeArea area;
+    private final Lexer lexer;
+    private final Subscription subscription;
+    private final LineStates states;
+    // incremented by every edit and every new computation, a computation only applies its result if it's still the last one
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private boolean scheduled;
+    private boolean disposed;
+
+    /**
+     * starts highlighting area, call {@link SyntaxHighlighter#dispose()} to stop
+     */
+    public SyntaxHighlighter(CodeArea area, Lexer lexer) {
+        this.area = area;
+        this.lexer = lexer;
+        states = new LineStates(area.getParagraphs().size());
+        subscription = area.plainTextChanges().subscribe(this::textChanged)
+                .and(area.viewportDirtyEvents().subscribe(event -> schedule()));
+        schedule();
+    }
+
+    /**
+     * stops highlighting, a computation that is running is dropped
+     */
+    public void dispose() {
+        disposed = true;
+        generation.incrementAndGet();
+        subscription.unsubscribe();
+    }
+
+    private void textChanged(PlainTextChange change) {
+        generation.incrementAndGet();
+        // the text before the change didn't move, so its position gives the same line in the new text
+        int line = area.offsetToPosition(change.getPosition(), Bias.Forward).getMajor();
+        states.edit(line, countLines(change.getRemoved()), countLines(change.getInserted()));
+        schedule();
+    }
+
+    /**
+     * highlights on the next pulse, so a burst of edits and scroll events starts one computation
+     */
+    private void schedule() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        Platform.runLater(this::highlightViewport);
+    }
+
+    private void highlightViewport() {
+        scheduled = false;
+        // the area has no visible paragraphs until it's shown, a viewport event comes when it is
+        if (disposed || area.getVisibleParagraphs().isEmpty()) {
+            return;
+        }
+        int first = Math.max(0, area.firstVisibleParToAllParIndex() - MARGIN);
+        int last = Math.min(area.getParagraphs().size() - 1, area.lastVisibleParToAllParIndex() + MARGIN);
+
+        int firstDirty = -1;
+        int lastDirty = -1;
+        for (int line = first; line <= last; line++) {
+            if (!LineStates.isClean(states.get(line))) {
+                if (firstDirty < 0) {
+                    firstDirty = line;
+                }
+                lastDirty = line;
+            }
+        }
+        if (firstDirty < 0) {
+            return;
+        }
+
+        // the checkpoint to resume from, line 0 always starts in the initial state
+        int start = firstDirty;
+        while (start > 0 && !LineStates.isKnown(states.get(start))) {
+            start--;
+        }
+        int startState = start == 0 ? Lexer.INITIAL_STATE : LineStates.state(states.get(start));
+
+        // the slice lexed by this computation, the lines after it are left for the next one
+        int end = start;
+        long chars = area.getParagraphLength(start);
+        while (end < last && end - start + 1 < SLICE_LINES && chars < SLICE_CHARS) {
+            end++;
+            chars += area.getParagraphLength(end) + 1;
+        }
+        boolean sliced = end < last;
+
+        // the states of the lines up to the one after the slice, to see where the new states meet the old ones
+        int[] previous = new int[end - start + 2];
+        for (int line = start; line <= end + 1; line++) {
+            previous[line - start] = line < states.size() ? states.get(line) : LineStates.UNKNOWN;
+        }
+
+        int from = area.getAbsolutePosition(start, 0);
+        String text = area.getText(start, 0, end, area.getParagraphLength(end));
+        int job = generation.incrementAndGet();
+        int startLine = start;
+        int lastDirtyLine = sliced ? end : lastDirty;
+        EXECUTOR.execute(() -> {
+            Result result = lex(text, startLine, startState, previous, lastDirtyLine, job);
+            if (result != null) {
+                Platform.runLater(() -> {
+                    apply(job, from, result);
+                    if (sliced) {
+                        schedule();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * runs on the highlighter thread, lexes from startLine until the states converge with previous after lastDirty,
+     * or until the end of text
+     *
+     * @return the new states and spans, null if the computation was cancelled
+     */
+    private Result lex(String text, int startLine, int startState, int[] previous, int lastDirty, int job) {
+        TokenSink tokens = new TokenSink();
+        int[] newStates = new int[previous.length];
+        int state = startState;
+        int line = startLine;
+        int lineStart = 0;
+        while (true) {
+            if (generation.get() != job) {
+                return null;
+            }
+            newStates[line - startLine] = state;
+            int lineEnd = text.indexOf('\n', lineStart);
+            boolean lastLine = lineEnd < 0;
+            if (lastLine) {
+                lineEnd = text.length();
+            }
+            state = lexer.lexLine(text, lineStart, lineEnd, state, tokens);
+            line++;
+            int old = previous[line - startLine];
+            boolean converged = LineStates.isKnown(old) && LineStates.state(old) == state;
+            if (lastLine || converged && line > lastDirty && LineStates.isClean(old)) {
+                int end = lastLine ? text.length() : lineEnd + 1;
+                return new Result(startLine, Arrays.copyOf(newStates, line - startLine), state, converged,
+                        tokens.create(end));
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private void apply(int job, int from, Result result) {
+        if (generation.get() != job) {
+            return;
+        }
+        int line = result.startLine;
+        for (int state : result.states) {
+            states.set(line++, state);
+        }
+        if (!result.converged) {
+            states.diverged(line, result.nextState);
+        }
+        if (result.spans != null) {
+            area.setStyleSpans(from, result.spans);
+        }
+    }
+
+    private static int countLines(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * the states and spans of the lines a computation lexed
+     */
+    private static class Result {
+        final int startLine;
+        final int[] states;
+        final int nextState;
+        final boolean converged;
+        final StyleSpans<Collection<String>> spans;
+
+        Result(int startLine, int[] states, int nextState, boolean converged, StyleSpans<Collection<String>> spans) {
+            this.startLine = startLine;
+            this.states = states;
+            this.nextState = nextState;
+            this.converged = converged;
+            this.spans = spans;
+        }
+    }
+}
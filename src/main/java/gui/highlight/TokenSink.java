@@ -0,0 +1,53 @@
+package gui.highlight;
+
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * collects the tokens of a lexer into StyleSpans that cover the whole lexed text
+ * positions are indices in the lexed text, the gaps between tokens are filled with unstyled spans
+ */
+public class TokenSink {
+
+    private final StyleSpansBuilder<Collection<String>> builder = new StyleSpansBuilder<>();
+    private int position;
+    private boolean empty = true;
+
+    /**
+     * @param start      the index of the first character of the token
+     * @param end        the index after the last character of the token
+     * @param styleClass the style classes of the token, lexers keep them in constants so no collection is created per token
+     */
+    public void add(int start, int end, Collection<String> styleClass) {
+        if (end <= start) {
+            return;
+        }
+        skipTo(start);
+        builder.add(styleClass, end - start);
+        position = end;
+        empty = false;
+    }
+
+    /**
+     * leaves the characters up to end unstyled
+     */
+    void skipTo(int end) {
+        if (end > position) {
+            builder.add(Collections.emptyList(), end - position);
+            position = end;
+            empty = false;
+        }
+    }
+
+    /**
+     * @param length the length of the lexed text
+     * @return the spans of the tokens, null if length is 0
+     */
+    StyleSpans<Collection<String>> create(int length) {
+        skipTo(length);
+        return empty ? null : builder.create();
+    }
+}
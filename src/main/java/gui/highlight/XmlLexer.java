@@ -0,0 +1,115 @@
+package gui.highlight;
+
+import java.util.Collection;
+
+/**
+ * highlights tags, attributes, attribute values, comments and cdata sections of xml and html
+ * comments, cdata sections, tags and quoted values can span lines, the state says which one the next line continues
+ */
+class XmlLexer implements Lexer {
+
+    static final int TEXT = INITIAL_STATE;
+    static final int COMMENT = 1;
+    static final int CDATA = 2;
+    static final int TAG = 3;
+    static final int DOUBLE_QUOTED = 4;
+    static final int SINGLE_QUOTED = 5;
+
+    private static final Collection<String> TAG_STYLE = Lexers.style("xml-tag");
+    private static final Collection<String> ATTRIBUTE = Lexers.style("xml-attribute");
+    private static final Collection<String> VALUE = Lexers.style("xml-value");
+    private static final Collection<String> COMMENT_STYLE = Lexers.style("xml-comment");
+    private static final Collection<String> CDATA_STYLE = Lexers.style("xml-cdata");
+
+    @Override
+    public int lexLine(String text, int start, int end, int state, TokenSink tokens) {
+        int i = start;
+        while (i < end) {
+            switch (state) {
+                case COMMENT:
+                case CDATA: {
+                    String close = state == COMMENT ? "-->" : "]]>";
+                    int closeIndex = Lexers.indexOf(text, close, i, end);
+                    int tokenEnd = closeIndex < 0 ? end : closeIndex + close.length();
+                    tokens.add(i, tokenEnd, state == COMMENT ? COMMENT_STYLE : CDATA_STYLE);
+                    if (closeIndex >= 0) {
+                        state = TEXT;
+                    }
+                    i = tokenEnd;
+                    break;
+                }
+                case DOUBLE_QUOTED:
+                case SINGLE_QUOTED: {
+                    int closeIndex = Lexers.indexOf(text, state == DOUBLE_QUOTED ? '"' : '\'', i, end);
+                    int tokenEnd = closeIndex < 0 ? end : closeIndex + 1;
+                    tokens.add(i, tokenEnd, VALUE);
+                    if (closeIndex >= 0) {
+                        state = TAG;
+                    }
+                    i = tokenEnd;
+                    break;
+                }
+                case TAG: {
+                    char c = text.charAt(i);
+                    if (c == '>') {
+                        tokens.add(i, i + 1, TAG_STYLE);
+                        state = TEXT;
+                        i++;
+                    } else if ((c == '/' || c == '?') && i + 1 < end && text.charAt(i + 1) == '>') {
+                        tokens.add(i, i + 2, TAG_STYLE);
+                        state = TEXT;
+                        i += 2;
+                    } else if (c == '"' || c == '\'') {
+                        tokens.add(i, i + 1, VALUE);
+                        state = c == '"' ? DOUBLE_QUOTED : SINGLE_QUOTED;
+                        i++;
+                    } else if (isNameChar(c)) {
+                        int nameEnd = nameEnd(text, i, end);
+                        tokens.add(i, nameEnd, ATTRIBUTE);
+                        i = nameEnd;
+                    } else {
+                        i++;
+                    }
+                    break;
+                }
+                default: {
+                    int open = Lexers.indexOf(text, '<', i, end);
+                    if (open < 0) {
+                        i = end;
+                    } else if (text.startsWith("<!--", open)) {
+                        tokens.add(open, open + 4, COMMENT_STYLE);
+                        state = COMMENT;
+                        i = open + 4;
+                    } else if (text.startsWith("<![CDATA[", open)) {
+                        tokens.add(open, open + 9, CDATA_STYLE);
+                        state = CDATA;
+                        i = open + 9;
+                    } else {
+                        int nameStart = open + 1;
+                        if (nameStart < end && (text.charAt(nameStart) == '/' || text.charAt(nameStart) == '?' || text.charAt(nameStart) == '!')) {
+                            nameStart++;
+                        }
+                        int nameEnd = nameEnd(text, nameStart, end);
+                        tokens.add(open, nameEnd, TAG_STYLE);
+                        state = TAG;
+                        i = nameEnd;
+                    }
+                    break;
+                }
+            }
+        }
+        return state;
+    }
+
+    private static int nameEnd(String text, int from, int end) {
+        int i = from;
+        while (i < end && isNameChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == ':' || c == '-' || c == '_' || c == '.';
+    }
+}
@@ -2,8 +2,11 @@ package gui.mediator;
 
 import gui.components.MainController;
 import gui.TabSpace;
+import gui.components.FindInFolderPane;
 import gui.components.FindReplaceToolBar;
 import gui.components.MainMenuBar;
+import gui.components.StatusBar;
+import lib.io.TextFormat;
 
 import java.nio.file.Path;
 import java.util.List;
@@ -14,15 +17,21 @@ public interface IMediator {
     void setTabSpaces(List<TabSpace> tabSpaces);
     void setMainController(MainController mainController);
     void setFindReplaceToolBar(FindReplaceToolBar findReplaceToolBar);
+    void setFindInFolderPane(FindInFolderPane findInFolderPane);
+    void setStatusBar(StatusBar statusBar);
 
     String getText();
     Path getFilePath();
+    TextFormat getFormat();
     boolean isFileSaved();
     boolean shouldExit();
     boolean isMatchCase();
+    boolean isViewer();
     Mediator.EventBuilder getEventBuilder();
 
     String getMediatorText();
     Path getMediatorFilePath();
+    long getMediatorLine();
+    int getMediatorColumn();
 
 }
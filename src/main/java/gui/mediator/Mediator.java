@@ -2,9 +2,16 @@ package gui.mediator;
 
 import gui.components.MainController;
 import gui.TabSpace;
+import gui.components.FindInFolderPane;
 import gui.components.FindReplaceToolBar;
 import gui.components.MainMenuBar;
+import gui.components.StatusBar;
 import lib.EditorUtils;
+import lib.io.TextDocument;
+import lib.io.TextFormat;
+import lib.log.Logger;
+import lib.session.SessionStore;
+import lib.trace.TraceRecorder;
 
 import java.nio.file.Path;
 import java.util.List;
@@ -12,13 +19,19 @@ import java.util.List;
 import static gui.mediator.Events.*;
 
 public class Mediator implements IMediator {
+    private static final Logger LOG = Logger.get(Mediator.class);
     private Path filePath;
     private MainController mainController;
     private boolean fileSaved;
     private boolean textChanged;
     private String text;
+    private TextDocument document;
+    private long line;
+    private int column;
     private MainMenuBar mainMenuBar;
     private FindReplaceToolBar findReplaceToolBar;
+    private FindInFolderPane findInFolderPane;
+    private StatusBar statusBar;
     private List<TabSpace> tabSpaces;
 
 
@@ -46,6 +59,16 @@ public class Mediator implements IMediator {
         this.findReplaceToolBar = findReplaceToolBar;
     }
 
+    @Override
+    public void setFindInFolderPane(FindInFolderPane findInFolderPane) {
+        this.findInFolderPane = findInFolderPane;
+    }
+
+    @Override
+    public void setStatusBar(StatusBar statusBar) {
+        this.statusBar = statusBar;
+    }
+
     /**
      * @param text: the updated text
      * a setter for text
@@ -81,9 +104,7 @@ public class Mediator implements IMediator {
             return false;
         }
         int tabIndex = mainController.getCurrentTabIndex();
-        System.out.println("mediator#isTextChanged: ----------------");
-        System.out.println("tabIndex: " + tabIndex);
-        System.out.println("isTextChanged: " + tabSpaces.get(tabIndex).isTextChanged());
+        LOG.debug(() -> "isTextChanged: tabIndex: " + tabIndex + " isTextChanged: " + tabSpaces.get(tabIndex).isTextChanged());
         return tabSpaces.get(tabIndex).isTextChanged();
     }
 
@@ -109,9 +130,36 @@ public class Mediator implements IMediator {
         return filePath;
     }
 
+    /**
+     * @return the mediator's line, starting from 0, used by tabspace when GO_TO_LINE
+     * */
+    public long getMediatorLine() {
+        return line;
+    }
+
+    /**
+     * @return the mediator's column, starting from 0, used by tabspace when GO_TO_LINE
+     * */
+    public int getMediatorColumn() {
+        return column;
+    }
+
+
+    /**
+     * @return true if the selected tab shows a large file read only, its text is not loaded
+     * */
+    @Override
+    public boolean isViewer() {
+        int tabIndex = mainController.getCurrentTabIndex();
+        return tabSpaces.get(tabIndex).isViewer();
+    }
 
+    /**
+     * @return the match case flag of the selected tab's search
+     * */
     public boolean isMatchCase() {
-        return findReplaceToolBar.isMatchCase();
+        int tabIndex = mainController.getCurrentTabIndex();
+        return tabSpaces.get(tabIndex).getSearchState().isMatchCase();
     }
 
     /**
@@ -123,8 +171,20 @@ public class Mediator implements IMediator {
         return tabSpaces.get(tabIndex).getCurrentPath();
     }
 
+    /**
+     * @return the format the text of the selected tab is written with
+     * */
+    @Override
+    public TextFormat getFormat() {
+        int tabIndex = mainController.getCurrentTabIndex();
+        return tabSpaces.get(tabIndex).getFormat();
+    }
+
     private void notify(Events event) {
         int tabIndex = mainController.getCurrentTabIndex();
+        if (TraceRecorder.ENABLED) {
+            trace(event, tabIndex);
+        }
         switch (event) {
             case TEXT_CHANGED:
                 tabSpaces.get(tabIndex).sendEvent(TEXT_CHANGED);
@@ -137,13 +197,10 @@ public class Mediator implements IMediator {
                 tabSpaces.get(tabIndex).sendEvent(UNDO_TEXT);
                 break;
             case OPEN_MENU:
-                if(mainController.getTabPane().getTabs().size() == 0){
-                    mainController.createNewTab(true);
-                    tabIndex = mainController.getCurrentTabIndex();
-                }
-                tabSpaces.get(tabIndex).sendEvent(OPEN_MENU);
+                mainController.openInTab(filePath, document);
                 mainController.updateIsSaved(fileSaved);
                 updateTitles();
+                bindStatusBar(mainController.getCurrentTabIndex());
                 break;
 
             case REDO_TEXT:
@@ -158,8 +215,7 @@ public class Mediator implements IMediator {
             case ABOUT_MENU:
                 break;
             case AUTO_SAVE:
-                text = tabSpaces.get(tabIndex).getText();
-                EditorUtils.writeToFile(text, filePath);
+                tabSpaces.get(tabIndex).save();
                 updateTitles();
                 break;
 
@@ -167,16 +223,20 @@ public class Mediator implements IMediator {
                 break;
 
             case EXIT_EVENT:
-                text = tabSpaces.get(tabIndex).getText();
-                EditorUtils.writeToFile(text, filePath);
-                System.exit(0);
+                tabSpaces.get(tabIndex).save();
+                EditorUtils.exit();
+                break;
+
+            case SAVE_SESSION:
+                SessionStore.write(mainController.snapshotSession(), SessionStore.DEFAULT_PATH);
                 break;
 
             case TAB_CHANGED:
-                System.out.println("currentTABINDEX: " + mainController.getCurrentTabIndex());
-                System.out.println("currentTAB: " + mainController.getCurrentTab());
-                System.out.println(tabSpaces.get(tabIndex).getCurrentPath());
+                LOG.debug(() -> "TAB_CHANGED: tabIndex: " + tabIndex + " path: " + tabSpaces.get(tabIndex).getCurrentPath());
                 EditorUtils.setCurrentEditorTitle(mainController.getTabPane(), tabSpaces.get(tabIndex).getCurrentPath(), mainController.getCurrentTabIndex());
+                findReplaceToolBar.bind(tabSpaces.get(tabIndex).getSearchState());
+                mainMenuBar.setFollowTail(tabSpaces.get(tabIndex).isFollowTail());
+                bindStatusBar(tabIndex);
                 break;
 
             case SAVE_REQUEST:
@@ -192,12 +252,13 @@ public class Mediator implements IMediator {
                 tabSpaces.get(tabIndex).sendEvent(PASTE_MENU);
                 break;
             case SHOW_FIND_REPLACE:
-                tabSpaces.get(tabIndex).sendEvent(SHOW_FIND_REPLACE);
+                findReplaceToolBar.showFindReplace();
                 break;
             case SHOW_FIND:
-                tabSpaces.get(tabIndex).sendEvent(SHOW_FIND);
+                findReplaceToolBar.showFindToolbar();
                 break;
             case HIDE_REPLACE:
+                findReplaceToolBar.hideFindReplace();
                 tabSpaces.get(tabIndex).sendEvent(HIDE_REPLACE);
                 break;
             case FIND_SELECT:
@@ -215,8 +276,49 @@ public class Mediator implements IMediator {
             case REPLACE_ALL:
                 tabSpaces.get(tabIndex).sendEvent(REPLACE_ALL);
                 break;
+            case FOLLOW_TAIL:
+                tabSpaces.get(tabIndex).sendEvent(FOLLOW_TAIL);
+                break;
+            case SHOW_FIND_IN_FOLDER:
+                findInFolderPane.show(tabSpaces.isEmpty() ? null : getFilePath());
+                break;
+            case GO_TO_LINE:
+                tabSpaces.get(tabIndex).sendEvent(GO_TO_LINE);
+                break;
+
+
+        }
+    }
 
+    /**
+     * records event for the selected tab, with the query of the tab for the find and replace events
+     * and the replacement for the replace events
+     *
+     * @see TraceRecorder
+     */
+    private void trace(Events event, int tabIndex) {
+        if (tabSpaces == null || tabIndex < 0 || tabIndex >= tabSpaces.size()) {
+            TraceRecorder.event(-1, event, null, null, false);
+            return;
+        }
+        TabSpace tabSpace = tabSpaces.get(tabIndex);
+        boolean search = event == FIND_SELECT || event == FIND_NEXT || event == FIND_PREVIOUS || event == HIDE_REPLACE;
+        boolean replace = event == REPLACE_CURRENT || event == REPLACE_ALL;
+        TraceRecorder.event(tabSpace.getNumber(), event,
+                search || replace ? tabSpace.getSearchState().getQuery() : null,
+                replace ? text : null,
+                tabSpace.getSearchState().isMatchCase());
+    }
 
+    /**
+     * shows the statistics of the selected tab, a viewer shows its own
+     */
+    private void bindStatusBar(int tabIndex) {
+        TabSpace tabSpace = tabSpaces.get(tabIndex);
+        if (tabSpace.isViewer()) {
+            statusBar.clear();
+        } else {
+            statusBar.bind(tabSpace.getTextSpace());
         }
     }
 
@@ -245,7 +347,7 @@ public class Mediator implements IMediator {
      * */
     @Override
     public EventBuilder getEventBuilder(){
-        return new EventBuilder(textChanged, fileSaved, filePath, text);
+        return new EventBuilder(textChanged, fileSaved, filePath, text, document, line, column);
     }
 
     private static final class MediatorInstance {
@@ -258,13 +360,20 @@ public class Mediator implements IMediator {
         private boolean fileSaved;
         private Path filePath;
         private String text;
+        private TextDocument document;
+        private long line;
+        private int column;
         private Events event;
 
-        private EventBuilder(boolean textChanged, boolean fileSaved, Path filePath, String text) {
+        private EventBuilder(boolean textChanged, boolean fileSaved, Path filePath, String text, TextDocument document,
+                             long line, int column) {
             this.textChanged = textChanged;
             this.fileSaved = fileSaved;
             this.filePath = filePath;
             this.text = text;
+            this.document = document;
+            this.line = line;
+            this.column = column;
         }
 
         public EventBuilder textChanged(boolean textChanged) {
@@ -287,6 +396,24 @@ public class Mediator implements IMediator {
             return this;
         }
 
+        /**
+         * @param document the decoded file with its format, used by OPEN_MENU
+         */
+        public EventBuilder withDocument(TextDocument document) {
+            this.document = document;
+            return this;
+        }
+
+        /**
+         * @param line   the line in the selected tab, starting from 0, used by GO_TO_LINE
+         * @param column the column in the line, starting from 0
+         */
+        public EventBuilder withLine(long line, int column) {
+            this.line = line;
+            this.column = column;
+            return this;
+        }
+
         public EventBuilder withEvent(Events event){
             this.event = event;
             return this;
@@ -295,6 +422,9 @@ public class Mediator implements IMediator {
         public void build() {
             Mediator mediator = Mediator.getInstance();
             mediator.text = this.text;
+            mediator.document = this.document;
+            mediator.line = this.line;
+            mediator.column = this.column;
             mediator.filePath = this.filePath;
             mediator.fileSaved = this.fileSaved;
             mediator.textChanged = this.textChanged;
@@ -11,34 +11,49 @@ import javafx.scene.control.*;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.Window;
+import lib.io.ParallelFileLoader;
+import lib.io.TextDocument;
+import lib.io.TextFileReader;
+import lib.io.TextFileWriter;
+import lib.io.TextFormat;
+import lib.metrics.Metrics;
+import lib.metrics.Operation;
 
 import javax.xml.stream.events.StartDocument;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class EditorUtils {
 
     //todo: extract this class to two classes, EditorIO and EditorWindow
-    public static boolean writeToFile(String text, Path path) {
+    /**
+     * writes text to path in the given charset, with a byte order mark if the format has one
+     *
+     * @return true if the file is written, false otherwise
+     * @see TextFileWriter
+     */
+    public static boolean writeToFile(String text, Path path, TextFormat format) {
         if (path == null || text == null) {
             return false;
         }
         try {
-            Files.write(path.toAbsolutePath(), text.getBytes("utf-8"), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            TextFileWriter.write(path.toAbsolutePath(), text, format);
+            return true;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
-        return true;
     }
 
     public static void onCloseExitConfirmation() {
@@ -52,13 +67,23 @@ public class EditorUtils {
                     Mediator.getInstance().getEventBuilder().withEvent(Events.SAVE_REQUEST).build();
                 }
             } else if (btnClicked.get().getText().equals("No")) {
-                System.exit(0);
+                exit();
             }
         } else {
-            System.exit(0);
+            exit();
         }
     }
 
+    /**
+     * sends SAVE_SESSION to the mediator so the open tabs are restored on the next start, then exits the app
+     *
+     * @see lib.session.SessionStore
+     */
+    public static void exit() {
+        Mediator.getInstance().getEventBuilder().withEvent(Events.SAVE_SESSION).build();
+        System.exit(0);
+    }
+
     /**
      * creates an alert confirmation window with 2/3 buttons, 2 custom buttons, 1 cancel button
      *
@@ -139,24 +164,56 @@ public class EditorUtils {
         tabPane.getTabs().get(tabNumber).setText(filePath.getFileName().toString());
     }
 
-    public static List<String> readFromFile(File file) {
-        List<String> lines = new ArrayList<>();
+    /**
+     * reads a file in any of the charsets CharsetSniffer recognises, malformed bytes are replaced
+     * line terminators become \n in the text, the one the file uses is kept in the format of the document
+     *
+     * @return the decoded file, null if it can't be read
+     * @see TextFileReader
+     */
+    public static TextDocument readDocument(Path path) {
+        Metrics.Sample sample = Metrics.start(Operation.OPEN);
         try {
-            lines = Files.readAllLines(Paths.get(file.getPath()), StandardCharsets.UTF_8);
+            return TextFileReader.read(path);
         } catch (IOException e) {
             e.printStackTrace();
+            return null;
+        } finally {
+            Metrics.stop(sample);
         }
-        return lines;
+    }
+
+    /**
+     * reads paths in the background and hands every one of them to open in the order of paths,
+     * a large file isn't read, it waits for its turn like the others and is handed over with a null document
+     * so it opens in a viewer. a file that can't be read is skipped
+     *
+     * @param isLarge  true if a file is shown in a viewer
+     * @param reader   reads a file that isn't large, null if it can't be read
+     * @param executor the executor open runs on
+     * @return a future that completes once every file is handed to open
+     */
+    public static CompletableFuture<Void> openFiles(List<Path> paths, Predicate<Path> isLarge, Function<Path, TextDocument> reader,
+                                                    BiConsumer<Path, TextDocument> open, Executor executor) {
+        // an empty optional is a viewer, null is a file that failed
+        return ParallelFileLoader.getInstance().<Optional<TextDocument>>load(paths, path -> {
+            if (isLarge.test(path)) {
+                return Optional.empty();
+            }
+            TextDocument document = reader.apply(path);
+            return document == null ? null : Optional.of(document);
+        }, (path, document) -> open.accept(path, document.orElse(null)), executor);
     }
 
     /**
      * opens a fileChooser save windows so the user can save a new file as .txt
      * does nothing if the file in null
-     * creates a new text file with the current text in the specified path
+     * creates a new text file with the current text in the specified path, in the format of the selected tab
      * sends SAVE_MENU event to the mediator
      *
+     * @return the path of the written file, null if the window is cancelled or the file can't be written
      * @see Mediator
-     * @see EditorUtils#writeToFile(String, Path)
+     * @see EditorUtils#writeToFile(String, Path, TextFormat)
      */
     public static Path showSaveWindow(Window window) {
         Mediator mediator = Mediator.getInstance();
@@ -170,11 +227,49 @@ public class EditorUtils {
             return null;
         }
         file = new File(file.getPath() + ".txt"); //might be only in linux that the file is not saved as title.txt
-        EditorUtils.writeToFile(mediator.getText(), file.toPath());
         Path filePath = file.toPath();
+        if (!EditorUtils.writeToFile(mediator.getText(), filePath, mediator.getFormat())) {
+            return null;
+        }
         return filePath;
     }
 
+    /**
+     * asks for a line, and optionally a column, to move the caret to
+     *
+     * @return the line and the column, both starting from 0, null if the dialog is cancelled or the input isn't a line
+     * @see EditorUtils#parseLinePosition(String)
+     */
+    public static long[] showGoToLineWindow(Window window) {
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.initOwner(window);
+        dialog.setTitle("Go to Line");
+        dialog.setHeaderText(null);
+        dialog.setContentText("line[:column]");
+        return dialog.showAndWait().map(EditorUtils::parseLinePosition).orElse(null);
+    }
+
+    /**
+     * @param text a line, or a line and a column separated by ':', both starting from 1 like the status bar shows them
+     * @return the line and the column starting from 0, null if text isn't in that form
+     */
+    public static long[] parseLinePosition(String text) {
+        String[] parts = text.trim().split("\\s*:\\s*", -1);
+        if (parts.length > 2) {
+            return null;
+        }
+        try {
+            long line = Long.parseLong(parts[0]);
+            long column = parts.length == 2 ? Long.parseLong(parts[1]) : 1;
+            if (line < 1 || column < 1 || column > Integer.MAX_VALUE) {
+                return null;
+            }
+            return new long[]{line - 1, column - 1};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * shows the version information of the app
      * */
@@ -249,6 +344,46 @@ public class EditorUtils {
         return startIndices;
     }
 
+    /**
+     * finds substring in text without copying or lower casing the text, so text can be a buffer that is searched
+     * while it's streamed in. ignoring case compares chars like String#regionMatches(boolean, int, String, int, int)
+     *
+     * @param from the index the search starts from
+     * @return the start of the first match at or after from, -1 if there is none
+     */
+    public static int indexOf(CharSequence text, String substring, int from, boolean matchCase) {
+        int last = text.length() - substring.length();
+        if (substring.isEmpty()) {
+            return from <= text.length() ? Math.max(0, from) : -1;
+        }
+        char first = substring.charAt(0);
+        for (int i = Math.max(0, from); i <= last; i++) {
+            if (!sameChar(text.charAt(i), first, matchCase)) {
+                continue;
+            }
+            int j = 1;
+            while (j < substring.length() && sameChar(text.charAt(i + j), substring.charAt(j), matchCase)) {
+                j++;
+            }
+            if (j == substring.length()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean sameChar(char a, char b, boolean matchCase) {
+        if (a == b) {
+            return true;
+        }
+        if (matchCase) {
+            return false;
+        }
+        char upperA = Character.toUpperCase(a);
+        char upperB = Character.toUpperCase(b);
+        return upperA == upperB || Character.toLowerCase(upperA) == Character.toLowerCase(upperB);
+    }
+
     /**
      * @param text: text
      * @param current: the replaced string
@@ -0,0 +1,274 @@
+package lib.batch;
+
+import lib.EditorUtils;
+import lib.io.CharsetSniffer;
+import lib.io.TextFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * the find/replace of the FindReplaceToolBar over files on disk, without javafx
+ * <p>
+ * matches are found like the toolbar finds them (EditorUtils, left to right, not overlapping, match case or not),
+ * then all of them are replaced, or only the nth one like "replace" does for the selected match.
+ * a file is streamed in chunks, only a chunk and the end of the previous one (a match can start there)
+ * are in memory, so a file of any size takes the same memory. the charset and byte order mark of the file
+ * are kept and the line terminators are not touched.
+ * a file is read once to count its matches, a file with something to replace is read again and written next to
+ * the original then moved over it, it's either the old or the new file, never half of each. the others are not touched
+ * <p>
+ * files are processed on a fixed pool of threads, the walk waits when every thread is busy and a few files are queued
+ */
+public class BatchReplace {
+
+    private static final int CHUNK_SIZE = CharsetSniffer.SAMPLE_SIZE;
+
+    private final String query;
+    private final String replacement;
+    private final boolean matchCase;
+    private final int occurrence;
+    private final int threads;
+
+    /**
+     * @param query       the text to find, not empty
+     * @param replacement the text matches are replaced with, null to only count them
+     * @param matchCase   true to find query with the same case only
+     * @param occurrence  replace only the nth match of each file (starting from 1), 0 to replace all of them
+     * @param threads     the number of files processed at the same time
+     */
+    public BatchReplace(String query, String replacement, boolean matchCase, int occurrence, int threads) {
+        if (query == null || query.isEmpty()) {
+            throw new IllegalArgumentException("the query is empty");
+        }
+        if (occurrence < 0 || threads < 1) {
+            throw new IllegalArgumentException("occurrence must be >= 0 and threads >= 1");
+        }
+        this.query = query;
+        this.replacement = replacement;
+        this.matchCase = matchCase;
+        this.occurrence = occurrence;
+        this.threads = threads;
+    }
+
+    /**
+     * processes every regular file under roots accepted by filter
+     *
+     * @param filter  matches the paths of the files to process relative to their root, null for all files
+     * @param results receives the result of every file as soon as it's done, on the thread that processed it
+     * @return the results of all the files, in the order they were found
+     * @throws IOException if a root can't be walked, the folders and files under it that can't be read are skipped
+     */
+    public List<FileResult> run(List<Path> roots, PathMatcher filter, Consumer<FileResult> results) throws IOException {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 2), runnable -> {
+            Thread thread = new Thread(runnable, "batch-replace");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        List<Future<FileResult>> futures = new ArrayList<>();
+        try {
+            for (Path root : roots) {
+                Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile() && (filter == null || filter.matches(root.relativize(file)))) {
+                            futures.add(workers.submit(() -> {
+                                FileResult result = processQuietly(file);
+                                results.accept(result);
+                                return result;
+                            }));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    // a folder or a file that can't be read is listed as skipped, the walk goes on
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        FileResult result = new FileResult(file, 0, 0, 0, 0, e.toString());
+                        results.accept(result);
+                        futures.add(CompletableFuture.completedFuture(result));
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+            List<FileResult> done = new ArrayList<>(futures.size());
+            for (Future<FileResult> future : futures) {
+                done.add(future.get());
+            }
+            return done;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private FileResult processQuietly(Path file) {
+        try {
+            return process(file);
+        } catch (IOException e) {
+            return new FileResult(file, 0, 0, 0, 0, e.toString());
+        }
+    }
+
+    /**
+     * searches file, and replaces the matches if there is a replacement
+     * a file with bytes that aren't text in the charset found from its start, or a replacement that can't be written
+     * in that charset, is skipped and left as it was
+     *
+     * @throws IOException if the file can't be read or written, the file is left as it was
+     */
+    public FileResult process(Path file) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(CharsetSniffer.SAMPLE_SIZE, size));
+            while (sample.hasRemaining() && channel.read(sample) != -1) {
+                // fill the sample
+            }
+            if (CharsetSniffer.isBinary(sample.array(), sample.position())) {
+                return new FileResult(file, 0, 0, size, System.nanoTime() - start, "binary");
+            }
+            TextFormat format = CharsetSniffer.detect(sample.array(), sample.position(), size > sample.position());
+            try {
+                long matches = scan(reader(channel, format, size), null);
+                long replaced = occurrence == 0 ? matches : matches >= occurrence ? 1 : 0;
+                if (replacement == null || replaced == 0) {
+                    // nothing to replace, the file is not written
+                    return new FileResult(file, matches, 0, size, System.nanoTime() - start, null);
+                }
+                return replace(file, reader(channel, format, size), format, size, start);
+            } catch (CharacterCodingException e) {
+                return new FileResult(file, 0, 0, size, System.nanoTime() - start, "not " + format.getCharset().name() + " text");
+            }
+        }
+    }
+
+    /**
+     * @return a reader of the text of channel from its start, after the byte order mark
+     */
+    private static Reader reader(FileChannel channel, TextFormat format, long size) throws IOException {
+        channel.position(Math.min(size, CharsetSniffer.bomLength(format)));
+        CharsetDecoder decoder = format.getCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        return Channels.newReader(channel, decoder, CHUNK_SIZE);
+    }
+
+    /**
+     * writes the replaced text of reader to a temporary file next to file, then moves it over file
+     * only called for a file that has something to replace, the others are left as they are
+     */
+    private FileResult replace(Path file, Reader reader, TextFormat format, long size, long start) throws IOException {
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "." + file.getFileName(), ".tmp");
+        try {
+            long matches;
+            CharsetEncoder encoder = format.getCharset().newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmp), encoder), CHUNK_SIZE)) {
+                if (format.hasBom()) {
+                    writer.write('\uFEFF');
+                }
+                matches = scan(reader, writer);
+            }
+            long replaced = occurrence == 0 ? matches : matches >= occurrence ? 1 : 0;
+            copyPermissions(file, tmp);
+            move(tmp, file);
+            return new FileResult(file, matches, replaced, size, System.nanoTime() - start, null);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * finds the matches in the text of reader, and writes the text with the matches replaced to writer
+     *
+     * @param writer receives the replaced text, null to only count the matches
+     * @return the number of matches
+     */
+    long scan(Reader reader, Writer writer) throws IOException {
+        StringBuilder pending = new StringBuilder(CHUNK_SIZE + query.length());
+        char[] chunk = new char[CHUNK_SIZE];
+        long matches = 0;
+        boolean end = false;
+        while (!end) {
+            int read = reader.read(chunk);
+            if (read == -1) {
+                end = true;
+            } else {
+                pending.append(chunk, 0, read);
+            }
+
+            int written = 0;
+            int from = 0;
+            for (int i = EditorUtils.indexOf(pending, query, 0, matchCase); i != -1;
+                 i = EditorUtils.indexOf(pending, query, from, matchCase)) {
+                matches++;
+                if (writer != null && (occurrence == 0 || matches == occurrence)) {
+                    writer.append(pending, written, i);
+                    writer.write(replacement);
+                    written = i + query.length();
+                }
+                from = i + query.length();
+            }
+
+            // the last query.length() - 1 chars may be the start of a match that ends in the next chunk
+            int keep = end ? pending.length() : Math.max(from, pending.length() - (query.length() - 1));
+            if (writer != null) {
+                writer.append(pending, written, keep);
+            }
+            pending.delete(0, keep);
+        }
+        return matches;
+    }
+
+    private static void copyPermissions(Path from, Path to) {
+        try {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        } catch (UnsupportedOperationException | IOException e) {
+            // not a posix file system, the temporary file keeps the default permissions
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package lib.batch;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * what {@link BatchReplace} did to one file
+ */
+public class FileResult {
+
+    private final Path path;
+    private final long matches;
+    private final long replaced;
+    private final long bytes;
+    private final long nanos;
+    private final String skipped;
+
+    FileResult(Path path, long matches, long replaced, long bytes, long nanos, String skipped) {
+        this.path = path;
+        this.matches = matches;
+        this.replaced = replaced;
+        this.bytes = bytes;
+        this.nanos = nanos;
+        this.skipped = skipped;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return the number of matches replaced in the file, 0 when only searching
+     */
+    public long getReplaced() {
+        return replaced;
+    }
+
+    /**
+     * @return the size of the file before it was changed
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return why the file wasn't searched (binary, unreadable), null if it was
+     */
+    public String getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return the bytes of the file read per second, in MB
+     */
+    public double getThroughput() {
+        return nanos == 0 ? 0 : bytes * 1000.0 / nanos;
+    }
+
+    /**
+     * @return path, matches, replaced, bytes, milliseconds and MB/s separated by tabs, or path and the reason it was skipped
+     */
+    @Override
+    public String toString() {
+        if (skipped != null) {
+            return path + "\tskipped: " + skipped;
+        }
+        return String.format(Locale.ROOT, "%s\t%d\t%d\t%d\t%.3f\t%.1f", path, matches, replaced, bytes,
+                nanos / 1_000_000.0, getThroughput());
+    }
+}
@@ -0,0 +1,160 @@
+package lib.io;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * guesses the charset of a file from its first bytes
+ * a byte order mark wins, otherwise the sample is checked for utf-16 (ascii text with every other byte 0),
+ * then for valid utf-8, anything else is read as latin-1 which can decode every byte
+ * the line separator of the returned format is always LF, the reader finds the real one while decoding
+ */
+public class CharsetSniffer {
+
+    public static final int SAMPLE_SIZE = 64 * 1024;
+
+    private static final Charset UTF_32BE = Charset.forName("UTF-32BE");
+    private static final Charset UTF_32LE = Charset.forName("UTF-32LE");
+
+    private CharsetSniffer() {
+    }
+
+    /**
+     * @param sample    the first bytes of the file
+     * @param length    the number of bytes in sample
+     * @param truncated true if the file is longer than the sample, a multi byte character cut at the end is then not an error
+     * @return the format of the file
+     */
+    public static TextFormat detect(byte[] sample, int length, boolean truncated) {
+        if (startsWith(sample, length, 0x00, 0x00, 0xFE, 0xFF)) {
+            return new TextFormat(UTF_32BE, true, LineSeparator.LF);
+        }
+        if (startsWith(sample, length, 0xFF, 0xFE, 0x00, 0x00)) {
+            return new TextFormat(UTF_32LE, true, LineSeparator.LF);
+        }
+        if (startsWith(sample, length, 0xEF, 0xBB, 0xBF)) {
+            return new TextFormat(StandardCharsets.UTF_8, true, LineSeparator.LF);
+        }
+        if (startsWith(sample, length, 0xFE, 0xFF)) {
+            return new TextFormat(StandardCharsets.UTF_16BE, true, LineSeparator.LF);
+        }
+        if (startsWith(sample, length, 0xFF, 0xFE)) {
+            return new TextFormat(StandardCharsets.UTF_16LE, true, LineSeparator.LF);
+        }
+
+        Charset utf16 = detectUtf16(sample, length);
+        if (utf16 != null) {
+            return new TextFormat(utf16, false, LineSeparator.LF);
+        }
+        if (isUtf8(sample, length, truncated)) {
+            return new TextFormat(StandardCharsets.UTF_8, false, LineSeparator.LF);
+        }
+        return new TextFormat(StandardCharsets.ISO_8859_1, false, LineSeparator.LF);
+    }
+
+    /**
+     * @param sample the first bytes of the file
+     * @param length the number of bytes in sample
+     * @return true if the sample has a 0 byte and isn't utf-16 or utf-32, text files don't have any
+     */
+    public static boolean isBinary(byte[] sample, int length) {
+        String charset = detect(sample, length, true).getCharset().name();
+        if (charset.startsWith("UTF-16") || charset.startsWith("UTF-32")) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (sample[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of bytes the byte order mark of format takes at the start of the file
+     */
+    public static int bomLength(TextFormat format) {
+        if (!format.hasBom()) {
+            return 0;
+        }
+        Charset charset = format.getCharset();
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            return 3;
+        }
+        if (charset.equals(UTF_32BE) || charset.equals(UTF_32LE)) {
+            return 4;
+        }
+        return 2;
+    }
+
+    private static boolean startsWith(byte[] sample, int length, int... prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((sample[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * text without a byte order mark is taken as utf-16 if at least a third of the bytes on one side are 0
+     * and almost none on the other side, which is what mostly ascii text looks like in utf-16
+     */
+    private static Charset detectUtf16(byte[] sample, int length) {
+        int pairs = length / 2;
+        if (pairs == 0) {
+            return null;
+        }
+        int evenZeros = 0;
+        int oddZeros = 0;
+        for (int i = 0; i + 1 < length; i += 2) {
+            if (sample[i] == 0) {
+                evenZeros++;
+            }
+            if (sample[i + 1] == 0) {
+                oddZeros++;
+            }
+        }
+        if (oddZeros * 3 >= pairs && evenZeros * 20 < pairs) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (evenZeros * 3 >= pairs && oddZeros * 20 < pairs) {
+            return StandardCharsets.UTF_16BE;
+        }
+        return null;
+    }
+
+    private static boolean isUtf8(byte[] sample, int length, boolean truncated) {
+        int i = 0;
+        while (i < length) {
+            int b = sample[i] & 0xFF;
+            int continuation;
+            if (b < 0x80) {
+                i++;
+                continue;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                continuation = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuation = 2;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuation = 3;
+            } else {
+                return false;
+            }
+            if (i + continuation >= length) {
+                // the sample ends in the middle of a character
+                return truncated;
+            }
+            for (int j = 1; j <= continuation; j++) {
+                if ((sample[i + j] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += continuation + 1;
+        }
+        return true;
+    }
+}
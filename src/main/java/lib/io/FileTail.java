@@ -0,0 +1,151 @@
+package lib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * follows a file that is written by another program, like a log
+ * it remembers how many bytes of the file are already read and the last bytes before that offset,
+ * if the file only grew the new bytes are decoded from the offset, otherwise the file has to be read again
+ * the decoded text is kept until it's taken, a tab that can't show it yet (unsaved text, a running paste) takes it later
+ */
+public class FileTail {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int FINGERPRINT_SIZE = 64;
+
+    private final Path path;
+    private final TextFormat format;
+    private long offset;
+    private byte[] fingerprint;
+    private boolean pendingCr;
+    // decoded but not taken yet
+    private final StringBuilder appended = new StringBuilder();
+
+    /**
+     * @param path   the followed file
+     * @param format the format the file is decoded with
+     * @param offset the number of bytes of the file that are already read
+     * @throws IOException if the file can't be read
+     */
+    public FileTail(Path path, TextFormat format, long offset) throws IOException {
+        this.path = path;
+        this.format = format;
+        this.offset = offset;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            fingerprint = readFingerprint(channel);
+        }
+    }
+
+    /**
+     * decodes the bytes appended to the file since the last call, an incomplete character at the end stays for the next call
+     * the text is kept until {@link FileTail#takeAppended()}
+     *
+     * @return false if the file was truncated or rewritten and has to be read again
+     * @throws IOException if the file can't be read
+     */
+    public synchronized boolean readAppended() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < offset || !Arrays.equals(readFingerprint(channel), fingerprint)) {
+                return false;
+            }
+            if (channel.size() == offset) {
+                return true;
+            }
+
+            CharsetDecoder decoder = TextFileReader.decoder(format.getCharset());
+            ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+            CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+            channel.position(offset);
+
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                endOfFile = channel.read(bytes) == -1;
+                bytes.flip();
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, chars, false);
+                    chars.flip();
+                    appendLines(chars, appended);
+                    chars.clear();
+                } while (result.isOverflow());
+                offset += bytes.position();
+                bytes.compact();
+            }
+            fingerprint = readFingerprint(channel);
+            return true;
+        }
+    }
+
+    /**
+     * @return true if there's text read by {@link FileTail#readAppended()} that wasn't taken yet
+     */
+    public synchronized boolean hasAppended() {
+        return appended.length() > 0;
+    }
+
+    /**
+     * @return the text read since the last call, with its line terminators turned into \n, an empty string if there's none
+     */
+    public synchronized String takeAppended() {
+        String text = appended.toString();
+        appended.setLength(0);
+        return text;
+    }
+
+    /**
+     * takes the current content of the file as already read, called after the editor writes the file itself
+     *
+     * @throws IOException if the file can't be read
+     */
+    public synchronized void resync() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            offset = channel.size();
+            pendingCr = false;
+            appended.setLength(0);
+            fingerprint = readFingerprint(channel);
+        }
+    }
+
+    /**
+     * appends chars to text with \r\n and \r turned into \n, a \r at the end of a read is remembered
+     * so the \n of the same \r\n at the start of the next read is dropped
+     */
+    private void appendLines(CharBuffer chars, StringBuilder text) {
+        while (chars.hasRemaining()) {
+            char c = chars.get();
+            if (c == '\r') {
+                text.append('\n');
+                pendingCr = true;
+            } else {
+                if (c != '\n' || !pendingCr) {
+                    text.append(c);
+                }
+                pendingCr = false;
+            }
+        }
+    }
+
+    /**
+     * @return the last bytes before offset, compared on each read to notice a file that was rewritten
+     */
+    private byte[] readFingerprint(FileChannel channel) throws IOException {
+        int length = (int) Math.min(FINGERPRINT_SIZE, Math.min(offset, channel.size()));
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        long position = offset - length;
+        while (bytes.hasRemaining()) {
+            int read = channel.read(bytes, position + bytes.position());
+            if (read == -1) {
+                break;
+            }
+        }
+        return bytes.array();
+    }
+}
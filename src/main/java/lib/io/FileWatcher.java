@@ -0,0 +1,207 @@
+package lib.io;
+
+import lib.log.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * notices when files open in the editor are changed by other programs
+ * a WatchService can only watch directories, so the directory of each file is registered once
+ * and the events are dispatched to the listeners of the file they are about, on a single daemon thread.
+ * a directory can be watched too, its listeners hear about every entry of it
+ */
+public class FileWatcher {
+
+    public interface Listener {
+        /**
+         * called on the watcher thread when file is created, modified or deleted
+         */
+        void changed(Path file);
+    }
+
+    private static final Logger LOG = Logger.get(FileWatcher.class);
+
+    private final Map<Path, List<Listener>> listeners = new HashMap<>();
+    private final Map<Path, List<Listener>> directoryListeners = new HashMap<>();
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private WatchService watchService;
+
+    private FileWatcher() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            LOG.error(() -> "can't watch files", e);
+            return;
+        }
+        Thread thread = new Thread(this::processEvents, "file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static FileWatcher getInstance() {
+        return WatcherInstance.INSTANCE;
+    }
+
+    /**
+     * starts calling listener when file changes
+     *
+     * @return the registration to cancel once the file is not shown anymore
+     */
+    public synchronized Registration watch(Path file, Listener listener) {
+        Path absolute = file.toAbsolutePath();
+        Registration registration = new Registration(absolute, listener, listeners);
+        if (watchService == null) {
+            return registration;
+        }
+        try {
+            register(absolute.getParent());
+            listeners.computeIfAbsent(absolute, key -> new CopyOnWriteArrayList<>()).add(listener);
+        } catch (IOException e) {
+            LOG.warn(() -> "can't watch " + absolute + ": " + e);
+        }
+        return registration;
+    }
+
+    /**
+     * starts calling listener when an entry of directory is created, modified or deleted,
+     * with the directory itself when events were lost. the subdirectories are not watched
+     *
+     * @return the registration to cancel once the directory is not needed anymore
+     */
+    public synchronized Registration watchDirectory(Path directory, Listener listener) throws IOException {
+        Path absolute = directory.toAbsolutePath();
+        Registration registration = new Registration(absolute, listener, directoryListeners);
+        if (watchService == null) {
+            return registration;
+        }
+        register(absolute);
+        directoryListeners.computeIfAbsent(absolute, key -> new CopyOnWriteArrayList<>()).add(listener);
+        return registration;
+    }
+
+    private void register(Path directory) throws IOException {
+        if (!directories.containsKey(directory)) {
+            directories.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+        }
+    }
+
+    private synchronized void cancel(Path path, Listener listener, Map<Path, List<Listener>> registered) {
+        List<Listener> pathListeners = registered.get(path);
+        if (pathListeners == null || !pathListeners.remove(listener) || !pathListeners.isEmpty()) {
+            return;
+        }
+        registered.remove(path);
+        Path directory = registered == listeners ? path.getParent() : path;
+        boolean directoryInUse = directoryListeners.containsKey(directory)
+                || listeners.keySet().stream().anyMatch(file -> file.getParent().equals(directory));
+        if (!directoryInUse && directories.containsKey(directory)) {
+            directories.remove(directory).cancel();
+        }
+    }
+
+    /**
+     * forgets a directory that can't be watched anymore, it's registered again if it comes back
+     */
+    private synchronized void invalidated(Path directory) {
+        directories.remove(directory);
+    }
+
+    private synchronized List<Listener> listenersOf(Path file, Map<Path, List<Listener>> registered) {
+        List<Listener> fileListeners = registered.get(file);
+        return fileListeners == null ? new ArrayList<>() : fileListeners;
+    }
+
+    private synchronized List<Path> filesIn(Path directory) {
+        List<Path> files = new ArrayList<>();
+        for (Path file : listeners.keySet()) {
+            if (file.getParent().equals(directory)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // events were lost, every file of the directory might have changed
+                    for (Path file : filesIn(directory)) {
+                        dispatch(file, listeners);
+                    }
+                    dispatchDirectory(directory, directory);
+                } else {
+                    Path file = directory.resolve((Path) event.context());
+                    dispatch(file, listeners);
+                    dispatchDirectory(file, directory);
+                }
+            }
+            if (!key.reset()) {
+                invalidated(directory);
+            }
+        }
+    }
+
+    private void dispatchDirectory(Path file, Path directory) {
+        for (Listener listener : listenersOf(directory, directoryListeners)) {
+            try {
+                listener.changed(file);
+            } catch (RuntimeException e) {
+                LOG.error(() -> "a listener of " + directory + " failed on " + file, e);
+            }
+        }
+    }
+
+    private void dispatch(Path file, Map<Path, List<Listener>> registered) {
+        for (Listener listener : listenersOf(file, registered)) {
+            try {
+                listener.changed(file);
+            } catch (RuntimeException e) {
+                LOG.error(() -> "a listener of " + file + " failed", e);
+            }
+        }
+    }
+
+    public class Registration {
+        private final Path path;
+        private final Listener listener;
+        private final Map<Path, List<Listener>> registered;
+
+        private Registration(Path path, Listener listener, Map<Path, List<Listener>> registered) {
+            this.path = path;
+            this.listener = listener;
+            this.registered = registered;
+        }
+
+        /**
+         * stops calling the listener, the directory stops being watched when none of its files are
+         */
+        public void cancel() {
+            FileWatcher.this.cancel(path, listener, registered);
+        }
+    }
+
+    private static final class WatcherInstance {
+        private static final FileWatcher INSTANCE = new FileWatcher();
+    }
+}
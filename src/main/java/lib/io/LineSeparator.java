@@ -0,0 +1,19 @@
+package lib.io;
+
+/**
+ * the line terminator a file uses on disk
+ * the text areas only see \n, the separator is put back when the file is saved
+ */
+public enum LineSeparator {
+    LF("\n"), CRLF("\r\n"), CR("\r");
+
+    private final String separator;
+
+    LineSeparator(String separator) {
+        this.separator = separator;
+    }
+
+    public String getSeparator() {
+        return separator;
+    }
+}
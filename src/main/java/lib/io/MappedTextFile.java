@@ -0,0 +1,522 @@
+package lib.io;
+
+import lib.EditorUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * a text file too large to be loaded in a text area, read through a memory mapping a piece at a time
+ * <p>
+ * the file is mapped in regions of at most 1GB and never copied as a whole, only the pieces that are shown are decoded.
+ * the line index is sparse: it keeps the offset of every {@link #LINES_PER_SAMPLE}th line start, built in the background
+ * by {@link #indexLines(BooleanSupplier)}, a line is found from the sample before it by scanning less than that many lines.
+ * the charset is sniffed like {@link TextFileReader} does, lines end at \n, \r\n or \r depending on the first one found.
+ * the mapping is released by the garbage collector, there is nothing to close
+ */
+public class MappedTextFile {
+
+    /**
+     * the size from which a file is opened read only in a viewer instead of being loaded in a text area
+     */
+    public static final long VIEWER_THRESHOLD = Long.getLong("fedator.viewer.threshold", 128L << 20);
+
+    static final int LINES_PER_SAMPLE = 1024;
+    // the most bytes decoded by one read, a line longer than this is cut
+    static final int MAX_CHUNK_BYTES = 4 << 20;
+    private static final int REGION_SHIFT = 30;
+    // the index publishes its progress and checks for cancellation every 1MB
+    private static final long PROGRESS_MASK = (1 << 20) - 1;
+
+    private final Path path;
+    private final long size;
+    private final TextFormat format;
+    private final MappedByteBuffer[] regions;
+    private final int regionShift;
+    private final long regionMask;
+    private final long dataStart;
+    // the bytes of the char lines end with: \n, or \r for files that only use \r
+    private final byte[] terminator;
+    private final int width;
+    private final byte[] carriageReturn;
+
+    private long[] samples = new long[64];
+    private int sampleCount = 1;
+    private volatile long indexedBytes;
+    private volatile long lineCount = -1;
+
+    private MappedTextFile(Path path, int regionShift) throws IOException {
+        this.path = path;
+        this.regionShift = regionShift;
+        this.regionMask = (1L << regionShift) - 1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            regions = new MappedByteBuffer[(int) ((size + regionMask) >>> regionShift)];
+            for (int i = 0; i < regions.length; i++) {
+                long position = (long) i << regionShift;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionMask + 1, size - position));
+            }
+        }
+
+        byte[] sample = new byte[(int) Math.min(size, CharsetSniffer.SAMPLE_SIZE)];
+        copy(0, sample, sample.length);
+        TextFormat detected = CharsetSniffer.detect(sample, sample.length, size > sample.length);
+        Charset charset = detected.getCharset();
+        dataStart = Math.min(size, CharsetSniffer.bomLength(detected));
+        byte[] newline = "\n".getBytes(charset);
+        carriageReturn = "\r".getBytes(charset);
+        width = newline.length;
+
+        LineSeparator separator = detectSeparator(sample, newline);
+        format = detected.withLineSeparator(separator);
+        terminator = separator == LineSeparator.CR ? carriageReturn : newline;
+        samples[0] = dataStart;
+        indexedBytes = dataStart;
+    }
+
+    /**
+     * maps a file, the line index is empty until {@link #indexLines(BooleanSupplier)} runs
+     *
+     * @throws IOException if the file can't be mapped
+     */
+    public static MappedTextFile open(Path path) throws IOException {
+        return new MappedTextFile(path, REGION_SHIFT);
+    }
+
+    /**
+     * @param regionShift the log2 of the size of a mapped region, at least 2 so a char of utf-32 never spans two regions
+     */
+    static MappedTextFile open(Path path, int regionShift) throws IOException {
+        return new MappedTextFile(path, regionShift);
+    }
+
+    /**
+     * @return true if the file is large enough to be opened in the viewer, false if it's smaller or can't be read
+     */
+    public static boolean isLarge(Path path) {
+        try {
+            return Files.size(path) >= VIEWER_THRESHOLD;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * the separator of the first line of the sample, \n if it has none
+     */
+    private LineSeparator detectSeparator(byte[] sample, byte[] newline) {
+        for (int i = (int) dataStart; i + width <= sample.length; i += width) {
+            if (unitEquals(sample, i, newline)) {
+                return i - width >= dataStart && unitEquals(sample, i - width, carriageReturn) ? LineSeparator.CRLF : LineSeparator.LF;
+            }
+            if (unitEquals(sample, i, carriageReturn) && !(i + 2 * width <= sample.length && unitEquals(sample, i + width, newline))) {
+                return LineSeparator.CR;
+            }
+        }
+        return LineSeparator.LF;
+    }
+
+    private boolean unitEquals(byte[] bytes, int index, byte[] unit) {
+        for (int j = 0; j < width; j++) {
+            if (bytes[index + j] != unit[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte byteAt(long position) {
+        return regions[(int) (position >>> regionShift)].get((int) (position & regionMask));
+    }
+
+    private boolean isTerminatorAt(long position) {
+        if (width == 1) {
+            return byteAt(position) == terminator[0];
+        }
+        for (int j = 0; j < width; j++) {
+            if (byteAt(position + j) != terminator[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * copies length bytes from position into bytes, across regions if needed
+     */
+    private void copy(long position, byte[] bytes, int length) {
+        int copied = 0;
+        while (copied < length) {
+            long from = position + copied;
+            ByteBuffer region = regions[(int) (from >>> regionShift)].duplicate();
+            region.position((int) (from & regionMask));
+            int count = Math.min(length - copied, region.remaining());
+            region.get(bytes, copied, count);
+            copied += count;
+        }
+    }
+
+    /**
+     * counts the lines of the whole file and records a sample every {@link #LINES_PER_SAMPLE} lines,
+     * runs on a background thread while the file is shown
+     *
+     * @param cancelled checked every megabyte, the index stays partial when it returns true
+     * @return true if the whole file is indexed
+     */
+    public boolean indexLines(BooleanSupplier cancelled) {
+        long lines = 0;
+        for (long position = dataStart; position < size; position += width) {
+            if ((position & PROGRESS_MASK) < width) {
+                indexedBytes = position;
+                if (cancelled.getAsBoolean()) {
+                    return false;
+                }
+            }
+            if (isTerminatorAt(position) && ++lines % LINES_PER_SAMPLE == 0) {
+                addSample(position + width);
+            }
+        }
+        indexedBytes = size;
+        lineCount = lines + 1;
+        return true;
+    }
+
+    private synchronized void addSample(long lineStart) {
+        if (sampleCount == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[sampleCount++] = lineStart;
+    }
+
+    /**
+     * @param line the line, starting from 0
+     * @return the offset of the first byte of line, -1 if the file has less lines or the index hasn't reached it yet
+     */
+    public long lineStart(long line) {
+        long position;
+        synchronized (this) {
+            long sample = line / LINES_PER_SAMPLE;
+            if (line < 0 || sample >= sampleCount) {
+                return -1;
+            }
+            position = samples[(int) sample];
+        }
+        for (long i = line % LINES_PER_SAMPLE; i > 0 && position >= 0; i--) {
+            position = nextLineStart(position);
+        }
+        return position;
+    }
+
+    /**
+     * @param offset a byte offset in the file
+     * @return the line offset is in, starting from 0, -1 if the index hasn't reached it yet
+     */
+    public long lineOf(long offset) {
+        int sample;
+        long position;
+        synchronized (this) {
+            if (offset > indexedBytes) {
+                return -1;
+            }
+            int found = Arrays.binarySearch(samples, 0, sampleCount, offset);
+            sample = found >= 0 ? found : Math.max(0, -found - 2);
+            position = samples[sample];
+        }
+        long line = (long) sample * LINES_PER_SAMPLE;
+        for (; position + width <= offset; position += width) {
+            if (isTerminatorAt(position)) {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    /**
+     * @return the offset after the next line terminator from position, -1 if there is none
+     */
+    private long nextLineStart(long position) {
+        for (long i = position; i < size; i += width) {
+            if (isTerminatorAt(i)) {
+                return i + width;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the offset of the start of the line offset is in,
+     * or a char boundary {@link #MAX_CHUNK_BYTES} before offset if the line is longer than that
+     */
+    public long lineStartBefore(long offset) {
+        long aligned = alignDown(Math.min(offset, size));
+        long limit = Math.max(dataStart, aligned - MAX_CHUNK_BYTES);
+        for (long position = aligned - width; position >= limit; position -= width) {
+            if (isTerminatorAt(position)) {
+                return position + width;
+            }
+        }
+        return limit == dataStart ? dataStart : boundaryAfter(limit);
+    }
+
+    /**
+     * reads the lines from start forward
+     *
+     * @param start    the offset of a line start
+     * @param maxLines the most lines read
+     * @return the lines, ending after a line terminator unless the file ends first or a line is longer than {@link #MAX_CHUNK_BYTES}
+     */
+    public Chunk read(long start, int maxLines) {
+        long limit = Math.min(size, start + MAX_CHUNK_BYTES);
+        int lines = 0;
+        long end = -1;
+        long position = start;
+        for (; position < limit && lines < maxLines; position += width) {
+            if (isTerminatorAt(position)) {
+                lines++;
+                end = position + width;
+            }
+        }
+        if (lines < maxLines && position >= size) {
+            end = size;
+        } else if (end < 0) {
+            end = boundaryBefore(limit);
+        }
+        return chunk(start, end);
+    }
+
+    /**
+     * reads the lines before end backward
+     *
+     * @param end      the offset of a line start
+     * @param maxLines the most lines read
+     * @return the lines, starting at a line start unless a line is longer than {@link #MAX_CHUNK_BYTES}
+     */
+    public Chunk readBefore(long end, int maxLines) {
+        long limit = Math.max(dataStart, end - MAX_CHUNK_BYTES);
+        int lines = 0;
+        long start = -1;
+        // the unit before end terminates the last line of the chunk
+        for (long position = end - 2L * width; position >= limit; position -= width) {
+            if (isTerminatorAt(position)) {
+                start = position + width;
+                if (++lines == maxLines) {
+                    break;
+                }
+            }
+        }
+        if (lines < maxLines && limit == dataStart) {
+            start = dataStart;
+        } else if (start < 0) {
+            start = boundaryAfter(limit);
+        }
+        return chunk(start, end);
+    }
+
+    private Chunk chunk(long start, long end) {
+        String text = decode(start, end);
+        int lines = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            lines++;
+        }
+        return new Chunk(start, end, text, lines);
+    }
+
+    /**
+     * @return the text between two offsets with the line separators turned into \n like {@link TextFileReader} does
+     */
+    public String decode(long from, long to) {
+        byte[] bytes = new byte[(int) (to - from)];
+        copy(from, bytes, bytes.length);
+        String text = new String(bytes, format.getCharset());
+        switch (format.getLineSeparator()) {
+            case CRLF:
+                return text.replace("\r\n", "\n");
+            case CR:
+                return text.replace('\r', '\n');
+            default:
+                return text;
+        }
+    }
+
+    /**
+     * @return the number of bytes text takes in the file, the inverse of {@link #decode(long, long)}
+     */
+    public long encodedLength(CharSequence text) {
+        long bytes = format.getCharset().encode(CharBuffer.wrap(text)).remaining();
+        if (format.getLineSeparator() == LineSeparator.CRLF) {
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    bytes += width;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * finds query in the bytes of the file without decoding them, only the candidates are decoded and compared
+     * like {@link EditorUtils#indexOf(CharSequence, String, int, boolean)} does.
+     * when case is ignored a byte matches the byte of the query in lower or in upper case at the same index,
+     * if the two don't have the same length in the charset the query is only found as it is
+     *
+     * @param from      the offset the search starts from, the match starts at or after it going forward, before it going backward
+     * @param forward   false to search toward the start of the file
+     * @param cancelled checked every megabyte
+     * @return the offset of the match, -1 if there is none or the search is cancelled
+     */
+    public long find(String query, boolean matchCase, long from, boolean forward, BooleanSupplier cancelled) {
+        if (query.isEmpty()) {
+            return -1;
+        }
+        byte[] exact = encode(query);
+        byte[] lower = matchCase ? exact : encode(query.toLowerCase());
+        byte[] upper = matchCase ? exact : encode(query.toUpperCase());
+        if (lower.length != exact.length || upper.length != exact.length) {
+            lower = exact;
+            upper = exact;
+        }
+        long last = alignDown(size - exact.length);
+        if (last < dataStart) {
+            return -1;
+        }
+        long step = forward ? width : -width;
+        long position = forward ? alignUp(Math.max(from, dataStart)) : Math.min(alignDown(from - 1), last);
+        for (; forward ? position <= last : position >= dataStart; position += step) {
+            if ((position & PROGRESS_MASK) < width && cancelled.getAsBoolean()) {
+                return -1;
+            }
+            if (matchesAt(position, exact, lower, upper)
+                    && EditorUtils.indexOf(decode(position, position + exact.length), query, 0, matchCase) == 0) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(long position, byte[] exact, byte[] lower, byte[] upper) {
+        for (int j = 0; j < exact.length; j++) {
+            byte b = byteAt(position + j);
+            if (b != exact[j] && b != lower[j] && b != upper[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] encode(String text) {
+        ByteBuffer bytes = format.getCharset().encode(text.replace("\n", format.getLineSeparator().getSeparator()));
+        return Arrays.copyOf(bytes.array(), bytes.limit());
+    }
+
+    private long alignDown(long offset) {
+        return offset < dataStart ? offset : offset - (offset - dataStart) % width;
+    }
+
+    private long alignUp(long offset) {
+        return alignDown(offset + width - 1);
+    }
+
+    /**
+     * @return the char boundary at or before offset, it moves back over the continuation bytes of utf-8
+     */
+    private long boundaryBefore(long offset) {
+        long position = alignDown(offset);
+        if (width == 1 && format.getCharset().name().equals("UTF-8")) {
+            for (int i = 0; i < 3 && position > dataStart && (byteAt(position) & 0xC0) == 0x80; i++) {
+                position--;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * @return the char boundary at or after offset
+     */
+    private long boundaryAfter(long offset) {
+        long position = alignUp(offset);
+        if (width == 1 && format.getCharset().name().equals("UTF-8")) {
+            for (int i = 0; i < 3 && position < size && (byteAt(position) & 0xC0) == 0x80; i++) {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public TextFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the offset of the first line, after the byte order mark
+     */
+    public long getDataStart() {
+        return dataStart;
+    }
+
+    /**
+     * @return the number of lines, -1 until the index is complete
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the part of the file the index went through, from 0 to 1
+     */
+    public double getIndexProgress() {
+        return size == 0 ? 1 : (double) indexedBytes / size;
+    }
+
+    /**
+     * decoded lines of the file and the bytes they come from
+     */
+    public static final class Chunk {
+        private final long start;
+        private final long end;
+        private final String text;
+        private final int lineCount;
+
+        Chunk(long start, long end, String text, int lineCount) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+            this.lineCount = lineCount;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return the number of \n in the text
+         */
+        public int getLineCount() {
+            return lineCount;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package lib.io;
+
+import lib.log.Logger;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * reads and decodes files on a bounded pool of worker threads
+ * so opening many files is limited by the disk and not by decoding them one by one on the javafx thread
+ */
+public class ParallelFileLoader {
+
+    private static final Logger LOG = Logger.get(ParallelFileLoader.class);
+
+    private final ExecutorService workers;
+
+    /**
+     * @param threads the maximum number of files read at the same time
+     */
+    public ParallelFileLoader(int threads) {
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "file-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the loader shared by the editor, it uses one thread per core up to 8
+     */
+    public static ParallelFileLoader getInstance() {
+        return LoaderInstance.INSTANCE;
+    }
+
+    /**
+     * reads path in the background
+     *
+     * @param reader reads and decodes the file, it runs on a worker thread
+     * @return the result of reader
+     */
+    public <T> CompletableFuture<T> read(Path path, Function<Path, T> reader) {
+        return CompletableFuture.supplyAsync(() -> reader.apply(path), workers);
+    }
+
+    /**
+     * reads all paths concurrently and hands them to consumer in the order of paths,
+     * each file is handed over as soon as it and all the files before it are read
+     * a file that fails to be read, or that consumer fails on, is skipped and reported, it doesn't block the files after it
+     *
+     * @param reader           reads and decodes one file, it runs on a worker thread
+     * @param consumer         receives each path with its result, it runs on consumerExecutor
+     * @param consumerExecutor the executor consumer runs on, Platform::runLater to attach the results to the ui
+     * @return a future that completes once every file is handed to consumer
+     */
+    public <T> CompletableFuture<Void> load(List<Path> paths, Function<Path, T> reader,
+                                            BiConsumer<Path, T> consumer, Executor consumerExecutor) {
+        List<CompletableFuture<T>> reads = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            reads.add(read(path, reader).exceptionally(error -> {
+                LOG.error(() -> "can't read " + path, error);
+                return null;
+            }));
+        }
+
+        CompletableFuture<Void> handedOver = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            handedOver = handedOver.thenCombineAsync(reads.get(i), (previous, result) -> {
+                if (result != null) {
+                    try {
+                        consumer.accept(path, result);
+                    } catch (RuntimeException e) {
+                        LOG.error(() -> "can't hand over " + path, e);
+                    }
+                }
+                return null;
+            }, consumerExecutor);
+        }
+        return handedOver;
+    }
+
+    private static final class LoaderInstance {
+        private static final ParallelFileLoader INSTANCE = new ParallelFileLoader(
+                Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())));
+    }
+}
@@ -0,0 +1,81 @@
+package lib.io;
+
+import java.util.Arrays;
+
+/**
+ * the decoded text of a file together with the format it was stored in
+ * the text only uses \n as line terminator, the line starts are kept as offsets in an int array
+ * instead of one string per line
+ */
+public class TextDocument {
+
+    private final String text;
+    private final TextFormat format;
+    private final int[] lineStarts;
+    private final int lineCount;
+    private final long byteLength;
+
+    /**
+     * creates a document and finds its line starts, text must only use \n as line terminator
+     */
+    public TextDocument(String text, TextFormat format) {
+        this.text = text;
+        this.format = format;
+        this.byteLength = -1;
+        int[] starts = new int[16];
+        int count = 1;
+        for (int i = text.indexOf('\n'); i != -1; i = text.indexOf('\n', i + 1)) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = i + 1;
+        }
+        this.lineStarts = starts;
+        this.lineCount = count;
+    }
+
+    /**
+     * @param lineStarts the offset of each line in text, lineStarts[0] is 0
+     * @param lineCount  the number of used entries in lineStarts
+     * @param byteLength the number of bytes read from the file
+     */
+    TextDocument(String text, TextFormat format, int[] lineStarts, int lineCount, long byteLength) {
+        this.text = text;
+        this.format = format;
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+        this.byteLength = byteLength;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public TextFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the number of bytes read from the file, -1 if the document doesn't come straight from a file
+     */
+    public long getByteLength() {
+        return byteLength;
+    }
+
+    /**
+     * @return the number of lines, a text ending with \n has an empty last line
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the offset in the text where line (starting from 0) starts
+     */
+    public int getLineStart(int line) {
+        if (line < 0 || line >= lineCount) {
+            throw new IndexOutOfBoundsException("line " + line + " of " + lineCount);
+        }
+        return lineStarts[line];
+    }
+}
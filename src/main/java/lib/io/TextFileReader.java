@@ -0,0 +1,180 @@
+package lib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * reads text files of any size in fixed size chunks
+ * the charset is sniffed from the first chunk, then the file is decoded chunk by chunk straight into the text,
+ * the whole file is never held as a byte array and malformed bytes are replaced instead of failing the read
+ * <p>
+ * \r\n and \r are turned into \n while decoding and the line starts are recorded on the way,
+ * the separator used the most in the file is kept in the format so saving writes it back
+ *
+ * @see CharsetSniffer
+ */
+public class TextFileReader {
+
+    private static final int CHUNK_SIZE = CharsetSniffer.SAMPLE_SIZE;
+
+    // decoders are not thread safe, each loader thread keeps one per charset and resets it between files
+    private static final ThreadLocal<Map<Charset, CharsetDecoder>> DECODERS = ThreadLocal.withInitial(HashMap::new);
+
+    private TextFileReader() {
+    }
+
+    /**
+     * @return the decoded text of the file and the format it's stored in
+     * @throws IOException if the file can't be read
+     */
+    public static TextDocument read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+            boolean endOfInput = fill(channel, bytes);
+            bytes.flip();
+
+            TextFormat format = CharsetSniffer.detect(bytes.array(), bytes.limit(), !endOfInput);
+            bytes.position(Math.min(bytes.limit(), CharsetSniffer.bomLength(format)));
+
+            CharsetDecoder decoder = decoder(format.getCharset());
+            CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+            Lines text = new Lines((int) Math.min(channel.size(), Integer.MAX_VALUE - 8));
+
+            while (true) {
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                if (result.isOverflow()) {
+                    drain(chars, text);
+                    continue;
+                }
+                if (endOfInput) {
+                    break;
+                }
+                bytes.compact();
+                endOfInput = fill(channel, bytes);
+                bytes.flip();
+            }
+            while (decoder.flush(chars).isOverflow()) {
+                drain(chars, text);
+            }
+            drain(chars, text);
+
+            return new TextDocument(text.toString(), format.withLineSeparator(text.lineSeparator()),
+                    text.lineStarts, text.lineCount, channel.position());
+        }
+    }
+
+    /**
+     * reads from channel until bytes is full or the file ends
+     *
+     * @return true if the end of the file is reached
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes) == -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void drain(CharBuffer chars, Lines text) {
+        chars.flip();
+        text.append(chars);
+        chars.clear();
+    }
+
+    /**
+     * collects the decoded chunks with their line terminators turned into \n and records where each line starts
+     * a \r at the end of a chunk is remembered so a \n at the start of the next one makes it a \r\n
+     */
+    private static final class Lines {
+        private final StringBuilder text;
+        private int[] lineStarts = new int[1024];
+        private int lineCount = 1;
+        private boolean pendingCr;
+        private long lf;
+        private long crlf;
+        private long cr;
+
+        Lines(int capacity) {
+            text = new StringBuilder(capacity);
+        }
+
+        void append(CharBuffer chars) {
+            char[] array = chars.array();
+            int start = chars.arrayOffset() + chars.position();
+            int end = chars.arrayOffset() + chars.limit();
+            // copy runs of ordinary characters at once, terminators one by one
+            int run = start;
+            for (int i = start; i < end; i++) {
+                char c = array[i];
+                if (c == '\n') {
+                    text.append(array, run, i - run);
+                    run = i + 1;
+                    if (pendingCr) {
+                        // the \n of a \r\n, the \r already ended the line
+                        pendingCr = false;
+                        cr--;
+                        crlf++;
+                    } else {
+                        lf++;
+                        newLine();
+                    }
+                } else if (c == '\r') {
+                    text.append(array, run, i - run);
+                    run = i + 1;
+                    pendingCr = true;
+                    cr++;
+                    newLine();
+                } else {
+                    pendingCr = false;
+                }
+            }
+            text.append(array, run, end - run);
+        }
+
+        private void newLine() {
+            text.append('\n');
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            }
+            lineStarts[lineCount++] = text.length();
+        }
+
+        LineSeparator lineSeparator() {
+            if (crlf >= lf && crlf >= cr && crlf > 0) {
+                return LineSeparator.CRLF;
+            }
+            if (cr > lf) {
+                return LineSeparator.CR;
+            }
+            return LineSeparator.LF;
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    /**
+     * @return a decoder for charset that replaces malformed input, reset and cached for the calling thread
+     */
+    static CharsetDecoder decoder(Charset charset) {
+        CharsetDecoder decoder = DECODERS.get().computeIfAbsent(charset, key -> key.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        return decoder.reset();
+    }
+}
@@ -0,0 +1,59 @@
+package lib.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * writes text back to disk in the format it was read with
+ *
+ * @see TextFileReader
+ */
+public class TextFileWriter {
+
+    private TextFileWriter() {
+    }
+
+    /**
+     * @param path   the file to write, it's created or truncated
+     * @param text   the text to write
+     * @param format the charset, byte order mark and line separator to write text with,
+     *               characters the charset can't encode are replaced instead of failing the save
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, String text, TextFormat format) throws IOException {
+        CharsetEncoder encoder = format.getCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), encoder))) {
+            if (format.hasBom()) {
+                writer.write('\uFEFF');
+            }
+            writeLines(writer, text, format.getLineSeparator());
+        }
+    }
+
+    /**
+     * writes text with each \n replaced by separator, the lines are written as ranges of text without copying them
+     */
+    private static void writeLines(Writer writer, String text, LineSeparator separator) throws IOException {
+        if (separator == LineSeparator.LF) {
+            writer.write(text);
+            return;
+        }
+        int start = 0;
+        for (int end = text.indexOf('\n'); end != -1; end = text.indexOf('\n', start)) {
+            writer.write(text, start, end - start);
+            writer.write(separator.getSeparator());
+            start = end + 1;
+        }
+        writer.write(text, start, text.length() - start);
+    }
+}
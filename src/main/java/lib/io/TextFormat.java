@@ -0,0 +1,46 @@
+package lib.io;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * how the text of a file is stored on disk, kept with each tab so saving writes the file back the way it was read
+ */
+public class TextFormat {
+
+    public static final TextFormat DEFAULT = new TextFormat(StandardCharsets.UTF_8, false, LineSeparator.LF);
+
+    private final Charset charset;
+    private final boolean bom;
+    private final LineSeparator lineSeparator;
+
+    /**
+     * @param charset       the charset of the file
+     * @param bom           true if the file starts with a byte order mark
+     * @param lineSeparator the line terminator of the file
+     */
+    public TextFormat(Charset charset, boolean bom, LineSeparator lineSeparator) {
+        this.charset = charset;
+        this.bom = bom;
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * @return a copy of this format with another line separator
+     */
+    public TextFormat withLineSeparator(LineSeparator lineSeparator) {
+        return new TextFormat(charset, bom, lineSeparator);
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public boolean hasBom() {
+        return bom;
+    }
+
+    public LineSeparator getLineSeparator() {
+        return lineSeparator;
+    }
+}
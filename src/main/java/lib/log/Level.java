@@ -0,0 +1,8 @@
+package lib.log;
+
+/**
+ * the levels of log messages, from the most verbose to the most severe
+ */
+public enum Level {
+    TRACE, DEBUG, INFO, WARN, ERROR, OFF
+}
@@ -0,0 +1,80 @@
+package lib.log;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * a level gated logger, the lowest logged level is set by running the app with -Dfedator.log=debug (info by default)
+ * <p>
+ * usage:
+ * private static final Logger LOG = Logger.get(TextSpace.class);
+ * LOG.debug(() -> "selected " + start + " to " + end);
+ * <p>
+ * the message is built by the supplier only if its level is enabled, so a disabled message costs a comparison.
+ * enabled messages go to the {@link RingBufferAppender}, the calling thread never waits for the output
+ */
+public final class Logger {
+
+    private static volatile Level threshold = parseLevel(System.getProperty("fedator.log"));
+
+    private final String name;
+
+    private Logger(String name) {
+        this.name = name;
+    }
+
+    public static Logger get(Class<?> type) {
+        return new Logger(type.getSimpleName());
+    }
+
+    /**
+     * @param level the lowest level that is logged from now on, {@link Level#OFF} to log nothing
+     */
+    public static void setThreshold(Level level) {
+        threshold = level;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0 && level != Level.OFF;
+    }
+
+    public void trace(Supplier<String> message) {
+        log(Level.TRACE, message, null);
+    }
+
+    public void debug(Supplier<String> message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public void info(Supplier<String> message) {
+        log(Level.INFO, message, null);
+    }
+
+    public void warn(Supplier<String> message) {
+        log(Level.WARN, message, null);
+    }
+
+    public void error(Supplier<String> message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    /**
+     * @param error printed with its stack trace after the message, can be null
+     */
+    public void log(Level level, Supplier<String> message, Throwable error) {
+        if (isEnabled(level)) {
+            RingBufferAppender.getInstance().append(level, name, message.get(), error);
+        }
+    }
+
+    private static Level parseLevel(String level) {
+        if (level == null) {
+            return Level.INFO;
+        }
+        try {
+            return Level.valueOf(level.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+}
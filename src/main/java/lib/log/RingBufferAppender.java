@@ -0,0 +1,154 @@
+package lib.log;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * writes log messages to a stream on its own thread
+ * <p>
+ * the messages are put in a fixed ring of preallocated entries, any number of threads can append without a lock
+ * and one thread writes them out. when the ring is full a message is dropped and counted instead of blocking the caller,
+ * the javafx thread never waits for stdout
+ */
+public class RingBufferAppender {
+
+    private static final int CAPACITY = 4096;
+    private static final long IDLE_NANOS = 10_000_000;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    private final Entry[] entries;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final PrintStream out;
+    // only read and written by the thread that drains, under the lock of drain
+    private long head;
+
+    /**
+     * @param capacity a power of two, the number of messages that can wait to be written
+     * @param out      where the messages are written
+     */
+    RingBufferAppender(int capacity, PrintStream out) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.out = out;
+        entries = new Entry[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry(i);
+        }
+    }
+
+    public static RingBufferAppender getInstance() {
+        return RingBufferAppenderInstance.INSTANCE;
+    }
+
+    /**
+     * @return false if the ring is full and the message is dropped
+     */
+    public boolean append(Level level, String logger, String message, Throwable error) {
+        while (true) {
+            long position = tail.get();
+            Entry entry = entries[(int) (position & mask)];
+            long difference = entry.sequence - position;
+            if (difference < 0) {
+                dropped.increment();
+                return false;
+            }
+            if (difference == 0 && tail.compareAndSet(position, position + 1)) {
+                entry.time = System.currentTimeMillis();
+                entry.level = level;
+                entry.logger = logger;
+                entry.message = message;
+                entry.error = error;
+                // publishes the fields to the draining thread
+                entry.sequence = position + 1;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * writes the messages appended so far
+     *
+     * @return the number of written messages
+     */
+    public synchronized int drain() {
+        int written = 0;
+        while (true) {
+            Entry entry = entries[(int) (head & mask)];
+            if (entry.sequence != head + 1) {
+                break;
+            }
+            write(entry);
+            entry.message = null;
+            entry.error = null;
+            // frees the entry for the next lap of the ring
+            entry.sequence = head + entries.length;
+            head++;
+            written++;
+        }
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            out.println(lost + " log messages were dropped, the log buffer was full");
+        }
+        if (written > 0) {
+            out.flush();
+        }
+        return written;
+    }
+
+    private void write(Entry entry) {
+        LocalTime time = Instant.ofEpochMilli(entry.time).atZone(ZoneId.systemDefault()).toLocalTime();
+        out.println(TIME_FORMAT.format(time) + " " + entry.level + " " + entry.logger + " - " + entry.message);
+        if (entry.error != null) {
+            entry.error.printStackTrace(out);
+        }
+    }
+
+    /**
+     * starts the daemon thread that drains the ring, and drains it one last time when the jvm exits
+     */
+    private void start() {
+        Thread thread = new Thread(() -> {
+            while (true) {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+            }
+        }, "log-appender");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "log-appender-flush"));
+    }
+
+    private static final class Entry {
+        private volatile long sequence;
+        private long time;
+        private Level level;
+        private String logger;
+        private String message;
+        private Throwable error;
+
+        private Entry(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class RingBufferAppenderInstance {
+        private static final RingBufferAppender INSTANCE = create();
+
+        private static RingBufferAppender create() {
+            RingBufferAppender appender = new RingBufferAppender(CAPACITY, System.out);
+            appender.start();
+            return appender;
+        }
+    }
+}
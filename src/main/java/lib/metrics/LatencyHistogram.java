@@ -0,0 +1,97 @@
+package lib.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a histogram of non negative longs (nanoseconds, bytes) with a fixed relative precision, in the style of HdrHistogram
+ * <p>
+ * values below 128 have their own bucket, above that every power of two is split in 64 linear sub buckets,
+ * so a recorded value is off by less than 1/64 of itself whatever its magnitude.
+ * the counts live in one preallocated array, recording is lock free and allocates nothing
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+    private static final int LENGTH = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LENGTH);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value the recorded value, negative values are recorded as 0
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the largest value that is in the same bucket as the value at percentile, 0 if nothing is recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < LENGTH; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        // the sub bucket is in [SUB_BUCKET_HALF, SUB_BUCKET_COUNT)
+        int subBucket = (int) (value >>> exponent);
+        return exponent * SUB_BUCKET_HALF + subBucket;
+    }
+
+    static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index - exponent * SUB_BUCKET_HALF;
+        return ((subBucket + 1) << exponent) - 1;
+    }
+}
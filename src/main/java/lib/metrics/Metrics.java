@@ -0,0 +1,162 @@
+package lib.metrics;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import lib.log.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * measures the hot paths of the editor, enabled by running the app with -Dfedator.metrics=true
+ * <p>
+ * usage:
+ * Metrics.Sample sample = Metrics.start(Operation.FIND);
+ * // find
+ * Metrics.stop(sample);
+ * <p>
+ * when metrics are disabled ENABLED is a false constant, start returns null without reading the clock
+ * and the jit drops the measuring code, so nothing is measured, allocated or synchronised
+ */
+public final class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("fedator.metrics");
+
+    private static final Map<Operation, OperationMetrics> OPERATIONS = new EnumMap<>(Operation.class);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final Logger LOG = Logger.get(Metrics.class);
+
+    private static Sample pulseSample;
+    private static AnimationTimer pulseTimer;
+
+    static {
+        for (Operation operation : Operation.values()) {
+            OPERATIONS.put(operation, new OperationMetrics());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the start of a measure of operation on the current thread, null if metrics are disabled
+     */
+    public static Sample start(Operation operation) {
+        if (!ENABLED) {
+            return null;
+        }
+        return new Sample(operation, System.nanoTime(), allocatedBytes());
+    }
+
+    /**
+     * records the time and the allocations since sample was started, does nothing if sample is null
+     * must be called on the thread that started sample
+     */
+    public static void stop(Sample sample) {
+        if (sample == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - sample.nanos;
+        long allocated = sample.allocatedBytes < 0 ? -1 : allocatedBytes() - sample.allocatedBytes;
+        OPERATIONS.get(sample.operation).record(nanos, allocated);
+    }
+
+    /**
+     * stops sample after the next pulse, does nothing if sample is null
+     * an animation timer runs at the start of the pulse, before css, layout and rendering, so it posts the stop
+     * with Platform.runLater, which runs once the pulse is over
+     * if a sample is already waiting for the pulse, sample is dropped so a burst of changes is measured from the first one
+     * must be called on the javafx thread
+     */
+    public static void stopOnNextPulse(Sample sample) {
+        if (sample == null || pulseSample != null) {
+            return;
+        }
+        if (pulseTimer == null) {
+            pulseTimer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    stop();
+                    Platform.runLater(() -> {
+                        Sample waiting = pulseSample;
+                        pulseSample = null;
+                        Metrics.stop(waiting);
+                    });
+                }
+            };
+        }
+        pulseSample = sample;
+        pulseTimer.start();
+    }
+
+    public static OperationMetrics get(Operation operation) {
+        return OPERATIONS.get(operation);
+    }
+
+    /**
+     * registers an OperationMetricsMXBean for every operation, does nothing if metrics are disabled
+     */
+    public static void registerMBeans() {
+        if (!ENABLED) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Operation operation : Operation.values()) {
+            try {
+                server.registerMBean(OPERATIONS.get(operation), new ObjectName("fedator:type=Metrics,name=" + operation));
+            } catch (JMException e) {
+                LOG.warn(() -> "can't register the metrics of " + operation + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * @return a line per operation with its count, latency percentiles in milliseconds and mean allocation
+     */
+    public static String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.ROOT, "%-9s %7s %8s %8s %8s %8s %10s%n",
+                "", "count", "p50 ms", "p99 ms", "p999 ms", "max ms", "alloc KB"));
+        for (Operation operation : Operation.values()) {
+            OperationMetrics metrics = OPERATIONS.get(operation);
+            summary.append(String.format(Locale.ROOT, "%-9s %7d %8.2f %8.2f %8.2f %8.2f %10.1f%n",
+                    operation, metrics.getCount(), metrics.getP50Millis(), metrics.getP99Millis(),
+                    metrics.getP999Millis(), metrics.getMaxMillis(), metrics.getMeanAllocatedBytes() / 1024));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * @return the bytes allocated by the current thread since it started, -1 if the jvm can't tell
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled()) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * the start of a measure
+     *
+     * @see Metrics#start(Operation)
+     */
+    public static final class Sample {
+        private final Operation operation;
+        private final long nanos;
+        private final long allocatedBytes;
+
+        private Sample(Operation operation, long nanos, long allocatedBytes) {
+            this.operation = operation;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
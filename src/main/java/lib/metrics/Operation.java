@@ -0,0 +1,16 @@
+package lib.metrics;
+
+/**
+ * the hot paths of the editor that are measured
+ */
+public enum Operation {
+    /**
+     * from a change of the text to the end of the next pulse, the one that lays it out and renders it
+     */
+    KEYSTROKE,
+    FIND,
+    SAVE,
+    OPEN,
+    UNDO,
+    REDO
+}
@@ -0,0 +1,80 @@
+package lib.metrics;
+
+/**
+ * the count, latency and allocation histograms of one {@link Operation}
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram allocation = new LatencyHistogram();
+    private volatile boolean allocationSupported = true;
+
+    /**
+     * @param nanos          the duration of the operation
+     * @param allocatedBytes the bytes the thread allocated during the operation, -1 if unknown
+     */
+    void record(long nanos, long allocatedBytes) {
+        latency.record(nanos);
+        if (allocatedBytes < 0) {
+            allocationSupported = false;
+        } else {
+            allocation.record(allocatedBytes);
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public LatencyHistogram getAllocation() {
+        return allocation;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latency.getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMeanAllocatedBytes() {
+        return allocationSupported ? allocation.getMean() : -1;
+    }
+
+    @Override
+    public long getMaxAllocatedBytes() {
+        return allocationSupported ? allocation.getMax() : -1;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        allocation.reset();
+    }
+}
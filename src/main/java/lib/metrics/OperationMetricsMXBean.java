@@ -0,0 +1,28 @@
+package lib.metrics;
+
+/**
+ * the metrics of one {@link Operation} as seen in jconsole or visualvm, under fedator:type=Metrics
+ */
+public interface OperationMetricsMXBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    /**
+     * @return the mean number of bytes the measuring thread allocated during one operation, -1 if the jvm can't tell
+     */
+    double getMeanAllocatedBytes();
+
+    long getMaxAllocatedBytes();
+
+    void reset();
+}
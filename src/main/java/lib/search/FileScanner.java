@@ -0,0 +1,307 @@
+package lib.search;
+
+import lib.EditorUtils;
+import lib.io.CharsetSniffer;
+import lib.io.TextDocument;
+import lib.io.TextFileReader;
+import lib.io.TextFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * finds a query in one file for {@link FolderSearch}
+ * <p>
+ * utf-8 and latin-1 files are searched as bytes: the file is memory mapped in regions of {@value #REGION_SIZE} bytes
+ * and scanned once, counting lines as it goes, nothing is decoded except the preview of a hit.
+ * ignoring case folds ascii letters, which is exact for a query without other letters. utf-16/32 files,
+ * and non ascii queries that ignore case, are decoded with TextFileReader and searched with EditorUtils
+ * like the find toolbar does
+ */
+class FileScanner {
+
+    static final int PREVIEW_BYTES = 160;
+    private static final int PREVIEW_BEFORE = 40;
+    private static final long REGION_SIZE = 1L << 28;
+    private static final int CANCEL_CHECK_MASK = (1 << 20) - 1;
+
+    private final String query;
+    private final boolean matchCase;
+    private final long regionSize;
+    private final boolean asciiQuery;
+    private final byte[] utf8Query;
+    // null if latin-1 can't encode the query
+    private final byte[] latin1Query;
+
+    FileScanner(String query, boolean matchCase) {
+        this(query, matchCase, REGION_SIZE);
+    }
+
+    /**
+     * @param regionSize the bytes mapped at once, small in the tests to cross the end of a region
+     */
+    FileScanner(String query, boolean matchCase, long regionSize) {
+        if (query == null || query.isEmpty()) {
+            throw new IllegalArgumentException("the query is empty");
+        }
+        this.query = query;
+        this.matchCase = matchCase;
+        this.regionSize = regionSize;
+        boolean ascii = true;
+        boolean latin1 = true;
+        for (int i = 0; i < query.length(); i++) {
+            ascii &= query.charAt(i) < 0x80;
+            latin1 &= query.charAt(i) < 0x100;
+        }
+        asciiQuery = ascii;
+        String folded = matchCase ? query : foldAscii(query);
+        utf8Query = folded.getBytes(StandardCharsets.UTF_8);
+        latin1Query = latin1 ? folded.getBytes(StandardCharsets.ISO_8859_1) : null;
+    }
+
+    /**
+     * @param hits      receives the hits in the order of the file, returns false to stop the scan
+     * @param cancelled checked every megabyte, the scan stops when it's true
+     * @return the number of hits, -1 if the file looks binary and wasn't searched
+     */
+    int scan(Path path, Predicate<SearchHit> hits, BooleanSupplier cancelled) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(CharsetSniffer.SAMPLE_SIZE, size));
+            readFully(channel, sample, 0);
+            if (CharsetSniffer.isBinary(sample.array(), sample.position())) {
+                return -1;
+            }
+            TextFormat format = CharsetSniffer.detect(sample.array(), sample.position(), size > sample.position());
+            byte[] bytes = bytesQuery(format.getCharset());
+            if (bytes == null) {
+                return scanDecoded(path, hits, cancelled);
+            }
+            return new ByteScan(path, channel, size, format.getCharset(), bytes)
+                    .run(CharsetSniffer.bomLength(format), hits, cancelled);
+        }
+    }
+
+    /**
+     * @return the query encoded like the file, null if the file has to be decoded to be searched
+     */
+    private byte[] bytesQuery(Charset charset) {
+        if (!matchCase && !asciiQuery) {
+            return null;
+        }
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            return utf8Query;
+        }
+        if (charset.equals(StandardCharsets.ISO_8859_1)) {
+            return latin1Query;
+        }
+        return null;
+    }
+
+    private int scanDecoded(Path path, Predicate<SearchHit> hits, BooleanSupplier cancelled) throws IOException {
+        TextDocument document = TextFileReader.read(path);
+        String text = document.getText();
+        int count = 0;
+        int line = 0;
+        for (int i = EditorUtils.indexOf(text, query, 0, matchCase); i != -1 && !cancelled.getAsBoolean();
+             i = EditorUtils.indexOf(text, query, i + query.length(), matchCase)) {
+            while (line + 1 < document.getLineCount() && document.getLineStart(line + 1) <= i) {
+                line++;
+            }
+            int lineStart = document.getLineStart(line);
+            int lineEnd = line + 1 < document.getLineCount() ? document.getLineStart(line + 1) - 1 : text.length();
+            String preview = text.substring(Math.max(lineStart, i - PREVIEW_BEFORE), Math.min(lineEnd, i + PREVIEW_BYTES - PREVIEW_BEFORE));
+            count++;
+            if (!hits.test(new SearchHit(path, line + 1, i - lineStart + 1, preview.trim()))) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private static String foldAscii(String text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            folded.append(c >= 'A' && c <= 'Z' ? (char) (c + 32) : c);
+        }
+        return folded.toString();
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position() - start);
+            if (read == -1) {
+                break;
+            }
+        }
+        return buffer.position() - start;
+    }
+
+    /**
+     * one pass over the mapped regions of a file
+     */
+    private final class ByteScan {
+        private final Path path;
+        private final FileChannel channel;
+        private final long size;
+        private final Charset charset;
+        private final boolean utf8;
+        private final byte[] query;
+
+        private MappedByteBuffer region;
+        private long base;
+        private int length;
+
+        private int line;
+        private long lineStart;
+        // the chars between the line start and columnFrom, so several hits on a long line don't count from the start every time
+        private long columnFrom;
+        private int columnChars;
+
+        private ByteScan(Path path, FileChannel channel, long size, Charset charset, byte[] query) {
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+            this.charset = charset;
+            this.utf8 = charset.equals(StandardCharsets.UTF_8);
+            this.query = query;
+        }
+
+        private int run(long start, Predicate<SearchHit> hits, BooleanSupplier cancelled) throws IOException {
+            int count = 0;
+            byte first = query[0];
+            long nextMatch = start;
+            lineStart = start;
+            columnFrom = start;
+            for (base = start; base < size; base += regionSize) {
+                length = (int) Math.min(regionSize, size - base);
+                region = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+                for (int i = 0; i < length; i++) {
+                    if ((i & CANCEL_CHECK_MASK) == 0 && cancelled.getAsBoolean()) {
+                        return count;
+                    }
+                    byte b = region.get(i);
+                    long position = base + i;
+                    if (position >= nextMatch && fold(b) == first && matchesAt(position)) {
+                        count++;
+                        if (!hits.test(hit(position))) {
+                            return count;
+                        }
+                        nextMatch = position + query.length;
+                    }
+                    // \n, \r\n and a \r alone end a line, the \r of \r\n is counted with its \n
+                    if (b == '\n' || b == '\r' && (position + 1 == size || byteAt(position + 1) != '\n')) {
+                        line++;
+                        lineStart = position + 1;
+                        columnFrom = lineStart;
+                        columnChars = 0;
+                    }
+                }
+            }
+            return count;
+        }
+
+        private byte fold(byte b) {
+            return !matchCase && b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+        }
+
+        private boolean matchesAt(long position) throws IOException {
+            if (position + query.length > size) {
+                return false;
+            }
+            for (int j = 1; j < query.length; j++) {
+                if (fold(byteAt(position + j)) != query[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the byte at position, read from the file when it's outside the mapped region
+         */
+        private byte byteAt(long position) throws IOException {
+            if (position >= base && position < base + length) {
+                return region.get((int) (position - base));
+            }
+            ByteBuffer one = ByteBuffer.allocate(1);
+            readFully(channel, one, position);
+            return one.get(0);
+        }
+
+        private SearchHit hit(long position) throws IOException {
+            columnChars += charCount(columnFrom, position);
+            columnFrom = position;
+            return new SearchHit(path, line + 1, columnChars + 1, preview(position));
+        }
+
+        /**
+         * @return the number of chars encoded by the bytes from start to end, a 4 byte utf-8 sequence is 2 chars
+         */
+        private int charCount(long start, long end) throws IOException {
+            if (!utf8) {
+                return (int) (end - start);
+            }
+            int chars = 0;
+            long position = start;
+            // the part of a long line that is before the mapped region is read in chunks
+            ByteBuffer chunk = position < base ? ByteBuffer.allocate(CharsetSniffer.SAMPLE_SIZE) : null;
+            while (position < end && position < base) {
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), Math.min(end, base) - position));
+                int read = readFully(channel, chunk, position);
+                for (int i = 0; i < read; i++) {
+                    chars += utf8Chars(chunk.get(i));
+                }
+                position += read;
+            }
+            for (; position < end; position++) {
+                chars += utf8Chars(region.get((int) (position - base)));
+            }
+            return chars;
+        }
+
+        private int utf8Chars(byte b) {
+            int unsigned = b & 0xFF;
+            if (unsigned >= 0x80 && unsigned < 0xC0) {
+                return 0;
+            }
+            return unsigned >= 0xF0 ? 2 : 1;
+        }
+
+        /**
+         * @return the text of the line around position, at most {@value #PREVIEW_BYTES} bytes of it
+         */
+        private String preview(long position) throws IOException {
+            long start = Math.max(lineStart, position - PREVIEW_BEFORE);
+            ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(PREVIEW_BYTES, size - start));
+            int read = readFully(channel, bytes, start);
+            int from = 0;
+            if (utf8) {
+                while (from < read && (bytes.get(from) & 0xC0) == 0x80) {
+                    from++;
+                }
+            }
+            int to = (int) (position - start);
+            while (to < read && bytes.get(to) != '\n' && bytes.get(to) != '\r') {
+                to++;
+            }
+            String preview = new String(bytes.array(), from, Math.max(0, to - from), charset);
+            if (to == read && preview.endsWith("\uFFFD")) {
+                // the last character was cut by the end of the preview
+                preview = preview.substring(0, preview.length() - 1);
+            }
+            return preview.trim();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package lib.search;
+
+import lib.log.Logger;
+
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * searches every text file under a folder, the files are scanned in parallel by {@link FileScanner}
+ * <p>
+ * one thread walks the folder and hands the files to a pool with a thread per core, it waits when a few files are queued
+ * so a huge tree never piles up in memory. the hits are handed over as they are found, on the thread that found them,
+ * the hits of a file come in order but files finish in any order.
+ * binary files and the folders of version control systems are skipped, so are the files and folders that can't be read.
+ * with a ready {@link TrigramIndex} of the folder, only the files it returns for the query are scanned
+ * <p>
+ * usage:
+ * FolderSearch search = new FolderSearch(folder, "needle", false, 10000, hit -> ...);
+ * search.start(() -> ...); // done
+ * search.cancel();
+ */
+public class FolderSearch {
+    private static final Logger LOG = Logger.get(FolderSearch.class);
+
+    static final Set<String> SKIPPED_FOLDERS = new HashSet<>(Arrays.asList(".git", ".hg", ".svn"));
+
+    private final Path root;
+    private final String query;
+    private final FileScanner scanner;
+    private final int maxHits;
+    private final Consumer<SearchHit> hits;
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final AtomicInteger hitCount = new AtomicInteger();
+    private final AtomicInteger fileCount = new AtomicInteger();
+    private final AtomicLong byteCount = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile boolean limitReached;
+    private volatile ThreadPoolExecutor workers;
+    private TrigramIndex index;
+    private boolean indexed;
+
+    /**
+     * @param query     the text to find, not empty
+     * @param matchCase true to find query with the same case only
+     * @param maxHits   the search stops after this many hits
+     * @param hits      receives the hits, it's called from several threads at the same time
+     */
+    public FolderSearch(Path root, String query, boolean matchCase, int maxHits, Consumer<SearchHit> hits) {
+        this.root = root;
+        this.query = query;
+        this.scanner = new FileScanner(query, matchCase);
+        this.maxHits = maxHits;
+        this.hits = hits;
+    }
+
+    /**
+     * @param index an index of root or of a folder above it, used if it's ready when the search starts
+     */
+    public void setIndex(TrigramIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * runs the search on a background thread
+     *
+     * @param done called on that thread when every file is searched, the search is cancelled or the hit limit is reached
+     */
+    public void start(Runnable done) {
+        Thread walker = new Thread(() -> {
+            run();
+            done.run();
+        }, "folder-search-walk");
+        walker.setDaemon(true);
+        walker.start();
+    }
+
+    /**
+     * runs the search on the calling thread, returns when it's over
+     */
+    public void run() {
+        workers = pool("folder-search");
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        List<Path> candidates = index != null && absoluteRoot.startsWith(index.getRoot()) ? index.candidates(query) : null;
+        if (candidates != null) {
+            indexed = true;
+            for (Path candidate : candidates) {
+                if (stopped.get()) {
+                    break;
+                }
+                if (candidate.startsWith(absoluteRoot)) {
+                    workers.execute(() -> scan(candidate));
+                }
+            }
+            awaitWorkers();
+            return;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (stopped.get()) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    Path name = dir.getFileName();
+                    return !dir.equals(root) && name != null && SKIPPED_FOLDERS.contains(name.toString())
+                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (stopped.get()) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (attrs.isRegularFile() && attrs.size() > 0) {
+                        workers.execute(() -> scan(file));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    LOG.debug(() -> "can't read " + file + ": " + e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn(() -> "can't search " + root + ": " + e);
+        } finally {
+            awaitWorkers();
+        }
+    }
+
+    private void awaitWorkers() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return a pool with a thread per core that runs the tasks on the caller when a few of them are queued
+     */
+    static ThreadPoolExecutor pool(String name) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void scan(Path file) {
+        if (stopped.get()) {
+            return;
+        }
+        try {
+            int found = scanner.scan(file, this::accept, stopped::get);
+            if (found >= 0) {
+                fileCount.incrementAndGet();
+                byteCount.addAndGet(Files.size(file));
+            }
+        } catch (ClosedByInterruptException e) {
+            // cancelled while reading
+        } catch (IOException e) {
+            LOG.debug(() -> "can't search " + file + ": " + e);
+        }
+    }
+
+    private boolean accept(SearchHit hit) {
+        if (hitCount.incrementAndGet() > maxHits) {
+            hitCount.decrementAndGet();
+            limitReached = true;
+            stopped.set(true);
+            return false;
+        }
+        hits.accept(hit);
+        return true;
+    }
+
+    /**
+     * stops the search, the files being scanned stop within a megabyte
+     */
+    public void cancel() {
+        cancelled = true;
+        stopped.set(true);
+        ThreadPoolExecutor running = workers;
+        if (running != null) {
+            running.shutdownNow();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if the search stopped because it found maxHits hits
+     */
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    /**
+     * @return true if the files to scan came from the index instead of a walk of the folder
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of text files searched so far
+     */
+    public int getFileCount() {
+        return fileCount.get();
+    }
+
+    /**
+     * @return the size of the text files searched so far
+     */
+    public long getByteCount() {
+        return byteCount.get();
+    }
+}
@@ -0,0 +1,78 @@
+package lib.search;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * an ascending list of file ids stored as varint deltas, the posting list of a trigram in {@link TrigramIndex}
+ * <p>
+ * most gaps between the files of a trigram fit in one byte, so a list takes about a byte per file
+ */
+final class Postings {
+
+    private byte[] bytes = new byte[8];
+    private int length;
+    private int last = -1;
+    private int count;
+
+    /**
+     * @param id greater than every id added before
+     */
+    void add(int id) {
+        if (length + 5 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        length = writeVarint(bytes, length, id - last - 1);
+        last = id;
+        count++;
+    }
+
+    int size() {
+        return count;
+    }
+
+    int[] toArray() {
+        return decode(ByteBuffer.wrap(bytes, 0, length), 0, length, count);
+    }
+
+    /**
+     * @return the next free index of bytes after writing value, bytes needs 5 free bytes
+     */
+    static int writeVarint(byte[] bytes, int index, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[index++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[index++] = (byte) value;
+        return index;
+    }
+
+    /**
+     * @param from  the index of the first byte of the list in buffer
+     * @param to    the index after its last byte
+     * @param count a hint for the number of ids, the array grows if there are more
+     * @return the ids of the list
+     */
+    static int[] decode(ByteBuffer buffer, int from, int to, int count) {
+        int[] ids = new int[Math.max(count, 4)];
+        int size = 0;
+        int id = -1;
+        int index = from;
+        while (index < to) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(index++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += value + 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+}
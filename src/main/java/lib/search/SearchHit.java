@@ -0,0 +1,50 @@
+package lib.search;
+
+import java.nio.file.Path;
+
+/**
+ * a match found by {@link FolderSearch}
+ */
+public class SearchHit {
+
+    private final Path path;
+    private final int line;
+    private final int column;
+    private final String preview;
+
+    /**
+     * @param line    the line of the match, starting from 1
+     * @param column  the column of the match in chars, starting from 1
+     * @param preview the text of the line around the match
+     */
+    public SearchHit(Path path, int line, int column, String preview) {
+        this.path = path;
+        this.line = line;
+        this.column = column;
+        this.preview = preview;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+    /**
+     * @return path:line:column: preview, like grep and compilers print them
+     */
+    @Override
+    public String toString() {
+        return path + ":" + line + ":" + column + ": " + preview;
+    }
+}
@@ -0,0 +1,648 @@
+package lib.search;
+
+import lib.io.CharsetSniffer;
+import lib.io.FileWatcher;
+import lib.io.TextFileReader;
+import lib.log.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * a trigram index of the text files under a folder, kept in a file so it's reused by the next start
+ * <p>
+ * for a query it returns the files that have every trigram of it, the candidates, so {@link FolderSearch}
+ * scans those instead of every file. the candidates are a superset of the files that match:
+ * the files too large to index are always candidates, binary files never are.
+ * <p>
+ * updates are incremental: a file is read again only when its size or modification time changed,
+ * at start for the changes made while the editor was closed, and when the FileWatcher reports them after that.
+ * the new postings stay in memory next to the mapped index file until it's written again
+ * <p>
+ * format: magic, version, root, file count, trigram count, the sorted trigram keys, the offsets of their posting lists,
+ * the posting lists as varint deltas of ascending file ids, then for each file: path relative to root, size,
+ * modification time and kind. the file is memory mapped, so a posting list is decoded only when a query needs it
+ * <p>
+ * usage:
+ * TrigramIndex index = TrigramIndex.open(folder);
+ * index.start(); // builds or updates in the background, then follows the changes
+ * List&lt;Path&gt; candidates = index.candidates("needle"); // null while it's not ready
+ * index.close();
+ */
+public class TrigramIndex {
+    private static final Logger LOG = Logger.get(TrigramIndex.class);
+
+    /**
+     * false when the app runs with -Dfedator.index=false, find in folder scans every file then
+     */
+    public static final boolean ENABLED = !"false".equals(System.getProperty("fedator.index"));
+    public static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".fedator", "index");
+
+    private static final int MAGIC = 0x46454449; // FEDI
+    private static final int VERSION = 1;
+    // larger files are not read, they are candidates of every query
+    static final long MAX_INDEXED_SIZE = 4 << 20;
+    private static final long UPDATE_DELAY_MILLIS = 300;
+    private static final long SAVE_DELAY_SECONDS = 10;
+
+    private static final byte TEXT = 0;
+    private static final byte BINARY = 1;
+    private static final byte UNINDEXED = 2;
+
+    private final Path root;
+    private final Path file;
+    // skipped when it's under root, writing the index must not change it
+    private final Path indexDirectory;
+
+    // every file id ever given since the index file was read, the removed ones are skipped
+    private final List<FileEntry> files = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    // the postings of the files indexed since the index file was read
+    private final Map<Integer, Postings> added = new HashMap<>();
+    private ByteBuffer base;
+    private int baseKeyCount;
+    private int baseKeysStart;
+    private int baseOffsetsStart;
+    private int basePostingsStart;
+    private boolean changed;
+
+    private volatile boolean ready;
+    private volatile boolean watching;
+    private volatile boolean closed;
+    private ScheduledExecutorService worker;
+    private ScheduledFuture<?> pendingSave;
+    private final Set<Path> watched = new HashSet<>();
+    private final List<FileWatcher.Registration> registrations = Collections.synchronizedList(new ArrayList<>());
+    private final Set<Path> dirty = ConcurrentHashMap.newKeySet();
+    // taken from dirty by the worker and not read yet
+    private final Set<Path> syncing = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+
+    private TrigramIndex(Path root, Path file) {
+        this.root = root;
+        this.file = file;
+        this.indexDirectory = file.toAbsolutePath().getParent();
+    }
+
+    /**
+     * opens the index of root in {@link #DEFAULT_DIRECTORY}
+     */
+    public static TrigramIndex open(Path root) {
+        Path absolute = root.toAbsolutePath().normalize();
+        return open(absolute, DEFAULT_DIRECTORY.resolve(Integer.toHexString(absolute.toString().hashCode()) + ".idx"));
+    }
+
+    /**
+     * reads the index of root from file, the index is empty if file doesn't exist or is not an index of root.
+     * it's not ready until {@link #update()} runs once
+     */
+    public static TrigramIndex open(Path root, Path file) {
+        TrigramIndex index = new TrigramIndex(root.toAbsolutePath().normalize(), file);
+        index.load();
+        return index;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return true once the files are indexed, the candidates are null before that
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized int getFileCount() {
+        return ids.size();
+    }
+
+    /**
+     * updates the index in the background, then follows the changes of the files until {@link #close()}
+     */
+    public synchronized void start() {
+        if (worker != null || closed) {
+            return;
+        }
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trigram-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watching = true;
+        worker.execute(this::update);
+    }
+
+    /**
+     * reads the files added or changed since the last update, forgets the deleted ones and writes the index file
+     */
+    public void update() {
+        long start = System.nanoTime();
+        sync(root);
+        save();
+        ready = !closed;
+        LOG.debug(() -> "indexed " + root + ": " + getFileCount() + " files in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    /**
+     * stops following the changes, the index file is written in the background
+     */
+    public synchronized void close() {
+        closed = true;
+        ready = false;
+        synchronized (registrations) {
+            registrations.forEach(FileWatcher.Registration::cancel);
+            registrations.clear();
+        }
+        if (worker != null) {
+            worker.execute(this::save);
+            worker.shutdown();
+        } else {
+            save();
+        }
+    }
+
+    /**
+     * @return the files that may contain query, null if the index is not ready or query is too short to narrow them
+     * the files changed since the worker last read them are candidates whatever their postings say
+     */
+    public synchronized List<Path> candidates(String query) {
+        if (!ready) {
+            return null;
+        }
+        int[] keys = Trigrams.ofQuery(query);
+        if (keys.length == 0) {
+            return null;
+        }
+        int[][] lists = new int[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            lists[i] = postings(keys[i]);
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+        int[] matching = lists[0];
+        for (int i = 1; i < lists.length && matching.length > 0; i++) {
+            matching = intersect(matching, lists[i]);
+        }
+        Set<Path> candidates = new LinkedHashSet<>();
+        for (int id : matching) {
+            candidates.add(root.resolve(files.get(id).path));
+        }
+        for (FileEntry entry : files) {
+            if (!entry.removed && entry.kind == UNINDEXED) {
+                candidates.add(root.resolve(entry.path));
+            }
+        }
+        addChanged(dirty, candidates);
+        addChanged(syncing, candidates);
+        return new ArrayList<>(candidates);
+    }
+
+    /**
+     * adds the files of changed, and the files under its folders, to candidates
+     */
+    private void addChanged(Set<Path> changed, Set<Path> candidates) {
+        for (Path path : changed) {
+            if (Files.isRegularFile(path)) {
+                candidates.add(path);
+            } else if (Files.isDirectory(path)) {
+                try {
+                    Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            Path name = dir.getFileName();
+                            return dir.equals(indexDirectory) || name != null && FolderSearch.SKIPPED_FOLDERS.contains(name.toString())
+                                    ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (attrs.isRegularFile()) {
+                                candidates.add(file);
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException e) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                } catch (IOException e) {
+                    LOG.warn(() -> "can't list " + path + ": " + e);
+                }
+            }
+        }
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] both = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                both[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, count);
+    }
+
+    /**
+     * @return the ids of the files that aren't removed and have the trigram key, ascending
+     */
+    private int[] postings(int key) {
+        int[] ids = new int[0];
+        int index = baseIndexOf(key);
+        if (index >= 0) {
+            int from = basePostingsStart + base.getInt(baseOffsetsStart + index * 4);
+            int to = basePostingsStart + base.getInt(baseOffsetsStart + index * 4 + 4);
+            ids = Postings.decode(base, from, to, to - from);
+        }
+        Postings more = added.get(key);
+        if (more != null) {
+            // the added files have greater ids than the files of the index file, the list stays sorted
+            int[] addedIds = more.toArray();
+            int length = ids.length;
+            ids = Arrays.copyOf(ids, length + addedIds.length);
+            System.arraycopy(addedIds, 0, ids, length, addedIds.length);
+        }
+        int live = 0;
+        for (int id : ids) {
+            if (!files.get(id).removed) {
+                ids[live++] = id;
+            }
+        }
+        return live == ids.length ? ids : Arrays.copyOf(ids, live);
+    }
+
+    private int baseIndexOf(int key) {
+        int low = 0;
+        int high = baseKeyCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleKey = base.getInt(baseKeysStart + middle * 4);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * brings the files under start up to date, start is a folder or a file under root, it may not exist anymore
+     */
+    private void sync(Path start) {
+        String prefix = relative(start);
+        Set<String> seen = new HashSet<>();
+        ThreadPoolExecutor readers = FolderSearch.pool("trigram-index-read");
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (closed) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    Path name = dir.getFileName();
+                    if (dir.equals(indexDirectory)
+                            || !dir.equals(root) && name != null && FolderSearch.SKIPPED_FOLDERS.contains(name.toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (watching && watched.add(dir)) {
+                        try {
+                            registrations.add(FileWatcher.getInstance().watchDirectory(dir, TrigramIndex.this::changed));
+                        } catch (IOException e) {
+                            LOG.debug(() -> "can't watch " + dir + ": " + e);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                    if (closed) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (!attrs.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String relative = relative(path);
+                    seen.add(relative);
+                    long modified = attrs.lastModifiedTime().toMillis();
+                    FileEntry known = entry(relative);
+                    if (known == null || known.size != attrs.size() || known.modified != modified) {
+                        readers.execute(() -> index(path, relative, attrs.size(), modified));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path path, IOException e) {
+                    if (!(e instanceof NoSuchFileException)) {
+                        LOG.debug(() -> "can't read " + path + ": " + e);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn(() -> "can't index " + root + ": " + e);
+        } finally {
+            readers.shutdown();
+            try {
+                readers.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!closed) {
+            // a walk cut short doesn't tell which files are gone
+            removeMissing(prefix, seen);
+        }
+    }
+
+    private void index(Path path, String relative, long size, long modified) {
+        if (closed) {
+            return;
+        }
+        byte kind;
+        int[] keys = new int[0];
+        try {
+            if (size > MAX_INDEXED_SIZE) {
+                kind = UNINDEXED;
+            } else if (isBinary(path)) {
+                kind = BINARY;
+            } else {
+                keys = Trigrams.of(TextFileReader.read(path).getText());
+                kind = TEXT;
+            }
+        } catch (NoSuchFileException e) {
+            // deleted since the walk saw it, the FileWatcher reports it
+            return;
+        } catch (IOException e) {
+            LOG.debug(() -> "can't index " + path + ": " + e);
+            kind = UNINDEXED;
+        }
+        put(relative, size, modified, kind, keys);
+    }
+
+    private static boolean isBinary(Path path) throws IOException {
+        byte[] sample = new byte[CharsetSniffer.SAMPLE_SIZE];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(path)) {
+            for (int read = 0; read != -1 && length < sample.length; read = in.read(sample, length, sample.length - length)) {
+                length += read;
+            }
+        }
+        return CharsetSniffer.isBinary(sample, length);
+    }
+
+    private synchronized FileEntry entry(String relative) {
+        Integer id = ids.get(relative);
+        return id == null ? null : files.get(id);
+    }
+
+    private synchronized void put(String relative, long size, long modified, byte kind, int[] keys) {
+        Integer old = ids.get(relative);
+        if (old != null) {
+            files.get(old).removed = true;
+        }
+        int id = files.size();
+        files.add(new FileEntry(relative, size, modified, kind));
+        ids.put(relative, id);
+        for (int key : keys) {
+            added.computeIfAbsent(key, k -> new Postings()).add(id);
+        }
+        changed = true;
+    }
+
+    private synchronized void removeMissing(String prefix, Set<String> seen) {
+        List<String> missing = new ArrayList<>();
+        for (String path : ids.keySet()) {
+            boolean under = prefix.isEmpty() || path.equals(prefix) || path.startsWith(prefix + "/");
+            if (under && !seen.contains(path)) {
+                missing.add(path);
+            }
+        }
+        for (String path : missing) {
+            files.get(ids.remove(path)).removed = true;
+            changed = true;
+        }
+    }
+
+    private String relative(Path path) {
+        return root.relativize(path.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    /**
+     * called by the FileWatcher with a file or folder that changed, the changes are applied together a moment later
+     */
+    void changed(Path path) {
+        if (closed || !path.startsWith(root) || indexDirectory.startsWith(root) && path.startsWith(indexDirectory)) {
+            return;
+        }
+        dirty.add(path);
+        if (updateScheduled.compareAndSet(false, true)) {
+            worker.schedule(this::updateDirty, UPDATE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void updateDirty() {
+        updateScheduled.set(false);
+        List<Path> paths = new ArrayList<>(dirty);
+        syncing.addAll(paths);
+        dirty.removeAll(paths);
+        for (Path path : paths) {
+            sync(path);
+            syncing.remove(path);
+        }
+        if (pendingSave == null || pendingSave.isDone()) {
+            pendingSave = worker.schedule(this::save, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * reads the index file, the index stays empty if it can't be read
+     */
+    private synchronized void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not an index file");
+            }
+            String indexedRoot = readString(buffer);
+            if (!indexedRoot.equals(root.toString())) {
+                throw new IOException("the index is for " + indexedRoot);
+            }
+            int fileCount = buffer.getInt();
+            baseKeyCount = buffer.getInt();
+            baseKeysStart = buffer.position();
+            baseOffsetsStart = baseKeysStart + baseKeyCount * 4;
+            basePostingsStart = baseOffsetsStart + (baseKeyCount + 1) * 4;
+            buffer.position(basePostingsStart + buffer.getInt(baseOffsetsStart + baseKeyCount * 4));
+            for (int id = 0; id < fileCount; id++) {
+                FileEntry entry = new FileEntry(readString(buffer), buffer.getLong(), buffer.getLong(), buffer.get());
+                files.add(entry);
+                ids.put(entry.path, id);
+            }
+            base = buffer;
+        } catch (IOException | RuntimeException e) {
+            LOG.debug(() -> "can't read the index " + file + ": " + e);
+            files.clear();
+            ids.clear();
+            baseKeyCount = 0;
+        }
+    }
+
+    /**
+     * writes the live files and their postings to a temporary file next to the index file then moves it over it,
+     * and maps it in place of the old one
+     */
+    private synchronized void save() {
+        if (!changed) {
+            return;
+        }
+        int[] newIds = new int[files.size()];
+        List<FileEntry> live = new ArrayList<>();
+        for (int id = 0; id < files.size(); id++) {
+            newIds[id] = files.get(id).removed ? -1 : live.size();
+            if (!files.get(id).removed) {
+                live.add(files.get(id));
+            }
+        }
+
+        int[] keys = new int[baseKeyCount + added.size()];
+        for (int i = 0; i < baseKeyCount; i++) {
+            keys[i] = base.getInt(baseKeysStart + i * 4);
+        }
+        int count = baseKeyCount;
+        for (int key : added.keySet()) {
+            keys[count++] = key;
+        }
+        Arrays.sort(keys);
+
+        ByteArrayOutputStream postings = new ByteArrayOutputStream();
+        int[] keptKeys = new int[keys.length];
+        int[] offsets = new int[keys.length + 1];
+        int kept = 0;
+        byte[] varint = new byte[5];
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0 && keys[i] == keys[i - 1]) {
+                continue;
+            }
+            int last = -1;
+            for (int id : postings(keys[i])) {
+                postings.write(varint, 0, Postings.writeVarint(varint, 0, newIds[id] - last - 1));
+                last = newIds[id];
+            }
+            if (last != -1) {
+                keptKeys[kept] = keys[i];
+                offsets[++kept] = postings.size();
+            }
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, root.toString());
+                out.writeInt(live.size());
+                out.writeInt(kept);
+                for (int i = 0; i < kept; i++) {
+                    out.writeInt(keptKeys[i]);
+                }
+                for (int i = 0; i <= kept; i++) {
+                    out.writeInt(offsets[i]);
+                }
+                postings.writeTo(out);
+                for (FileEntry entry : live) {
+                    writeString(out, entry.path);
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.modified);
+                    out.writeByte(entry.kind);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn(() -> "can't write the index " + file + ": " + e);
+            return;
+        }
+        files.clear();
+        ids.clear();
+        added.clear();
+        base = null;
+        baseKeyCount = 0;
+        changed = false;
+        load();
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class FileEntry {
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final byte kind;
+        private boolean removed;
+
+        private FileEntry(String path, long size, long modified, byte kind) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.kind = kind;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package lib.search;
+
+import java.util.Arrays;
+
+/**
+ * turns text into the sorted distinct keys of its trigrams, the runs of 3 chars, for {@link TrigramIndex}
+ * <p>
+ * chars are folded like EditorUtils ignores case, so a file that matches a query, with or without match case,
+ * has every trigram of the query. a trigram of ascii chars is its own key, the others are hashed and may collide,
+ * which only adds candidates
+ */
+final class Trigrams {
+
+    private Trigrams() {
+    }
+
+    /**
+     * @return the keys of the trigrams of text, sorted and without duplicates
+     */
+    static int[] of(CharSequence text) {
+        return keys(text, false);
+    }
+
+    /**
+     * @return the keys a file needs to match query, empty if query is too short to be narrowed by trigrams
+     */
+    static int[] ofQuery(String query) {
+        // the indexed text has \n line separators, a \r in the query doesn't tell anything about it
+        return keys(query, true);
+    }
+
+    private static int[] keys(CharSequence text, boolean skipCarriageReturns) {
+        if (text.length() < 3) {
+            return new int[0];
+        }
+        int[] keys = new int[text.length() - 2];
+        int count = 0;
+        char a = fold(text.charAt(0));
+        char b = fold(text.charAt(1));
+        for (int i = 2; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            if (!skipCarriageReturns || (a != '\r' && b != '\r' && c != '\r')) {
+                keys[count++] = key(a, b, c);
+            }
+            a = b;
+            b = c;
+        }
+        Arrays.sort(keys, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || keys[distinct - 1] != keys[i]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    /**
+     * @return the same char for every char EditorUtils.indexOf considers equal when it ignores case
+     */
+    static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    static int key(char a, char b, char c) {
+        if ((a | b | c) < 0x80) {
+            return a << 14 | b << 7 | c;
+        }
+        // murmur3 finalizer, negative so it never equals an ascii key
+        long hash = (long) a << 32 | (long) b << 16 | c;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash | Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,32 @@
+package lib.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * the open tabs of the editor in the order they appear in the TabPane
+ *
+ * @see SessionStore
+ */
+public class Session {
+
+    private final List<TabSnapshot> tabs;
+    private final int selectedIndex;
+
+    public Session(List<TabSnapshot> tabs, int selectedIndex) {
+        this.tabs = Collections.unmodifiableList(new ArrayList<>(tabs));
+        this.selectedIndex = selectedIndex;
+    }
+
+    public List<TabSnapshot> getTabs() {
+        return tabs;
+    }
+
+    /**
+     * @return the index of the tab that was selected, it's restored before the other tabs
+     */
+    public int getSelectedIndex() {
+        return selectedIndex;
+    }
+}
@@ -0,0 +1,184 @@
+package lib.session;
+
+import javafx.application.Platform;
+import lib.io.LineSeparator;
+import lib.io.TextFormat;
+import lib.log.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * reads and writes the session file, a small binary file that holds the open tabs so they can be restored on the next start
+ * <p>
+ * format: magic, version, selected index, tab count, then for each tab:
+ * path, charset, byte order mark flag, line separator, caret position, text changed flag, unsaved text, undo stack, redo stack
+ * strings are written as a presence flag followed by their utf-8 length and bytes
+ */
+public class SessionStore {
+
+    public static final Path DEFAULT_PATH = Paths.get(System.getProperty("user.home"), ".fedator", "session");
+
+    private static final int MAGIC = 0x46454453; // FEDS
+    private static final int VERSION = 3;
+    private static final long AUTOSAVE_PERIOD_SECONDS = 30;
+    private static final Logger LOG = Logger.get(SessionStore.class);
+
+    private static ScheduledExecutorService autosave;
+
+    private SessionStore() {
+    }
+
+    /**
+     * writes session to a temporary file next to path then moves it over path,
+     * so a crash while writing never leaves a half written session behind
+     *
+     * @return true if the session is written, false otherwise
+     */
+    public static synchronized boolean write(Session session, Path path) {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(session.getSelectedIndex());
+                out.writeInt(session.getTabs().size());
+                for (TabSnapshot tab : session.getTabs()) {
+                    writeString(out, tab.getPath() == null ? null : tab.getPath().toString());
+                    writeString(out, tab.getFormat().getCharset().name());
+                    out.writeBoolean(tab.getFormat().hasBom());
+                    writeString(out, tab.getFormat().getLineSeparator().name());
+                    out.writeInt(tab.getCaretPosition());
+                    out.writeBoolean(tab.isTextChanged());
+                    writeString(out, tab.getText());
+                    writeStrings(out, tab.getUndoHistory());
+                    writeStrings(out, tab.getRedoHistory());
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            LOG.error(() -> "can't write the session " + path, e);
+            return false;
+        }
+    }
+
+    /**
+     * a truncated or corrupt file is logged and read as no session, so the editor still starts
+     *
+     * @return the session written in path, null if there is no session or it can't be read
+     */
+    public static Session read(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long limit = Files.size(path);
+            int selectedIndex = in.readInt();
+            int count = readLength(in, limit);
+            List<TabSnapshot> tabs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String tabPath = readString(in, limit);
+                TextFormat format = new TextFormat(Charset.forName(readString(in, limit)), in.readBoolean(),
+                        LineSeparator.valueOf(readString(in, limit)));
+                int caretPosition = in.readInt();
+                boolean textChanged = in.readBoolean();
+                String text = readString(in, limit);
+                List<String> undoHistory = readStrings(in, limit);
+                List<String> redoHistory = readStrings(in, limit);
+                tabs.add(new TabSnapshot(tabPath == null ? null : Paths.get(tabPath), format, caretPosition, textChanged,
+                        text, undoHistory, redoHistory));
+            }
+            return new Session(tabs, selectedIndex);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOG.error(() -> "can't read the session " + path, e);
+            return null;
+        }
+    }
+
+    /**
+     * writes the session every {@value #AUTOSAVE_PERIOD_SECONDS} seconds
+     * the snapshot is taken on the javafx thread because it reads the text areas, the file is written on a background thread
+     *
+     * @param snapshot creates the session from the open tabs
+     * @param path     the session file
+     */
+    public static synchronized void startAutosave(Supplier<Session> snapshot, Path path) {
+        if (autosave != null) {
+            return;
+        }
+        autosave = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        autosave.scheduleWithFixedDelay(() -> Platform.runLater(() -> {
+            Session session = snapshot.get();
+            autosave.execute(() -> write(session, path));
+        }), AUTOSAVE_PERIOD_SECONDS, AUTOSAVE_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @param limit the size of the file, a string or a list can't be longer than the file it's in
+     */
+    private static int readLength(DataInputStream in, long limit) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > limit) {
+            throw new IOException("corrupt session, length " + length + " in a file of " + limit + " bytes");
+        }
+        return length;
+    }
+
+    private static String readString(DataInputStream in, long limit) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte[] bytes = new byte[readLength(in, limit)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in, long limit) throws IOException {
+        int size = readLength(in, limit);
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add(readString(in, limit));
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,73 @@
+package lib.session;
+
+import lib.io.TextFormat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * the state of one tab as it's written to the session file
+ */
+public class TabSnapshot {
+
+    private final Path path;
+    private final TextFormat format;
+    private final int caretPosition;
+    private final boolean textChanged;
+    private final String text;
+    private final List<String> undoHistory;
+    private final List<String> redoHistory;
+
+    /**
+     * @param path          the file opened in the tab, null for an untitled tab
+     * @param format        the format the file is saved with
+     * @param caretPosition the position of the caret in the text
+     * @param textChanged   true if the tab has changes that are not saved to path
+     * @param text          the unsaved text of the tab, null if the text can be read again from path
+     * @param undoHistory   the undo stack of the tab, oldest first
+     * @param redoHistory   the redo stack of the tab, oldest first
+     */
+    public TabSnapshot(Path path, TextFormat format, int caretPosition, boolean textChanged, String text,
+                       List<String> undoHistory, List<String> redoHistory) {
+        this.path = path;
+        this.format = format;
+        this.caretPosition = caretPosition;
+        this.textChanged = textChanged;
+        this.text = text;
+        this.undoHistory = Collections.unmodifiableList(new ArrayList<>(undoHistory));
+        this.redoHistory = Collections.unmodifiableList(new ArrayList<>(redoHistory));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public TextFormat getFormat() {
+        return format;
+    }
+
+    public int getCaretPosition() {
+        return caretPosition;
+    }
+
+    public boolean isTextChanged() {
+        return textChanged;
+    }
+
+    /**
+     * @return the unsaved text of the tab, null if the text has to be read from {@link TabSnapshot#getPath()}
+     */
+    public String getText() {
+        return text;
+    }
+
+    public List<String> getUndoHistory() {
+        return undoHistory;
+    }
+
+    public List<String> getRedoHistory() {
+        return redoHistory;
+    }
+}
@@ -0,0 +1,198 @@
+package lib.stats;
+
+import lib.io.CharsetSniffer;
+import lib.io.TextFormat;
+
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * the running totals of a text shown in the status bar: lines, words, characters and the bytes it takes on disk
+ * <p>
+ * the totals are kept up to date from the changes of the text, never by counting it again.
+ * a word starts where a char that is not whitespace follows whitespace or the start of the text,
+ * a surrogate pair ends where a low surrogate follows a high one, both only depend on a char and the one before it.
+ * so a change only recounts the removed and inserted text plus the char after it, given the chars around it,
+ * and the cost of an update is the size of the change whatever the size of the text.
+ * <p>
+ * the bytes are the size of the file when it's saved with the format: byte order mark, charset and line separator
+ */
+public class TextStats {
+
+    /**
+     * the char before or after a change at the start or the end of the text
+     */
+    public static final int NONE = -1;
+
+    private enum Encoding {UTF_8, UTF_16, UTF_32, SINGLE_BYTE, OTHER}
+
+    private long length;
+    private long newlines;
+    private long words;
+    private long surrogatePairs;
+    // the bytes of the chars with \n as line separator, without the byte order mark
+    private long bytes;
+
+    private TextFormat format = TextFormat.DEFAULT;
+    private Encoding encoding = Encoding.UTF_8;
+    private int bomBytes;
+    private int separatorExtraBytes;
+
+    /**
+     * counts text from scratch, used when the whole text is replaced
+     */
+    public void reset(CharSequence text) {
+        length = 0;
+        newlines = 0;
+        words = 0;
+        surrogatePairs = 0;
+        bytes = 0;
+        add(NONE, text, NONE, 1);
+    }
+
+    /**
+     * updates the totals after a change of the text
+     *
+     * @param before   the char before the change, {@link #NONE} if it's at the start of the text
+     * @param removed  the removed text
+     * @param inserted the inserted text
+     * @param after    the char after the change, {@link #NONE} if it's at the end of the text
+     */
+    public void apply(int before, CharSequence removed, CharSequence inserted, int after) {
+        add(before, removed, after, -1);
+        add(before, inserted, after, 1);
+    }
+
+    /**
+     * counts the bytes of text again with format, used when the tab loads a file
+     */
+    public void setFormat(TextFormat format, CharSequence text) {
+        this.format = format;
+        Charset charset = format.getCharset();
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            encoding = Encoding.UTF_8;
+        } else if (charset.name().startsWith("UTF-16")) {
+            encoding = Encoding.UTF_16;
+        } else if (charset.name().startsWith("UTF-32")) {
+            encoding = Encoding.UTF_32;
+        } else if (charset.newEncoder().maxBytesPerChar() <= 1) {
+            encoding = Encoding.SINGLE_BYTE;
+        } else {
+            encoding = Encoding.OTHER;
+        }
+        bomBytes = CharsetSniffer.bomLength(format);
+        separatorExtraBytes = bytes(format.getLineSeparator().getSeparator()) - bytes("\n");
+        bytes = bytes(text);
+    }
+
+    /**
+     * adds the counts of the positions from the start of text to the char after it, multiplied by sign
+     */
+    private void add(int before, CharSequence text, int after, int sign) {
+        int prev = before;
+        long textWords = 0;
+        long textPairs = 0;
+        long textNewlines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isWordStart(prev, c)) {
+                textWords++;
+            }
+            if (isPairEnd(prev, c)) {
+                textPairs++;
+            }
+            if (c == '\n') {
+                textNewlines++;
+            }
+            prev = c;
+        }
+        if (after != NONE) {
+            if (isWordStart(prev, after)) {
+                textWords++;
+            }
+            if (isPairEnd(prev, after)) {
+                textPairs++;
+            }
+        }
+        words += sign * textWords;
+        surrogatePairs += sign * textPairs;
+        newlines += sign * textNewlines;
+        length += sign * text.length();
+        bytes += sign * bytes(text);
+    }
+
+    private static boolean isWordStart(int prev, int c) {
+        return !Character.isWhitespace(c) && (prev == NONE || Character.isWhitespace(prev));
+    }
+
+    private static boolean isPairEnd(int prev, int c) {
+        return prev != NONE && Character.isHighSurrogate((char) prev) && Character.isLowSurrogate((char) c);
+    }
+
+    private int bytes(CharSequence text) {
+        switch (encoding) {
+            case UTF_16:
+                return text.length() * 2;
+            case SINGLE_BYTE:
+                return text.length();
+            case UTF_8:
+            case UTF_32:
+                int bytes = 0;
+                for (int i = 0; i < text.length(); i++) {
+                    bytes += charBytes(text.charAt(i));
+                }
+                return bytes;
+            default:
+                return format.getCharset().encode(CharBuffer.wrap(text)).remaining();
+        }
+    }
+
+    /**
+     * @return the bytes of c, each half of a surrogate pair takes half of the pair
+     */
+    private int charBytes(char c) {
+        if (encoding == Encoding.UTF_32) {
+            return Character.isSurrogate(c) ? 2 : 4;
+        }
+        if (c < 0x80) {
+            return 1;
+        }
+        if (c < 0x800 || Character.isSurrogate(c)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * @return the number of lines, an empty text has one
+     */
+    public long getLines() {
+        return newlines + 1;
+    }
+
+    public long getWords() {
+        return words;
+    }
+
+    /**
+     * @return the number of characters, a surrogate pair is one character
+     */
+    public long getChars() {
+        return length - surrogatePairs;
+    }
+
+    /**
+     * @return the size of the text in chars, a surrogate pair is two of them
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return the size of the file the text is saved to
+     */
+    public long getBytes() {
+        return bomBytes + bytes + newlines * separatorExtraBytes;
+    }
+}
@@ -0,0 +1,684 @@
+package lib.text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * the brackets of a json text or the tags of an xml text, kept up to date from the changes of the text,
+ * so the bracket that pairs with another one is found without reading the text again
+ * <p>
+ * the tokens are kept in a treap ordered by offset. a token only stores its distance from the token before it,
+ * so an edit moves all the tokens after it by changing a single distance. every subtree caches the depth its tokens
+ * add up to (+1 for an open bracket, -1 for a close one) and the lowest depth reached inside it:
+ * the bracket closing an open one is the first token after it that brings the depth back down, it's found by walking
+ * down the tree and skipping the subtrees whose lowest depth is too high, so matching is O(log n) wherever the caret is.
+ * <p>
+ * an edit scans again the text it touched and nothing else: for json the edited lines, strings end with the line,
+ * for xml the edited text and the tags and comments that overlap it, the text between two tokens never has a state
+ */
+public class BracketIndex {
+
+    /**
+     * the kind of text the brackets are read from
+     */
+    public enum Syntax {
+        // {} and [] outside of strings
+        JSON,
+        // tags, a tag that closes itself, comments, cdata and processing instructions are kept but pair with nothing
+        XML
+    }
+
+    /**
+     * a bracket or a tag and the one it pairs with
+     */
+    public static class Match {
+        private final int start;
+        private final int end;
+        private final int matchStart;
+        private final int matchEnd;
+        private final boolean mismatched;
+
+        Match(int start, int end, int matchStart, int matchEnd, boolean mismatched) {
+            this.start = start;
+            this.end = end;
+            this.matchStart = matchStart;
+            this.matchEnd = matchEnd;
+            this.mismatched = mismatched;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * @return the start of the bracket this one pairs with, -1 if it pairs with none
+         */
+        public int getMatchStart() {
+            return matchStart;
+        }
+
+        public int getMatchEnd() {
+            return matchEnd;
+        }
+
+        /**
+         * @return true if the brackets pair by depth but aren't of the same kind, like { and ] or a and /b
+         */
+        public boolean isMismatched() {
+            return mismatched;
+        }
+    }
+
+    // the chars read from the source at once while scanning
+    private static final int CHUNK = 4096;
+    // the most top level brackets looked at on one line to find a fold region
+    private static final int MAX_FOLD_SCAN = 64;
+
+    private final LineIndex.Source source;
+    private final Syntax syntax;
+    private final Random random = new Random();
+    private Node root;
+    private int length;
+    // the offset of the last token returned by select
+    private int selectedStart;
+
+    /**
+     * @param source the text, it already has an edit when {@link #apply(int, CharSequence, CharSequence)} is called
+     */
+    public BracketIndex(LineIndex.Source source, Syntax syntax) {
+        this.source = source;
+        this.syntax = syntax;
+    }
+
+    /**
+     * indexes text from scratch
+     */
+    public void reset(CharSequence text) {
+        root = null;
+        length = text.length();
+        List<Node> found = new ArrayList<>();
+        scanTokens(new Text(text::subSequence, length), 0, length, found);
+        replace(0, length, found);
+    }
+
+    /**
+     * updates the index after the text changed
+     *
+     * @param position the offset of the change
+     * @param removed  the removed text
+     * @param inserted the inserted text
+     */
+    public void apply(int position, CharSequence removed, CharSequence inserted) {
+        int delta = inserted.length() - removed.length();
+        Node[] left = split(root, position, 0);
+        Node[] right = split(left[1], position + removed.length(), sum(left[0]));
+        // the end of the tokens that overlapped the edit, the text they hid may be outside of any token now
+        int coveredEnd = left[0] == null ? 0 : sum(left[0]) + lastToken(left[0]).length;
+        if (right[0] != null) {
+            coveredEnd = sum(left[0]) + sum(right[0]) + lastToken(right[0]).length;
+        }
+        if (right[1] != null) {
+            // the tokens in the removed text are gone, the first one after it moves by delta
+            int next = sum(left[0]) + sum(right[0]) + firstGap(right[1]);
+            setFirstGap(right[1], next + delta - sum(left[0]));
+        }
+        root = merge(left[0], right[1]);
+        length += delta;
+
+        int start = position;
+        int end = position + inserted.length();
+        if (coveredEnd > position + removed.length()) {
+            end = Math.max(end, coveredEnd + delta);
+        }
+        if (syntax == Syntax.JSON) {
+            start = lineStart(start);
+            end = lineEnd(end);
+        }
+        scan(start, end);
+    }
+
+    /**
+     * @param offset the caret
+     * @return the bracket at offset or right before it and the one it pairs with, null if there's no bracket there
+     */
+    public Match match(int offset) {
+        int rank = rankOf(offset + 1) - 1;
+        if (rank < 0) {
+            return null;
+        }
+        Node token = select(rank);
+        int start = selectedStart;
+        if (start + token.length < offset || token.delta == 0) {
+            return null;
+        }
+        int other = pairOf(rank, token);
+        if (other < 0) {
+            return new Match(start, start + token.length, -1, -1, true);
+        }
+        Node otherToken = select(other);
+        return new Match(start, start + token.length, selectedStart, selectedStart + otherToken.length,
+                !Objects.equals(token.name, otherToken.name));
+    }
+
+    /**
+     * finds the region a line starts, the outermost bracket opened on the line and closed after it
+     *
+     * @param start the offset of the line
+     * @param end   the offset after the line
+     * @return the open bracket and its match, null if every bracket opened between start and end is closed before end
+     */
+    public Match foldAt(int start, int end) {
+        int rank = rankOf(start);
+        int last = rankOf(end);
+        for (int scanned = 0; rank < last && scanned < MAX_FOLD_SCAN; scanned++) {
+            Node token = select(rank);
+            if (token.delta <= 0) {
+                rank++;
+                continue;
+            }
+            int tokenStart = selectedStart;
+            int close = pairOf(rank, token);
+            if (close < 0) {
+                // the brackets after it are inside it
+                return null;
+            }
+            if (close >= last) {
+                Node closeToken = select(close);
+                return new Match(tokenStart, tokenStart + token.length, selectedStart, selectedStart + closeToken.length,
+                        !Objects.equals(token.name, closeToken.name));
+            }
+            rank = close + 1;
+        }
+        return null;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the rank of the bracket rank pairs with, -1 if it pairs with none
+     */
+    private int pairOf(int rank, Node token) {
+        int depth = depthBefore(rank);
+        if (token.delta > 0) {
+            return first(root, 0, 0, rank + 1, depth);
+        }
+        // the open bracket comes right after the last token before rank that ends at the depth after rank
+        int before = last(root, 0, 0, rank, depth - 1);
+        return before < 0 && depth - 1 < 0 ? -1 : before + 1;
+    }
+
+    /**
+     * scans the text from start to end again and replaces the tokens that start there
+     */
+    private void scan(int start, int end) {
+        // a token running into start is scanned again from its start, an unclosed one could go on with the new text
+        int rank = rankOf(start);
+        if (rank > 0) {
+            Node before = select(rank - 1);
+            if (selectedStart + before.length >= start) {
+                start = selectedStart;
+            }
+        }
+        Text text = new Text(source, length);
+        List<Node> found = new ArrayList<>();
+        int position = start;
+        while (true) {
+            position = scanTokens(text, position, end, found);
+            // the old token that starts last before position may run past it, like a comment whose start was removed
+            rank = rankOf(position);
+            if (rank == 0) {
+                break;
+            }
+            Node last = select(rank - 1);
+            // the length of a token that overlapped the edit is from before it
+            int lastEnd = Math.min(length, selectedStart + last.length);
+            if (selectedStart < start || lastEnd <= position) {
+                break;
+            }
+            end = lastEnd;
+        }
+        replace(start, position, found);
+    }
+
+    /**
+     * replaces the tokens that start between start and end with found, whose gaps hold their offsets
+     */
+    private void replace(int start, int end, List<Node> found) {
+        Node[] left = split(root, start, 0);
+        Node[] right = split(left[1], end, sum(left[0]));
+        int previous = sum(left[0]);
+        Node middle = null;
+        for (Node token : found) {
+            int offset = token.gap;
+            token.gap = offset - previous;
+            previous = offset;
+            update(token);
+            middle = merge(middle, token);
+        }
+        if (right[1] != null) {
+            int next = sum(left[0]) + sum(right[0]) + firstGap(right[1]);
+            setFirstGap(right[1], next - previous);
+        }
+        root = merge(merge(left[0], middle), right[1]);
+    }
+
+    /**
+     * adds the tokens that start between from and to to found, the text at from is outside of any token
+     *
+     * @return the offset after the last token, or to if it ends before
+     */
+    private int scanTokens(Text text, int from, int to, List<Node> found) {
+        return syntax == Syntax.JSON ? scanJson(text, from, to, found) : scanXml(text, from, to, found);
+    }
+
+    private int scanJson(Text text, int from, int to, List<Node> found) {
+        int i = from;
+        while (i < to) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                // the same strings as the json lexer, they end with the closing quote or the line
+                i++;
+                while (i < to && text.charAt(i) != '"' && text.charAt(i) != '\n') {
+                    i += text.charAt(i) == '\\' && i + 1 < to && text.charAt(i + 1) != '\n' ? 2 : 1;
+                }
+            } else if (c == '{' || c == '[') {
+                found.add(new Node(i, 1, 1, c == '{' ? "{" : "["));
+            } else if (c == '}' || c == ']') {
+                found.add(new Node(i, 1, -1, c == '}' ? "{" : "["));
+            }
+            i++;
+        }
+        return to;
+    }
+
+    private int scanXml(Text text, int from, int to, List<Node> found) {
+        int i = from;
+        while (i < to) {
+            if (text.charAt(i) != '<') {
+                i++;
+                continue;
+            }
+            int end;
+            int delta = 0;
+            String name = null;
+            if (text.startsWith("<!--", i)) {
+                int close = text.indexOf("-->", i + 4);
+                end = close < 0 ? length : close + 3;
+            } else if (text.startsWith("<![CDATA[", i)) {
+                int close = text.indexOf("]]>", i + 9);
+                end = close < 0 ? length : close + 3;
+            } else {
+                int nameStart = i + 1;
+                char first = nameStart < length ? text.charAt(nameStart) : 0;
+                boolean closing = first == '/';
+                boolean special = first == '?' || first == '!';
+                if (closing || special) {
+                    nameStart++;
+                }
+                int nameEnd = nameStart;
+                while (nameEnd < length && isNameChar(text.charAt(nameEnd))) {
+                    nameEnd++;
+                }
+                int close = tagEnd(text, nameEnd);
+                end = close < length ? close + 1 : length;
+                if (!special && nameEnd > nameStart) {
+                    name = text.substring(nameStart, nameEnd);
+                    boolean selfClosing = close < length && text.charAt(close - 1) == '/';
+                    delta = closing ? -1 : selfClosing ? 0 : 1;
+                }
+            }
+            found.add(new Node(i, end - i, delta, name));
+            i = end;
+        }
+        return Math.max(i, to);
+    }
+
+    /**
+     * @return the index of the > closing the tag, skipping quoted values, the length of the text if it's not closed
+     */
+    private int tagEnd(Text text, int from) {
+        for (int i = from; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '>') {
+                return i;
+            }
+            if (c == '"' || c == '\'') {
+                int close = text.indexOf(c, i + 1);
+                if (close < 0) {
+                    return length;
+                }
+                i = close;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == ':' || c == '-' || c == '_' || c == '.';
+    }
+
+    private int lineStart(int offset) {
+        while (offset > 0) {
+            int from = Math.max(0, offset - CHUNK);
+            CharSequence text = source.read(from, offset);
+            for (int i = text.length() - 1; i >= 0; i--) {
+                if (text.charAt(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            offset = from;
+        }
+        return 0;
+    }
+
+    private int lineEnd(int offset) {
+        while (offset < length) {
+            int to = Math.min(length, offset + CHUNK);
+            CharSequence text = source.read(offset, to);
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    return offset + i;
+                }
+            }
+            offset = to;
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of tokens that start before offset
+     */
+    private int rankOf(int offset) {
+        int rank = 0;
+        int base = 0;
+        Node node = root;
+        while (node != null) {
+            int start = base + sum(node.left) + node.gap;
+            if (start < offset) {
+                rank += size(node.left) + 1;
+                base = start;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @return the token of rank, its offset goes in {@link #selectedStart}
+     */
+    private Node select(int rank) {
+        int base = 0;
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else {
+                base += sum(node.left) + node.gap;
+                if (rank == leftSize) {
+                    selectedStart = base;
+                    return node;
+                }
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * @return the depth before the token of rank
+     */
+    private int depthBefore(int rank) {
+        int depth = 0;
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (rank <= leftSize) {
+                node = node.left;
+            } else {
+                depth += depth(node.left) + node.delta;
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * @return the first rank from from on where the depth after the token is at most target, -1 if there's none
+     */
+    private static int first(Node node, int rankBase, int depthBase, int from, int target) {
+        if (node == null || rankBase + node.size <= from) {
+            return -1;
+        }
+        if (rankBase >= from && depthBase + node.min > target) {
+            return -1;
+        }
+        int found = first(node.left, rankBase, depthBase, from, target);
+        if (found >= 0) {
+            return found;
+        }
+        int rank = rankBase + size(node.left);
+        int depth = depthBase + depth(node.left) + node.delta;
+        if (rank >= from && depth <= target) {
+            return rank;
+        }
+        return first(node.right, rank + 1, depth, from, target);
+    }
+
+    /**
+     * @return the last rank before to where the depth after the token is at most target, -1 if there's none
+     */
+    private static int last(Node node, int rankBase, int depthBase, int to, int target) {
+        if (node == null || rankBase >= to) {
+            return -1;
+        }
+        if (rankBase + node.size <= to && depthBase + node.min > target) {
+            return -1;
+        }
+        int rank = rankBase + size(node.left);
+        int depth = depthBase + depth(node.left) + node.delta;
+        int found = last(node.right, rank + 1, depth, to, target);
+        if (found >= 0) {
+            return found;
+        }
+        if (rank < to && depth <= target) {
+            return rank;
+        }
+        return last(node.left, rankBase, depthBase, to, target);
+    }
+
+    /**
+     * splits the tokens of node in the ones that start before offset and the others
+     *
+     * @param base the offset of the token before node
+     */
+    private static Node[] split(Node node, int offset, int base) {
+        if (node == null) {
+            return new Node[2];
+        }
+        int start = base + sum(node.left) + node.gap;
+        Node[] parts;
+        if (start < offset) {
+            parts = split(node.right, offset, start);
+            node.right = parts[0];
+            parts[0] = node;
+        } else {
+            parts = split(node.left, offset, base);
+            node.left = parts[1];
+            parts[1] = node;
+        }
+        update(node);
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node lastToken(Node node) {
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    private static int firstGap(Node node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.gap;
+    }
+
+    private static void setFirstGap(Node node, int gap) {
+        if (node.left == null) {
+            node.gap = gap;
+        } else {
+            setFirstGap(node.left, gap);
+        }
+        update(node);
+    }
+
+    private static void update(Node node) {
+        int leftDepth = depth(node.left);
+        int depth = leftDepth + node.delta;
+        node.size = size(node.left) + 1 + size(node.right);
+        node.sum = sum(node.left) + node.gap + sum(node.right);
+        node.depth = depth + depth(node.right);
+        node.min = Math.min(depth, node.left == null ? depth : node.left.min);
+        if (node.right != null) {
+            node.min = Math.min(node.min, depth + node.right.min);
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int sum(Node node) {
+        return node == null ? 0 : node.sum;
+    }
+
+    private static int depth(Node node) {
+        return node == null ? 0 : node.depth;
+    }
+
+    /**
+     * the tokens in order, as start:length:delta:name, for the tests
+     */
+    List<String> tokens() {
+        List<String> tokens = new ArrayList<>();
+        for (int rank = 0; rank < size(root); rank++) {
+            Node token = select(rank);
+            tokens.add(selectedStart + ":" + token.length + ":" + token.delta + ":" + token.name);
+        }
+        return tokens;
+    }
+
+    /**
+     * a token and the totals of its subtree
+     */
+    private class Node {
+        // the distance from the start of the token before, the offset of the token until it's in the tree
+        int gap;
+        final int length;
+        final int delta;
+        final String name;
+        final int priority = random.nextInt();
+        Node left;
+        Node right;
+        int size;
+        // the sum of the gaps of the subtree
+        int sum;
+        // the sum of the deltas of the subtree, and the lowest depth after one of its tokens
+        int depth;
+        int min;
+
+        Node(int offset, int length, int delta, String name) {
+            this.gap = offset;
+            this.length = length;
+            this.delta = delta;
+            this.name = name;
+        }
+    }
+
+    /**
+     * reads the source a chunk at a time while scanning
+     */
+    private static class Text {
+        private final LineIndex.Source source;
+        private final int length;
+        private int chunkStart;
+        private CharSequence chunk = "";
+
+        Text(LineIndex.Source source, int length) {
+            this.source = source;
+            this.length = length;
+        }
+
+        char charAt(int index) {
+            if (index < chunkStart || index >= chunkStart + chunk.length()) {
+                chunkStart = index;
+                chunk = source.read(index, Math.min(length, index + CHUNK));
+            }
+            return chunk.charAt(index - chunkStart);
+        }
+
+        boolean startsWith(String prefix, int index) {
+            if (index + prefix.length() > length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (charAt(index + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int indexOf(String str, int from) {
+            for (int i = from; i + str.length() <= length; i++) {
+                if (startsWith(str, i)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int indexOf(char c, int from) {
+            for (int i = from; i < length; i++) {
+                if (charAt(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String substring(int start, int end) {
+            return source.read(start, end).toString();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package lib.text;
+
+import java.util.Arrays;
+
+/**
+ * the line starts of a text that is being edited, kept sparse so it costs a few ints per hundred lines
+ * <p>
+ * the text is cut in blocks of about {@link #LINES_PER_BLOCK} lines and at most about {@link #CHARS_PER_BLOCK} chars,
+ * a long line (minified json, a log line with a dump) is cut in several blocks, so a block doesn't always start a line.
+ * a block only knows its length and its number of \n, both are kept in fenwick trees so the block of a line or of an offset
+ * is found in O(log n), the lines inside the block are found by scanning its text, never more than a block is read.
+ * an edit updates the counts of the blocks it touches from the removed and inserted text,
+ * a block is only split, merged or dropped when it gets too large or too small,
+ * so typing costs O(log n) and the whole text is never scanned again after {@link #reset(CharSequence)}
+ */
+public class LineIndex {
+
+    /**
+     * the text the index is kept for, only a block of it is read at a time
+     */
+    public interface Source {
+        CharSequence read(int start, int end);
+    }
+
+    static final int LINES_PER_BLOCK = 256;
+    static final int CHARS_PER_BLOCK = 1 << 15;
+
+    private final Source source;
+    private final int linesPerBlock;
+    private final int charsPerBlock;
+    private int[] lengths = new int[16];
+    private int[] newlines = new int[16];
+    private int blockCount = 1;
+    private int[] lengthTree = new int[2];
+    private int[] newlineTree = new int[2];
+    private int length;
+    private int newlineCount;
+
+    /**
+     * @param source the text, it already has an edit when {@link #apply(int, CharSequence, CharSequence)} is called
+     */
+    public LineIndex(Source source) {
+        this(source, LINES_PER_BLOCK, CHARS_PER_BLOCK);
+    }
+
+    LineIndex(Source source, int linesPerBlock, int charsPerBlock) {
+        this.source = source;
+        this.linesPerBlock = linesPerBlock;
+        this.charsPerBlock = charsPerBlock;
+    }
+
+    /**
+     * indexes text from scratch
+     */
+    public void reset(CharSequence text) {
+        blockCount = 0;
+        cut(text, 0);
+        if (blockCount == 0) {
+            insertBlock(0, 0, 0);
+        }
+        length = text.length();
+        newlineCount = 0;
+        for (int i = 0; i < blockCount; i++) {
+            newlineCount += newlines[i];
+        }
+        rebuild();
+    }
+
+    /**
+     * updates the index after the text changed
+     *
+     * @param position the offset of the change
+     * @param removed  the removed text
+     * @param inserted the inserted text
+     */
+    public void apply(int position, CharSequence removed, CharSequence inserted) {
+        int first = blockAt(position);
+        int last = removed.length() == 0 ? first : blockAt(position + removed.length() - 1);
+        int lengthDelta = inserted.length() - removed.length();
+        int newlineDelta = count(inserted) - count(removed);
+        length += lengthDelta;
+        newlineCount += newlineDelta;
+
+        if (first == last) {
+            lengths[first] += lengthDelta;
+            newlines[first] += newlineDelta;
+            add(lengthTree, first, lengthDelta);
+            add(newlineTree, first, newlineDelta);
+        } else {
+            // the rest of the first block and the rest of the last one make a single block now
+            for (int i = first + 1; i <= last; i++) {
+                lengths[first] += lengths[i];
+                newlines[first] += newlines[i];
+            }
+            lengths[first] += lengthDelta;
+            newlines[first] += newlineDelta;
+            removeBlocks(first + 1, last + 1);
+            rebuild();
+        }
+        rebalance(first);
+    }
+
+    /**
+     * splits a block that has too many lines or chars, merges a block that has too few with a neighbour
+     */
+    private void rebalance(int block) {
+        if (newlines[block] > 2 * linesPerBlock || lengths[block] > 2 * charsPerBlock) {
+            split(block);
+            return;
+        }
+        if (blockCount == 1 || (lengths[block] > 0 && (newlines[block] >= linesPerBlock / 4 || lengths[block] >= charsPerBlock / 4))) {
+            return;
+        }
+        int other = block + 1 < blockCount ? block + 1 : block - 1;
+        if (lengths[block] > 0 && (newlines[block] + newlines[other] > 2 * linesPerBlock
+                || lengths[block] + lengths[other] > 2 * charsPerBlock)) {
+            return;
+        }
+        int kept = Math.min(block, other);
+        lengths[kept] += lengths[Math.max(block, other)];
+        newlines[kept] += newlines[Math.max(block, other)];
+        removeBlocks(kept + 1, kept + 2);
+        rebuild();
+    }
+
+    /**
+     * cuts a block in blocks of {@link #linesPerBlock} lines or {@link #charsPerBlock} chars,
+     * this is the only place an edit reads the text
+     */
+    private void split(int block) {
+        int start = prefix(lengthTree, block);
+        CharSequence text = source.read(start, start + lengths[block]);
+        removeBlocks(block, block + 1);
+        cut(text, block);
+        rebuild();
+    }
+
+    /**
+     * inserts the blocks of text from index, a block ends after its {@link #linesPerBlock}th \n
+     * or at its {@link #charsPerBlock}th char
+     */
+    private void cut(CharSequence text, int index) {
+        int blockStart = 0;
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+            if (lines == linesPerBlock || i + 1 - blockStart == charsPerBlock) {
+                insertBlock(index++, i + 1 - blockStart, lines);
+                blockStart = i + 1;
+                lines = 0;
+            }
+        }
+        if (blockStart < text.length()) {
+            insertBlock(index, text.length() - blockStart, lines);
+        }
+    }
+
+    /**
+     * @param line the line, starting from 0
+     * @return the offset of the first char of line, -1 if the text has less lines
+     */
+    public int lineStart(int line) {
+        if (line < 0 || line > newlineCount) {
+            return -1;
+        }
+        if (line == 0) {
+            return 0;
+        }
+        // the block with the \n line starts after
+        int block = search(newlineTree, line - 1);
+        int start = prefix(lengthTree, block);
+        int skipped = line - prefix(newlineTree, block);
+        CharSequence text = source.read(start, start + lengths[block]);
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n' && --skipped == 0) {
+                return start + i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param line the line, starting from 0
+     * @return the offset after the last char of line, before its \n, -1 if the text has less lines
+     */
+    public int lineEnd(int line) {
+        if (line < 0 || line > newlineCount) {
+            return -1;
+        }
+        return line == newlineCount ? length : lineStart(line + 1) - 1;
+    }
+
+    /**
+     * @param offset an offset in the text, clamped to it
+     * @return the line of offset, starting from 0
+     */
+    public int lineOf(int offset) {
+        offset = Math.max(0, Math.min(offset, length));
+        int block = blockAt(offset);
+        int start = prefix(lengthTree, block);
+        return prefix(newlineTree, block) + count(source.read(start, offset));
+    }
+
+    /**
+     * @return the number of lines, an empty text has one
+     */
+    public int getLineCount() {
+        return newlineCount + 1;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the block that has offset, the block that starts at offset if it's between two
+     */
+    private int blockAt(int offset) {
+        return Math.min(search(lengthTree, offset), blockCount - 1);
+    }
+
+    private static int count(CharSequence text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void insertBlock(int index, int blockLength, int blockNewlines) {
+        if (blockCount == lengths.length) {
+            lengths = Arrays.copyOf(lengths, blockCount * 2);
+            newlines = Arrays.copyOf(newlines, blockCount * 2);
+        }
+        System.arraycopy(lengths, index, lengths, index + 1, blockCount - index);
+        System.arraycopy(newlines, index, newlines, index + 1, blockCount - index);
+        lengths[index] = blockLength;
+        newlines[index] = blockNewlines;
+        blockCount++;
+    }
+
+    private void removeBlocks(int from, int to) {
+        System.arraycopy(lengths, to, lengths, from, blockCount - to);
+        System.arraycopy(newlines, to, newlines, from, blockCount - to);
+        blockCount -= to - from;
+    }
+
+    /**
+     * builds the fenwick trees in O(number of blocks), only when blocks are added or removed
+     */
+    private void rebuild() {
+        lengthTree = build(lengths);
+        newlineTree = build(newlines);
+    }
+
+    private int[] build(int[] values) {
+        int[] tree = new int[blockCount + 1];
+        for (int i = 1; i <= blockCount; i++) {
+            tree[i] += values[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= blockCount) {
+                tree[parent] += tree[i];
+            }
+        }
+        return tree;
+    }
+
+    private void add(int[] tree, int index, int delta) {
+        for (int i = index + 1; i <= blockCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @return the sum of the first count blocks
+     */
+    private static int prefix(int[] tree, int count) {
+        int sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return the most blocks whose sum is at most value, the index of the block value falls in
+     */
+    private int search(int[] tree, int value) {
+        int position = 0;
+        for (int step = Integer.highestOneBit(blockCount); step > 0; step >>= 1) {
+            if (position + step <= blockCount && tree[position + step] <= value) {
+                position += step;
+                value -= tree[position];
+            }
+        }
+        return position;
+    }
+}
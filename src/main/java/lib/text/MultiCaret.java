@@ -0,0 +1,397 @@
+package lib.text;
+
+import java.util.Arrays;
+
+/**
+ * the carets of a text edited at many places at once, each with its anchor, like a selection per caret
+ * <p>
+ * the carets are kept in two int arrays sorted by offset, their selections never overlap, carets that run into each other
+ * after a move or an edit become one. an edit gives a {@link Batch} of replacements, one per caret, and moves the carets
+ * to where the replacements put them. the textspace applies the replacements from the last to the first, then sends
+ * one TEXT_CHANGED, so the edit is one entry of the undo stack.
+ * every operation is O(number of carets), so ten thousand carets cost ten thousand steps per key
+ */
+public class MultiCaret {
+
+    /**
+     * the lines of the text the carets are in
+     */
+    public interface Lines {
+        int lineOf(int offset);
+
+        int lineStart(int line);
+
+        int lineLength(int line);
+
+        int getLineCount();
+    }
+
+    /**
+     * the ways the carets move
+     */
+    public enum Move {
+        LEFT, RIGHT, UP, DOWN, LINE_START, LINE_END
+    }
+
+    /**
+     * the replacements of one edit, in the order of the text, at offsets of the text before the edit
+     */
+    public static class Batch {
+        private final int[] starts;
+        private final int[] ends;
+        private final String[] texts;
+        private int size;
+
+        Batch(int capacity) {
+            starts = new int[capacity];
+            ends = new int[capacity];
+            texts = new String[capacity];
+        }
+
+        private void add(int start, int end, String text) {
+            starts[size] = start;
+            ends[size] = end;
+            texts[size] = text;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getStart(int index) {
+            return starts[index];
+        }
+
+        public int getEnd(int index) {
+            return ends[index];
+        }
+
+        public String getText(int index) {
+            return texts[index];
+        }
+
+        /**
+         * joins the replacements closer than gap chars with the text between them,
+         * a column edit of a csv becomes a few large replacements instead of one per line
+         *
+         * @param source the text before the edit
+         */
+        public Batch join(int gap, LineIndex.Source source) {
+            Batch joined = new Batch(size);
+            for (int i = 0; i < size; i++) {
+                int start = starts[i];
+                int end = ends[i];
+                StringBuilder text = new StringBuilder(texts[i]);
+                while (i + 1 < size && starts[i + 1] - end <= gap) {
+                    i++;
+                    text.append(source.read(end, starts[i])).append(texts[i]);
+                    end = ends[i];
+                }
+                joined.add(start, end, text.toString());
+            }
+            return joined;
+        }
+    }
+
+    private int[] anchors;
+    private int[] carets;
+    private int size;
+    // the caret added last, the one the text area shows as its own
+    private int primary;
+
+    /**
+     * @param anchor the anchor of the first caret, the same as caret if nothing is selected
+     */
+    public MultiCaret(int anchor, int caret) {
+        anchors = new int[]{anchor};
+        carets = new int[]{caret};
+        size = 1;
+    }
+
+    private MultiCaret(int[] anchors, int[] carets, int size, int primary) {
+        this.anchors = anchors;
+        this.carets = carets;
+        this.size = size;
+        this.primary = primary;
+    }
+
+    /**
+     * a caret on every line from anchorLine to caretLine, selecting from anchorColumn to caretColumn,
+     * a column past the end of a line is taken as its end
+     */
+    public static MultiCaret rectangle(Lines lines, int anchorLine, int anchorColumn, int caretLine, int caretColumn) {
+        int first = Math.min(anchorLine, caretLine);
+        int count = Math.abs(caretLine - anchorLine) + 1;
+        int[] anchors = new int[count];
+        int[] carets = new int[count];
+        for (int i = 0; i < count; i++) {
+            int start = lines.lineStart(first + i);
+            int length = lines.lineLength(first + i);
+            anchors[i] = start + Math.min(anchorColumn, length);
+            carets[i] = start + Math.min(caretColumn, length);
+        }
+        MultiCaret rectangle = new MultiCaret(anchors, carets, count, caretLine - first);
+        rectangle.merge();
+        return rectangle;
+    }
+
+    /**
+     * adds a caret, the new one becomes the primary caret
+     */
+    public void add(int anchor, int caret) {
+        int start = Math.min(anchor, caret);
+        int index = 0;
+        while (index < size && start(index) < start) {
+            index++;
+        }
+        if (size == carets.length) {
+            anchors = Arrays.copyOf(anchors, size * 2);
+            carets = Arrays.copyOf(carets, size * 2);
+        }
+        System.arraycopy(anchors, index, anchors, index + 1, size - index);
+        System.arraycopy(carets, index, carets, index + 1, size - index);
+        anchors[index] = anchor;
+        carets[index] = caret;
+        size++;
+        primary = index;
+        merge();
+    }
+
+    /**
+     * adds a caret on the line above the first caret or below the last one, at the column of that caret
+     */
+    public void addLine(Lines lines, boolean below) {
+        int from = carets[below ? size - 1 : 0];
+        int line = lines.lineOf(from);
+        int target = line + (below ? 1 : -1);
+        if (target < 0 || target >= lines.getLineCount()) {
+            return;
+        }
+        int offset = lines.lineStart(target) + Math.min(from - lines.lineStart(line), lines.lineLength(target));
+        add(offset, offset);
+    }
+
+    /**
+     * moves every caret, the anchors stay where they are if extend is true
+     */
+    public void move(Lines lines, Move move, boolean extend) {
+        int length = length(lines);
+        for (int i = 0; i < size; i++) {
+            int caret = carets[i];
+            boolean selected = anchors[i] != caret;
+            switch (move) {
+                case LEFT:
+                    caret = selected && !extend ? start(i) : Math.max(0, caret - 1);
+                    break;
+                case RIGHT:
+                    caret = selected && !extend ? end(i) : Math.min(length, caret + 1);
+                    break;
+                case UP:
+                case DOWN: {
+                    int line = lines.lineOf(caret);
+                    int target = line + (move == Move.UP ? -1 : 1);
+                    if (target >= 0 && target < lines.getLineCount()) {
+                        caret = lines.lineStart(target) + Math.min(caret - lines.lineStart(line), lines.lineLength(target));
+                    }
+                    break;
+                }
+                case LINE_START:
+                    caret = lines.lineStart(lines.lineOf(caret));
+                    break;
+                default: {
+                    int line = lines.lineOf(caret);
+                    caret = lines.lineStart(line) + lines.lineLength(line);
+                    break;
+                }
+            }
+            carets[i] = caret;
+            if (!extend) {
+                anchors[i] = caret;
+            }
+        }
+        merge();
+    }
+
+    /**
+     * keeps the primary caret only
+     *
+     * @return the anchor and the caret of the primary caret
+     */
+    public int[] collapse() {
+        int[] kept = {anchors[primary], carets[primary]};
+        anchors = new int[]{kept[0]};
+        carets = new int[]{kept[1]};
+        size = 1;
+        primary = 0;
+        return kept;
+    }
+
+    /**
+     * replaces every selection with text, or inserts it at every caret
+     */
+    public Batch replace(String text) {
+        Batch batch = new Batch(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(start(i), end(i), text);
+        }
+        return apply(batch);
+    }
+
+    /**
+     * replaces the selection of every caret with its own text, texts has one text per caret
+     */
+    public Batch replace(String[] texts) {
+        Batch batch = new Batch(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(start(i), end(i), texts[i]);
+        }
+        return apply(batch);
+    }
+
+    /**
+     * removes the selections, and the char before the carets that select nothing
+     */
+    public Batch backspace() {
+        Batch batch = new Batch(size);
+        for (int i = 0; i < size; i++) {
+            int start = start(i);
+            batch.add(start == end(i) ? Math.max(0, start - 1) : start, end(i), "");
+        }
+        return apply(batch);
+    }
+
+    /**
+     * removes the selections, and the char after the carets that select nothing
+     */
+    public Batch delete(Lines lines) {
+        int length = length(lines);
+        Batch batch = new Batch(size);
+        for (int i = 0; i < size; i++) {
+            int end = end(i);
+            batch.add(start(i), start(i) == end ? Math.min(length, end + 1) : end, "");
+        }
+        return apply(batch);
+    }
+
+    /**
+     * @param source the text
+     * @return the selected text of every caret, a line each
+     */
+    public String getSelectedText(LineIndex.Source source) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                text.append('\n');
+            }
+            text.append(source.read(start(i), end(i)));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return the first caret whose selection ends at offset or after it, size() if there's none
+     */
+    public int indexAt(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (end(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPrimary() {
+        return primary;
+    }
+
+    public int getAnchor(int index) {
+        return anchors[index];
+    }
+
+    public int getCaret(int index) {
+        return carets[index];
+    }
+
+    public int getStart(int index) {
+        return start(index);
+    }
+
+    public int getEnd(int index) {
+        return end(index);
+    }
+
+    /**
+     * drops the replacements that change nothing and moves every caret after its replacement
+     */
+    private Batch apply(Batch all) {
+        Batch batch = new Batch(size);
+        int delta = 0;
+        for (int i = 0; i < size; i++) {
+            // a char removed before a caret can't be one the caret before it already removed
+            int start = Math.max(all.starts[i], i > 0 ? all.ends[i - 1] : 0);
+            int end = all.ends[i];
+            String text = all.texts[i];
+            if (start < end || !text.isEmpty()) {
+                batch.add(start, end, text);
+            }
+            carets[i] = start + delta + text.length();
+            anchors[i] = carets[i];
+            delta += text.length() - (end - start);
+        }
+        merge();
+        return batch;
+    }
+
+    /**
+     * joins the carets whose selections overlap, or touch when one of them selects nothing
+     */
+    private void merge() {
+        int kept = 0;
+        for (int i = 1; i < size; i++) {
+            int start = start(i);
+            int previousEnd = end(kept);
+            boolean touching = start == previousEnd && (start(kept) == previousEnd || start == end(i));
+            if (start < previousEnd || touching) {
+                int end = Math.max(previousEnd, end(i));
+                int mergedStart = start(kept);
+                boolean backward = carets[kept] < anchors[kept] && carets[i] < anchors[i];
+                anchors[kept] = backward ? end : mergedStart;
+                carets[kept] = backward ? mergedStart : end;
+                if (i == primary) {
+                    primary = kept;
+                }
+            } else {
+                kept++;
+                anchors[kept] = anchors[i];
+                carets[kept] = carets[i];
+                if (i == primary) {
+                    primary = kept;
+                }
+            }
+        }
+        size = Math.min(size, kept + 1);
+    }
+
+    private int start(int index) {
+        return Math.min(anchors[index], carets[index]);
+    }
+
+    private int end(int index) {
+        return Math.max(anchors[index], carets[index]);
+    }
+
+    private static int length(Lines lines) {
+        int last = lines.getLineCount() - 1;
+        return lines.lineStart(last) + lines.lineLength(last);
+    }
+}
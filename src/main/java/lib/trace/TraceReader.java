@@ -0,0 +1,134 @@
+package lib.trace;
+
+import gui.mediator.Events;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * reads the records of a trace written by {@link TraceWriter}, one at a time
+ */
+public class TraceReader implements Closeable {
+
+    private final DataInputStream in;
+    // the events by id, null for a name this version of the app doesn't have
+    private final List<Events> events = new ArrayList<>();
+    private long micros;
+
+    /**
+     * @throws IOException if in doesn't start with the header of a trace
+     */
+    public TraceReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        if (this.in.readInt() != TraceWriter.MAGIC || this.in.readInt() != TraceWriter.VERSION) {
+            throw new IOException("not a trace, or a trace of another version");
+        }
+    }
+
+    public static TraceReader open(Path path) throws IOException {
+        return new TraceReader(Files.newInputStream(path));
+    }
+
+    /**
+     * events that don't exist anymore are skipped
+     *
+     * @return the next record, null at the end of the trace.
+     * a trace cut in the middle of a record (the app was killed while recording) ends at the last whole record
+     */
+    public TraceRecord next() throws IOException {
+        try {
+            while (true) {
+                int tag = in.read();
+                if (tag == -1) {
+                    return null;
+                }
+                micros += readVarLong();
+                int tab = (int) readVarLong() - 1;
+                if (tag == TraceWriter.CHANGE) {
+                    int position = (int) readVarLong();
+                    int removedLength = (int) readVarLong();
+                    return TraceRecord.change(micros, tab, position, removedLength, readString());
+                }
+                if (tag != TraceWriter.EVENT) {
+                    throw new IOException("unknown record " + tag);
+                }
+
+                Events event = readEvent();
+                int flags = in.readUnsignedByte();
+                String query = (flags & TraceWriter.HAS_QUERY) != 0 ? readString() : null;
+                String replacement = (flags & TraceWriter.HAS_REPLACEMENT) != 0 ? readString() : null;
+                if (event != null) {
+                    return TraceRecord.event(micros, tab, event, query, replacement, (flags & TraceWriter.MATCH_CASE) != 0);
+                }
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return all the records left in the trace
+     */
+    public List<TraceRecord> readAll() throws IOException {
+        List<TraceRecord> records = new ArrayList<>();
+        for (TraceRecord record = next(); record != null; record = next()) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Events readEvent() throws IOException {
+        int id = (int) readVarLong();
+        if (id < events.size()) {
+            return events.get(id);
+        }
+        if (id != events.size()) {
+            throw new IOException("event " + id + " is used before it's named");
+        }
+        String name = readString();
+        Events event = null;
+        for (Events value : Events.values()) {
+            if (value.name().equals(name)) {
+                event = value;
+            }
+        }
+        events.add(event);
+        return event;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private String readString() throws IOException {
+        int length = (int) readVarLong();
+        if (length < 0) {
+            throw new IOException("malformed string length");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
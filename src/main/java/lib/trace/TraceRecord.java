@@ -0,0 +1,106 @@
+package lib.trace;
+
+import gui.mediator.Events;
+
+/**
+ * one entry of an editing trace: a change of the text of a tab, or an event sent to the mediator
+ *
+ * @see TraceWriter
+ * @see TraceReplayer
+ */
+public final class TraceRecord {
+
+    public enum Kind {
+        CHANGE, EVENT
+    }
+
+    private final Kind kind;
+    private final long micros;
+    private final int tab;
+
+    private final int position;
+    private final int removedLength;
+    private final String inserted;
+
+    private final Events event;
+    private final String query;
+    private final String replacement;
+    private final boolean matchCase;
+
+    private TraceRecord(Kind kind, long micros, int tab, int position, int removedLength, String inserted,
+                        Events event, String query, String replacement, boolean matchCase) {
+        this.kind = kind;
+        this.micros = micros;
+        this.tab = tab;
+        this.position = position;
+        this.removedLength = removedLength;
+        this.inserted = inserted;
+        this.event = event;
+        this.query = query;
+        this.replacement = replacement;
+        this.matchCase = matchCase;
+    }
+
+    /**
+     * @param micros        the time of the change in microseconds since the recording started
+     * @param tab           the number of the TextSpace the text changed in
+     * @param position      the start of the replaced range
+     * @param removedLength the number of chars removed at position
+     * @param inserted      the text inserted at position
+     */
+    public static TraceRecord change(long micros, int tab, int position, int removedLength, String inserted) {
+        return new TraceRecord(Kind.CHANGE, micros, tab, position, removedLength, inserted, null, null, null, false);
+    }
+
+    /**
+     * @param micros      the time of the event in microseconds since the recording started
+     * @param tab         the number of the TextSpace of the selected tab, -1 if there is none
+     * @param event       the event sent to the mediator
+     * @param query       the query of the selected tab for the find and replace events, null otherwise
+     * @param replacement the replacement for the replace events, null otherwise
+     * @param matchCase   the match case flag of the selected tab
+     */
+    public static TraceRecord event(long micros, int tab, Events event, String query, String replacement, boolean matchCase) {
+        return new TraceRecord(Kind.EVENT, micros, tab, 0, 0, null, event, query, replacement, matchCase);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getMicros() {
+        return micros;
+    }
+
+    public int getTab() {
+        return tab;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getRemovedLength() {
+        return removedLength;
+    }
+
+    public String getInserted() {
+        return inserted;
+    }
+
+    public Events getEvent() {
+        return event;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getReplacement() {
+        return replacement;
+    }
+
+    public boolean isMatchCase() {
+        return matchCase;
+    }
+}
@@ -0,0 +1,92 @@
+package lib.trace;
+
+import gui.mediator.Events;
+import lib.log.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * records the editing session to a trace file, enabled by running the app with -Dfedator.trace=path/to/file
+ * <p>
+ * every change of the text of a tab and every event sent to the mediator is written with its time,
+ * the trace can be replayed without the gui by {@link TraceReplayer}.
+ * when tracing is disabled ENABLED is a false constant and the callers skip building the records
+ * <p>
+ * only used on the javafx thread
+ */
+public final class TraceRecorder {
+
+    private static final String PATH = System.getProperty("fedator.trace");
+    public static final boolean ENABLED = PATH != null && !PATH.isEmpty();
+    private static final Logger LOG = Logger.get(TraceRecorder.class);
+
+    private static TraceWriter writer;
+    private static long startNanos;
+    private static boolean failed;
+
+    private TraceRecorder() {
+    }
+
+    /**
+     * @param tab           the number of the TextSpace the text changed in
+     * @param position      the start of the replaced range
+     * @param removedLength the number of chars removed at position
+     * @param inserted      the text inserted at position
+     */
+    public static void change(int tab, int position, int removedLength, String inserted) {
+        record(TraceRecord.change(micros(), tab, position, removedLength, inserted));
+    }
+
+    /**
+     * @param tab         the number of the TextSpace of the selected tab, -1 if there is none
+     * @param query       the query of the tab, only needed by the find and replace events
+     * @param replacement the replacement, only needed by the replace events
+     * @see TraceRecord#event(long, int, Events, String, String, boolean)
+     */
+    public static void event(int tab, Events event, String query, String replacement, boolean matchCase) {
+        record(TraceRecord.event(micros(), tab, event, query, replacement, matchCase));
+    }
+
+    private static long micros() {
+        if (startNanos == 0) {
+            startNanos = System.nanoTime();
+        }
+        return (System.nanoTime() - startNanos) / 1000;
+    }
+
+    /**
+     * opens the trace on the first record, the file is flushed and closed when the app exits
+     * if the file can't be written the recording stops, the editor keeps working
+     */
+    private static synchronized void record(TraceRecord record) {
+        if (!ENABLED || failed) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                Path path = Paths.get(PATH);
+                writer = TraceWriter.open(path);
+                Runtime.getRuntime().addShutdownHook(new Thread(TraceRecorder::close, "trace-close"));
+            }
+            writer.write(record);
+        } catch (IOException e) {
+            LOG.error(() -> "can't write the trace " + PATH + ", recording stops", e);
+            failed = true;
+        }
+    }
+
+    private static synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOG.warn(() -> "can't close the trace " + PATH + ": " + e);
+        }
+        writer = null;
+        failed = true;
+    }
+}
@@ -0,0 +1,203 @@
+package lib.trace;
+
+import gui.mediator.Events;
+import lib.EditorUtils;
+import lib.metrics.LatencyHistogram;
+import smallUndoEngine.EditorTextHistory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * replays a trace without the gui: the changes are applied to the text of every tab,
+ * the events drive an EditorTextHistory per tab and the search code of EditorUtils the way TabSpace and TextSpace do
+ * <p>
+ * the text only comes from the change records, undo, redo and replace produce their own changes in the trace,
+ * so their work is done again and timed but their results are not applied.
+ * a history restored from a session starts empty, the replay is exact for sessions recorded from a fresh start
+ * <p>
+ * usage: java -cp fedator.jar lib.trace.TraceReplayer path/to/trace
+ */
+public class TraceReplayer {
+
+    private final Map<Integer, TabState> tabs = new HashMap<>();
+    private final Map<Events, LatencyHistogram> latencies = new EnumMap<>(Events.class);
+    private final LatencyHistogram changeLatency = new LatencyHistogram();
+    private int recordCount;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: TraceReplayer <trace file>");
+            System.exit(2);
+        }
+        TraceReplayer replayer = new TraceReplayer();
+        try (TraceReader reader = TraceReader.open(Paths.get(args[0]))) {
+            replayer.replay(reader);
+        }
+        System.out.println(replayer.summary());
+    }
+
+    /**
+     * applies every record left in reader
+     */
+    public void replay(TraceReader reader) throws IOException {
+        for (TraceRecord record = reader.next(); record != null; record = reader.next()) {
+            apply(record);
+        }
+    }
+
+    public void replay(List<TraceRecord> records) {
+        for (TraceRecord record : records) {
+            apply(record);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a change doesn't fit in the text of its tab, the trace doesn't belong to this text
+     */
+    public void apply(TraceRecord record) {
+        recordCount++;
+        TabState tab = tab(record.getTab());
+        long start = System.nanoTime();
+        if (record.getKind() == TraceRecord.Kind.CHANGE) {
+            int end = record.getPosition() + record.getRemovedLength();
+            if (record.getPosition() < 0 || end > tab.text.length()) {
+                throw new IllegalArgumentException("change " + record.getPosition() + ".." + end
+                        + " is outside the text of tab " + record.getTab() + " (" + tab.text.length() + " chars)");
+            }
+            tab.text.replace(record.getPosition(), end, record.getInserted());
+            changeLatency.record(System.nanoTime() - start);
+            return;
+        }
+        if (tab.handle(record)) {
+            latencies.computeIfAbsent(record.getEvent(), event -> new LatencyHistogram()).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the text of tab after the records replayed so far, an empty string for a tab that didn't change
+     */
+    public String getText(int tab) {
+        return tab(tab).text.toString();
+    }
+
+    public EditorTextHistory getHistory(int tab) {
+        return tab(tab).history;
+    }
+
+    /**
+     * @return the starts of the matches of the last search of tab, null if it didn't search
+     */
+    public List<Integer> getMatches(int tab) {
+        return tab(tab).startIndices;
+    }
+
+    /**
+     * @return the time spent on event, null if the trace has no such event or the replayer ignores it
+     */
+    public LatencyHistogram getLatency(Events event) {
+        return latencies.get(event);
+    }
+
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.ROOT, "%d records, %d tabs%n", recordCount, tabs.size()));
+        appendLatency(summary, "CHANGE", changeLatency);
+        for (Map.Entry<Events, LatencyHistogram> entry : latencies.entrySet()) {
+            appendLatency(summary, entry.getKey().name(), entry.getValue());
+        }
+        return summary.toString();
+    }
+
+    private static void appendLatency(StringBuilder summary, String name, LatencyHistogram latency) {
+        if (latency.getCount() == 0) {
+            return;
+        }
+        summary.append(String.format(Locale.ROOT, "%-16s count %8d  mean %10.1fus  p99 %10.1fus  max %10.1fus%n",
+                name, latency.getCount(), latency.getMean() / 1000, latency.getValueAtPercentile(99) / 1000.0,
+                latency.getMax() / 1000.0));
+    }
+
+    private TabState tab(int tab) {
+        return tabs.computeIfAbsent(tab, number -> new TabState());
+    }
+
+    /**
+     * the part of a tab the events work on, mirrors TabSpace#sendEvent and the search methods of TextSpace
+     */
+    private static final class TabState {
+        private final StringBuilder text = new StringBuilder();
+        private final EditorTextHistory history = new EditorTextHistory();
+        private List<Integer> startIndices;
+        private int startIndicesTracker;
+
+        /**
+         * @return false if the event only concerns the gui
+         */
+        private boolean handle(TraceRecord record) {
+            switch (record.getEvent()) {
+                case TEXT_CHANGED:
+                    history.update(text.toString());
+                    return true;
+                case UNDO_TEXT:
+                    history.undo();
+                    return true;
+                case REDO_TEXT:
+                    history.redo();
+                    return true;
+                case HIDE_REPLACE:
+                    startIndicesTracker = 0;
+                    select("", record.isMatchCase());
+                    return true;
+                case FIND_SELECT:
+                    startIndicesTracker = 0;
+                    select(record.getQuery(), record.isMatchCase());
+                    return true;
+                case FIND_NEXT:
+                    if (startIndices != null && startIndicesTracker < startIndices.size() - 1) {
+                        startIndicesTracker++;
+                    }
+                    select(record.getQuery(), record.isMatchCase());
+                    return true;
+                case FIND_PREVIOUS:
+                    if (startIndicesTracker > 0) {
+                        startIndicesTracker--;
+                    }
+                    select(record.getQuery(), record.isMatchCase());
+                    return true;
+                case REPLACE_CURRENT:
+                    if (record.getQuery() != null && record.getReplacement() != null) {
+                        try {
+                            EditorUtils.replaceSpecificString(text.toString(), record.getQuery(), record.getReplacement(),
+                                    startIndicesTracker, record.isMatchCase());
+                        } catch (Exception e) {
+                            // TextSpace prints it and leaves the text as it is
+                        }
+                    }
+                    return true;
+                case REPLACE_ALL:
+                    if (record.getQuery() != null && record.getReplacement() != null) {
+                        try {
+                            text.toString().replaceAll(record.getQuery(), record.getReplacement());
+                        } catch (RuntimeException e) {
+                            // the query is a regex in TextSpace#replaceAll, a bad one fails there too
+                        }
+                    }
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void select(String query, boolean matchCase) {
+            startIndices = query == null ? new ArrayList<>()
+                    : EditorUtils.getIndexStartsOfSubstring(text.toString(), query, matchCase);
+        }
+    }
+}
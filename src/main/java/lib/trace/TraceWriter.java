@@ -0,0 +1,111 @@
+package lib.trace;
+
+import gui.mediator.Events;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * writes an editing trace, a binary file small enough to record whole sessions
+ * <p>
+ * format: magic, version, then records until the end of the file. every record is a tag byte,
+ * the microseconds since the previous record and the tab number + 1, then
+ * a change: position, removed length, inserted text
+ * an event: event id, flags (query, replacement, match case), query, replacement
+ * numbers are unsigned varints (7 bits per byte, lowest first) and strings are a varint utf-8 length followed by the bytes.
+ * an event is written by name the first time it's seen and by the id it got after that,
+ * so adding or moving values of {@link Events} doesn't break old traces
+ *
+ * @see TraceReader
+ */
+public class TraceWriter implements Closeable {
+
+    static final int MAGIC = 0x46454454; // FEDT
+    static final int VERSION = 1;
+    static final int CHANGE = 1;
+    static final int EVENT = 2;
+    static final int HAS_QUERY = 1;
+    static final int HAS_REPLACEMENT = 2;
+    static final int MATCH_CASE = 4;
+
+    private final DataOutputStream out;
+    private final Map<Events, Integer> eventIds = new EnumMap<>(Events.class);
+    private long previousMicros;
+
+    public TraceWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+    }
+
+    /**
+     * creates or truncates path and writes the header of a trace to it
+     */
+    public static TraceWriter open(Path path) throws IOException {
+        return new TraceWriter(Files.newOutputStream(path));
+    }
+
+    public void write(TraceRecord record) throws IOException {
+        boolean change = record.getKind() == TraceRecord.Kind.CHANGE;
+        out.writeByte(change ? CHANGE : EVENT);
+        writeVarLong(Math.max(0, record.getMicros() - previousMicros));
+        previousMicros = Math.max(previousMicros, record.getMicros());
+        writeVarLong(record.getTab() + 1L);
+        if (change) {
+            writeVarLong(record.getPosition());
+            writeVarLong(record.getRemovedLength());
+            writeString(record.getInserted());
+            return;
+        }
+
+        Integer id = eventIds.get(record.getEvent());
+        if (id == null) {
+            writeVarLong(eventIds.size());
+            writeString(record.getEvent().name());
+            eventIds.put(record.getEvent(), eventIds.size());
+        } else {
+            writeVarLong(id);
+        }
+        int flags = (record.getQuery() != null ? HAS_QUERY : 0)
+                | (record.getReplacement() != null ? HAS_REPLACEMENT : 0)
+                | (record.isMatchCase() ? MATCH_CASE : 0);
+        out.writeByte(flags);
+        if (record.getQuery() != null) {
+            writeString(record.getQuery());
+        }
+        if (record.getReplacement() != null) {
+            writeString(record.getReplacement());
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private void writeString(String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        out.write(bytes);
+    }
+}
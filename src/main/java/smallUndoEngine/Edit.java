@@ -1,9 +1,12 @@
 package smallUndoEngine;
 
+import lib.log.Logger;
+
 import java.util.ArrayList;
 import java.util.List;
 
 public class Edit implements IEdit {
+    private static final Logger LOG = Logger.get(Edit.class);
     private List<String> undoStack = new ArrayList<>();
     private List<String> redoStack = new ArrayList<>();
     private String text;
@@ -21,7 +24,7 @@ public class Edit implements IEdit {
     public void undo() {
 
         if (undoStack.isEmpty()) {
-            System.out.println("undo stack is empty");
+            LOG.debug(() -> "undo stack is empty");
             return;
         } else if (undoStack.size() == 1) {
             text = "";
@@ -42,7 +45,7 @@ public class Edit implements IEdit {
     @Override
     public void redo() {
         if (redoStack.isEmpty()) {
-            System.out.println("redo stack is empty");
+            LOG.debug(() -> "redo stack is empty");
         } else {
             text = redoStack.remove(redoStack.size() - 1);
         }
@@ -60,7 +63,7 @@ public class Edit implements IEdit {
         }
 
         if (undoStack.isEmpty()) {
-            System.out.println("Added");
+            LOG.trace(() -> "first text added to the undo stack");
             undoStack.add(text);
             return;
         }
@@ -122,4 +125,27 @@ public class Edit implements IEdit {
         return text;
     }
 
+    /**
+     * @return a copy of the undo stack, oldest first
+     */
+    List<String> getUndoStack() {
+        return new ArrayList<>(undoStack);
+    }
+
+    /**
+     * @return a copy of the redo stack, oldest first
+     */
+    List<String> getRedoStack() {
+        return new ArrayList<>(redoStack);
+    }
+
+    /**
+     * replaces the stacks and the current text, used when a tab is restored from the session file
+     */
+    void restore(List<String> undoStack, List<String> redoStack, String text) {
+        this.undoStack = new ArrayList<>(undoStack);
+        this.redoStack = new ArrayList<>(redoStack);
+        this.text = text;
+    }
+
 }
@@ -1,5 +1,7 @@
 package smallUndoEngine;
 
+import java.util.List;
+
 /** acts as a connector between the MainController class and the Edit class*/
 public class EditorTextHistory implements IEdit {
     private Edit edit = new Edit();
@@ -12,6 +14,16 @@ public class EditorTextHistory implements IEdit {
 
     }
 
+    /**
+     * creates a history with stacks saved by a previous session
+     *
+     * @see EditorTextHistory#getUndoHistory()
+     * @see EditorTextHistory#getRedoHistory()
+     */
+    public EditorTextHistory(List<String> undoHistory, List<String> redoHistory, String text){
+        edit.restore(undoHistory, redoHistory, text);
+    }
+
     public String getText(){
         return edit.getText();
     }
@@ -27,4 +39,18 @@ public class EditorTextHistory implements IEdit {
         edit.redo();
     }
 
+    /**
+     * @return a copy of the undo stack, oldest first
+     */
+    public List<String> getUndoHistory(){
+        return edit.getUndoStack();
+    }
+
+    /**
+     * @return a copy of the redo stack, oldest first
+     */
+    public List<String> getRedoHistory(){
+        return edit.getRedoStack();
+    }
+
 }
@@ -0,0 +1,81 @@
+package gui.highlight;
+
+import org.fxmisc.richtext.model.StyleSpan;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LexersTest {
+
+    @Test
+    void forPath() {
+        assertSame(Lexers.forPath(Paths.get("data.JSON")), Lexers.JSON);
+        assertSame(Lexers.forPath(Paths.get("main.fxml")), Lexers.XML);
+        assertSame(Lexers.forPath(Paths.get("app.log.1")), Lexers.LOG);
+        assertNull(Lexers.forPath(Paths.get("notes.txt")));
+        assertNull(Lexers.forPath(null));
+    }
+
+    @Test
+    void jsonKeysAndValues() {
+        assertEquals(tokens(Lexers.JSON, "{\"a\": [1, true, \"b\"]}"),
+                "json-brace:{|json-key:\"a\"|json-brace:[|json-number:1|json-literal:true|json-string:\"b\"|json-brace:]}");
+    }
+
+    @Test
+    void xmlCommentSpansLines() {
+        String text = "<a x=\"1\"><!-- one\ntwo --><b/></a>";
+        assertEquals(tokens(Lexers.XML, text),
+                "xml-tag:<a|xml-attribute:x|xml-value:\"1\"|xml-tag:>|xml-comment:<!-- one|xml-comment:two -->|xml-tag:<b/></a>");
+    }
+
+    @Test
+    void indexOfStopsAtTheEnd() {
+        String text = "a -- b -->\nc -->";
+        assertEquals(Lexers.indexOf(text, "-->", 0, text.length()), 7);
+        assertEquals(Lexers.indexOf(text, "-->", 0, 10), 7);
+        assertEquals(Lexers.indexOf(text, "-->", 0, 9), -1);
+        assertEquals(Lexers.indexOf(text, "-->", 8, text.length()), 13);
+    }
+
+    @Test
+    void logLevelsAndTraces() {
+        String text = "2024-01-02 10:00:00,123 ERROR boom\n\tat Main.main(Main.java:1)";
+        assertEquals(tokens(Lexers.LOG, text),
+                "log-time:2024-01-02 10:00:00,123|log-error:ERROR|log-trace:at Main.main(Main.java:1)");
+    }
+
+    /**
+     * lexes text line by line like the highlighter and describes the styled spans as style:text
+     * StyleSpansBuilder merges neighbouring tokens of the same style into one span
+     */
+    static String tokens(Lexer lexer, String text) {
+        TokenSink sink = new TokenSink();
+        int state = Lexer.INITIAL_STATE;
+        int lineStart = 0;
+        while (lineStart <= text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            state = lexer.lexLine(text, lineStart, lineEnd, state, sink);
+            lineStart = lineEnd + 1;
+        }
+        StyleSpans<Collection<String>> spans = sink.create(text.length());
+        List<String> tokens = new ArrayList<>();
+        int position = 0;
+        for (StyleSpan<Collection<String>> span : spans) {
+            if (!span.getStyle().isEmpty()) {
+                tokens.add(span.getStyle().iterator().next() + ":" + text.substring(position, position + span.getLength()));
+            }
+            position += span.getLength();
+        }
+        return String.join("|", tokens);
+    }
+}
@@ -0,0 +1,67 @@
+package gui.highlight;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineStatesTest {
+
+    @Test
+    void allLinesStartUnknown() {
+        LineStates states = new LineStates(3);
+        assertEquals(states.size(), 3);
+        for (int line = 0; line < 3; line++) {
+            assertFalse(LineStates.isKnown(states.get(line)));
+        }
+    }
+
+    @Test
+    void editShiftsTheLinesAfterIt() {
+        LineStates states = lexed(5, 7);
+
+        // a line break typed on line 1 inserts line 2, the old lines 2..4 become 3..5
+        states.edit(1, 0, 1);
+        assertEquals(states.size(), 6);
+        assertTrue(LineStates.isKnown(states.get(1)));
+        assertFalse(LineStates.isClean(states.get(1)));
+        assertEquals(LineStates.state(states.get(1)), 7);
+        assertFalse(LineStates.isKnown(states.get(2)));
+        assertTrue(LineStates.isClean(states.get(3)));
+
+        // joining lines 3, 4 and 5
+        states.edit(3, 2, 0);
+        assertEquals(states.size(), 4);
+        assertFalse(LineStates.isClean(states.get(3)));
+        assertTrue(LineStates.isClean(states.get(0)));
+    }
+
+    @Test
+    void growsWhenManyLinesAreInserted() {
+        LineStates states = lexed(3, 1);
+        states.edit(2, 0, 1000);
+        assertEquals(states.size(), 1003);
+        assertTrue(LineStates.isClean(states.get(1)));
+        assertFalse(LineStates.isKnown(states.get(1002)));
+    }
+
+    @Test
+    void divergedStateForgetsTheRest() {
+        LineStates states = lexed(10, 0);
+        states.set(2, 1);
+        states.diverged(3, 1);
+        assertTrue(LineStates.isKnown(states.get(3)));
+        assertFalse(LineStates.isClean(states.get(3)));
+        for (int line = 4; line < 10; line++) {
+            assertFalse(LineStates.isKnown(states.get(line)));
+        }
+        assertTrue(LineStates.isClean(states.get(2)));
+    }
+
+    private static LineStates lexed(int lineCount, int state) {
+        LineStates states = new LineStates(lineCount);
+        for (int line = 0; line < lineCount; line++) {
+            states.set(line, state);
+        }
+        return states;
+    }
+}
@@ -1,15 +1,26 @@
 package lib;
 
+import lib.io.TextDocument;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class EditorUtilsTest {
 
+    @TempDir
+    Path directory;
+
     @Test
     void getSubstringMatchedCount() {
 
@@ -63,4 +74,65 @@ class EditorUtilsTest {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void indexOf() {
+
+        StringBuilder text = new StringBuilder("go Getter go");
+
+        assertEquals(EditorUtils.indexOf(text, "getter", 0, false), 3);
+        assertEquals(EditorUtils.indexOf(text, "getter", 0, true), -1);
+        assertEquals(EditorUtils.indexOf(text, "go", 1, true), 10);
+        assertEquals(EditorUtils.indexOf(text, "go!", 10, false), -1);
+    }
+
+    @Test
+    void parseLinePosition() {
+        assertArrayEquals(EditorUtils.parseLinePosition("12"), new long[]{11, 0});
+        assertArrayEquals(EditorUtils.parseLinePosition(" 3 : 7 "), new long[]{2, 6});
+        assertNull(EditorUtils.parseLinePosition("0"));
+        assertNull(EditorUtils.parseLinePosition("3:"));
+        assertNull(EditorUtils.parseLinePosition("three"));
+        assertNull(EditorUtils.parseLinePosition("1:2:3"));
+    }
+
+    /**
+     * the large files are opened in their turn, not before the small files picked before them are read
+     */
+    @Test
+    void openFilesInSelectionOrder() throws Exception {
+        Path slow = write("slow.txt", "slow");
+        Path large = write("large.log", "");
+        Path small = write("small.txt", "small");
+        Path otherLarge = write("other.log", "");
+        Path missing = directory.resolve("missing.txt");
+        List<Path> paths = Arrays.asList(slow, large, small, missing, otherLarge);
+        List<String> opened = Collections.synchronizedList(new ArrayList<>());
+
+        EditorUtils.openFiles(paths, path -> path.toString().endsWith(".log"), path -> {
+            if (path.equals(slow)) {
+                sleep(200);
+            }
+            return EditorUtils.readDocument(path);
+        }, (path, document) -> opened.add(path.getFileName() + "=" + text(document)), Runnable::run)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(opened, Arrays.asList("slow.txt=slow", "large.log=viewer", "small.txt=small", "other.log=viewer"));
+    }
+
+    private Path write(String name, String text) throws IOException {
+        return Files.write(directory.resolve(name), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(TextDocument document) {
+        return document == null ? "viewer" : document.getText();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
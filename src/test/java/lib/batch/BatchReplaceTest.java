@@ -0,0 +1,120 @@
+package lib.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchReplaceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaceAllAcrossChunks() throws IOException {
+        // the chunks are 64K chars, put matches on both sides of the boundaries
+        StringBuilder text = new StringBuilder();
+        int repeats = 0;
+        while (text.length() < 200_000) {
+            text.append("croco\r\nsome text CROCO ");
+            repeats++;
+        }
+        Path file = write("big.txt", text.toString());
+
+        FileResult result = new BatchReplace("croco", "world", false, 0, 1).process(file);
+
+        String expected = text.toString().replaceAll("(?i)croco", "world");
+        assertEquals(read(file), expected);
+        assertEquals(result.getMatches(), 2 * repeats);
+        assertEquals(result.getReplaced(), 2 * repeats);
+    }
+
+    @Test
+    void matchCaseAndOccurrence() throws IOException {
+        Path file = write("a.txt", "hello croco, hello Croco, hello croco");
+
+        FileResult result = new BatchReplace("croco", "world", true, 2, 1).process(file);
+
+        assertEquals(read(file), "hello croco, hello Croco, hello world");
+        assertEquals(result.getMatches(), 2);
+        assertEquals(result.getReplaced(), 1);
+    }
+
+    @Test
+    void keepsTheByteOrderMark() throws IOException {
+        Path file = directory.resolve("bom.txt");
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        byte[] text = "h\u00e9llo".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = Arrays.copyOf(bom, bom.length + text.length);
+        System.arraycopy(text, 0, bytes, bom.length, text.length);
+        Files.write(file, bytes);
+
+        new BatchReplace("llo", "LLO", true, 0, 1).process(file);
+
+        byte[] written = Files.readAllBytes(file);
+        assertArrayEquals(Arrays.copyOf(written, 3), bom);
+        assertEquals(new String(written, 3, written.length - 3, StandardCharsets.UTF_8), "h\u00e9LLO");
+    }
+
+    @Test
+    void countsWithoutWritingAndSkipsBinaries() throws IOException {
+        Path text = write("text.txt", "one two one");
+        Path binary = directory.resolve("image.bin");
+        Files.write(binary, new byte[]{'o', 'n', 'e', 0, 0, 1, 2, 0, 0, 0});
+        long modified = Files.getLastModifiedTime(text).toMillis();
+
+        List<FileResult> results = new BatchReplace("one", null, false, 0, 2)
+                .run(Collections.singletonList(directory), null, result -> {
+                });
+
+        assertEquals(results.size(), 2);
+        for (FileResult result : results) {
+            if (result.getPath().equals(binary)) {
+                assertEquals(result.getSkipped(), "binary");
+            } else {
+                assertEquals(result.getMatches(), 2);
+                assertEquals(result.getReplaced(), 0);
+            }
+        }
+        assertEquals(Files.getLastModifiedTime(text).toMillis(), modified);
+    }
+
+    @Test
+    void skipsFilesThatAreNotTextInTheirCharset() throws IOException {
+        // the charset is found from the first 64K, the latin-1 byte is after them
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 100_000) {
+            text.append("plain ascii line\n");
+        }
+        byte[] start = text.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = Arrays.copyOf(start, start.length + 8);
+        System.arraycopy(new byte[]{'c', 'a', 'f', (byte) 0xe9, ' ', 'l', 'i', 'n'}, 0, bytes, start.length, 8);
+        Path file = directory.resolve("latin.txt");
+        Files.write(file, bytes);
+
+        FileResult result = new BatchReplace("plain", "PLAIN", true, 0, 1).process(file);
+
+        assertEquals(result.getSkipped(), "not UTF-8 text");
+        assertArrayEquals(Files.readAllBytes(file), bytes);
+        // the temporary file is gone
+        assertEquals(directory.toFile().list().length, 1);
+    }
+
+    private Path write(String name, String text) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,81 @@
+package lib.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTailTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsOnlyAppendedBytes() throws IOException {
+        Path file = directory.resolve("app.log");
+        Files.write(file, "first\n".getBytes(StandardCharsets.UTF_8));
+        FileTail tail = new FileTail(file, TextFormat.DEFAULT, Files.size(file));
+
+        assertTrue(tail.readAppended());
+        assertFalse(tail.hasAppended());
+        append(file, "second\r\nthird\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(tail.readAppended());
+        assertEquals(tail.takeAppended(), "second\nthird\n");
+        assertTrue(tail.readAppended());
+        assertEquals(tail.takeAppended(), "");
+    }
+
+    @Test
+    void keepsTextUntilItIsTaken() throws IOException {
+        Path file = directory.resolve("busy.log");
+        Files.write(file, new byte[0]);
+        FileTail tail = new FileTail(file, TextFormat.DEFAULT, 0);
+
+        append(file, "one\n".getBytes(StandardCharsets.UTF_8));
+        tail.readAppended();
+        append(file, "two\n".getBytes(StandardCharsets.UTF_8));
+        tail.readAppended();
+        assertTrue(tail.hasAppended());
+        assertEquals(tail.takeAppended(), "one\ntwo\n");
+        assertFalse(tail.hasAppended());
+    }
+
+    @Test
+    void keepsSplitCharacterForNextRead() throws IOException {
+        Path file = directory.resolve("split.log");
+        Files.write(file, new byte[0]);
+        FileTail tail = new FileTail(file, TextFormat.DEFAULT, 0);
+
+        byte[] e = "\u00e9".getBytes(StandardCharsets.UTF_8);
+        append(file, new byte[]{'a', e[0]});
+        tail.readAppended();
+        assertEquals(tail.takeAppended(), "a");
+        append(file, new byte[]{e[1], 'b'});
+        tail.readAppended();
+        assertEquals(tail.takeAppended(), "\u00e9b");
+    }
+
+    @Test
+    void detectsTruncationAndRewrite() throws IOException {
+        Path file = directory.resolve("rotated.log");
+        Files.write(file, "some long line\n".getBytes(StandardCharsets.UTF_8));
+        FileTail tail = new FileTail(file, TextFormat.DEFAULT, Files.size(file));
+
+        Files.write(file, "short\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(tail.readAppended());
+
+        tail.resync();
+        Files.write(file, "other\n and more\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(tail.readAppended());
+    }
+
+    private static void append(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,108 @@
+package lib.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTextFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsLinesThroughTheSparseIndex() throws IOException {
+        StringBuilder text = new StringBuilder();
+        int lines = MappedTextFile.LINES_PER_SAMPLE * 3 + 17;
+        for (int i = 0; i < lines; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        // small regions so lines span two of them
+        MappedTextFile file = MappedTextFile.open(write(text.toString().getBytes(StandardCharsets.UTF_8)), 6);
+
+        assertEquals(file.lineStart(0), 0);
+        assertEquals(file.lineStart(5), text.indexOf("line 5\n"));
+        assertEquals(file.lineStart(2000), -1);
+        assertEquals(file.lineOf(100), -1);
+        assertTrue(file.indexLines(() -> false));
+
+        assertEquals(file.getLineCount(), lines + 1);
+        for (int line : new int[]{0, 1, 1023, 1024, 1025, 2500, lines - 1}) {
+            long start = file.lineStart(line);
+            assertEquals(start, text.indexOf("line " + line + "\n"));
+            assertEquals(file.lineOf(start), line);
+            assertEquals(file.lineOf(start + 3), line);
+            assertEquals(file.lineStartBefore(start + 3), start);
+        }
+        assertEquals(file.lineStart(lines), text.length());
+        assertEquals(file.lineStart(lines + 1), -1);
+    }
+
+    @Test
+    void readsChunksForwardAndBackward() throws IOException {
+        MappedTextFile file = MappedTextFile.open(write("one\r\ntwo\r\nthree\r\nfour".getBytes(StandardCharsets.UTF_8)), 3);
+        assertEquals(file.getFormat().getLineSeparator(), LineSeparator.CRLF);
+
+        MappedTextFile.Chunk first = file.read(0, 2);
+        assertEquals(first.getText(), "one\ntwo\n");
+        assertEquals(first.getLineCount(), 2);
+        assertEquals(first.getEnd(), 10);
+
+        MappedTextFile.Chunk rest = file.read(first.getEnd(), 5);
+        assertEquals(rest.getText(), "three\nfour");
+        assertEquals(rest.getEnd(), file.getSize());
+
+        MappedTextFile.Chunk before = file.readBefore(17, 2);
+        assertEquals(before.getText(), "two\nthree\n");
+        assertEquals(before.getStart(), 5);
+        assertEquals(file.readBefore(17, 10).getStart(), 0);
+        assertEquals(file.encodedLength(before.getText()), 12);
+    }
+
+    @Test
+    void readsUtf16() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(0xFF);
+        bytes.write(0xFE);
+        bytes.write("caf\u00e9\nlog line\nend".getBytes(StandardCharsets.UTF_16LE));
+        MappedTextFile file = MappedTextFile.open(write(bytes.toByteArray()), 4);
+        file.indexLines(() -> false);
+
+        assertEquals(file.getDataStart(), 2);
+        assertEquals(file.getLineCount(), 3);
+        assertEquals(file.lineStart(1), 12);
+        assertEquals(file.read(file.lineStart(1), 1).getText(), "log line\n");
+        assertEquals(file.find("LOG", false, 0, true, () -> false), 12);
+        assertEquals(file.find("CAF\u00c9", false, 0, true, () -> false), 2);
+    }
+
+    @Test
+    void findsInTheBytes() throws IOException {
+        String text = "Hello h\u00e9llo\nHELLO world\nhello";
+        MappedTextFile file = MappedTextFile.open(write(text.getBytes(StandardCharsets.UTF_8)), 3);
+
+        long first = file.find("hello", false, 0, true, () -> false);
+        assertEquals(first, 0);
+        long second = file.find("hello", false, first + 1, true, () -> false);
+        // the accented e takes two bytes
+        assertEquals(second, text.indexOf("HELLO") + 1);
+        assertEquals(file.find("hello", true, 1, true, () -> false), text.lastIndexOf("hello") + 1);
+        assertEquals(file.find("hello", false, second, false, () -> false), 0);
+        assertEquals(file.find("H\u00c9LLO", false, 0, true, () -> false), 6);
+        assertEquals(file.find("o\nhe", false, 0, true, () -> false), 11);
+        assertEquals(file.find("o\nhe", true, 0, true, () -> false), -1);
+        assertEquals(file.find("hello", false, 0, true, () -> true), -1);
+    }
+
+    private Path write(byte[] bytes) throws IOException {
+        Path file = directory.resolve("large.txt");
+        Files.write(file, bytes);
+        return file;
+    }
+}
@@ -0,0 +1,70 @@
+package lib.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelFileLoaderTest {
+
+    @Test
+    void handsOverInSelectionOrder() throws Exception {
+        ParallelFileLoader loader = new ParallelFileLoader(4);
+        List<Path> paths = Arrays.asList(Paths.get("slow"), Paths.get("fast"), Paths.get("medium"), Paths.get("instant"));
+        List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+
+        loader.load(paths, path -> {
+            sleep(path.toString().equals("slow") ? 200 : path.toString().equals("medium") ? 50 : 0);
+            return path.toString();
+        }, (path, text) -> loaded.add(text), Runnable::run).get(5, TimeUnit.SECONDS);
+
+        assertEquals(loaded, Arrays.asList("slow", "fast", "medium", "instant"));
+    }
+
+    @Test
+    void skipsFilesThatFail() throws Exception {
+        ParallelFileLoader loader = new ParallelFileLoader(2);
+        List<Path> paths = Arrays.asList(Paths.get("a"), Paths.get("broken"), Paths.get("b"));
+        List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+
+        loader.load(paths, path -> {
+            if (path.toString().equals("broken")) {
+                throw new IllegalStateException("can't read " + path);
+            }
+            return path.toString();
+        }, (path, text) -> loaded.add(text), Runnable::run).get(5, TimeUnit.SECONDS);
+
+        assertEquals(loaded, Arrays.asList("a", "b"));
+    }
+
+    @Test
+    void keepsHandingOverAfterTheConsumerFails() throws Exception {
+        ParallelFileLoader loader = new ParallelFileLoader(2);
+        List<Path> paths = Arrays.asList(Paths.get("a"), Paths.get("bad"), Paths.get("b"));
+        List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+
+        loader.load(paths, Path::toString, (path, text) -> {
+            if (text.equals("bad")) {
+                throw new IllegalStateException("can't attach " + path);
+            }
+            loaded.add(text);
+        }, Runnable::run).get(5, TimeUnit.SECONDS);
+
+        assertEquals(loaded, Arrays.asList("a", "b"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package lib.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextFileReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readUtf8() throws IOException {
+        TextDocument document = read("h\u00e9llo w\u00f6rld".getBytes(StandardCharsets.UTF_8));
+        assertEquals(document.getText(), "h\u00e9llo w\u00f6rld");
+        assertEquals(document.getFormat().getCharset(), StandardCharsets.UTF_8);
+        assertFalse(document.getFormat().hasBom());
+    }
+
+    @Test
+    void readUtf16WithBom() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(0xFF);
+        bytes.write(0xFE);
+        bytes.write("log line".getBytes(StandardCharsets.UTF_16LE));
+
+        TextDocument document = read(bytes.toByteArray());
+        assertEquals(document.getText(), "log line");
+        assertEquals(document.getFormat().getCharset(), StandardCharsets.UTF_16LE);
+        assertTrue(document.getFormat().hasBom());
+    }
+
+    @Test
+    void readUtf16WithoutBom() throws IOException {
+        TextDocument document = read("plain ascii in utf-16".getBytes(StandardCharsets.UTF_16BE));
+        assertEquals(document.getText(), "plain ascii in utf-16");
+        assertEquals(document.getFormat().getCharset(), StandardCharsets.UTF_16BE);
+    }
+
+    @Test
+    void readLatin1() throws IOException {
+        TextDocument document = read("caf\u00e9 cr\u00e8me".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals(document.getText(), "caf\u00e9 cr\u00e8me");
+        assertEquals(document.getFormat().getCharset(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void replaceMalformedBytes() throws IOException {
+        // valid utf-8 in the sniffed sample, a broken sequence after it
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < CharsetSniffer.SAMPLE_SIZE; i++) {
+            text.append('a');
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        bytes.write(0xC3);
+        bytes.write('b');
+
+        TextDocument document = read(bytes.toByteArray());
+        assertEquals(document.getFormat().getCharset(), StandardCharsets.UTF_8);
+        assertEquals(document.getText(), text + "\ufffdb");
+    }
+
+    @Test
+    void readCharacterSplitBetweenChunks() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < CharsetSniffer.SAMPLE_SIZE - 1; i++) {
+            text.append('a');
+        }
+        // the two bytes of the accented e are on both sides of the first chunk
+        text.append("\u00e9 and more");
+
+        TextDocument document = read(text.toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(document.getText(), text.toString());
+    }
+
+    @Test
+    void writeKeepsFormat() throws IOException {
+        Path file = directory.resolve("written.txt");
+        TextFormat format = new TextFormat(StandardCharsets.UTF_16LE, true, LineSeparator.LF);
+        TextFileWriter.write(file, "round trip", format);
+
+        TextDocument document = TextFileReader.read(file);
+        assertEquals(document.getText(), "round trip");
+        assertEquals(document.getFormat().getCharset(), StandardCharsets.UTF_16LE);
+        assertTrue(document.getFormat().hasBom());
+    }
+
+    @Test
+    void keepLineSeparator() throws IOException {
+        TextDocument document = read("first\r\nsecond\r\n\r\nlast\r\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(document.getText(), "first\nsecond\n\nlast\n");
+        assertEquals(document.getFormat().getLineSeparator(), LineSeparator.CRLF);
+        assertEquals(document.getLineCount(), 5);
+        assertEquals(document.getLineStart(1), 6);
+        assertEquals(document.getLineStart(3), 14);
+        assertEquals(document.getLineStart(4), 19);
+
+        assertEquals(read("a\rb\rc".getBytes(StandardCharsets.UTF_8)).getFormat().getLineSeparator(), LineSeparator.CR);
+        assertEquals(read("a\nb".getBytes(StandardCharsets.UTF_8)).getFormat().getLineSeparator(), LineSeparator.LF);
+    }
+
+    @Test
+    void crlfSplitBetweenChunks() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < CharsetSniffer.SAMPLE_SIZE - 1; i++) {
+            text.append('a');
+        }
+        text.append("\r\nb");
+
+        TextDocument document = read(text.toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(document.getLineCount(), 2);
+        assertEquals(document.getFormat().getLineSeparator(), LineSeparator.CRLF);
+        assertEquals(document.getText().length(), CharsetSniffer.SAMPLE_SIZE + 1);
+    }
+
+    @Test
+    void saveRoundTripsLineSeparators() throws IOException {
+        byte[] original = "windows\r\nfile\r\nwith trailing newline\r\n".getBytes(StandardCharsets.UTF_8);
+        TextDocument document = read(original);
+
+        Path saved = directory.resolve("saved.txt");
+        TextFileWriter.write(saved, document.getText(), document.getFormat());
+        assertArrayEquals(Files.readAllBytes(saved), original);
+    }
+
+    private TextDocument read(byte[] bytes) throws IOException {
+        Path file = directory.resolve("file.txt");
+        Files.write(file, bytes);
+        return TextFileReader.read(file);
+    }
+}
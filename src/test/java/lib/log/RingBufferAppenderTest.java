@@ -0,0 +1,82 @@
+package lib.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferAppenderTest {
+
+    @Test
+    void writesInAppendOrder() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RingBufferAppender appender = new RingBufferAppender(8, new PrintStream(bytes, true));
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(appender.append(Level.INFO, "Test", "message " + i, null));
+            if (i % 5 == 4) {
+                assertEquals(appender.drain(), 5);
+            }
+        }
+
+        String[] lines = bytes.toString().split("\n");
+        assertEquals(lines.length, 20);
+        assertTrue(lines[0].endsWith("INFO Test - message 0"));
+        assertTrue(lines[19].endsWith("INFO Test - message 19"));
+    }
+
+    @Test
+    void dropsWhenFull() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RingBufferAppender appender = new RingBufferAppender(4, new PrintStream(bytes, true));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(appender.append(Level.WARN, "Test", "kept", null));
+        }
+        assertFalse(appender.append(Level.WARN, "Test", "dropped", null));
+        assertEquals(appender.drain(), 4);
+        assertTrue(bytes.toString().contains("1 log messages were dropped"));
+        assertTrue(appender.append(Level.WARN, "Test", "room again", null));
+    }
+
+    @Test
+    void concurrentAppendsAreAllWritten() throws InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RingBufferAppender appender = new RingBufferAppender(1 << 14, new PrintStream(bytes, true));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    appender.append(Level.DEBUG, "Thread" + thread, "message " + i, null);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(appender.drain(), 4000);
+    }
+
+    @Test
+    void disabledLevelsAreNotBuilt() {
+        Logger logger = Logger.get(RingBufferAppenderTest.class);
+        Logger.setThreshold(Level.WARN);
+        try {
+            assertFalse(logger.isEnabled(Level.DEBUG));
+            assertTrue(logger.isEnabled(Level.ERROR));
+            logger.debug(() -> {
+                throw new AssertionError("the message of a disabled level was built");
+            });
+        } finally {
+            Logger.setThreshold(Level.INFO);
+        }
+    }
+}
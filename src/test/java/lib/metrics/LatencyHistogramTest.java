@@ -0,0 +1,44 @@
+package lib.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(histogram.getCount(), 100_000);
+        assertEquals(histogram.getMax(), 100_000_000);
+        assertEquals(histogram.getValueAtPercentile(50), 50_000_000, 50_000_000 / 64.0);
+        assertEquals(histogram.getValueAtPercentile(99), 99_000_000, 99_000_000 / 64.0);
+        assertEquals(histogram.getValueAtPercentile(100), 100_000_000);
+        assertEquals(histogram.getMean(), 50_000_500, 1);
+    }
+
+    @Test
+    void bucketsCoverEveryLong() {
+        long[] values = {0, 1, 127, 128, 129, 255, 256, 1L << 40, Long.MAX_VALUE};
+        int previous = -1;
+        for (long value : values) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(index >= previous);
+            assertTrue(LatencyHistogram.highestValue(index) >= value);
+            previous = index;
+        }
+    }
+
+    @Test
+    void emptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(histogram.getValueAtPercentile(99), 0);
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getMax(), 0);
+    }
+}
@@ -0,0 +1,52 @@
+package lib.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileScannerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void countsCrOnlyLineBreaks() throws IOException {
+        Path file = write("one\rtwo\rthe croco\r\rcroco");
+
+        // every region size puts a \r at the end of a region somewhere
+        for (long regionSize : new long[]{1 << 20, 1, 2, 3, 4}) {
+            assertEquals(lines(file, regionSize), Arrays.asList("3:5", "5:1"), "regions of " + regionSize);
+        }
+    }
+
+    @Test
+    void countsMixedLineBreaksOnce() throws IOException {
+        Path file = write("a\r\nb\rc\n\r\ncroco\r");
+
+        for (long regionSize : new long[]{1 << 20, 1, 2, 3, 4}) {
+            assertEquals(lines(file, regionSize), Arrays.asList("5:1"), "regions of " + regionSize);
+        }
+    }
+
+    private Path write(String text) throws IOException {
+        return Files.write(directory.resolve("a.txt"), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the line and the column of every hit of croco
+     */
+    private static List<String> lines(Path file, long regionSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        new FileScanner("croco", true, regionSize).scan(file, hit -> lines.add(hit.getLine() + ":" + hit.getColumn()), () -> false);
+        return lines;
+    }
+}
@@ -0,0 +1,109 @@
+package lib.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FolderSearchTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsLinesColumnsAndPreviews() throws IOException {
+        Path file = write("a.txt", "first line\r\nthe croco \u00e9 croco\nlast");
+
+        List<SearchHit> hits = search("croco", true, 100);
+
+        assertEquals(hits.size(), 2);
+        assertEquals(hits.get(0).getPath(), file);
+        assertEquals(hits.get(0).getLine(), 2);
+        assertEquals(hits.get(0).getColumn(), 5);
+        assertEquals(hits.get(0).getPreview(), "the croco \u00e9 croco");
+        assertEquals(hits.get(1).getLine(), 2);
+        assertEquals(hits.get(1).getColumn(), 13);
+    }
+
+    @Test
+    void ignoresCaseInEveryFile() throws IOException {
+        write("a.txt", "CROCO");
+        write("sub/b.txt", "one\ntwo Croco");
+        Files.write(directory.resolve("utf16.txt"), "\ufeffcRoCo".getBytes(StandardCharsets.UTF_16LE));
+
+        List<SearchHit> hits = search("croco", false, 100);
+
+        assertEquals(hits.size(), 3);
+        assertEquals(search("croco", true, 100).size(), 0);
+        SearchHit nested = hits.stream().filter(hit -> hit.getPath().endsWith("b.txt")).findFirst().get();
+        assertEquals(nested.getLine(), 2);
+        assertEquals(nested.getColumn(), 5);
+    }
+
+    @Test
+    void skipsBinaryFilesAndVersionControl() throws IOException {
+        write("a.txt", "croco");
+        write(".git/objects/b.txt", "croco");
+        Files.write(directory.resolve("c.bin"), new byte[]{'c', 'r', 'o', 'c', 'o', 0, 0, 1, 2, 0, 0, 0});
+
+        FolderSearch search = new FolderSearch(directory, "croco", true, 100, hit -> {
+        });
+        search.run();
+
+        assertEquals(search.getHitCount(), 1);
+        assertEquals(search.getFileCount(), 1);
+    }
+
+    @Test
+    void stopsAtTheHitLimit() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("croco\n");
+        }
+        write("a.txt", text.toString());
+        write("b.txt", text.toString());
+
+        List<SearchHit> hits = Collections.synchronizedList(new ArrayList<>());
+        FolderSearch search = new FolderSearch(directory, "croco", true, 10, hits::add);
+        search.run();
+
+        assertEquals(hits.size(), 10);
+        assertTrue(search.isLimitReached());
+        assertFalse(search.isCancelled());
+    }
+
+    @Test
+    void cancelStopsTheSearch() throws IOException {
+        write("a.txt", "croco");
+        FolderSearch search = new FolderSearch(directory, "croco", true, 100, hit -> {
+        });
+        search.cancel();
+        search.run();
+
+        assertEquals(search.getHitCount(), 0);
+        assertTrue(search.isCancelled());
+    }
+
+    private List<SearchHit> search(String query, boolean matchCase, int maxHits) {
+        List<SearchHit> hits = Collections.synchronizedList(new ArrayList<>());
+        new FolderSearch(directory, query, matchCase, maxHits, hits::add).run();
+        hits.sort(Comparator.comparing(SearchHit::getPath).thenComparing(SearchHit::getLine).thenComparing(SearchHit::getColumn));
+        return hits;
+    }
+
+    private Path write(String name, String text) throws IOException {
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
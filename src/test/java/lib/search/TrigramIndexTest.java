@@ -0,0 +1,155 @@
+package lib.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private Path root;
+    private Path indexFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createDirectories(directory.resolve("root"));
+        indexFile = directory.resolve("root.idx");
+    }
+
+    @Test
+    void candidatesHaveEveryTrigramOfTheQuery() throws IOException {
+        Path a = write("a.txt", "hello croco");
+        write("b.txt", "hello world");
+        write("sub/c.txt", "cro co");
+        Files.write(root.resolve("d.bin"), new byte[]{'c', 'r', 'o', 'c', 'o', 0, 0, 1, 2, 0, 0, 0});
+        Path utf16 = root.resolve("e.txt");
+        Files.write(utf16, "\ufeffH\u00c9LLO".getBytes(StandardCharsets.UTF_16LE));
+
+        TrigramIndex index = TrigramIndex.open(root, indexFile);
+        assertNull(index.candidates("croco"));
+        index.update();
+
+        assertEquals(index.candidates("CROCO"), Collections.singletonList(a));
+        assertEquals(index.candidates("h\u00e9llo"), Collections.singletonList(utf16));
+        assertEquals(index.candidates("hello").size(), 2);
+        assertEquals(index.candidates("zebra"), Collections.emptyList());
+        assertNull(index.candidates("cr"));
+        assertEquals(index.getFileCount(), 5);
+    }
+
+    @Test
+    void largeFilesAreAlwaysCandidates() throws IOException {
+        char[] large = new char[(int) TrigramIndex.MAX_INDEXED_SIZE + 1];
+        Arrays.fill(large, 'x');
+        Path big = write("big.txt", new String(large));
+
+        TrigramIndex index = TrigramIndex.open(root, indexFile);
+        index.update();
+
+        assertEquals(index.candidates("croco"), Collections.singletonList(big));
+    }
+
+    @Test
+    void reusedAfterRestartAndUpdatedIncrementally() throws IOException {
+        Path kept = write("kept.txt", "croco");
+        Path changed = write("changed.txt", "croco");
+        Path deleted = write("deleted.txt", "croco");
+        TrigramIndex index = TrigramIndex.open(root, indexFile);
+        index.update();
+        index.close();
+
+        // same size and modification time, the next update doesn't read it again
+        FileTime modified = Files.getLastModifiedTime(kept);
+        write("kept.txt", "zebra");
+        Files.setLastModifiedTime(kept, modified);
+        write("changed.txt", "zebra and more");
+        Files.delete(deleted);
+        Path added = write("added.txt", "croco");
+
+        TrigramIndex reopened = TrigramIndex.open(root, indexFile);
+        assertEquals(reopened.getFileCount(), 3);
+        reopened.update();
+
+        List<Path> candidates = new ArrayList<>(reopened.candidates("croco"));
+        Collections.sort(candidates);
+        assertEquals(candidates, Arrays.asList(added, kept));
+        assertEquals(reopened.candidates("zebra"), Collections.singletonList(changed));
+    }
+
+    @Test
+    void changedFilesAreCandidatesBeforeTheyAreRead() throws IOException, InterruptedException {
+        Path a = write("a.txt", "croco");
+        Path b = write("b.txt", "nothing yet");
+        TrigramIndex index = TrigramIndex.open(root, indexFile);
+        index.start();
+        for (int i = 0; i < 500 && !index.isReady(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(index.isReady());
+
+        // the watcher reports it, the worker reads it a moment later
+        write("b.txt", "now croco");
+        Path added = write("new/c.txt", "croco too");
+        index.changed(b);
+        index.changed(added.getParent());
+
+        List<Path> candidates = new ArrayList<>(index.candidates("croco"));
+        index.close();
+        // the watcher may have reported them too, the worker reads them in any order
+        Collections.sort(candidates);
+        assertEquals(candidates, Arrays.asList(a, b, added));
+    }
+
+    @Test
+    void folderSearchScansTheCandidates() throws IOException {
+        write("a.txt", "one\ntwo croco");
+        write("b.txt", "nothing");
+        TrigramIndex index = TrigramIndex.open(root, indexFile);
+        index.update();
+
+        List<SearchHit> hits = Collections.synchronizedList(new ArrayList<>());
+        FolderSearch search = new FolderSearch(root, "Croco", false, 100, hits::add);
+        search.setIndex(index);
+        search.run();
+
+        assertTrue(search.isIndexed());
+        assertEquals(search.getFileCount(), 1);
+        assertEquals(hits.size(), 1);
+        assertEquals(hits.get(0).getLine(), 2);
+        assertEquals(hits.get(0).getColumn(), 5);
+    }
+
+    @Test
+    void postingsKeepLargeGaps() {
+        Postings postings = new Postings();
+        int[] ids = {0, 1, 200, 70_000, 3_000_000, Integer.MAX_VALUE};
+        for (int id : ids) {
+            postings.add(id);
+        }
+
+        assertArrayEquals(postings.toArray(), ids);
+        assertArrayEquals(Postings.decode(ByteBuffer.allocate(0), 0, 0, 0), new int[0]);
+    }
+
+    private Path write(String name, String text) throws IOException {
+        Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,151 @@
+package lib.session;
+
+import lib.io.LineSeparator;
+import lib.io.TextFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeThenRead() {
+        Path sessionFile = directory.resolve("session");
+
+        TabSnapshot savedFile = new TabSnapshot(Paths.get("/tmp/notes.txt"), TextFormat.DEFAULT, 12, false, null,
+                Arrays.asList("hello", "hello world"), Collections.emptyList());
+        TabSnapshot untitled = new TabSnapshot(null, new TextFormat(StandardCharsets.UTF_16LE, true, LineSeparator.CRLF), 3, true, "h\u00e9llo\nw\u00f6rld",
+                Collections.singletonList("h\u00e9llo"), Collections.singletonList("h\u00e9llo\nw\u00f6rld again"));
+
+        assertTrue(SessionStore.write(new Session(Arrays.asList(savedFile, untitled), 1), sessionFile));
+
+        Session session = SessionStore.read(sessionFile);
+        assertNotNull(session);
+        assertEquals(session.getSelectedIndex(), 1);
+        assertEquals(session.getTabs().size(), 2);
+
+        TabSnapshot first = session.getTabs().get(0);
+        assertEquals(first.getPath(), Paths.get("/tmp/notes.txt"));
+        assertEquals(first.getCaretPosition(), 12);
+        assertFalse(first.isTextChanged());
+        assertNull(first.getText());
+        assertEquals(first.getUndoHistory(), Arrays.asList("hello", "hello world"));
+        assertTrue(first.getRedoHistory().isEmpty());
+
+        TabSnapshot second = session.getTabs().get(1);
+        assertNull(second.getPath());
+        assertEquals(second.getFormat().getCharset(), StandardCharsets.UTF_16LE);
+        assertTrue(second.getFormat().hasBom());
+        assertEquals(second.getFormat().getLineSeparator(), LineSeparator.CRLF);
+        assertTrue(second.isTextChanged());
+        assertEquals(second.getText(), "h\u00e9llo\nw\u00f6rld");
+        assertEquals(second.getRedoHistory(), Collections.singletonList("h\u00e9llo\nw\u00f6rld again"));
+    }
+
+    @Test
+    void readMissingOrCorruptFile() throws IOException {
+        assertNull(SessionStore.read(directory.resolve("missing")));
+
+        Path corrupt = directory.resolve("corrupt");
+        Files.write(corrupt, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertNull(SessionStore.read(corrupt));
+    }
+
+    @Test
+    void readTruncatedFile() throws IOException {
+        Path sessionFile = directory.resolve("session");
+        TabSnapshot tab = new TabSnapshot(null, TextFormat.DEFAULT, 0, true, "hello",
+                Collections.singletonList("hell"), Collections.singletonList("hello world"));
+        assertTrue(SessionStore.write(new Session(Collections.singletonList(tab), 0), sessionFile));
+        byte[] bytes = Files.readAllBytes(sessionFile);
+
+        // every cut after the header is missing a part of the tab
+        Path truncated = directory.resolve("truncated");
+        for (int length = 8; length < bytes.length; length++) {
+            Files.write(truncated, Arrays.copyOf(bytes, length));
+            assertNull(SessionStore.read(truncated), "cut at " + length);
+        }
+    }
+
+    /**
+     * a header with a valid magic and version followed by garbage
+     */
+    @Test
+    void readGarbageAfterTheHeader() throws IOException {
+        // more tabs than the file has bytes
+        assertNull(read(out -> out.writeInt(Integer.MAX_VALUE)));
+        assertNull(read(out -> out.writeInt(-1)));
+        // a string longer than the file
+        assertNull(read(out -> {
+            out.writeInt(1);
+            out.writeBoolean(true);
+            out.writeInt(Integer.MAX_VALUE);
+        }));
+        assertNull(read(out -> {
+            out.writeInt(1);
+            out.writeBoolean(true);
+            out.writeInt(-5);
+        }));
+        // a charset and a line separator that don't exist
+        assertNull(read(out -> {
+            out.writeInt(1);
+            out.writeBoolean(false);
+            writeString(out, "no such charset");
+            out.writeBoolean(false);
+            writeString(out, "LF");
+        }));
+        assertNull(read(out -> {
+            out.writeInt(1);
+            out.writeBoolean(false);
+            writeString(out, "UTF-8");
+            out.writeBoolean(false);
+            writeString(out, "NEL");
+        }));
+        // no charset at all
+        assertNull(read(out -> {
+            out.writeInt(1);
+            out.writeBoolean(false);
+            out.writeBoolean(false);
+        }));
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * writes the magic, the version and a selected index, then body, and reads it back
+     */
+    private Session read(Body body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x46454453);
+        out.writeInt(3);
+        out.writeInt(0);
+        body.write(out);
+        Path garbage = directory.resolve("garbage");
+        Files.write(garbage, bytes.toByteArray());
+        return SessionStore.read(garbage);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        out.writeBoolean(true);
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,103 @@
+package lib.stats;
+
+import lib.io.LineSeparator;
+import lib.io.TextFormat;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextStatsTest {
+
+    @Test
+    void countsText() {
+        TextStats stats = new TextStats();
+        stats.reset("hello  world\n\tsecond line \ud83d\ude00\n");
+
+        assertEquals(stats.getLines(), 3);
+        assertEquals(stats.getWords(), 5);
+        assertEquals(stats.getChars(), 28);
+        assertEquals(stats.getLength(), 29);
+        assertEquals(stats.getBytes(), 31);
+    }
+
+    @Test
+    void joinsAndSplitsWordsAtTheEdges() {
+        StringBuilder text = new StringBuilder("one two three");
+        TextStats stats = new TextStats();
+        stats.reset(text);
+
+        // remove the space between one and two
+        edit(stats, text, 3, 1, "");
+        assertEquals(stats.getWords(), 2);
+
+        // split onetwo again
+        edit(stats, text, 3, 0, " ");
+        assertEquals(stats.getWords(), 3);
+
+        // replace everything but the first char
+        edit(stats, text, 1, text.length() - 1, "x y");
+        assertEquals(stats.getWords(), 2);
+        assertEquals(text.toString(), "ox y");
+    }
+
+    @Test
+    void staysExactUnderRandomEdits() {
+        Random random = new Random(46);
+        String alphabet = "ab \n\t\u00e9\u4e2d\ud83d\ude00";
+        StringBuilder text = new StringBuilder();
+        TextStats stats = new TextStats();
+        TextFormat format = new TextFormat(StandardCharsets.UTF_8, true, LineSeparator.CRLF);
+        stats.setFormat(format, text);
+        stats.reset(text);
+
+        for (int i = 0; i < 2000; i++) {
+            int position = random.nextInt(text.length() + 1);
+            int removed = random.nextInt(Math.min(8, text.length() - position) + 1);
+            StringBuilder inserted = new StringBuilder();
+            for (int j = random.nextInt(8); j > 0; j--) {
+                inserted.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            edit(stats, text, position, removed, inserted.toString());
+
+            TextStats recounted = new TextStats();
+            recounted.setFormat(format, text);
+            recounted.reset(text);
+            assertEquals(stats.getWords(), recounted.getWords());
+            assertEquals(stats.getChars(), recounted.getChars());
+            assertEquals(stats.getLines(), recounted.getLines());
+            assertEquals(stats.getBytes(), recounted.getBytes());
+        }
+        assertEquals(stats.getChars(), text.codePointCount(0, text.length()));
+    }
+
+    @Test
+    void countsTheBytesOfTheFormat() {
+        String text = "a\u00e9\n\u4e2d\ud83d\ude00\n";
+        assertEquals(bytes(text, new TextFormat(StandardCharsets.UTF_8, false, LineSeparator.LF)), 12);
+        assertEquals(bytes(text, new TextFormat(StandardCharsets.UTF_8, true, LineSeparator.CRLF)), 17);
+        assertEquals(bytes(text, new TextFormat(StandardCharsets.UTF_16LE, true, LineSeparator.CRLF)), 2 + 2 * 9);
+        assertEquals(bytes(text, new TextFormat(Charset.forName("UTF-32BE"), false, LineSeparator.CR)), 4 * 6);
+        assertEquals(bytes("a\u00e9\n", new TextFormat(StandardCharsets.ISO_8859_1, false, LineSeparator.CRLF)), 4);
+        assertEquals(bytes("a\u4e2d", new TextFormat(Charset.forName("GBK"), false, LineSeparator.LF)), 3);
+    }
+
+    private static long bytes(String text, TextFormat format) {
+        TextStats stats = new TextStats();
+        stats.setFormat(format, "");
+        stats.reset(text);
+        return stats.getBytes();
+    }
+
+    private static void edit(TextStats stats, StringBuilder text, int position, int removed, String inserted) {
+        String removedText = text.substring(position, position + removed);
+        text.replace(position, position + removed, inserted);
+        int end = position + inserted.length();
+        int before = position > 0 ? text.charAt(position - 1) : TextStats.NONE;
+        int after = end < text.length() ? text.charAt(end) : TextStats.NONE;
+        stats.apply(before, removedText, inserted, after);
+    }
+}
@@ -0,0 +1,109 @@
+package lib.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BracketIndexTest {
+
+    @Test
+    void matchesJsonBrackets() {
+        String text = "{\"a\": [1, \"]\"],\n \"b\": {}}";
+        BracketIndex index = new BracketIndex(text::subSequence, BracketIndex.Syntax.JSON);
+        index.reset(text);
+
+        BracketIndex.Match outer = index.match(0);
+        assertEquals(outer.getStart(), 0);
+        assertEquals(outer.getMatchStart(), text.length() - 1);
+        assertFalse(outer.isMismatched());
+        // the caret right after a bracket matches it too
+        assertEquals(index.match(text.indexOf('[') + 1).getMatchStart(), text.indexOf("],"));
+        assertEquals(index.match(text.indexOf("],")).getMatchStart(), text.indexOf('['));
+        assertNull(index.match(2));
+
+        BracketIndex.Match fold = index.foldAt(0, text.indexOf('\n'));
+        assertEquals(fold.getStart(), 0);
+        assertEquals(fold.getMatchStart(), text.length() - 1);
+        assertNull(index.foldAt(text.indexOf('\n') + 1, text.length()));
+    }
+
+    @Test
+    void matchesXmlTags() {
+        String text = "<?xml version=\"1.0\"?>\n<a x=\"<b>\">\n  <!-- <c> -->\n  <d/>\n  <e>text</f>\n</a>";
+        BracketIndex index = new BracketIndex(text::subSequence, BracketIndex.Syntax.XML);
+        index.reset(text);
+
+        BracketIndex.Match a = index.match(text.indexOf("<a") + 1);
+        assertEquals(a.getStart(), text.indexOf("<a"));
+        assertEquals(a.getEnd(), text.indexOf("\n  <!--"));
+        assertEquals(a.getMatchStart(), text.indexOf("</a>"));
+        assertEquals(a.getMatchEnd(), text.length());
+        assertTrue(index.match(text.indexOf("<e>")).isMismatched());
+        assertNull(index.match(text.indexOf("<d/>")));
+        assertNull(index.match(text.indexOf("<c>")));
+    }
+
+    @Test
+    void staysExactUnderRandomEdits() {
+        checkRandomEdits(BracketIndex.Syntax.JSON, "{}[]\"\\\nx ");
+        checkRandomEdits(BracketIndex.Syntax.XML, "<<<>>/!-\"'ab\n ");
+    }
+
+    private static void checkRandomEdits(BracketIndex.Syntax syntax, String alphabet) {
+        Random random = new Random(49);
+        StringBuilder text = new StringBuilder();
+        BracketIndex index = new BracketIndex(text::subSequence, syntax);
+        index.reset(text);
+
+        for (int i = 0; i < 1500; i++) {
+            int position = random.nextInt(text.length() + 1);
+            int removed = random.nextInt(Math.min(i % 100 == 0 ? 200 : 8, text.length() - position) + 1);
+            StringBuilder inserted = new StringBuilder();
+            for (int j = random.nextInt(i % 50 == 0 ? 300 : 8); j > 0; j--) {
+                inserted.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String removedText = text.substring(position, position + removed);
+            text.replace(position, position + removed, inserted.toString());
+            index.apply(position, removedText, inserted);
+
+            BracketIndex expected = new BracketIndex(text::subSequence, syntax);
+            expected.reset(text);
+            assertEquals(index.tokens(), expected.tokens());
+            assertEquals(index.getLength(), text.length());
+
+            int offset = random.nextInt(text.length() + 1);
+            BracketIndex.Match match = index.match(offset);
+            if (match != null) {
+                assertEquals(match.getMatchStart(), pairOf(expected.tokens(), match.getStart()));
+            }
+        }
+    }
+
+    /**
+     * pairs the bracket at start by walking the tokens
+     */
+    private static int pairOf(List<String> tokens, int start) {
+        int[] starts = new int[tokens.size()];
+        int[] deltas = new int[tokens.size()];
+        int rank = -1;
+        for (int i = 0; i < tokens.size(); i++) {
+            String[] parts = tokens.get(i).split(":");
+            starts[i] = Integer.parseInt(parts[0]);
+            deltas[i] = Integer.parseInt(parts[2]);
+            if (starts[i] == start) {
+                rank = i;
+            }
+        }
+        int depth = 0;
+        for (int i = deltas[rank] > 0 ? rank + 1 : rank - 1; i >= 0 && i < deltas.length; i += deltas[rank]) {
+            depth += deltas[i];
+            if (depth == -deltas[rank]) {
+                return starts[i];
+            }
+        }
+        return -1;
+    }
+}
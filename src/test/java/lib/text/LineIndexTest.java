@@ -0,0 +1,119 @@
+package lib.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineIndexTest {
+
+    @Test
+    void findsLinesAndOffsets() {
+        String text = "zero\none\n\nthree\nfour";
+        LineIndex index = new LineIndex(text::subSequence, 2, 3);
+        index.reset(text);
+
+        assertEquals(index.getLineCount(), 5);
+        assertEquals(index.lineStart(0), 0);
+        assertEquals(index.lineStart(2), 9);
+        assertEquals(index.lineStart(3), 10);
+        assertEquals(index.lineStart(4), 16);
+        assertEquals(index.lineStart(5), -1);
+        assertEquals(index.lineEnd(1), 8);
+        assertEquals(index.lineEnd(4), text.length());
+        assertEquals(index.lineOf(0), 0);
+        assertEquals(index.lineOf(4), 0);
+        assertEquals(index.lineOf(5), 1);
+        assertEquals(index.lineOf(text.length()), 4);
+    }
+
+    @Test
+    void emptyTextHasOneLine() {
+        LineIndex index = new LineIndex((start, end) -> "");
+        index.reset("");
+
+        assertEquals(index.getLineCount(), 1);
+        assertEquals(index.lineStart(0), 0);
+        assertEquals(index.lineEnd(0), 0);
+        assertEquals(index.lineOf(10), 0);
+    }
+
+    @Test
+    void readsABlockAtMostOnLongLines() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            char[] line = new char[100_000];
+            Arrays.fill(line, 'x');
+            text.append(line).append('\n');
+        }
+        int[] longestRead = new int[1];
+        LineIndex index = new LineIndex((start, end) -> {
+            longestRead[0] = Math.max(longestRead[0], end - start);
+            return text.subSequence(start, end);
+        });
+        index.reset(text);
+
+        assertEquals(index.lineStart(2), 200_002);
+        assertEquals(index.lineOf(250_000), 2);
+        text.insert(150_000, "\n");
+        index.apply(150_000, "", "\n");
+        assertEquals(index.lineStart(2), 150_001);
+        assertEquals(index.lineEnd(3), 300_003);
+        assertTrue(longestRead[0] <= 2 * LineIndex.CHARS_PER_BLOCK);
+    }
+
+    @Test
+    void staysExactUnderRandomEdits() {
+        Random random = new Random(48);
+        StringBuilder text = new StringBuilder();
+        LineIndex index = new LineIndex(text::subSequence, 4, 16);
+        index.reset(text);
+
+        for (int i = 0; i < 3000; i++) {
+            int position = random.nextInt(text.length() + 1);
+            int removed = random.nextInt(Math.min(i % 100 == 0 ? 200 : 12, text.length() - position) + 1);
+            StringBuilder inserted = new StringBuilder();
+            for (int j = random.nextInt(i % 50 == 0 ? 300 : 10); j > 0; j--) {
+                inserted.append(random.nextInt(3) == 0 ? '\n' : 'x');
+            }
+            String removedText = text.substring(position, position + removed);
+            text.replace(position, position + removed, inserted.toString());
+            index.apply(position, removedText, inserted);
+
+            int[] starts = lineStarts(text);
+            assertEquals(index.getLineCount(), starts.length);
+            assertEquals(index.getLength(), text.length());
+            int line = random.nextInt(starts.length);
+            assertEquals(index.lineStart(line), starts[line]);
+            int offset = random.nextInt(text.length() + 1);
+            assertEquals(index.lineOf(offset), lineOf(starts, offset));
+        }
+    }
+
+    private static int[] lineStarts(CharSequence text) {
+        int count = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        int[] starts = new int[count];
+        int line = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        return starts;
+    }
+
+    private static int lineOf(int[] starts, int offset) {
+        int line = 0;
+        while (line + 1 < starts.length && starts[line + 1] <= offset) {
+            line++;
+        }
+        return line;
+    }
+}
@@ -0,0 +1,152 @@
+package lib.text;
+
+import lib.stats.TextStats;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiCaretTest {
+
+    @Test
+    void editsEveryLineOfAColumn() {
+        StringBuilder text = new StringBuilder("id,name\n1,a\n22,b\n3");
+        MultiCaret carets = MultiCaret.rectangle(lines(text), 0, 1, 3, 1);
+        assertEquals(carets.size(), 4);
+        assertEquals(carets.getPrimary(), 3);
+
+        apply(text, carets.replace(";"));
+        assertEquals(text.toString(), "i;d,name\n1;,a\n2;2,b\n3;");
+        apply(text, carets.backspace());
+        apply(text, carets.backspace());
+        assertEquals(text.toString(), "d,name\n,a\n2,b\n");
+        apply(text, carets.replace(new String[]{"w", "x", "y", "z"}));
+        assertEquals(text.toString(), "wd,name\nx,a\ny2,b\nz");
+    }
+
+    @Test
+    void selectsAColumnAndCopiesIt() {
+        StringBuilder text = new StringBuilder("abc\nde\nfghi");
+        MultiCaret carets = MultiCaret.rectangle(lines(text), 0, 1, 2, 3);
+        assertEquals(carets.getSelectedText(text::subSequence), "bc\ne\ngh");
+
+        apply(text, carets.delete(lines(text)));
+        assertEquals(text.toString(), "a\nd\nfi");
+        assertEquals(carets.getCaret(2), text.indexOf("i"));
+    }
+
+    @Test
+    void movesAndMergesCarets() {
+        StringBuilder text = new StringBuilder("one\ntwo\nthree");
+        MultiCaret carets = new MultiCaret(1, 1);
+        carets.addLine(lines(text), true);
+        carets.addLine(lines(text), true);
+        assertEquals(carets.size(), 3);
+        assertEquals(carets.getCaret(2), text.indexOf("hree"));
+        assertEquals(carets.indexAt(text.indexOf("two")), 1);
+
+        carets.move(lines(text), MultiCaret.Move.LINE_END, true);
+        assertEquals(carets.getSelectedText(text::subSequence), "ne\nwo\nhree");
+        carets.move(lines(text), MultiCaret.Move.LEFT, false);
+        assertEquals(carets.getCaret(0), 1);
+        carets.move(lines(text), MultiCaret.Move.UP, false);
+        assertEquals(carets.size(), 2);
+        carets.add(5, 5);
+        assertEquals(carets.getPrimary(), 1);
+        assertArrayEquals(carets.collapse(), new int[]{5, 5});
+    }
+
+    @Test
+    void editsTenThousandCaretsInOneBatch() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            text.append("value,").append(i).append('\n');
+        }
+        MultiCaret carets = MultiCaret.rectangle(lines(text), 0, 5, 9_999, 6);
+        MultiCaret.Batch batch = carets.replace(";");
+        assertEquals(batch.size(), 10_000);
+        assertEquals(batch.getStart(1), text.indexOf("value,1") + 5);
+        apply(text, batch);
+        assertTrue(text.toString().startsWith("value;0\nvalue;1\n"));
+        assertEquals(carets.getCaret(1), text.indexOf("value;1") + 6);
+    }
+
+    @Test
+    void keepsTheIndexesExactWithCaretsFarApart() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("word ").append(i).append(i % 40 == 0 ? "\n" : " filler text of a long line ");
+        }
+        LineIndex index = new LineIndex(text::subSequence);
+        index.reset(text);
+        TextStats stats = new TextStats();
+        stats.reset(text);
+
+        MultiCaret carets = new MultiCaret(3, 3);
+        for (int offset = 500; offset < text.length(); offset += 900) {
+            carets.add(offset, offset);
+        }
+        for (String typed : new String[]{"x\ny ", "\n", ""}) {
+            MultiCaret.Batch batch = typed.isEmpty() ? carets.backspace() : carets.replace(typed);
+            // applied the way the textspace does, a change each from the last one
+            MultiCaret.Batch joined = batch.join(256, text::subSequence);
+            assertTrue(joined.size() > 1);
+            for (int i = joined.size() - 1; i >= 0; i--) {
+                int start = joined.getStart(i);
+                String removed = text.substring(start, joined.getEnd(i));
+                String inserted = joined.getText(i);
+                text.replace(start, joined.getEnd(i), inserted);
+                index.apply(start, removed, inserted);
+                int end = start + inserted.length();
+                stats.apply(start > 0 ? text.charAt(start - 1) : TextStats.NONE, removed, inserted,
+                        end < text.length() ? text.charAt(end) : TextStats.NONE);
+            }
+
+            LineIndex expectedIndex = new LineIndex(text::subSequence);
+            expectedIndex.reset(text);
+            assertEquals(index.getLineCount(), expectedIndex.getLineCount());
+            for (int line = 0; line < expectedIndex.getLineCount(); line++) {
+                assertEquals(index.lineStart(line), expectedIndex.lineStart(line));
+            }
+            TextStats expectedStats = new TextStats();
+            expectedStats.reset(text);
+            assertEquals(stats.getWords(), expectedStats.getWords());
+            assertEquals(stats.getLines(), expectedStats.getLines());
+            assertEquals(stats.getLength(), text.length());
+        }
+    }
+
+    /**
+     * applies the replacements from the last one, so the offsets of the others stay right
+     */
+    private static void apply(StringBuilder text, MultiCaret.Batch batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            text.replace(batch.getStart(i), batch.getEnd(i), batch.getText(i));
+        }
+    }
+
+    private static MultiCaret.Lines lines(StringBuilder text) {
+        LineIndex index = new LineIndex(text::subSequence);
+        index.reset(text);
+        return new MultiCaret.Lines() {
+            @Override
+            public int lineOf(int offset) {
+                return index.lineOf(offset);
+            }
+
+            @Override
+            public int lineStart(int line) {
+                return index.lineStart(line);
+            }
+
+            @Override
+            public int lineLength(int line) {
+                return index.lineEnd(line) - index.lineStart(line);
+            }
+
+            @Override
+            public int getLineCount() {
+                return index.getLineCount();
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package lib.trace;
+
+import gui.mediator.Events;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceTest {
+
+    @Test
+    void writeThenRead() throws IOException {
+        List<TraceRecord> records = Arrays.asList(
+                TraceRecord.change(10, 0, 0, 0, "h\u00e9llo"),
+                TraceRecord.event(25, 0, Events.TEXT_CHANGED, null, null, false),
+                TraceRecord.event(300000, 0, Events.REPLACE_ALL, "l", "L", true),
+                TraceRecord.event(300001, 0, Events.TEXT_CHANGED, null, null, false),
+                TraceRecord.event(400000, -1, Events.NEW_TAB, null, null, false));
+
+        List<TraceRecord> read = read(write(records));
+
+        assertEquals(read.size(), records.size());
+        assertEquals(read.get(0).getKind(), TraceRecord.Kind.CHANGE);
+        assertEquals(read.get(0).getMicros(), 10);
+        assertEquals(read.get(0).getInserted(), "h\u00e9llo");
+        assertEquals(read.get(1).getEvent(), Events.TEXT_CHANGED);
+        assertEquals(read.get(2).getMicros(), 300000);
+        assertEquals(read.get(2).getQuery(), "l");
+        assertEquals(read.get(2).getReplacement(), "L");
+        assertTrue(read.get(2).isMatchCase());
+        assertEquals(read.get(3).getEvent(), Events.TEXT_CHANGED);
+        assertNull(read.get(3).getQuery());
+        assertEquals(read.get(4).getTab(), -1);
+    }
+
+    @Test
+    void truncatedTraceEndsAtLastWholeRecord() throws IOException {
+        byte[] bytes = write(Arrays.asList(
+                TraceRecord.change(1, 0, 0, 0, "hello"),
+                TraceRecord.change(2, 0, 5, 0, " world")));
+
+        List<TraceRecord> read = read(Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertEquals(read.size(), 1);
+        assertEquals(read.get(0).getInserted(), "hello");
+    }
+
+    @Test
+    void replayDrivesHistoryAndSearch() {
+        TraceReplayer replayer = new TraceReplayer();
+        replayer.replay(Arrays.asList(
+                TraceRecord.change(0, 0, 0, 0, "one "),
+                TraceRecord.event(1, 0, Events.TEXT_CHANGED, null, null, false),
+                TraceRecord.change(2, 0, 4, 0, "two one"),
+                TraceRecord.event(3, 0, Events.TEXT_CHANGED, null, null, false),
+                TraceRecord.event(4, 0, Events.FIND_SELECT, "one", null, false),
+                TraceRecord.event(5, 0, Events.FIND_NEXT, "one", null, false),
+                TraceRecord.change(6, 0, 8, 3, "ONE"),
+                TraceRecord.event(7, 1, Events.TEXT_CHANGED, null, null, false)));
+
+        assertEquals(replayer.getText(0), "one two ONE");
+        assertEquals(replayer.getHistory(0).getUndoHistory(), Arrays.asList("one ", "one two one"));
+        assertEquals(replayer.getMatches(0), Arrays.asList(0, 8));
+        assertEquals(replayer.getLatency(Events.FIND_NEXT).getCount(), 1);
+        assertEquals(replayer.getText(1), "");
+    }
+
+    @Test
+    void changeOutsideTheTextIsRejected() {
+        TraceReplayer replayer = new TraceReplayer();
+        assertThrows(IllegalArgumentException.class, () -> replayer.apply(TraceRecord.change(0, 0, 2, 1, "x")));
+    }
+
+    private static byte[] write(List<TraceRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TraceWriter writer = new TraceWriter(bytes)) {
+            for (TraceRecord record : records) {
+                writer.write(record);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<TraceRecord> read(byte[] bytes) throws IOException {
+        try (TraceReader reader = new TraceReader(new ByteArrayInputStream(bytes))) {
+            return reader.readAll();
+        }
+    }
+}